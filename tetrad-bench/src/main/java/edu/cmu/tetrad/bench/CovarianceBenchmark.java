@@ -0,0 +1,126 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.VerticalDoubleDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.stat.correlation.BlockedCovariance;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares BlockedCovariance with the pairwise loop CovarianceMatrix used before it, for n rows and p columns of
+ * standard normal data. The largest case, n = 1,000,000 and p = 1000, needs 8G of data; pick sizes with -p, for
+ * instance "-p n=100000 -p p=100".
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class CovarianceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int n;
+
+    @Param({"100", "1000"})
+    public int p;
+
+    private double[][] columns;
+    private DataSet dataSet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(29384729L);
+        columns = new double[p][n];
+
+        for (double[] column : columns) {
+            for (int k = 0; k < n; k++) {
+                column[k] = random.nextGaussian();
+            }
+        }
+
+        List<Node> variables = new ArrayList<>();
+
+        for (int i = 0; i < p; i++) {
+            variables.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        dataSet = new BoxDataSet(new VerticalDoubleDataBox(columns), variables);
+    }
+
+    @Benchmark
+    public double[][] blocked() {
+        return BlockedCovariance.covariance(columns, n, true);
+    }
+
+    /**
+     * One pair of columns at a time, in parallel over the rows of the lower triangle, as CovarianceMatrix did.
+     */
+    @Benchmark
+    public double[][] pairwise() {
+        double[][] cov = new double[p][p];
+
+        ForkJoinPoolInstance.getInstance().getPool().submit(() -> IntStream.range(0, p).parallel().forEach(i -> {
+            for (int j = 0; j <= i; j++) {
+                double[] v1 = columns[i];
+                double[] v2 = columns[j];
+                double d = 0.0;
+                int count = 0;
+
+                for (int k = 0; k < n; k++) {
+                    if (Double.isNaN(v1[k])) continue;
+                    if (Double.isNaN(v2[k])) continue;
+
+                    d += v1[k] * v2[k];
+                    count++;
+                }
+
+                cov[i][j] = d / (count - 1);
+                cov[j][i] = cov[i][j];
+            }
+        })).join();
+
+        return cov;
+    }
+
+    /**
+     * The whole CovarianceMatrix constructor, including copying and centering the data.
+     */
+    @Benchmark
+    public CovarianceMatrix covarianceMatrix() {
+        return new CovarianceMatrix(dataSet);
+    }
+}
@@ -0,0 +1,90 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times GraphUtils.isDConnectedTo on a random DAG, averaged over a fixed set of random questions.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DSeparationBenchmark {
+
+    private static final int NUM_QUESTIONS = 1000;
+
+    @Param({"100", "1000"})
+    public int numNodes;
+
+    @Param({"2", "4"})
+    public double avgDegree;
+
+    @Param({"0", "3"})
+    public int depth;
+
+    private Graph dag;
+    private Node[] x;
+    private Node[] y;
+    private List<List<Node>> z;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dag = Simulations.dag(numNodes, avgDegree);
+
+        List<Node> nodes = dag.getNodes();
+        int[][] questions = Simulations.questions(numNodes, depth, NUM_QUESTIONS);
+        x = new Node[NUM_QUESTIONS];
+        y = new Node[NUM_QUESTIONS];
+        z = new ArrayList<>();
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            x[q] = nodes.get(questions[q][0]);
+            y[q] = nodes.get(questions[q][1]);
+            z.add(Simulations.nodes(nodes, questions[q], 2));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUESTIONS)
+    public int dConnected() {
+        int connected = 0;
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            if (GraphUtils.isDConnectedTo(x[q], y[q], z.get(q), dag)) connected++;
+        }
+
+        return connected;
+    }
+}
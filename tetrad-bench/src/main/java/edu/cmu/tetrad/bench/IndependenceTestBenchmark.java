@@ -0,0 +1,114 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestChiSquare;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times IndTestFisherZ.isIndependent and IndTestChiSquare.isIndependent, for x _||_ y | z, averaged over a fixed set
+ * of random questions.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndependenceTestBenchmark {
+
+    private static final int NUM_QUESTIONS = 1000;
+
+    @Param({"100"})
+    public int numNodes;
+
+    @Param({"1000", "10000"})
+    public int sampleSize;
+
+    @Param({"0", "1", "3"})
+    public int depth;
+
+    private IndTestFisherZ fisherZ;
+    private IndTestChiSquare chiSquare;
+    private Node[][] continuousXy;
+    private Node[][] discreteXy;
+    private List<List<Node>> continuousZ;
+    private List<List<Node>> discreteZ;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Graph dag = Simulations.dag(numNodes, 2);
+        fisherZ = new IndTestFisherZ(new CovarianceMatrix(Simulations.continuousData(dag, sampleSize)), 0.01);
+        chiSquare = new IndTestChiSquare(Simulations.discreteData(dag, sampleSize), 0.01);
+
+        int[][] questions = Simulations.questions(numNodes, depth, NUM_QUESTIONS);
+        continuousXy = new Node[NUM_QUESTIONS][];
+        discreteXy = new Node[NUM_QUESTIONS][];
+        continuousZ = new ArrayList<>();
+        discreteZ = new ArrayList<>();
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            List<Node> continuous = fisherZ.getVariables();
+            List<Node> discrete = chiSquare.getVariables();
+            int[] question = questions[q];
+
+            continuousXy[q] = new Node[]{continuous.get(question[0]), continuous.get(question[1])};
+            discreteXy[q] = new Node[]{discrete.get(question[0]), discrete.get(question[1])};
+            continuousZ.add(Simulations.nodes(continuous, question, 2));
+            discreteZ.add(Simulations.nodes(discrete, question, 2));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUESTIONS)
+    public int fisherZ() {
+        int independent = 0;
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            if (fisherZ.isIndependent(continuousXy[q][0], continuousXy[q][1], continuousZ.get(q))) independent++;
+        }
+
+        return independent;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUESTIONS)
+    public int chiSquare() {
+        int independent = 0;
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            if (chiSquare.isIndependent(discreteXy[q][0], discreteXy[q][1], discreteZ.get(q))) independent++;
+        }
+
+        return independent;
+    }
+}
@@ -0,0 +1,102 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.BDeuScore;
+import edu.cmu.tetrad.search.SemBicScore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times SemBicScore.localScore and BDeuScore.localScore, for a node given a set of parents, averaged over a fixed
+ * set of random nodes and parent sets.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScoreBenchmark {
+
+    private static final int NUM_QUESTIONS = 1000;
+
+    @Param({"100"})
+    public int numNodes;
+
+    @Param({"1000", "10000"})
+    public int sampleSize;
+
+    @Param({"0", "2", "4"})
+    public int numParents;
+
+    private SemBicScore semBicScore;
+    private BDeuScore bdeuScore;
+    private int[] nodes;
+    private int[][] parents;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Graph dag = Simulations.dag(numNodes, 2);
+        semBicScore = new SemBicScore(new CovarianceMatrix(Simulations.continuousData(dag, sampleSize)));
+        bdeuScore = new BDeuScore(Simulations.discreteData(dag, sampleSize));
+
+        int[][] questions = Simulations.questions(numNodes, numParents, NUM_QUESTIONS);
+        nodes = new int[NUM_QUESTIONS];
+        parents = new int[NUM_QUESTIONS][];
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            nodes[q] = questions[q][0];
+            parents[q] = Arrays.copyOfRange(questions[q], 2, questions[q].length);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUESTIONS)
+    public double semBicLocalScore() {
+        double sum = 0.0;
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            sum += semBicScore.localScore(nodes[q], parents[q]);
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUESTIONS)
+    public double bdeuLocalScore() {
+        double sum = 0.0;
+
+        for (int q = 0; q < NUM_QUESTIONS; q++) {
+            sum += bdeuScore.localScore(nodes[q], parents[q]);
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,78 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.search.Fas;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.SemBicScore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times Fges.search, with SemBicScore, and Fas.search, with IndTestFisherZ, on linear Gaussian data from a random
+ * DAG. The covariance matrix is computed once, outside the timing.
+ *
+ * @author Joseph Ramsey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"50", "200"})
+    public int numNodes;
+
+    @Param({"2", "4"})
+    public double avgDegree;
+
+    @Param({"1000"})
+    public int sampleSize;
+
+    private CovarianceMatrix cov;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Graph dag = Simulations.dag(numNodes, avgDegree);
+        cov = new CovarianceMatrix(Simulations.continuousData(dag, sampleSize));
+    }
+
+    @Benchmark
+    public Graph fges() {
+        Fges fges = new Fges(new SemBicScore(cov));
+        fges.setVerbose(false);
+        return fges.search();
+    }
+
+    @Benchmark
+    public Graph fas() {
+        Fas fas = new Fas(new IndTestFisherZ(cov, 0.01));
+        fas.setVerbose(false);
+        return fas.search();
+    }
+}
@@ -0,0 +1,128 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.bench;
+
+import edu.cmu.tetrad.algcomparison.graph.SingleGraph;
+import edu.cmu.tetrad.algcomparison.simulation.BayesNetSimulation;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.sem.LargeScaleSimulation;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The simulated graphs, data and test questions the benchmarks run on. Everything is drawn from fixed seeds, so
+ * every run, and every release, benchmarks exactly the same problems.
+ *
+ * @author Joseph Ramsey
+ */
+final class Simulations {
+
+    static final long SEED = 29384729L;
+
+    private Simulations() {
+    }
+
+    /**
+     * @return a random DAG over X1,...,Xn with the given average degree.
+     */
+    static Graph dag(int numNodes, double avgDegree) {
+        RandomUtil.getInstance().setSeed(SEED);
+        int numEdges = (int) (numNodes * avgDegree / 2);
+        return GraphUtils.randomGraph(numNodes, 0, numEdges, 100, 100, 100, false);
+    }
+
+    /**
+     * @return a sample of n from a linear Gaussian SEM over the given DAG, as simulated by LargeScaleSimulation.
+     */
+    static DataSet continuousData(Graph dag, int n) {
+        RandomUtil.getInstance().setSeed(SEED);
+        LargeScaleSimulation simulation = new LargeScaleSimulation(dag);
+        simulation.setSeed(SEED);
+        return simulation.simulateDataReducedForm(n);
+    }
+
+    /**
+     * @return a sample of n from a Bayes net over the given DAG, with three categories per variable, as simulated by
+     * BayesNetSimulation.
+     */
+    static DataSet discreteData(Graph dag, int n) {
+        RandomUtil.getInstance().setSeed(SEED);
+
+        Parameters parameters = new Parameters();
+        parameters.set("numRuns", 1);
+        parameters.set("differentGraphs", false);
+        parameters.set("sampleSize", n);
+        parameters.set("saveLatentVars", false);
+        parameters.set("minCategories", 3);
+        parameters.set("maxCategories", 3);
+
+        BayesNetSimulation simulation = new BayesNetSimulation(new SingleGraph(dag));
+        simulation.createData(parameters);
+        return (DataSet) simulation.getDataModel(0);
+    }
+
+    /**
+     * @return numQuestions random choices of distinct variables x, y and, following them, a conditioning set of the
+     * given size, as index arrays {x, y, z1, ..., zk}.
+     */
+    static int[][] questions(int numVariables, int conditioningSize, int numQuestions) {
+        Random random = new Random(SEED);
+        List<Integer> indices = new ArrayList<>();
+
+        for (int i = 0; i < numVariables; i++) {
+            indices.add(i);
+        }
+
+        int[][] questions = new int[numQuestions][conditioningSize + 2];
+
+        for (int q = 0; q < numQuestions; q++) {
+            Collections.shuffle(indices, random);
+
+            for (int i = 0; i < conditioningSize + 2; i++) {
+                questions[q][i] = indices.get(i);
+            }
+        }
+
+        return questions;
+    }
+
+    /**
+     * @return the nodes at the given indices of a question, from position from on.
+     */
+    static List<Node> nodes(List<Node> variables, int[] question, int from) {
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = from; i < question.length; i++) {
+            nodes.add(variables.get(question[i]));
+        }
+
+        return nodes;
+    }
+}
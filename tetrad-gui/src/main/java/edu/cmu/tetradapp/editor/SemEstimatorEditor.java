@@ -30,6 +30,7 @@ import edu.cmu.tetrad.sem.SemEstimator;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemOptimizer;
 import edu.cmu.tetrad.sem.SemOptimizerEm;
+import edu.cmu.tetrad.sem.SemOptimizerLbfgs;
 import edu.cmu.tetrad.sem.SemOptimizerPowell;
 import edu.cmu.tetrad.sem.SemOptimizerRegression;
 import edu.cmu.tetrad.sem.SemOptimizerRicf;
@@ -86,6 +87,7 @@ public final class SemEstimatorEditor extends JPanel {
         optimizerCombo.addItem("Regression");
         optimizerCombo.addItem("EM");
         optimizerCombo.addItem("Powell");
+        optimizerCombo.addItem("L-BFGS");
         optimizerCombo.addItem("Random Search");
         optimizerCombo.addItem("RICF");
 
@@ -311,6 +313,9 @@ public final class SemEstimatorEditor extends JPanel {
             case "Powell":
                 optimizer = new SemOptimizerPowell();
                 break;
+            case "L-BFGS":
+                optimizer = new SemOptimizerLbfgs();
+                break;
             case "Random Search":
                 optimizer = new SemOptimizerScattershot();
                 break;
@@ -38,6 +38,7 @@ import edu.cmu.tetrad.sem.SemEstimator;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemOptimizer;
 import edu.cmu.tetrad.sem.SemOptimizerEm;
+import edu.cmu.tetrad.sem.SemOptimizerLbfgs;
 import edu.cmu.tetrad.sem.SemOptimizerPowell;
 import edu.cmu.tetrad.sem.SemOptimizerRegression;
 import edu.cmu.tetrad.sem.SemOptimizerRicf;
@@ -391,6 +392,8 @@ public class SemEstimatorWrapper implements SessionModel, Unmarshallable {
             optimizer = new SemOptimizerEm();
         } else if ("Powell".equals(type)) {
             optimizer = new SemOptimizerPowell();
+        } else if ("L-BFGS".equals(type)) {
+            optimizer = new SemOptimizerLbfgs();
         } else if ("Random Search".equals(type)) {
             optimizer = new SemOptimizerScattershot();
         } else if ("RICF".equals(type)) {
@@ -423,6 +426,8 @@ public class SemEstimatorWrapper implements SessionModel, Unmarshallable {
             _type = "EM";
         } else if (optimizer instanceof SemOptimizerPowell) {
             _type = "Powell";
+        } else if (optimizer instanceof SemOptimizerLbfgs) {
+            _type = "L-BFGS";
         } else if (optimizer instanceof SemOptimizerScattershot) {
             _type = "Random Search";
         } else if (optimizer instanceof SemOptimizerRicf) {
@@ -484,7 +489,7 @@ public class SemEstimatorWrapper implements SessionModel, Unmarshallable {
 
         if (containsFixedParam(semPm) || semPm.getGraph().existsDirectedCycle()
                 || containsCovarParam(semPm)) {
-            optimizer = new SemOptimizerPowell();
+            optimizer = new SemOptimizerLbfgs();
         } else if (containsLatent) {
             optimizer = new SemOptimizerEm();
         } else {
@@ -29,10 +29,12 @@ import edu.cmu.tetrad.algcomparison.score.ScoreWrapper;
 import edu.cmu.tetrad.algcomparison.simulation.LoadDataAndGraphs;
 import edu.cmu.tetrad.algcomparison.simulation.Simulation;
 import edu.cmu.tetrad.algcomparison.simulation.Simulations;
+import edu.cmu.tetrad.algcomparison.statistic.CountsStatistic;
 import edu.cmu.tetrad.algcomparison.statistic.ElapsedTime;
 import edu.cmu.tetrad.algcomparison.statistic.ParameterColumn;
 import edu.cmu.tetrad.algcomparison.statistic.Statistic;
 import edu.cmu.tetrad.algcomparison.statistic.Statistics;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
 import edu.cmu.tetrad.algcomparison.utils.HasParameterValues;
 import edu.cmu.tetrad.algcomparison.utils.HasParameters;
@@ -1279,6 +1281,9 @@ public class TimeoutComparison {
 
                 int statIndex = -1;
 
+                // The confusion counts are computed once, if any statistic uses them, and shared.
+                GraphComparisonCounts counts = null;
+
                 for (Statistic _stat : statistics.getStatistics()) {
                     statIndex++;
 
@@ -1290,6 +1295,9 @@ public class TimeoutComparison {
 
                     if (_stat instanceof ElapsedTime) {
                         stat = elapsed / 1000.0;
+                    } else if (_stat instanceof CountsStatistic) {
+                        if (counts == null) counts = new GraphComparisonCounts(truth[u], est[u]);
+                        stat = ((CountsStatistic) _stat).getValue(truth[u], est[u], counts);
                     } else {
                         stat = _stat.getValue(truth[u], est[u]);
                     }
@@ -0,0 +1,130 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.algcomparison.examples;
+
+import edu.cmu.tetrad.algcomparison.graph.RandomForward;
+import edu.cmu.tetrad.algcomparison.simulation.LinearSineSimulation;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.Kci;
+import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares KCI with exact kernel matrices against KCI with random Fourier features of a few ranks
+ * on LinearSineSimulation data: milliseconds per test, agreement of the judgments with the exact
+ * test, and accuracy against d-separation in the true graph. The questions are x _||_ y | z for
+ * every pair x, y, with z the parents of x other than y.
+ *
+ * @author jdramsey
+ */
+public class ExampleKciRank {
+    public static void main(String... args) {
+        RandomUtil.getInstance().setSeed(482734L);
+
+        Parameters parameters = new Parameters();
+
+        parameters.set("numRuns", 1);
+        parameters.set("numMeasures", 8);
+        parameters.set("avgDegree", 2);
+        parameters.set("interceptLow", 0);
+        parameters.set("interceptHigh", 1);
+        parameters.set("linearLow", 0.5);
+        parameters.set("linearHigh", 1.0);
+        parameters.set("varLow", 1);
+        parameters.set("varHigh", 1);
+        parameters.set("betaLow", 5);
+        parameters.set("betaHigh", 8);
+        parameters.set("gammaLow", 1.0);
+        parameters.set("gammaHigh", 1.5);
+
+        int[] sampleSizes = {250, 500, 1000};
+        int[] ranks = {0, 25, 50, 100};
+
+        System.out.println("N\tRank\tms/test\tAgree\tAccuracy");
+
+        for (int sampleSize : sampleSizes) {
+            parameters.set("sampleSize", sampleSize);
+
+            LinearSineSimulation simulation = new LinearSineSimulation(new RandomForward());
+            simulation.createData(parameters);
+            Graph graph = simulation.getTrueGraph(0);
+            DataSet data = (DataSet) simulation.getDataModel(0);
+
+            boolean[] exact = null;
+
+            for (int rank : ranks) {
+                Kci kci = new Kci(data, 0.05);
+                kci.setApproximate(true);
+                kci.setRank(rank);
+
+                List<Boolean> judgments = new ArrayList<>();
+                int correct = 0;
+
+                long start = System.currentTimeMillis();
+
+                for (Node x : data.getVariables()) {
+                    for (Node y : data.getVariables()) {
+                        if (x == y) continue;
+
+                        List<Node> z = new ArrayList<>(graph.getParents(graph.getNode(x.getName())));
+                        z.remove(graph.getNode(y.getName()));
+                        List<Node> _z = new ArrayList<>();
+                        for (Node node : z) _z.add(data.getVariable(node.getName()));
+
+                        boolean independent = kci.isIndependent(x, y, _z);
+                        judgments.add(independent);
+
+                        List<Node> z2 = new ArrayList<>(z);
+                        if (independent == graph.isDSeparatedFrom(graph.getNode(x.getName()),
+                                graph.getNode(y.getName()), z2)) {
+                            correct++;
+                        }
+                    }
+                }
+
+                long elapsed = System.currentTimeMillis() - start;
+
+                if (rank == 0) {
+                    exact = new boolean[judgments.size()];
+                    for (int i = 0; i < exact.length; i++) exact[i] = judgments.get(i);
+                }
+
+                int agree = 0;
+
+                for (int i = 0; i < judgments.size(); i++) {
+                    if (exact != null && judgments.get(i) == exact[i]) agree++;
+                }
+
+                System.out.println(sampleSize + "\t" + rank + "\t"
+                        + String.format("%.1f", elapsed / (double) judgments.size()) + "\t"
+                        + String.format("%.2f", agree / (double) judgments.size()) + "\t"
+                        + String.format("%.2f", correct / (double) judgments.size()));
+            }
+        }
+    }
+}
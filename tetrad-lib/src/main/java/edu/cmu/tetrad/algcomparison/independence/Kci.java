@@ -34,6 +34,7 @@ public class Kci implements IndependenceWrapper {
         kci.setNumBootstraps(parameters.getInt("kciNumBootstraps"));
         kci.setThreshold(parameters.getDouble("thresholdForNumEigenvalues"));
         kci.setEpsilon(parameters.getDouble("kciEpsilon"));
+        kci.setRank(parameters.getInt("kciRank"));
         return kci;
     }
 
@@ -56,6 +57,7 @@ public class Kci implements IndependenceWrapper {
         params.add("kciNumBootstraps");
         params.add("thresholdForNumEigenvalues");
         params.add("kciEpsilon");
+        params.add("kciRank");
         return params;
     }
 }
\ No newline at end of file
@@ -103,6 +103,7 @@ public class BayesNetSimulation implements Simulation {
         parameters.add("differentGraphs");
         parameters.add("sampleSize");
         parameters.add("saveLatentVars");
+        parameters.add("parallelSimulation");
 
         return parameters;
     }
@@ -132,16 +133,19 @@ public class BayesNetSimulation implements Simulation {
                     pm = new BayesPm(graph, minCategories, maxCategories);
                     im = new MlBayesIm(pm, MlBayesIm.RANDOM);
                     ims.add(im);
+                    setParallel(im, parameters);
                     return im.simulateData(parameters.getInt("sampleSize"), saveLatentVars);
                 } else {
                     im = new MlBayesIm(pm, MlBayesIm.RANDOM);
                     this.im = im;
                     ims.add(im);
+                    setParallel(im, parameters);
                     return im.simulateData(parameters.getInt("sampleSize"), saveLatentVars);
                 }
             } else {
                 ims = new ArrayList<>();
                 ims.add(im);
+                setParallel(im, parameters);
                 return im.simulateData(parameters.getInt("sampleSize"), saveLatentVars);
             }
         } catch (Exception e) {
@@ -151,6 +155,12 @@ public class BayesNetSimulation implements Simulation {
         }
     }
 
+    private void setParallel(BayesIm im, Parameters parameters) {
+        if (im instanceof MlBayesIm) {
+            ((MlBayesIm) im).setParallel(parameters.getBoolean("parallelSimulation", false));
+        }
+    }
+
     public List<BayesIm> getBayesIms() {
         return ims;
     }
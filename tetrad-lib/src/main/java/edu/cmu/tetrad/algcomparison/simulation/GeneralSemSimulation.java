@@ -78,14 +78,17 @@ public class GeneralSemSimulation implements Simulation {
                 pm = new GeneralizedSemPm(graph);
                 im = new GeneralizedSemIm(pm);
                 ims.add(im);
+                im.setParallel(parameters.getBoolean("parallelSimulation", false));
                 return im.simulateData(parameters.getInt("sampleSize"), false);
             } else {
                 im = new GeneralizedSemIm(pm);
                 ims.add(im);
+                im.setParallel(parameters.getBoolean("parallelSimulation", false));
                 return im.simulateData(parameters.getInt("sampleSize"), false);
             }
         } else {
             ims.add(im);
+            im.setParallel(parameters.getBoolean("parallelSimulation", false));
             return im.simulateData(parameters.getInt("sampleSize"), false);
         }
     }
@@ -129,6 +132,7 @@ public class GeneralSemSimulation implements Simulation {
         parameters.add("numRuns");
         parameters.add("differentGraphs");
         parameters.add("sampleSize");
+        parameters.add("parallelSimulation");
 
         return parameters;
     }
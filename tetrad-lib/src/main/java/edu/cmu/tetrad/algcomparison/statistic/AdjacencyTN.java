@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.AdjacencyConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
 
 /**
@@ -9,7 +10,7 @@ import edu.cmu.tetrad.graph.Graph;
  *
  * @author jdramsey
  */
-public class AdjacencyTN implements Statistic {
+public class AdjacencyTN extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -23,8 +24,8 @@ public class AdjacencyTN implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        AdjacencyConfusion adjConfusion = new AdjacencyConfusion(trueGraph, estGraph);
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        AdjacencyConfusion adjConfusion = new AdjacencyConfusion(counts);
         return adjConfusion.getAdjTn();
     }
 
@@ -2,6 +2,7 @@ package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
 import edu.cmu.tetrad.algcomparison.statistic.utils.TailConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
 
 /**
@@ -13,7 +14,7 @@ import edu.cmu.tetrad.graph.Graph;
  *
  * @author jdramsey
  */
-public class ArrowheadPrecision implements Statistic {
+public class ArrowheadPrecision extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -27,8 +28,8 @@ public class ArrowheadPrecision implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        ArrowConfusion confusion = new ArrowConfusion(trueGraph, estGraph);
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        ArrowConfusion confusion = new ArrowConfusion(counts);
         double arrowsTp = confusion.getArrowsTp();
         double arrowsFp = confusion.getArrowsFp();
         return arrowsTp / (arrowsTp + arrowsFp);
@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
 
 /**
@@ -12,7 +13,7 @@ import edu.cmu.tetrad.graph.Graph;
  *
  * @author jdramsey
  */
-public class ArrowheadPrecisionCommonEdges implements Statistic {
+public class ArrowheadPrecisionCommonEdges extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -26,8 +27,8 @@ public class ArrowheadPrecisionCommonEdges implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        ArrowConfusion confusion = new ArrowConfusion(trueGraph, estGraph);
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        ArrowConfusion confusion = new ArrowConfusion(counts);
         double arrowsTp = confusion.getArrowsTpc();
         double arrowsFp = confusion.getArrowsFpc();
         return arrowsTp / (arrowsTp + arrowsFp);
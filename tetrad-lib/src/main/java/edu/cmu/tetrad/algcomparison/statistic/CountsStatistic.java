@@ -0,0 +1,31 @@
+package edu.cmu.tetrad.algcomparison.statistic;
+
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
+import edu.cmu.tetrad.graph.Graph;
+
+/**
+ * A statistic computed from the confusion counts of the true and estimated graphs. A comparison that reports
+ * several of these computes the counts once and passes them to each; asked for a value without counts, the
+ * statistic computes them itself.
+ *
+ * @author jdramsey
+ */
+public abstract class CountsStatistic implements Statistic {
+    static final long serialVersionUID = 23L;
+
+    @Override
+    public double getValue(Graph trueGraph, Graph estGraph) {
+        return getValue(trueGraph, estGraph, new GraphComparisonCounts(trueGraph, estGraph));
+    }
+
+    /**
+     * Returns the value of this statistic, given the true graph, the estimated graph and the confusion counts
+     * already computed for them.
+     *
+     * @param trueGraph The true graph (DAG, Pattern, PAG_of_the_true_DAG).
+     * @param estGraph  The estimated graph (same type).
+     * @param counts    The counts for these two graphs, which must not have changed since they were computed.
+     * @return The value of the statistic.
+     */
+    public abstract double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts);
+}
@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
 
 /**
@@ -15,7 +16,7 @@ import edu.cmu.tetrad.graph.Graph;
  *
  * @author Joseh Ramsey
  */
-public class F1Arrow implements Statistic {
+public class F1Arrow extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -29,8 +30,8 @@ public class F1Arrow implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        ArrowConfusion arrowConfusion = new ArrowConfusion(trueGraph, estGraph);
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        ArrowConfusion arrowConfusion = new ArrowConfusion(counts);
         int arrowTp = arrowConfusion.getArrowsTp();
         int arrowFp = arrowConfusion.getArrowsFp();
         int arrowFn = arrowConfusion.getArrowsFn();
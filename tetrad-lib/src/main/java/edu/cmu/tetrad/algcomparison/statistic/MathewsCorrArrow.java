@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
 
 /**
@@ -17,7 +18,7 @@ import edu.cmu.tetrad.graph.Graph;
  *
  * @author jdramsey
  */
-public class MathewsCorrArrow implements Statistic {
+public class MathewsCorrArrow extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -31,8 +32,8 @@ public class MathewsCorrArrow implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        ArrowConfusion adjConfusion = new ArrowConfusion(trueGraph, estGraph);
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        ArrowConfusion adjConfusion = new ArrowConfusion(counts);
         int arrowsTp = adjConfusion.getArrowsTp();
         int arrowsFp = adjConfusion.getArrowsFp();
         int arrowsFn = adjConfusion.getArrowsFn();
@@ -1,8 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
-import edu.cmu.tetrad.graph.GraphUtils;
-import edu.cmu.tetrad.search.SearchGraphUtils;
 
 /**
  * Calculates the structural Hamming distance (SHD) between the estimated graph and
@@ -10,7 +9,7 @@ import edu.cmu.tetrad.search.SearchGraphUtils;
  *
  * @author jdramsey
  */
-public class SHD implements Statistic {
+public class SHD extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -24,9 +23,8 @@ public class SHD implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        GraphUtils.GraphComparison comparison = SearchGraphUtils.getGraphComparison3(estGraph, trueGraph, System.out);
-        return comparison.getShd();
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        return counts.getShd();
     }
 
     @Override
@@ -2,6 +2,7 @@ package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
 import edu.cmu.tetrad.algcomparison.statistic.utils.TailConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
 
 /**
@@ -13,7 +14,7 @@ import edu.cmu.tetrad.graph.Graph;
  *
  * @author jdramsey
  */
-public class TailRecall implements Statistic {
+public class TailRecall extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -27,8 +28,8 @@ public class TailRecall implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        TailConfusion confusion = new TailConfusion(trueGraph, estGraph);
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        TailConfusion confusion = new TailConfusion(counts);
         double arrowsTp = confusion.getArrowsTp();
         double arrowsFn = confusion.getArrowsFn();
         double den = arrowsTp + arrowsFn;
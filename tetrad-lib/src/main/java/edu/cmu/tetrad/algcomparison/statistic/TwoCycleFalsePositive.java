@@ -1,6 +1,7 @@
 package edu.cmu.tetrad.algcomparison.statistic;
 
 import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
 import edu.cmu.tetrad.graph.Graph;
 
 /**
@@ -11,7 +12,7 @@ import edu.cmu.tetrad.graph.Graph;
  *
  * @author jdramsey, rubens (November 2016)
  */
-public class TwoCycleFalsePositive implements Statistic {
+public class TwoCycleFalsePositive extends CountsStatistic {
     static final long serialVersionUID = 23L;
 
     @Override
@@ -25,8 +26,8 @@ public class TwoCycleFalsePositive implements Statistic {
     }
 
     @Override
-    public double getValue(Graph trueGraph, Graph estGraph) {
-        ArrowConfusion adjConfusion = new ArrowConfusion(trueGraph, estGraph);
+    public double getValue(Graph trueGraph, Graph estGraph, GraphComparisonCounts counts) {
+        ArrowConfusion adjConfusion = new ArrowConfusion(counts);
         return (double) adjConfusion.getTwoCycleFp();
 
     }
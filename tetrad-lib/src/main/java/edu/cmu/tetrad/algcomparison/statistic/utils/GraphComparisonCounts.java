@@ -0,0 +1,328 @@
+package edu.cmu.tetrad.algcomparison.statistic.utils;
+
+import edu.cmu.tetrad.graph.Edge;
+import edu.cmu.tetrad.graph.Endpoint;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * All of the confusion counts the statistics need for a true and an estimated graph--adjacency, arrowhead and tail
+ * TP, FP, FN and TN, the same for arrowheads on edges common to both graphs, two-cycle counts and the structural
+ * Hamming distance--computed in one pass over the edges of each graph, in parallel for large graphs. The counts are
+ * those of AdjacencyConfusion, ArrowConfusion, TailConfusion and SearchGraphUtils.structuralHammingDistance3, which
+ * read from here.
+ * <p>
+ * The counts are a snapshot of the two graphs. A comparison computes them once for each pair of graphs and passes
+ * them to each statistic through Statistic.getValue(Graph, Graph, GraphComparisonCounts).
+ *
+ * @author jdramsey
+ */
+public class GraphComparisonCounts {
+
+    // Indices into the array of counts.
+    private static final int ADJ_TP = 0;
+    private static final int ADJ_FP = 1;
+    private static final int ADJ_FN = 2;
+    private static final int ARROWS_TP = 3;
+    private static final int ARROWS_FP = 4;
+    private static final int ARROWS_FN = 5;
+    private static final int ARROWS_TN = 6;
+    private static final int ARROWS_TPC = 7;
+    private static final int ARROWS_FPC = 8;
+    private static final int ARROWS_FNC = 9;
+    private static final int ARROWS_TNC = 10;
+    private static final int TAILS_TP = 11;
+    private static final int TAILS_FP = 12;
+    private static final int TAILS_FN = 13;
+    private static final int TAILS_TN = 14;
+    private static final int TWO_CYCLE_TP = 15;
+    private static final int TWO_CYCLE_FP = 16;
+    private static final int TWO_CYCLE_FN = 17;
+    private static final int SHD = 18;
+    private static final int NUM_COUNTS = 19;
+
+    // The number of edges counted by each task.
+    private static final int CHUNK = 500;
+
+    private final int numNodes;
+    private final int[] counts;
+
+    /**
+     * Counts for the given true and estimated graphs. Nodes of the estimated graph are matched to nodes of the true
+     * graph by name.
+     */
+    public GraphComparisonCounts(Graph truth, Graph est) {
+        this.numNodes = truth.getNumNodes();
+        this.counts = count(truth, GraphUtils.replaceNodes(est, truth.getNodes()));
+    }
+
+    public int getAdjTp() {
+        return counts[ADJ_TP];
+    }
+
+    public int getAdjFp() {
+        return counts[ADJ_FP];
+    }
+
+    public int getAdjFn() {
+        return counts[ADJ_FN];
+    }
+
+    public int getAdjTn() {
+        return numNodes * (numNodes - 1) / 2 - counts[ADJ_FN];
+    }
+
+    public int getArrowsTp() {
+        return counts[ARROWS_TP];
+    }
+
+    public int getArrowsFp() {
+        return counts[ARROWS_FP];
+    }
+
+    public int getArrowsFn() {
+        return counts[ARROWS_FN];
+    }
+
+    public int getArrowsTn() {
+        return counts[ARROWS_TN];
+    }
+
+    public int getArrowsTpc() {
+        return counts[ARROWS_TPC];
+    }
+
+    public int getArrowsFpc() {
+        return counts[ARROWS_FPC];
+    }
+
+    public int getArrowsFnc() {
+        return counts[ARROWS_FNC];
+    }
+
+    public int getArrowsTnc() {
+        return counts[ARROWS_TNC];
+    }
+
+    public int getTailsTp() {
+        return counts[TAILS_TP];
+    }
+
+    public int getTailsFp() {
+        return counts[TAILS_FP];
+    }
+
+    public int getTailsFn() {
+        return counts[TAILS_FN];
+    }
+
+    public int getTailsTn() {
+        return counts[TAILS_TN];
+    }
+
+    public int getTwoCycleTp() {
+        return counts[TWO_CYCLE_TP] / 2;
+    }
+
+    public int getTwoCycleFp() {
+        return counts[TWO_CYCLE_FP] / 2;
+    }
+
+    public int getTwoCycleFn() {
+        return counts[TWO_CYCLE_FN] / 2;
+    }
+
+    public int getShd() {
+        return counts[SHD];
+    }
+
+    //================================PRIVATE METHODS===========================//
+
+    private static int[] count(final Graph truth, final Graph est) {
+
+        // Pairs of nodes are ordered as structuralHammingDistance3 orders them, by position in the estimated graph.
+        final Map<Node, Integer> order = new HashMap<>();
+
+        for (Node node : est.getNodes()) {
+            order.put(node, order.size());
+        }
+
+        for (Node node : truth.getNodes()) {
+            if (!order.containsKey(node)) order.put(node, order.size());
+        }
+
+        final List<Edge> trueEdges = new ArrayList<>(truth.getEdges());
+        final List<Edge> estEdges = new ArrayList<>(est.getEdges());
+        List<Callable<int[]>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < trueEdges.size(); i += CHUNK) {
+            final int from = i;
+            final int to = Math.min(i + CHUNK, trueEdges.size());
+
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    int[] counts = new int[NUM_COUNTS];
+
+                    for (int j = from; j < to; j++) {
+                        countTrueEdge(trueEdges.get(j), truth, est, order, counts);
+                    }
+
+                    return counts;
+                }
+            });
+        }
+
+        for (int i = 0; i < estEdges.size(); i += CHUNK) {
+            final int from = i;
+            final int to = Math.min(i + CHUNK, estEdges.size());
+
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    int[] counts = new int[NUM_COUNTS];
+
+                    for (int j = from; j < to; j++) {
+                        countEstEdge(estEdges.get(j), truth, est, order, counts);
+                    }
+
+                    return counts;
+                }
+            });
+        }
+
+        int[] counts = new int[NUM_COUNTS];
+
+        for (int[] _counts : ForkJoinPoolInstance.getInstance().invokeAll(tasks)) {
+            for (int k = 0; k < NUM_COUNTS; k++) {
+                counts[k] += _counts[k];
+            }
+        }
+
+        return counts;
+    }
+
+    // True positives, false negatives and true negatives, and adjacencies and structural Hamming distance for pairs
+    // adjacent in the true graph.
+    private static void countTrueEdge(Edge edge, Graph truth, Graph est, Map<Node, Integer> order, int[] counts) {
+        Node x = edge.getNode1();
+        Node y = edge.getNode2();
+
+        Edge estEdge = getEdge(est, x, y);
+        Edge trueEdge = getEdge(truth, x, y);
+
+        Endpoint e1Est = estEdge == null ? null : estEdge.getProximalEndpoint(x);
+        Endpoint e2Est = estEdge == null ? null : estEdge.getProximalEndpoint(y);
+        Endpoint e1True = trueEdge == null ? null : trueEdge.getProximalEndpoint(x);
+        Endpoint e2True = trueEdge == null ? null : trueEdge.getProximalEndpoint(y);
+        boolean common = estEdge != null && trueEdge != null;
+
+        countTrue(e1True, e1Est, common, counts);
+        countTrue(e2True, e2Est, common, counts);
+
+        int trueEdges = truth.getEdges(x, y).size();
+        int estEdges = est.getEdges(x, y).size();
+
+        if (trueEdges == 2 && estEdges == 2) counts[TWO_CYCLE_TP]++;
+        if (trueEdges == 2 && estEdges != 2) counts[TWO_CYCLE_FN]++;
+
+        if (isFirstEdge(edge, truth, order)) {
+            counts[est.isAdjacentTo(x, y) ? ADJ_TP : ADJ_FN]++;
+            counts[SHD] += shd(truth, est, order, x, y);
+        }
+    }
+
+    // False positives, and adjacencies and structural Hamming distance for pairs adjacent only in the estimated graph.
+    private static void countEstEdge(Edge edge, Graph truth, Graph est, Map<Node, Integer> order, int[] counts) {
+        Node x = edge.getNode1();
+        Node y = edge.getNode2();
+
+        Edge estEdge = getEdge(est, x, y);
+        Edge trueEdge = getEdge(truth, x, y);
+
+        Endpoint e1Est = estEdge == null ? null : estEdge.getProximalEndpoint(x);
+        Endpoint e2Est = estEdge == null ? null : estEdge.getProximalEndpoint(y);
+        Endpoint e1True = trueEdge == null ? null : trueEdge.getProximalEndpoint(x);
+        Endpoint e2True = trueEdge == null ? null : trueEdge.getProximalEndpoint(y);
+        boolean common = estEdge != null && trueEdge != null;
+
+        countEst(e1True, e1Est, common, counts);
+        countEst(e2True, e2Est, common, counts);
+
+        if (truth.getEdges(x, y).size() != 2 && est.getEdges(x, y).size() == 2) counts[TWO_CYCLE_FP]++;
+
+        if (isFirstEdge(edge, est, order) && !truth.isAdjacentTo(x, y)) {
+            counts[ADJ_FP]++;
+            counts[SHD] += shd(truth, est, order, x, y);
+        }
+    }
+
+    private static void countTrue(Endpoint trueEndpoint, Endpoint estEndpoint, boolean common, int[] counts) {
+        if (trueEndpoint == Endpoint.ARROW) {
+            counts[estEndpoint == Endpoint.ARROW ? ARROWS_TP : ARROWS_FN]++;
+            if (common) counts[estEndpoint == Endpoint.ARROW ? ARROWS_TPC : ARROWS_FNC]++;
+        } else if (estEndpoint != Endpoint.ARROW) {
+            counts[ARROWS_TN]++;
+            if (common) counts[ARROWS_TNC]++;
+        }
+
+        if (trueEndpoint == Endpoint.TAIL) {
+            counts[estEndpoint == Endpoint.TAIL ? TAILS_TP : TAILS_FN]++;
+        } else if (estEndpoint != Endpoint.TAIL) {
+            counts[TAILS_TN]++;
+        }
+    }
+
+    private static void countEst(Endpoint trueEndpoint, Endpoint estEndpoint, boolean common, int[] counts) {
+        if (estEndpoint == Endpoint.ARROW && trueEndpoint != Endpoint.ARROW) {
+            counts[ARROWS_FP]++;
+            if (common) counts[ARROWS_FPC]++;
+        }
+
+        if (estEndpoint == Endpoint.TAIL && trueEndpoint != Endpoint.TAIL) {
+            counts[TAILS_FP]++;
+        }
+    }
+
+    // The edge between x and y, or, if there are two, the one directed from x to y.
+    private static Edge getEdge(Graph graph, Node x, Node y) {
+        List<Edge> edges = graph.getEdges(x, y);
+        return edges.size() == 1 ? edges.get(0) : graph.getDirectedEdge(x, y);
+    }
+
+    // True for just one of the edges between the nodes of the given edge, so that each pair is counted once.
+    private static boolean isFirstEdge(Edge edge, Graph graph, Map<Node, Integer> order) {
+        Node x = edge.getNode1();
+        Node y = edge.getNode2();
+
+        if (order.get(x) > order.get(y)) {
+            Node t = x;
+            x = y;
+            y = t;
+        }
+
+        List<Edge> edges = graph.getEdges(x, y);
+        return edges.size() == 1 || edges.get(0) == edge;
+    }
+
+    private static int shd(Graph truth, Graph est, Map<Node, Integer> order, Node x, Node y) {
+        if (!est.containsNode(x) || !est.containsNode(y)) return 0;
+
+        if (order.get(x) > order.get(y)) {
+            Node t = x;
+            x = y;
+            y = t;
+        }
+
+        return SearchGraphUtils.structuralHammingDistanceOneEdge3(truth.getEdge(x, y), est.getEdge(x, y));
+    }
+}
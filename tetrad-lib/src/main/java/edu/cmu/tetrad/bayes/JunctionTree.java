@@ -0,0 +1,568 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.bayes;
+
+import java.util.*;
+
+/**
+ * A junction tree over discrete variables, compiled once from the families
+ * (node plus parents) of a Bayes net. The moral graph is triangulated by
+ * greedy min-fill elimination (ties broken by clique table size), and the
+ * resulting cliques are joined by a maximum-weight spanning tree on separator
+ * size. Clique potentials are supplied by the caller; calibrate() then runs
+ * Hugin-style collect and distribute passes over them. Used by
+ * JunctionTreeUpdater.
+ *
+ * @author Joseph Ramsey
+ */
+final class JunctionTree {
+
+    /**
+     * Number of categories of each variable.
+     */
+    private final int[] dims;
+
+    /**
+     * The variables in each clique, in ascending order.
+     */
+    private final int[][] cliques;
+
+    /**
+     * The size of each clique table.
+     */
+    private final int[] tableSizes;
+
+    /**
+     * The parent of each clique in the tree; -1 for the root.
+     */
+    private final int[] parents;
+
+    /**
+     * The cliques in an order in which every parent precedes its children.
+     */
+    private final int[] order;
+
+    /**
+     * For each non-root clique, maps its table entries to the separator with
+     * its parent.
+     */
+    private final int[][] childMaps;
+
+    /**
+     * For each non-root clique, maps the entries of its parent's table to the
+     * separator with its parent.
+     */
+    private final int[][] parentMaps;
+
+    /**
+     * The size of the separator between each non-root clique and its parent.
+     */
+    private final int[] separatorSizes;
+
+    /**
+     * The smallest clique containing each variable, and the map from that
+     * clique's table entries to the categories of the variable.
+     */
+    private final int[] variableHomes;
+    private final int[][] variableMaps;
+
+    //==============================CONSTRUCTORS===========================//
+
+    /**
+     * Compiles a junction tree for variables with the given numbers of
+     * categories, for a Bayes net with the given families. families[i] must
+     * contain i and the parents of i.
+     */
+    JunctionTree(int[] dims, int[][] families) {
+        this.dims = Arrays.copyOf(dims, dims.length);
+
+        List<int[]> cliques = triangulate(families);
+        int numCliques = cliques.size();
+
+        this.cliques = cliques.toArray(new int[numCliques][]);
+        this.tableSizes = new int[numCliques];
+
+        for (int c = 0; c < numCliques; c++) {
+            this.tableSizes[c] = tableSize(this.cliques[c]);
+        }
+
+        this.parents = new int[numCliques];
+        this.order = new int[numCliques];
+        connect();
+
+        this.childMaps = new int[numCliques][];
+        this.parentMaps = new int[numCliques][];
+        this.separatorSizes = new int[numCliques];
+
+        for (int c = 0; c < numCliques; c++) {
+            if (parents[c] == -1) continue;
+            int[] separator = intersection(this.cliques[c], this.cliques[parents[c]]);
+            childMaps[c] = indexMap(c, separator);
+            parentMaps[c] = indexMap(parents[c], separator);
+            separatorSizes[c] = tableSize(separator);
+        }
+
+        this.variableHomes = new int[dims.length];
+        this.variableMaps = new int[dims.length][];
+
+        for (int v = 0; v < dims.length; v++) {
+            int[] variable = {v};
+            variableHomes[v] = getHome(variable);
+            variableMaps[v] = indexMap(variableHomes[v], variable);
+        }
+    }
+
+    //============================PUBLIC METHODS==========================//
+
+    public int getNumCliques() {
+        return cliques.length;
+    }
+
+    public int getTableSize(int clique) {
+        return tableSizes[clique];
+    }
+
+    /**
+     * @return the smallest clique containing all of the given variables, or -1
+     * if no clique contains them all.
+     */
+    public int getHome(int[] variables) {
+        int home = -1;
+
+        for (int c = 0; c < cliques.length; c++) {
+            if ((home == -1 || tableSizes[c] < tableSizes[home])
+                    && containsAll(cliques[c], variables)) {
+                home = c;
+            }
+        }
+
+        return home;
+    }
+
+    /**
+     * @return for each entry of the given clique's table, the index of the
+     * corresponding entry of a table over the given variables, in the given
+     * order, last variable varying fastest. The variables must be distinct and
+     * contained in the clique.
+     */
+    public int[] indexMap(int clique, int[] variables) {
+        int[] vars = cliques[clique];
+        int[] strides = new int[vars.length];
+        int stride = 1;
+
+        for (int i = variables.length - 1; i >= 0; i--) {
+            int position = Arrays.binarySearch(vars, variables[i]);
+
+            if (position < 0) {
+                throw new IllegalArgumentException("Variable " + variables[i]
+                        + " is not in clique " + clique + ".");
+            }
+
+            strides[position] = stride;
+            stride *= dims[variables[i]];
+        }
+
+        int[] map = new int[tableSizes[clique]];
+        int[] values = new int[vars.length];
+        int index = 0;
+
+        for (int e = 0; e < map.length; e++) {
+            map[e] = index;
+
+            for (int i = vars.length - 1; i >= 0; i--) {
+                values[i]++;
+                index += strides[i];
+
+                if (values[i] < dims[vars[i]]) break;
+
+                index -= strides[i] * values[i];
+                values[i] = 0;
+            }
+        }
+
+        return map;
+    }
+
+    /**
+     * Multiplies the given potentials, one table per clique, by the given
+     * likelihoods, one vector over categories per variable (null for no
+     * finding), and propagates. The potentials are not modified. If distribute
+     * is false only the collect pass is run, which is enough to get the
+     * normalizer but not the clique marginals.
+     */
+    public Calibration calibrate(double[][] potentials, double[][] likelihoods,
+                                 boolean distribute) {
+        double[][] beliefs = new double[cliques.length][];
+
+        for (int c = 0; c < cliques.length; c++) {
+            beliefs[c] = Arrays.copyOf(potentials[c], potentials[c].length);
+        }
+
+        for (int v = 0; v < likelihoods.length; v++) {
+            if (likelihoods[v] == null) continue;
+            double[] belief = beliefs[variableHomes[v]];
+            int[] map = variableMaps[v];
+
+            for (int e = 0; e < belief.length; e++) {
+                belief[e] *= likelihoods[v][map[e]];
+            }
+        }
+
+        if (cliques.length == 0) {
+            return new Calibration(beliefs, 0.0);
+        }
+
+        double[][] messages = new double[cliques.length][];
+        double logNormalizer = 0.0;
+
+        for (int i = order.length - 1; i > 0; i--) {
+            int c = order[i];
+            double[] message = marginalize(beliefs[c], childMaps[c],
+                    separatorSizes[c]);
+            double sum = normalize(message);
+
+            if (!(sum > 0)) {
+                return new Calibration(null, Double.NEGATIVE_INFINITY);
+            }
+
+            logNormalizer += Math.log(sum);
+            multiply(beliefs[parents[c]], parentMaps[c], message);
+            messages[c] = message;
+        }
+
+        double sum = normalize(beliefs[order[0]]);
+
+        if (!(sum > 0)) {
+            return new Calibration(null, Double.NEGATIVE_INFINITY);
+        }
+
+        logNormalizer += Math.log(sum);
+
+        if (!distribute) {
+            return new Calibration(null, logNormalizer);
+        }
+
+        for (int i = 1; i < order.length; i++) {
+            int c = order[i];
+            double[] message = marginalize(beliefs[parents[c]], parentMaps[c],
+                    separatorSizes[c]);
+            double[] old = messages[c];
+
+            for (int j = 0; j < message.length; j++) {
+                message[j] = old[j] == 0.0 ? 0.0 : message[j] / old[j];
+            }
+
+            multiply(beliefs[c], childMaps[c], message);
+            normalize(beliefs[c]);
+        }
+
+        return new Calibration(beliefs, logNormalizer);
+    }
+
+    //==============================PRIVATE METHODS=======================//
+
+    /**
+     * Moralizes and triangulates the graph by min-fill elimination, returning
+     * the maximal cliques of the triangulated graph.
+     */
+    private List<int[]> triangulate(int[][] families) {
+        int numVars = dims.length;
+        List<Set<Integer>> adjacent = new ArrayList<>();
+
+        for (int v = 0; v < numVars; v++) {
+            adjacent.add(new HashSet<Integer>());
+        }
+
+        for (int[] family : families) {
+            for (int i = 0; i < family.length; i++) {
+                for (int j = i + 1; j < family.length; j++) {
+                    adjacent.get(family[i]).add(family[j]);
+                    adjacent.get(family[j]).add(family[i]);
+                }
+            }
+        }
+
+        boolean[] eliminated = new boolean[numVars];
+        List<int[]> cliques = new ArrayList<>();
+
+        for (int step = 0; step < numVars; step++) {
+            int best = -1;
+            int bestFill = Integer.MAX_VALUE;
+            double bestWeight = Double.POSITIVE_INFINITY;
+
+            for (int v = 0; v < numVars; v++) {
+                if (eliminated[v]) continue;
+
+                int fill = fill(adjacent, v);
+                if (fill > bestFill) continue;
+
+                double weight = Math.log(dims[v]);
+
+                for (int w : adjacent.get(v)) {
+                    weight += Math.log(dims[w]);
+                }
+
+                if (fill < bestFill || weight < bestWeight) {
+                    best = v;
+                    bestFill = fill;
+                    bestWeight = weight;
+                }
+            }
+
+            Set<Integer> neighbors = adjacent.get(best);
+            int[] clique = new int[neighbors.size() + 1];
+            int k = 0;
+            clique[k++] = best;
+
+            for (int w : neighbors) {
+                clique[k++] = w;
+            }
+
+            Arrays.sort(clique);
+
+            for (int w1 : neighbors) {
+                for (int w2 : neighbors) {
+                    if (w1 != w2) adjacent.get(w1).add(w2);
+                }
+
+                adjacent.get(w1).remove(best);
+            }
+
+            eliminated[best] = true;
+
+            // A clique formed later contains no eliminated variable, so it
+            // can only be subsumed by a clique formed earlier.
+            boolean maximal = true;
+
+            for (int[] other : cliques) {
+                if (containsAll(other, clique)) {
+                    maximal = false;
+                    break;
+                }
+            }
+
+            if (maximal) {
+                cliques.add(clique);
+            }
+        }
+
+        return cliques;
+    }
+
+    private static int fill(List<Set<Integer>> adjacent, int v) {
+        Integer[] neighbors = adjacent.get(v).toArray(new Integer[0]);
+        int fill = 0;
+
+        for (int i = 0; i < neighbors.length; i++) {
+            Set<Integer> adj = adjacent.get(neighbors[i]);
+
+            for (int j = i + 1; j < neighbors.length; j++) {
+                if (!adj.contains(neighbors[j])) fill++;
+            }
+        }
+
+        return fill;
+    }
+
+    /**
+     * Joins the cliques into a tree by Prim's algorithm, maximizing total
+     * separator size. Cliques in different components are joined by empty
+     * separators.
+     */
+    private void connect() {
+        int numCliques = cliques.length;
+        if (numCliques == 0) return;
+
+        boolean[] inTree = new boolean[numCliques];
+        int[] weights = new int[numCliques];
+        int[] links = new int[numCliques];
+
+        inTree[0] = true;
+        parents[0] = -1;
+        order[0] = 0;
+
+        for (int c = 1; c < numCliques; c++) {
+            weights[c] = intersection(cliques[0], cliques[c]).length;
+        }
+
+        for (int i = 1; i < numCliques; i++) {
+            int next = -1;
+
+            for (int c = 0; c < numCliques; c++) {
+                if (!inTree[c] && (next == -1 || weights[c] > weights[next])) {
+                    next = c;
+                }
+            }
+
+            inTree[next] = true;
+            parents[next] = links[next];
+            order[i] = next;
+
+            for (int c = 0; c < numCliques; c++) {
+                if (inTree[c]) continue;
+                int weight = intersection(cliques[next], cliques[c]).length;
+
+                if (weight > weights[c]) {
+                    weights[c] = weight;
+                    links[c] = next;
+                }
+            }
+        }
+    }
+
+    private int tableSize(int[] variables) {
+        long size = 1;
+
+        for (int v : variables) {
+            size *= dims[v];
+
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A clique table in the " +
+                        "junction tree has more than " + Integer.MAX_VALUE +
+                        " entries; the network is too densely connected for " +
+                        "exact inference.");
+            }
+        }
+
+        return (int) size;
+    }
+
+    private static double[] marginalize(double[] table, int[] map, int size) {
+        double[] marginal = new double[size];
+
+        for (int e = 0; e < table.length; e++) {
+            marginal[map[e]] += table[e];
+        }
+
+        return marginal;
+    }
+
+    private static void multiply(double[] table, int[] map, double[] factor) {
+        for (int e = 0; e < table.length; e++) {
+            table[e] *= factor[map[e]];
+        }
+    }
+
+    /**
+     * Scales the table to sum to 1, if possible, returning its prior sum.
+     */
+    private static double normalize(double[] table) {
+        double sum = 0.0;
+
+        for (double t : table) {
+            sum += t;
+        }
+
+        if (sum > 0) {
+            for (int e = 0; e < table.length; e++) {
+                table[e] /= sum;
+            }
+        }
+
+        return sum;
+    }
+
+    private static boolean containsAll(int[] sorted, int[] variables) {
+        for (int v : variables) {
+            if (Arrays.binarySearch(sorted, v) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int[] intersection(int[] sorted1, int[] sorted2) {
+        int[] intersection = new int[Math.min(sorted1.length, sorted2.length)];
+        int i = 0, j = 0, k = 0;
+
+        while (i < sorted1.length && j < sorted2.length) {
+            if (sorted1[i] < sorted2[j]) {
+                i++;
+            } else if (sorted1[i] > sorted2[j]) {
+                j++;
+            } else {
+                intersection[k++] = sorted1[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(intersection, k);
+    }
+
+    //==============================CLASSES===============================//
+
+    /**
+     * The result of propagating one set of findings: the calibrated clique
+     * marginals (if the distribute pass was run) and the log probability of
+     * the findings.
+     */
+    final class Calibration {
+        private final double[][] beliefs;
+        private final double logNormalizer;
+        private final double[][] marginals;
+
+        private Calibration(double[][] beliefs, double logNormalizer) {
+            this.beliefs = beliefs;
+            this.logNormalizer = logNormalizer;
+            this.marginals = new double[dims.length][];
+        }
+
+        /**
+         * @return the log of the probability of the findings, negative
+         * infinity if they are impossible.
+         */
+        public double getLogNormalizer() {
+            return logNormalizer;
+        }
+
+        public boolean isImpossible() {
+            return logNormalizer == Double.NEGATIVE_INFINITY;
+        }
+
+        /**
+         * @return P(variable | findings), cached. Not to be modified.
+         */
+        public double[] getMarginal(int variable) {
+            if (marginals[variable] == null) {
+                marginals[variable] = marginalize(beliefs[variableHomes[variable]],
+                        variableMaps[variable], dims[variable]);
+            }
+
+            return marginals[variable];
+        }
+
+        /**
+         * @return P(variables | findings) as a table over the given distinct
+         * variables, last varying fastest, or null if no clique contains them
+         * all.
+         */
+        public double[] getJointMarginal(int[] variables) {
+            int home = getHome(variables);
+            if (home == -1) return null;
+            return marginalize(beliefs[home], indexMap(home, variables),
+                    tableSize(variables));
+        }
+    }
+}
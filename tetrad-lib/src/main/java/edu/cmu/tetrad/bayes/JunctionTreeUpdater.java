@@ -0,0 +1,540 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.bayes;
+
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.Node;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Performs exact updating on a BayesIm by message passing over a junction
+ * tree. The tree is compiled once from the Bayes net (min-fill
+ * triangulation) and reused for every evidence; manipulations only remove
+ * edges, so the same tree serves the manipulated nets too. Clique potentials
+ * are cached for the current manipulations, and the calibrated tree is cached
+ * for the current evidence, so changing only the evidence costs one
+ * propagation, and repeated queries under the same evidence cost only a sum
+ * over one clique. Time and memory are exponential only in the size of the
+ * largest clique, so sparse networks of hundreds of variables are practical.
+ *
+ * @author Joseph Ramsey
+ */
+public final class JunctionTreeUpdater implements ManipulatingBayesUpdater {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The BayesIm which this updater modifies.
+     *
+     * @serial Cannot be null.
+     */
+    private BayesIm bayesIm;
+
+    /**
+     * Stores evidence for all variables, indexed as in bayesIm.
+     *
+     * @serial Cannot be null.
+     */
+    private Evidence evidence;
+
+    /**
+     * The last manipulated BayesIm.
+     *
+     * @serial Cannot be null.
+     */
+    private BayesIm manipulatedBayesIm;
+
+    /**
+     * The BayesIm after update, if this was calculated.
+     *
+     * @serial Can be null.
+     */
+    private BayesIm updatedBayesIm;
+
+    /**
+     * The junction tree for bayesIm, compiled on first use.
+     */
+    private transient JunctionTree junctionTree;
+
+    /**
+     * The clique potentials of bayesIm, and of manipulatedBayesIm; the same
+     * array if nothing is manipulated.
+     */
+    private transient double[][] priorPotentials;
+    private transient double[][] potentials;
+
+    /**
+     * The calibrated tree for bayesIm with no evidence, and for the current
+     * evidence.
+     */
+    private transient JunctionTree.Calibration priorCalibration;
+    private transient JunctionTree.Calibration calibration;
+
+    //==============================CONSTRUCTORS===========================//
+
+    /**
+     * Constructs a new updater for the given Bayes net.
+     */
+    public JunctionTreeUpdater(BayesIm bayesIm) {
+        this(bayesIm, Evidence.tautology(bayesIm));
+    }
+
+    /**
+     * Constructs a new updater for the given Bayes net.
+     */
+    public JunctionTreeUpdater(BayesIm bayesIm, Evidence evidence) {
+        if (bayesIm == null) {
+            throw new NullPointerException();
+        }
+
+        this.bayesIm = bayesIm;
+        setEvidence(evidence);
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static JunctionTreeUpdater serializableInstance() {
+        return new JunctionTreeUpdater(MlBayesIm.serializableInstance());
+    }
+
+    //============================PUBLIC METHODS==========================//
+
+    public BayesIm getBayesIm() {
+        return bayesIm;
+    }
+
+    public BayesIm getManipulatedBayesIm() {
+        return this.manipulatedBayesIm;
+    }
+
+    public Graph getManipulatedGraph() {
+        return getManipulatedBayesIm().getDag();
+    }
+
+    /**
+     * The updated BayesIm, in which each conditional probability of a variable
+     * given its parents is conditioned on the evidence as well. Entries whose
+     * parent values are impossible given the evidence are NaN.
+     */
+    public BayesIm getUpdatedBayesIm() {
+        if (updatedBayesIm == null) {
+            updateAll();
+        }
+
+        return updatedBayesIm;
+    }
+
+    public Evidence getEvidence() {
+        return new Evidence(this.evidence);
+    }
+
+    /**
+     * Sets new evidence. The junction tree is kept; the clique potentials are
+     * kept unless the manipulations change; and the calibrated tree is kept if
+     * the evidence is the same as before.
+     */
+    public final void setEvidence(Evidence evidence) {
+        if (evidence == null) {
+            throw new NullPointerException();
+        }
+
+        if (evidence.isIncompatibleWith(bayesIm)) {
+            throw new IllegalArgumentException("The variable list for the " +
+                    "given bayesIm must be compatible with the variable list " +
+                    "for this evidence.");
+        }
+
+        Evidence evidence2 = new Evidence(evidence, bayesIm);
+
+        if (evidence2.equals(this.evidence)) {
+            return;
+        }
+
+        if (this.evidence == null || !sameManipulations(this.evidence, evidence2)) {
+            this.evidence = evidence2;
+            this.manipulatedBayesIm = createManipulatedBayesIm();
+            this.potentials = null;
+        } else {
+            this.evidence = evidence2;
+        }
+
+        this.calibration = null;
+        this.updatedBayesIm = null;
+    }
+
+    public boolean isJointMarginalSupported() {
+        return true;
+    }
+
+    public double getJointMarginal(int[] variables, int[] values) {
+        if (variables.length != values.length) {
+            throw new IllegalArgumentException("Values must match variables.");
+        }
+
+        JunctionTree.Calibration calibration = getCalibration();
+
+        if (calibration.isImpossible()) {
+            return Double.NaN;
+        }
+
+        if (distinct(variables)) {
+            double[] joint = calibration.getJointMarginal(variables);
+
+            if (joint != null) {
+                int index = 0;
+
+                for (int i = 0; i < variables.length; i++) {
+                    index *= bayesIm.getNumColumns(variables[i]);
+                    index += values[i];
+                }
+
+                return joint[index];
+            }
+        }
+
+        // The variables span several cliques; enter them as extra findings
+        // and compare the probabilities of the findings with and without.
+        double[][] likelihoods = getLikelihoods();
+
+        for (int i = 0; i < variables.length; i++) {
+            int variable = variables[i];
+            double[] likelihood = new double[bayesIm.getNumColumns(variable)];
+            likelihood[values[i]] = likelihoods[variable] == null ? 1.0
+                    : likelihoods[variable][values[i]];
+            likelihoods[variable] = likelihood;
+        }
+
+        JunctionTree.Calibration joint =
+                getJunctionTree().calibrate(getPotentials(), likelihoods, false);
+
+        return Math.exp(joint.getLogNormalizer() - calibration.getLogNormalizer());
+    }
+
+    /**
+     * @return P&lpar;variable&equals;value &vbar; evidence&rpar; where evidence is getEvidence().
+     */
+    public double getMarginal(int variable, int value) {
+        JunctionTree.Calibration calibration = getCalibration();
+
+        if (calibration.isImpossible()) {
+            return Double.NaN;
+        }
+
+        return calibration.getMarginal(variable)[value];
+    }
+
+    /**
+     * @return the marginals of the given node with no evidence and no
+     * manipulations. Unlike the other updaters this does not reset the
+     * evidence; the prior calibration is cached separately.
+     */
+    public double[] calculatePriorMarginals(int nodeIndex) {
+        double[] marginals = getPriorCalibration().getMarginal(nodeIndex);
+        return Arrays.copyOf(marginals, marginals.length);
+    }
+
+    public double[] calculateUpdatedMarginals(int nodeIndex) {
+        double[] marginals = new double[evidence.getNumCategories(nodeIndex)];
+
+        for (int i = 0; i < getBayesIm().getNumColumns(nodeIndex); i++) {
+            marginals[i] = getMarginal(nodeIndex, i);
+        }
+
+        return marginals;
+    }
+
+    /**
+     * Prints out the most recent marginal.
+     */
+    public String toString() {
+        return "Junction tree updater, evidence = " + evidence;
+    }
+
+    //==============================PRIVATE METHODS=======================//
+
+    private JunctionTree getJunctionTree() {
+        if (junctionTree == null) {
+            int numNodes = bayesIm.getNumNodes();
+            int[] dims = new int[numNodes];
+            int[][] families = new int[numNodes][];
+
+            for (int node = 0; node < numNodes; node++) {
+                dims[node] = bayesIm.getNumColumns(node);
+                families[node] = getFamily(bayesIm, node);
+            }
+
+            junctionTree = new JunctionTree(dims, families);
+        }
+
+        return junctionTree;
+    }
+
+    private JunctionTree.Calibration getPriorCalibration() {
+        if (priorCalibration == null) {
+            priorCalibration = getJunctionTree().calibrate(getPriorPotentials(),
+                    new double[bayesIm.getNumNodes()][], true);
+        }
+
+        return priorCalibration;
+    }
+
+    private JunctionTree.Calibration getCalibration() {
+        if (calibration == null) {
+            double[][] likelihoods = getLikelihoods();
+
+            if (!hasManipulations(evidence) && allNull(likelihoods)) {
+                calibration = getPriorCalibration();
+            } else {
+                calibration = getJunctionTree().calibrate(getPotentials(),
+                        likelihoods, true);
+            }
+        }
+
+        return calibration;
+    }
+
+    private double[][] getPriorPotentials() {
+        if (priorPotentials == null) {
+            priorPotentials = createPotentials(bayesIm);
+        }
+
+        return priorPotentials;
+    }
+
+    private double[][] getPotentials() {
+        if (potentials == null) {
+            potentials = hasManipulations(evidence) ? createPotentials(manipulatedBayesIm)
+                    : getPriorPotentials();
+        }
+
+        return potentials;
+    }
+
+    /**
+     * Multiplies each conditional probability table of the given IM into the
+     * smallest clique containing its family.
+     */
+    private double[][] createPotentials(BayesIm im) {
+        JunctionTree junctionTree = getJunctionTree();
+        double[][] potentials = new double[junctionTree.getNumCliques()][];
+
+        for (int c = 0; c < potentials.length; c++) {
+            potentials[c] = new double[junctionTree.getTableSize(c)];
+            Arrays.fill(potentials[c], 1.0);
+        }
+
+        for (int node = 0; node < im.getNumNodes(); node++) {
+            int[] family = getFamily(im, node);
+            int home = junctionTree.getHome(family);
+            int[] map = junctionTree.indexMap(home, family);
+            int numCols = im.getNumColumns(node);
+            double[] potential = potentials[home];
+
+            for (int e = 0; e < potential.length; e++) {
+                potential[e] *= im.getProbability(node, map[e] / numCols, map[e] % numCols);
+            }
+        }
+
+        return potentials;
+    }
+
+    /**
+     * @return the indicator of allowed categories for each variable the
+     * evidence restricts, null for the others.
+     */
+    private double[][] getLikelihoods() {
+        Proposition proposition = evidence.getProposition();
+        double[][] likelihoods = new double[bayesIm.getNumNodes()][];
+
+        for (int i = 0; i < likelihoods.length; i++) {
+            if (proposition.isUnconditioned(i)) continue;
+
+            likelihoods[i] = new double[bayesIm.getNumColumns(i)];
+
+            for (int j = 0; j < likelihoods[i].length; j++) {
+                likelihoods[i][j] = proposition.isAllowed(i, j) ? 1.0 : 0.0;
+            }
+        }
+
+        return likelihoods;
+    }
+
+    private void updateAll() {
+        BayesIm updatedBayesIm = new MlBayesIm(manipulatedBayesIm);
+        JunctionTree.Calibration calibration = getCalibration();
+
+        for (int node = 0; node < manipulatedBayesIm.getNumNodes(); node++) {
+            int numRows = manipulatedBayesIm.getNumRows(node);
+            int numCols = manipulatedBayesIm.getNumColumns(node);
+            double[] joint = calibration.isImpossible() ? null
+                    : calibration.getJointMarginal(getFamily(manipulatedBayesIm, node));
+
+            for (int row = 0; row < numRows; row++) {
+                double sum = 0.0;
+
+                if (joint != null) {
+                    for (int col = 0; col < numCols; col++) {
+                        sum += joint[row * numCols + col];
+                    }
+                }
+
+                for (int col = 0; col < numCols; col++) {
+                    double p = sum > 0 ? joint[row * numCols + col] / sum : Double.NaN;
+                    updatedBayesIm.setProbability(node, row, col, p);
+                }
+            }
+        }
+
+        this.updatedBayesIm = updatedBayesIm;
+    }
+
+    /**
+     * @return the parents of the node followed by the node, the order in
+     * which the node's conditional probability table is indexed.
+     */
+    private static int[] getFamily(BayesIm im, int node) {
+        int[] parents = im.getParents(node);
+        int[] family = Arrays.copyOf(parents, parents.length + 1);
+        family[parents.length] = node;
+        return family;
+    }
+
+    private static boolean hasManipulations(Evidence evidence) {
+        for (int i = 0; i < evidence.getNumNodes(); i++) {
+            if (evidence.isManipulated(i)) return true;
+        }
+
+        return false;
+    }
+
+    private static boolean sameManipulations(Evidence evidence1, Evidence evidence2) {
+        for (int i = 0; i < evidence1.getNumNodes(); i++) {
+            if (evidence1.isManipulated(i) != evidence2.isManipulated(i)) return false;
+        }
+
+        // The manipulated IM depends on the categories allowed for the
+        // manipulated variables.
+        for (int i = 0; i < evidence1.getNumNodes(); i++) {
+            if (!evidence1.isManipulated(i)) continue;
+
+            for (int j = 0; j < evidence1.getNumCategories(i); j++) {
+                if (evidence1.getProposition().isAllowed(i, j)
+                        != evidence2.getProposition().isAllowed(i, j)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean allNull(double[][] arrays) {
+        for (double[] array : arrays) {
+            if (array != null) return false;
+        }
+
+        return true;
+    }
+
+    private static boolean distinct(int[] variables) {
+        for (int i = 0; i < variables.length; i++) {
+            for (int j = i + 1; j < variables.length; j++) {
+                if (variables[i] == variables[j]) return false;
+            }
+        }
+
+        return true;
+    }
+
+    private BayesIm createManipulatedBayesIm() {
+        Graph graph = bayesIm.getBayesPm().getDag();
+        Dag manipulatedGraph = createManipulatedGraph(graph);
+        BayesPm manipulatedPm = new BayesPm(manipulatedGraph, bayesIm.getBayesPm());
+
+        // Switching this to MANUAL since the initial values don't matter.
+        BayesIm manipulatedBayesIm = new MlBayesIm(manipulatedPm, bayesIm, MlBayesIm.MANUAL);
+
+        for (int i = 0; i < evidence.getNumNodes(); i++) {
+            if (evidence.isManipulated(i)) {
+                for (int j = 0; j < evidence.getNumCategories(i); j++) {
+                    if (evidence.getProposition().isAllowed(i, j)) {
+                        manipulatedBayesIm.setProbability(i, 0, j, 1.0);
+                    } else {
+                        manipulatedBayesIm.setProbability(i, 0, j, 0.0);
+                    }
+                }
+            }
+        }
+
+        return manipulatedBayesIm;
+    }
+
+    private Dag createManipulatedGraph(Graph graph) {
+        Dag updatedGraph = new Dag(graph);
+
+        // alters graph for manipulated evidenceItems
+        for (int i = 0; i < evidence.getNumNodes(); ++i) {
+            if (evidence.isManipulated(i)) {
+                Node node = updatedGraph.getNode(evidence.getNode(i).getName());
+                List<Node> parents = updatedGraph.getParents(node);
+
+                for (Node parent : parents) {
+                    updatedGraph.removeEdge(node, parent);
+                }
+            }
+        }
+
+        return updatedGraph;
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method
+     * must have the standard signature for a readObject method, and the body of
+     * the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from
+     * version to version. A readObject method of this form may be added to any
+     * class, even if Tetrad sessions were previously saved out using a version
+     * of the class that didn't include it. (That's what the
+     * "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for help.
+     *
+     * @throws java.io.IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        if (bayesIm == null) {
+            throw new NullPointerException();
+        }
+
+        if (evidence == null) {
+            throw new NullPointerException();
+        }
+    }
+}
@@ -25,6 +25,7 @@ import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.graph.TimeLagGraph;
+import edu.cmu.tetrad.util.ChunkedSimulation;
 import edu.cmu.tetrad.util.NumberFormatUtil;
 import edu.cmu.tetrad.util.RandomUtil;
 import org.apache.commons.math3.distribution.ChiSquaredDistribution;
@@ -134,6 +135,18 @@ public final class MlBayesIm implements BayesIm {
      */
     private double[][][] probs;
 
+    /**
+     * True if samples are simulated in parallel.
+     *
+     * @serial
+     */
+    private boolean parallel = false;
+
+    /**
+     * The number of rows in each chunk of a parallel simulation.
+     */
+    private static final int SIMULATION_CHUNK_SIZE = 1000;
+
     //===============================CONSTRUCTORS=========================//
 
     /**
@@ -853,8 +866,6 @@ public final class MlBayesIm implements BayesIm {
      * @return the simulated sample as a DataSet.
      */
     private DataSet simulateDataHelper(int sampleSize, boolean latentDataSaved, int[] tiers) {
-        int numMeasured = 0;
-        int[] map = new int[nodes.length];
         List<Node> variables = new LinkedList<>();
 
         for (int j = 0; j < nodes.length; j++) {
@@ -873,13 +884,9 @@ public final class MlBayesIm implements BayesIm {
                     new DiscreteVariable(nodes[j].getName(), categories);
             var.setNodeType(nodes[j].getNodeType());
             variables.add(var);
-            int index = ++numMeasured - 1;
-            map[index] = j;
         }
 
-
-        DataSet dataSet = new BoxDataSet(new VerticalIntDataBox(sampleSize, variables.size()), variables);
-        constructSample(sampleSize, dataSet, map, tiers);
+        DataSet dataSet = new BoxDataSet(new VerticalIntDataBox(constructSample(sampleSize, tiers)), variables);
 
         if (!latentDataSaved) {
             dataSet = DataUtils.restrictToMeasured(dataSet);
@@ -899,10 +906,6 @@ public final class MlBayesIm implements BayesIm {
                     "in Bayes net.");
         }
 
-        int sampleSize = dataSet.getNumRows();
-
-        int numVars = 0;
-        int[] map = new int[nodes.length];
         List<Node> variables = new LinkedList<>();
 
         for (int j = 0; j < nodes.length; j++) {
@@ -921,8 +924,6 @@ public final class MlBayesIm implements BayesIm {
                     new DiscreteVariable(nodes[j].getName(), categories);
             var.setNodeType(nodes[j].getNodeType());
             variables.add(var);
-            int index = ++numVars - 1;
-            map[index] = j;
         }
 
         for (int i = 0; i < variables.size(); i++) {
@@ -931,7 +932,7 @@ public final class MlBayesIm implements BayesIm {
             dataSet.changeVariable(node, _node);
         }
 
-        constructSample(sampleSize, dataSet, map, tiers);
+        constructSample(dataSet, tiers);
 
         if (latentDataSaved) {
             return dataSet;
@@ -940,108 +941,120 @@ public final class MlBayesIm implements BayesIm {
         }
     }
 
-    final long[] seed = new long[]{new Date().getTime()};
+    /**
+     * Writes a random sample into the given data set, whose columns are the nodes of this IM. If its data are
+     * stored as columns of ints, rows are simulated straight into them; otherwise each chunk of rows is simulated
+     * into a buffer and copied in. Rows are simulated in parallel if this IM has been set to do so.
+     */
+    private void constructSample(final DataSet dataSet, final int[] tiers) {
+        int sampleSize = dataSet.getNumRows();
 
-    private void constructSample(int sampleSize, DataSet dataSet, int[] map, int[] tiers) {
+        if (dataSet instanceof BoxDataSet && ((BoxDataSet) dataSet).getDataBox() instanceof VerticalIntDataBox) {
+            VerticalIntDataBox box = (VerticalIntDataBox) ((BoxDataSet) dataSet).getDataBox();
+            constructRows(sampleSize, box.getVariableVectors(), tiers);
+            return;
+        }
 
-//        //Do the simulation.
-//        class SimulationTask extends RecursiveTask<Boolean> {
-//            private int chunk;
-//            private int from;
-//            private int to;
-//            private int[] tiers;
-//            private DataSet dataSet;
-//            private int[] map;
-//
-//            public SimulationTask(int chunk, int from, int to, int[] tiers, DataSet dataSet, int[] map) {
-//                this.chunk = chunk;
-//                this.from = from;
-//                this.to = to;
-//                this.tiers = tiers;
-//                this.dataSet = dataSet;
-//                this.map = map;
-//            }
-//
-//            @Override
-//            protected Boolean compute() {
-//                if (to - from <= chunk) {
-//                    RandomGenerator randomGenerator = new Well1024a(++seed[0]);
-//
-//                    for (int row = from; row < to; row++) {
-//                        for (int t : tiers) {
-//                            int[] parentValues = new int[parents[t].length];
-//
-//                            for (int k = 0; k < parentValues.length; k++) {
-//                                parentValues[k] = dataSet.getInt(row, parents[t][k]);
-//                            }
-//
-//                            int rowIndex = getRowIndex(t, parentValues);
-//                            double sum = 0.0;
-//                            double r;
-//
-//                            r = randomGenerator.nextDouble();
-//
-//                            for (int k = 0; k < getNumColumns(t); k++) {
-//                                double probability = getProbability(t, rowIndex, k);
-//                                sum += probability;
-//
-//                                if (sum >= r) {
-//                                    dataSet.setInt(row, map[t], k);
-//                                    break;
-//                                }
-//                            }
-//                        }
-//                    }
-//
-//                    return true;
-//                } else {
-//                    int mid = (to + from) / 2;
-//                    SimulationTask left = new SimulationTask(chunk, from, mid, tiers, dataSet, map);
-//                    SimulationTask right = new SimulationTask(chunk, mid, to, tiers, dataSet, map);
-//
-//                    left.fork();
-//                    right.compute();
-//                    left.join();
-//
-//                    return true;
-//                }
-//            }
-//        }
-//
-//        int chunk = 25;
-//
-//        ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
-//        SimulationTask task = new SimulationTask(chunk, 0, sampleSize, tiers, dataSet, map);
-//        pool.invoke(task);
+        ChunkedSimulation.Rows rows = new ChunkedSimulation.Rows() {
+            public void simulate(int from, int to) {
+                int[][] chunk = new int[nodes.length][to - from];
 
+                for (int[] column : chunk) {
+                    Arrays.fill(column, -99);
+                }
 
-        // Construct the sample.
-        for (int i = 0; i < sampleSize; i++) {
+                constructRows(from, to, chunk, from, tiers);
+
+                for (int j = 0; j < chunk.length; j++) {
+                    for (int i = from; i < to; i++) {
+                        if (chunk[j][i - from] != -99) {
+                            dataSet.setInt(i, j, chunk[j][i - from]);
+                        }
+                    }
+                }
+            }
+        };
+
+        if (parallel) {
+            ChunkedSimulation.simulate(sampleSize, SIMULATION_CHUNK_SIZE, rows);
+        } else {
+            for (int from = 0; from < sampleSize; from += SIMULATION_CHUNK_SIZE) {
+                rows.simulate(from, Math.min(from + SIMULATION_CHUNK_SIZE, sampleSize));
+            }
+        }
+    }
+
+    /**
+     * @return a random sample, as an array of columns, one for each node. Rows are simulated in parallel if
+     * this IM has been set to do so.
+     */
+    private int[][] constructSample(int sampleSize, int[] tiers) {
+        int[][] sample = new int[nodes.length][sampleSize];
+
+        for (int[] column : sample) {
+            Arrays.fill(column, -99);
+        }
+
+        constructRows(sampleSize, sample, tiers);
+        return sample;
+    }
+
+    /**
+     * Simulates the given number of rows into the given columns, one for each node, in parallel if this IM has
+     * been set to do so.
+     */
+    private void constructRows(int sampleSize, final int[][] sample, final int[] tiers) {
+        if (parallel) {
+            ChunkedSimulation.simulate(sampleSize, SIMULATION_CHUNK_SIZE, new ChunkedSimulation.Rows() {
+                public void simulate(int from, int to) {
+                    constructRows(from, to, sample, 0, tiers);
+                }
+            });
+        } else {
+            constructRows(0, sampleSize, sample, 0, tiers);
+        }
+    }
+
+    /**
+     * Simulates rows from (inclusive) to to (exclusive) into the given columns, in which row i is at index
+     * i - offset.
+     */
+    private void constructRows(int from, int to, int[][] sample, int offset, int[] tiers) {
+        RandomUtil random = RandomUtil.getInstance();
+
+        for (int i = from; i < to; i++) {
             for (int t : tiers) {
                 int[] parentValues = new int[parents[t].length];
 
                 for (int k = 0; k < parentValues.length; k++) {
-                    parentValues[k] = dataSet.getInt(i, parents[t][k]);
+                    parentValues[k] = sample[parents[t][k]][i - offset];
                 }
 
                 int rowIndex = getRowIndex(t, parentValues);
                 double sum = 0.0;
 
-                double r = RandomUtil.getInstance().nextDouble();
+                double r = random.nextDouble();
 
                 for (int k = 0; k < getNumColumns(t); k++) {
                     double probability = getProbability(t, rowIndex, k);
                     sum += probability;
 
                     if (sum >= r) {
-                        dataSet.setInt(i, map[t], k);
+                        sample[t][i - offset] = k;
                         break;
                     }
                 }
             }
         }
+    }
 
-//        System.out.println(dataSet);
+    /**
+     * If true, rows are simulated in parallel, in chunks of a fixed number of rows, each drawing from its own
+     * random number generator seeded from RandomUtil. For a given seed the data then do not depend on the number
+     * of threads, though they differ from the data simulated serially. False by default.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
     }
 
     public boolean equals(Object o) {
@@ -1376,7 +1389,7 @@ public final class MlBayesIm implements BayesIm {
 
                     for (int j = 0; j < oldBayesIm.getNumColumns(nodeIndex); j++) {
                         for (int i = 0; i < oldBayesIm.getNumRows(nodeIndex); i++) {
-                            row[i] += oldBayesIm.getProbability(nodeIndex, i, j);
+                            row[j] += oldBayesIm.getProbability(nodeIndex, i, j);
                         }
                     }
 
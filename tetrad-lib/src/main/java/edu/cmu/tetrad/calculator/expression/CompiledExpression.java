@@ -0,0 +1,440 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.calculator.expression;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An expression tree that has been resolved against a fixed layout of value slots, so that it can be
+ * evaluated directly on a double[] row, without looking names up in a Context or boxing values. Variables
+ * and parameters that have a slot are read from the row; the arithmetic, comparison and elementary
+ * functions of the calculator are evaluated on primitives. Anything else (for instance the random
+ * distributions) is evaluated by the original expression, through a Context that reads the row, so
+ * compiled and uncompiled expressions give identical results and consume random numbers in the same order.
+ * <p>
+ * A slot holding NaN is taken to be unassigned and its name is resolved through the Context given to
+ * compile(), as is any name without a slot. This lets callers keep the semantics they have for values
+ * that have not been recorded yet.
+ *
+ * @author Joseph Ramsey
+ */
+public abstract class CompiledExpression {
+
+    /**
+     * Evaluates the expression against the given row.
+     *
+     * @param values The row of values, laid out as in the slot map given to compile().
+     */
+    public abstract double evaluate(double[] values);
+
+    /**
+     * Compiles the given expression.
+     *
+     * @param expression The expression to compile.
+     * @param slots      A map from variable and parameter names to their indices in the rows that will be
+     *                   passed to evaluate().
+     * @param context    The context used for names without a slot and for unassigned (NaN) slots.
+     */
+    public static CompiledExpression compile(Expression expression, Map<String, Integer> slots, Context context) {
+        if (expression == null) {
+            throw new NullPointerException("Expression was null.");
+        }
+
+        if (slots == null) {
+            throw new NullPointerException("Slots were null.");
+        }
+
+        if (context == null) {
+            throw new NullPointerException("Context was null.");
+        }
+
+        return new Compiler(slots, context).compile(expression);
+    }
+
+    //================================ Compiler ================================//
+
+    private static class Compiler {
+        private final Map<String, Integer> slots;
+        private final Context context;
+
+        Compiler(Map<String, Integer> slots, Context context) {
+            this.slots = slots;
+            this.context = context;
+        }
+
+        CompiledExpression compile(Expression expression) {
+            if (expression instanceof ConstantExpression) {
+                return new Constant(expression.evaluate(null));
+            }
+
+            if (expression instanceof VariableExpression) {
+                String name = ((VariableExpression) expression).getVariable();
+                Integer slot = slots.get(name);
+
+                if (slot == null) {
+                    return new Fallback(expression, this);
+                }
+
+                return new Variable(name, slot, context);
+            }
+
+            if (!(expression instanceof AbstractExpression)) {
+                return new Fallback(expression, this);
+            }
+
+            List<Expression> expressions = expression.getExpressions();
+            CompiledExpression[] args = new CompiledExpression[expressions.size()];
+
+            for (int i = 0; i < args.length; i++) {
+                args[i] = compile(expressions.get(i));
+            }
+
+            switch (expression.getToken()) {
+                case "+":
+                    return new Sum(args);
+                case "-":
+                    if (args.length == 1) return new Unary(args[0], a -> -a);
+                    return new Binary(args[0], args[1], (a, b) -> a - b);
+                case "*":
+                    return new Product(args);
+                case "/":
+                    return new Binary(args[0], args[1], (a, b) -> a / b);
+                case "^":
+                case "pow":
+                    return new Binary(args[0], args[1], Math::pow);
+                case "exp":
+                    return new Unary(args[0], Math::exp);
+                case "sqrt":
+                    return new Unary(args[0], Math::sqrt);
+                case "ln":
+                    return new Unary(args[0], Math::log);
+                case "log10":
+                    return new Unary(args[0], Math::log10);
+                case "abs":
+                    return new Unary(args[0], Math::abs);
+                case "ceil":
+                    return new Unary(args[0], Math::ceil);
+                case "floor":
+                    return new Unary(args[0], Math::floor);
+                case "round":
+                    return new Unary(args[0], a -> Math.round(a));
+                case "signum":
+                    return new Unary(args[0], Math::signum);
+                case "sin":
+                    return new Unary(args[0], Math::sin);
+                case "cos":
+                    return new Unary(args[0], Math::cos);
+                case "tan":
+                    return new Unary(args[0], Math::tan);
+                case "asin":
+                    return new Unary(args[0], Math::asin);
+                case "acos":
+                    return new Unary(args[0], Math::acos);
+                case "atan":
+                    return new Unary(args[0], Math::atan);
+                case "sinh":
+                    return new Unary(args[0], Math::sinh);
+                case "cosh":
+                    return new Unary(args[0], Math::cosh);
+                case "tanh":
+                    return new Unary(args[0], Math::tanh);
+                case "logistic":
+                    return new Unary(args[0], a -> 1.0 / (1.0 + Math.exp(-a)));
+                case "max":
+                    return new Max(args);
+                case "min":
+                    return new Min(args);
+                case "AND":
+                    return new And(args);
+                case "OR":
+                    return new Or(args);
+                case "XOR":
+                    return new Binary(args[0], args[1],
+                            (a, b) -> (a == 1.0 ? 1.0 : 0.0) + (b == 1.0 ? 1.0 : 0.0) == 1.0 ? 1.0 : 0.0);
+                case "<":
+                    return new Binary(args[0], args[1], (a, b) -> a < b ? 1.0 : 0.0);
+                case "<=":
+                    return new Binary(args[0], args[1], (a, b) -> a <= b ? 1.0 : 0.0);
+                case "=":
+                    return new Binary(args[0], args[1], (a, b) -> a == b ? 1.0 : 0.0);
+                case ">":
+                    return new Binary(args[0], args[1], (a, b) -> a > b ? 1.0 : 0.0);
+                case ">=":
+                    return new Binary(args[0], args[1], (a, b) -> a >= b ? 1.0 : 0.0);
+                case "IF":
+                    return new If(args[0], args[1], args[2]);
+                default:
+                    return new Fallback(expression, this);
+            }
+        }
+
+        Double lookup(double[] values, String name) {
+            Integer slot = slots.get(name);
+
+            if (slot != null && !Double.isNaN(values[slot])) {
+                return values[slot];
+            }
+
+            return context.getValue(name);
+        }
+    }
+
+    //================================ Nodes ================================//
+
+    private static final class Constant extends CompiledExpression {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        public double evaluate(double[] values) {
+            return value;
+        }
+    }
+
+    private static final class Variable extends CompiledExpression {
+        private final String name;
+        private final int slot;
+        private final Context context;
+
+        Variable(String name, int slot, Context context) {
+            this.name = name;
+            this.slot = slot;
+            this.context = context;
+        }
+
+        public double evaluate(double[] values) {
+            double value = values[slot];
+
+            if (Double.isNaN(value)) {
+                Double _value = context.getValue(name);
+
+                if (_value == null) {
+                    throw new IllegalArgumentException(name + " was not assigned a value.");
+                }
+
+                return _value;
+            }
+
+            return value;
+        }
+    }
+
+    private static final class Unary extends CompiledExpression {
+        private final CompiledExpression arg;
+        private final DoubleUnaryOperator op;
+
+        Unary(CompiledExpression arg, DoubleUnaryOperator op) {
+            this.arg = arg;
+            this.op = op;
+        }
+
+        public double evaluate(double[] values) {
+            return op.applyAsDouble(arg.evaluate(values));
+        }
+    }
+
+    private static final class Binary extends CompiledExpression {
+        private final CompiledExpression arg1;
+        private final CompiledExpression arg2;
+        private final DoubleBinaryOperator op;
+
+        Binary(CompiledExpression arg1, CompiledExpression arg2, DoubleBinaryOperator op) {
+            this.arg1 = arg1;
+            this.arg2 = arg2;
+            this.op = op;
+        }
+
+        public double evaluate(double[] values) {
+            double a = arg1.evaluate(values);
+            double b = arg2.evaluate(values);
+            return op.applyAsDouble(a, b);
+        }
+    }
+
+    /**
+     * Like the calculator's +, a term that cannot be evaluated contributes zero.
+     */
+    private static final class Sum extends CompiledExpression {
+        private final CompiledExpression[] args;
+
+        Sum(CompiledExpression[] args) {
+            this.args = args;
+        }
+
+        public double evaluate(double[] values) {
+            double value = 0.0;
+
+            for (CompiledExpression arg : args) {
+                double evaluate = 0;
+
+                try {
+                    evaluate = arg.evaluate(values);
+                } catch (Exception e) {
+                    // Same as the calculator.
+                }
+
+                value += evaluate;
+            }
+
+            return value;
+        }
+    }
+
+    private static final class Product extends CompiledExpression {
+        private final CompiledExpression[] args;
+
+        Product(CompiledExpression[] args) {
+            this.args = args;
+        }
+
+        public double evaluate(double[] values) {
+            double value = 1.0;
+
+            for (CompiledExpression arg : args) {
+                value = value * arg.evaluate(values);
+            }
+
+            return value;
+        }
+    }
+
+    private static final class Max extends CompiledExpression {
+        private final CompiledExpression[] args;
+
+        Max(CompiledExpression[] args) {
+            this.args = args;
+        }
+
+        public double evaluate(double[] values) {
+            double max = args[0].evaluate(values);
+
+            for (int i = 1; i < args.length; i++) {
+                double d = args[i].evaluate(values);
+                if (max < d) max = d;
+            }
+
+            return max;
+        }
+    }
+
+    private static final class Min extends CompiledExpression {
+        private final CompiledExpression[] args;
+
+        Min(CompiledExpression[] args) {
+            this.args = args;
+        }
+
+        public double evaluate(double[] values) {
+            double min = args[0].evaluate(values);
+
+            for (int i = 1; i < args.length; i++) {
+                double d = args[i].evaluate(values);
+                if (d < min) min = d;
+            }
+
+            return min;
+        }
+    }
+
+    private static final class And extends CompiledExpression {
+        private final CompiledExpression[] args;
+
+        And(CompiledExpression[] args) {
+            this.args = args;
+        }
+
+        public double evaluate(double[] values) {
+            boolean allOnes = true;
+
+            for (CompiledExpression arg : args) {
+                if (arg.evaluate(values) != 1.0) {
+                    allOnes = false;
+                }
+            }
+
+            return allOnes ? 1.0 : 0.0;
+        }
+    }
+
+    private static final class Or extends CompiledExpression {
+        private final CompiledExpression[] args;
+
+        Or(CompiledExpression[] args) {
+            this.args = args;
+        }
+
+        public double evaluate(double[] values) {
+            for (CompiledExpression arg : args) {
+                if (arg.evaluate(values) == 1.0) {
+                    return 1.0;
+                }
+            }
+
+            return 0.0;
+        }
+    }
+
+    private static final class If extends CompiledExpression {
+        private final CompiledExpression condition;
+        private final CompiledExpression then;
+        private final CompiledExpression otherwise;
+
+        If(CompiledExpression condition, CompiledExpression then, CompiledExpression otherwise) {
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        public double evaluate(double[] values) {
+            double a = condition.evaluate(values);
+            double b = then.evaluate(values);
+            double c = otherwise.evaluate(values);
+            return a == 1.0 ? b : c;
+        }
+    }
+
+    /**
+     * Evaluates an expression the compiler does not know through the expression itself.
+     */
+    private static final class Fallback extends CompiledExpression {
+        private final Expression expression;
+        private final Compiler compiler;
+
+        Fallback(Expression expression, Compiler compiler) {
+            this.expression = expression;
+            this.compiler = compiler;
+        }
+
+        public double evaluate(final double[] values) {
+            return expression.evaluate(new Context() {
+                public Double getValue(String var) {
+                    return compiler.lookup(values, var);
+                }
+            });
+        }
+    }
+}
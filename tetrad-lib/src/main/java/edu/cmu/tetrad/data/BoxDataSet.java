@@ -867,6 +867,10 @@ public final class BoxDataSet implements DataSet, TetradSerializable {
      * integer, or DiscreteVariable.MISSING_VALUE if the value is missing.
      */
     public final int getInt(int row, int column) {
+        if (dataBox instanceof MappedDataBox) {
+            return ((MappedDataBox) dataBox).getInt(row, column);
+        }
+
         Number value = dataBox.get(row, column);
 
         if (value == null) {
@@ -883,6 +887,10 @@ public final class BoxDataSet implements DataSet, TetradSerializable {
      * returned.
      */
     public final double getDouble(int row, int column) {
+        if (dataBox instanceof MappedDataBox) {
+            return ((MappedDataBox) dataBox).getDouble(row, column);
+        }
+
         Number value = dataBox.get(row, column);
 
         if (value == null) {
@@ -112,6 +112,21 @@ public class ByteDataBox implements DataBox {
         }
     }
 
+    /**
+     * @return the data column by column, as a new array.
+     */
+    public byte[][] getVariableVectors() {
+        byte[][] vectors = new byte[numCols()][numRows()];
+
+        for (int i = 0; i < numRows(); i++) {
+            for (int j = 0; j < numCols(); j++) {
+                vectors[j][i] = data[i][j];
+            }
+        }
+
+        return vectors;
+    }
+
     /**
      * @return a copy of this data box.
      */
@@ -23,6 +23,8 @@ package edu.cmu.tetrad.data;
 
 import edu.cmu.tetrad.util.MultiDimIntTable;
 
+import java.util.Arrays;
+
 
 /**
  * Stores a cell count table of arbitrary dimension. Provides methods for
@@ -46,6 +48,12 @@ public final class CellTable {
 
     private final MultiDimIntTable table;
 
+    /**
+     * The cell counts, in the order of MultiDimIntTable's cell indices, if they were counted by a
+     * ContingencyCounter; otherwise null, and they are in the table.
+     */
+    private int[] counts;
+
     /**
      * Constructs a new cell table using the given array for dimensions,
      * initializing all cells in the table to zero.
@@ -67,6 +75,7 @@ public final class CellTable {
         }
 
         table.reset(dims);
+        counts = null;
 
         int[] coords = new int[indices.length];
 
@@ -89,6 +98,21 @@ public final class CellTable {
         }
     }
 
+    /**
+     * Resets the table to the given columns of the counter's data and counts them. The counter treats any negative
+     * value as missing.
+     */
+    public synchronized final void addToTable(ContingencyCounter counter, int[] indices) {
+        int[] dims = new int[indices.length];
+
+        for (int i = 0; i < indices.length; i++) {
+            dims[i] = counter.getNumCategories(indices[i]);
+        }
+
+        table.reset(dims);
+        counts = Arrays.copyOf(counter.count(indices), counter.getNumCells(indices));
+    }
+
     /**
      * @param varIndex the index of the variable in question.
      * @return the number of dimensions of the variable.
@@ -126,7 +150,7 @@ public final class CellTable {
             }
         }
 
-        return table.getValue(this.coordCopy);
+        return getValue(this.coordCopy);
     }
 
     /**
@@ -173,6 +197,10 @@ public final class CellTable {
     }
 
     public long getValue(int[] testCell) {
+        if (counts != null) {
+            return counts[table.getCellIndex(testCell)];
+        }
+
         return table.getValue(testCell);
     }
 }
@@ -0,0 +1,327 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the rows of a discrete data set by cell of the contingency table over any list of its columns. This is the
+ * counting shared by the discrete scores and tests.
+ * <p>
+ * The cell of a row is its mixed-radix index, with the first column most significant, as in MultiDimIntTable. Cell
+ * indices are built a block of rows at a time, one column at a time, so each pass reads one column in order. Rows with
+ * a missing (negative) value in any of the columns are not counted. The buffers are kept per thread, so counting
+ * doesn't allocate, except when a large data set is split across the fork-join pool, where each piece needs its own
+ * table.
+ * <p>
+ * Columns are read in place from a VerticalIntDataBox or a MappedDataBox, and copied otherwise. If they are packed,
+ * they are stored a byte per value, as in ByteDataBox, which takes a quarter of the memory bandwidth.
+ *
+ * @author Joseph Ramsey
+ */
+public final class ContingencyCounter {
+
+    // The number of rows whose cell indices are built at a time.
+    private static final int BLOCK = 4096;
+
+    // The least number of values (rows times columns) worth splitting across the pool.
+    private static final long MIN_PARALLEL_WORK = 1 << 20;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final List<Node> variables;
+    private final int numRows;
+
+    // The number of categories of each variable, or 0 if it isn't discrete.
+    private final int[] numCategories;
+
+    // Exactly one of these holds the columns.
+    private int[][] ints;
+    private byte[][] bytes;
+    private IntBuffer[] mapped;
+
+    private boolean parallel = true;
+
+    /**
+     * Counts the given data, with columns stored as ints.
+     */
+    public ContingencyCounter(DataSet dataSet) {
+        this(dataSet, false);
+    }
+
+    /**
+     * Counts the given data.
+     *
+     * @param dataSet A data set. Only its discrete columns may be counted.
+     * @param packed  True if the columns should be stored a byte per value. This is done only if every variable has at
+     *                most 127 categories.
+     */
+    public ContingencyCounter(DataSet dataSet, boolean packed) {
+        if (dataSet == null) {
+            throw new NullPointerException("Data was not provided.");
+        }
+
+        this.variables = dataSet.getVariables();
+        this.numRows = dataSet.getNumRows();
+        this.numCategories = new int[variables.size()];
+
+        for (int j = 0; j < variables.size(); j++) {
+            if (variables.get(j) instanceof DiscreteVariable) {
+                numCategories[j] = ((DiscreteVariable) variables.get(j)).getNumCategories();
+            }
+        }
+
+        DataBox box = dataSet instanceof BoxDataSet ? ((BoxDataSet) dataSet).getDataBox() : null;
+
+        if (packed && fitsInBytes()) {
+            if (box instanceof ByteDataBox) {
+                bytes = ((ByteDataBox) box).getVariableVectors();
+            } else {
+                int[][] columns = intColumns(dataSet, box);
+                bytes = new byte[columns.length][];
+
+                for (int j = 0; j < columns.length; j++) {
+                    if (columns[j] == null) continue;
+
+                    bytes[j] = new byte[numRows];
+
+                    for (int i = 0; i < numRows; i++) {
+                        bytes[j][i] = (byte) Math.max(columns[j][i], -99);
+                    }
+                }
+            }
+        } else if (box instanceof MappedDataBox) {
+            mapped = new IntBuffer[numCategories.length];
+
+            for (int j = 0; j < mapped.length; j++) {
+                mapped[j] = ((MappedDataBox) box).getDiscreteColumn(j);
+            }
+        } else {
+            ints = intColumns(dataSet, box);
+        }
+    }
+
+    /**
+     * Sets whether large counts may be split across the shared fork-join pool. True by default.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the number of categories of the variable in the given column.
+     */
+    public int getNumCategories(int column) {
+        return numCategories[column];
+    }
+
+    /**
+     * @return the number of cells in the contingency table over the given columns.
+     * @throws IllegalArgumentException if there are more than Integer.MAX_VALUE of them, or if one of the columns is
+     *                                  not discrete.
+     */
+    public int getNumCells(int[] columns) {
+        long numCells = 1;
+
+        for (int column : columns) {
+            if (numCategories[column] == 0) {
+                throw new IllegalArgumentException("Not discrete: " + variables.get(column));
+            }
+
+            numCells *= numCategories[column];
+
+            if (numCells > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Contingency table too large: " + Arrays.toString(columns));
+            }
+        }
+
+        return (int) numCells;
+    }
+
+    /**
+     * Counts the rows by cell of the contingency table over the given columns.
+     *
+     * @param columns The columns, first column most significant in the cell index.
+     * @return an array whose first getNumCells(columns) entries are the counts. It belongs to this thread and may be
+     * overwritten by the next call to count on this thread, from any counter; copy it to keep it.
+     */
+    public int[] count(int[] columns) {
+        int numCells = getNumCells(columns);
+        ForkJoinPool pool = ForkJoinPoolInstance.getInstance().getPool();
+        int numPieces = pool.getParallelism();
+
+        if (parallel && numPieces > 1 && (long) numRows * (columns.length + 1) >= MIN_PARALLEL_WORK
+                && (long) numCells * numPieces < numRows) {
+            int chunk = numRows / numPieces + 1;
+            return pool.invoke(new CountTask(columns, numCells, chunk, 0, numRows));
+        }
+
+        Buffers buffers = BUFFERS.get();
+
+        if (buffers.counts.length < numCells) {
+            buffers.counts = new int[Math.max(numCells, 2 * buffers.counts.length)];
+        }
+
+        Arrays.fill(buffers.counts, 0, numCells, 0);
+        count(columns, 0, numRows, buffers.index, buffers.missing, buffers.counts);
+        return buffers.counts;
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    // Adds the counts for rows from (inclusive) to to (exclusive) to counts, using index and missing as scratch.
+    private void count(int[] columns, int from, int to, int[] index, int[] missing, int[] counts) {
+        for (int start = from; start < to; start += BLOCK) {
+            int length = Math.min(BLOCK, to - start);
+            Arrays.fill(index, 0, length, 0);
+            Arrays.fill(missing, 0, length, 0);
+
+            for (int column : columns) {
+                int dim = numCategories[column];
+
+                if (ints != null) {
+                    fold(index, missing, ints[column], start, length, dim);
+                } else if (bytes != null) {
+                    fold(index, missing, bytes[column], start, length, dim);
+                } else {
+                    fold(index, missing, mapped[column], start, length, dim);
+                }
+            }
+
+            for (int r = 0; r < length; r++) {
+                if (missing[r] >= 0) counts[index[r]]++;
+            }
+        }
+    }
+
+    // Each fold takes index[r] to index[r] * dim + value, and makes missing[r] negative if the value is. The loops
+    // have no branches, so that they can be vectorized; index[r] is meaningless once missing[r] is negative.
+    private static void fold(int[] index, int[] missing, int[] column, int start, int length, int dim) {
+        for (int r = 0; r < length; r++) {
+            int value = column[start + r];
+            index[r] = index[r] * dim + value;
+            missing[r] |= value;
+        }
+    }
+
+    private static void fold(int[] index, int[] missing, byte[] column, int start, int length, int dim) {
+        for (int r = 0; r < length; r++) {
+            int value = column[start + r];
+            index[r] = index[r] * dim + value;
+            missing[r] |= value;
+        }
+    }
+
+    private static void fold(int[] index, int[] missing, IntBuffer column, int start, int length, int dim) {
+        for (int r = 0; r < length; r++) {
+            int value = column.get(start + r);
+            index[r] = index[r] * dim + value;
+            missing[r] |= value;
+        }
+    }
+
+    private boolean fitsInBytes() {
+        for (int dim : numCategories) {
+            if (dim > Byte.MAX_VALUE) return false;
+        }
+
+        return true;
+    }
+
+    private int[][] intColumns(DataSet dataSet, DataBox box) {
+        if (box instanceof VerticalIntDataBox) {
+            return ((VerticalIntDataBox) box).getVariableVectors();
+        }
+
+        int[][] columns = new int[numCategories.length][];
+
+        for (int j = 0; j < columns.length; j++) {
+            if (numCategories[j] == 0) continue;
+
+            columns[j] = new int[numRows];
+
+            for (int i = 0; i < numRows; i++) {
+                columns[j][i] = dataSet.getInt(i, j);
+            }
+        }
+
+        return columns;
+    }
+
+    private static class Buffers {
+        private final int[] index = new int[BLOCK];
+        private final int[] missing = new int[BLOCK];
+        private int[] counts = new int[64];
+    }
+
+    // Counts a range of rows into a new table, splitting it across the pool.
+    private class CountTask extends RecursiveTask<int[]> {
+        private final int[] columns;
+        private final int numCells;
+        private final int chunk;
+        private final int from;
+        private final int to;
+
+        private CountTask(int[] columns, int numCells, int chunk, int from, int to) {
+            this.columns = columns;
+            this.numCells = numCells;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= chunk) {
+                int[] counts = new int[numCells];
+                count(columns, from, to, new int[BLOCK], new int[BLOCK], counts);
+                return counts;
+            } else {
+                int mid = (from + to) / 2;
+
+                CountTask left = new CountTask(columns, numCells, chunk, from, mid);
+                CountTask right = new CountTask(columns, numCells, chunk, mid, to);
+
+                left.fork();
+                int[] counts = right.compute();
+                int[] leftCounts = left.join();
+
+                for (int i = 0; i < numCells; i++) {
+                    counts[i] += leftCounts[i];
+                }
+
+                return counts;
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.util.TetradMatrix;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores computed covariances, and whole covariance submatrices, for CovarianceMatrixOnTheFly, within a fixed budget
+ * of bytes; half of the budget goes to each. Both are split into lock stripes, each evicting its least recently used
+ * items once its share of the budget is spent, so that threads asking for different entries seldom contend.
+ * <p>
+ * Entries are never boxed. Each stripe keeps its (i, j) keys and values in primitive arrays, indexed by an open
+ * addressing table and linked into an LRU list by index.
+ *
+ * @author Joseph Ramsey
+ */
+final class CovarianceCache {
+
+    // The number of lock stripes for each kind of item; a power of two.
+    private static final int NUM_STRIPES = 64;
+
+    // The approximate bytes used per entry: key, value, LRU links and about two table slots.
+    private static final int ENTRY_BYTES = 8 + 8 + 4 + 4 + 8;
+
+    private final EntryStripe[] entries = new EntryStripe[NUM_STRIPES];
+    private final MatrixStripe[] matrices = new MatrixStripe[NUM_STRIPES];
+
+    /**
+     * @param bytes The memory budget, in bytes.
+     */
+    CovarianceCache(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Cache budget must be positive: " + bytes);
+        }
+
+        long perStripe = bytes / 2 / NUM_STRIPES;
+        int capacity = (int) Math.max(1, Math.min(1 << 28, perStripe / ENTRY_BYTES));
+
+        for (int s = 0; s < NUM_STRIPES; s++) {
+            entries[s] = new EntryStripe(capacity);
+            matrices[s] = new MatrixStripe(perStripe);
+        }
+    }
+
+    /**
+     * @return the cached covariance of i and j, or NaN if it is not cached.
+     */
+    double get(int i, int j) {
+        long key = key(i, j);
+        long hash = mix(key);
+        EntryStripe stripe = entries[stripe(hash)];
+
+        synchronized (stripe) {
+            return stripe.get(key, (int) hash);
+        }
+    }
+
+    void put(int i, int j, double value) {
+        long key = key(i, j);
+        long hash = mix(key);
+        EntryStripe stripe = entries[stripe(hash)];
+
+        synchronized (stripe) {
+            stripe.put(key, (int) hash, value);
+        }
+    }
+
+    /**
+     * @return the cached submatrix over the given indices, in order, or null if it is not cached. The matrix is
+     * shared and must not be modified.
+     */
+    TetradMatrix getSubmatrix(int[] indices) {
+        IndicesKey key = new IndicesKey(indices);
+        MatrixStripe stripe = matrices[stripe(mix(key.hash))];
+
+        synchronized (stripe) {
+            return stripe.map.get(key);
+        }
+    }
+
+    /**
+     * Stores the submatrix over the given indices. The matrix must not be modified afterward.
+     */
+    void putSubmatrix(int[] indices, TetradMatrix submatrix) {
+        IndicesKey key = new IndicesKey(indices.clone());
+        MatrixStripe stripe = matrices[stripe(mix(key.hash))];
+
+        synchronized (stripe) {
+            stripe.put(key, submatrix);
+        }
+    }
+
+    void clear() {
+        for (int s = 0; s < NUM_STRIPES; s++) {
+            synchronized (entries[s]) {
+                entries[s].clear();
+            }
+
+            synchronized (matrices[s]) {
+                matrices[s].map.clear();
+                matrices[s].bytes = 0;
+            }
+        }
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    // Covariances are symmetric, so (i, j) and (j, i) share a key.
+    private static long key(int i, int j) {
+        return i < j ? ((long) i << 32) | j : ((long) j << 32) | i;
+    }
+
+    // The SplitMix64 finalizer.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // Stripes are chosen by the high bits of the hash, so the low bits are left to index the tables.
+    private static int stripe(long hash) {
+        return (int) (hash >>> 58) & (NUM_STRIPES - 1);
+    }
+
+    /**
+     * A fixed number of entries, indexed by a linear probing table whose slots hold entry index + 1 (0 for empty)
+     * and linked from most to least recently used.
+     */
+    private static final class EntryStripe {
+        private final long[] keys;
+        private final double[] values;
+        private final int[] previous;
+        private final int[] next;
+        private final int[] table;
+        private final int mask;
+
+        private int size = 0;
+        private int head = -1;
+        private int tail = -1;
+
+        private EntryStripe(int capacity) {
+            keys = new long[capacity];
+            values = new double[capacity];
+            previous = new int[capacity];
+            next = new int[capacity];
+
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+            table = new int[tableSize];
+            mask = tableSize - 1;
+        }
+
+        private double get(long key, int hash) {
+            int index = find(key, hash);
+
+            if (index == -1) {
+                return Double.NaN;
+            }
+
+            moveToFront(index);
+            return values[index];
+        }
+
+        private void put(long key, int hash, double value) {
+            int index = find(key, hash);
+
+            if (index != -1) {
+                values[index] = value;
+                moveToFront(index);
+                return;
+            }
+
+            if (size < keys.length) {
+                index = size++;
+            } else {
+                index = tail;
+                removeFromTable(keys[index]);
+                unlink(index);
+            }
+
+            keys[index] = key;
+            values[index] = value;
+
+            int slot = hash & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = index + 1;
+
+            linkFront(index);
+        }
+
+        private void clear() {
+            Arrays.fill(table, 0);
+            size = 0;
+            head = -1;
+            tail = -1;
+        }
+
+        private int find(long key, int hash) {
+            int slot = hash & mask;
+
+            while (table[slot] != 0) {
+                int index = table[slot] - 1;
+                if (keys[index] == key) return index;
+                slot = (slot + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        // Removes the key's slot, shifting back any later slots in its probe run that would otherwise be cut off.
+        private void removeFromTable(long key) {
+            int slot = (int) mix(key) & mask;
+
+            while (keys[table[slot] - 1] != key) {
+                slot = (slot + 1) & mask;
+            }
+
+            int empty = slot;
+            table[empty] = 0;
+
+            for (int j = (empty + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+                int home = (int) mix(keys[table[j] - 1]) & mask;
+
+                boolean reachable = empty <= j
+                        ? empty < home && home <= j
+                        : empty < home || home <= j;
+
+                if (!reachable) {
+                    table[empty] = table[j];
+                    table[j] = 0;
+                    empty = j;
+                }
+            }
+        }
+
+        private void moveToFront(int index) {
+            if (index != head) {
+                unlink(index);
+                linkFront(index);
+            }
+        }
+
+        private void linkFront(int index) {
+            previous[index] = -1;
+            next[index] = head;
+            if (head != -1) previous[head] = index;
+            head = index;
+            if (tail == -1) tail = index;
+        }
+
+        private void unlink(int index) {
+            if (previous[index] != -1) next[previous[index]] = next[index];
+            else head = next[index];
+
+            if (next[index] != -1) previous[next[index]] = previous[index];
+            else tail = previous[index];
+        }
+    }
+
+    /**
+     * Submatrices in access order, evicted from the eldest once their total size exceeds the budget.
+     */
+    private static final class MatrixStripe {
+        private final LinkedHashMap<IndicesKey, TetradMatrix> map = new LinkedHashMap<>(16, 0.75f, true);
+        private final long budget;
+        private long bytes = 0;
+
+        private MatrixStripe(long budget) {
+            this.budget = budget;
+        }
+
+        private void put(IndicesKey key, TetradMatrix submatrix) {
+            long size = bytes(key, submatrix);
+
+            if (size > budget) {
+                return;
+            }
+
+            TetradMatrix old = map.put(key, submatrix);
+            bytes += size;
+
+            if (old != null) {
+                bytes -= bytes(key, old);
+            }
+
+            Iterator<Map.Entry<IndicesKey, TetradMatrix>> iterator = map.entrySet().iterator();
+
+            while (bytes > budget && iterator.hasNext()) {
+                Map.Entry<IndicesKey, TetradMatrix> eldest = iterator.next();
+                bytes -= bytes(eldest.getKey(), eldest.getValue());
+                iterator.remove();
+            }
+        }
+
+        // The approximate bytes held: the matrix data, the indices, and object and map overhead.
+        private static long bytes(IndicesKey key, TetradMatrix submatrix) {
+            return 8L * submatrix.rows() * submatrix.columns() + 4L * key.indices.length + 128;
+        }
+    }
+
+    private static final class IndicesKey {
+        private final int[] indices;
+        private final int hash;
+
+        private IndicesKey(int[] indices) {
+            this.indices = indices;
+            this.hash = Arrays.hashCode(indices);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IndicesKey && Arrays.equals(indices, ((IndicesKey) o).indices);
+        }
+    }
+}
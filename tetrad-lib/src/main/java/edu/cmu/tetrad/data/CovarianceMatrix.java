@@ -22,12 +22,12 @@ package edu.cmu.tetrad.data;
 
 //import cern.colt.matrix.DoubleMatrix2D;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.stat.correlation.BlockedCovariance;
 import edu.cmu.tetrad.util.*;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.text.NumberFormat;
 import java.util.*;
-import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 import org.apache.commons.math3.linear.RealMatrix;
 
@@ -103,8 +103,6 @@ public class CovarianceMatrix implements ICovarianceMatrix {
             throw new IllegalArgumentException("Not a continuous data set.");
         }
 
-        this.matrix = new TetradMatrix(dataSet.getNumColumns(), dataSet.getNumColumns());
-
         this.variables = Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize = dataSet.getNumRows();
 
@@ -118,6 +116,7 @@ public class CovarianceMatrix implements ICovarianceMatrix {
                 }
 
                 vectors = ((VerticalDoubleDataBox) box).getVariableVectors();
+                DataUtils.demean(vectors, DataUtils.means(vectors));
 
 //                final TetradMatrix doubleData = dataSet.getDoubleData();
 //                DataUtils.remean(doubleData, means);
@@ -139,137 +138,15 @@ public class CovarianceMatrix implements ICovarianceMatrix {
             }
         }
 
-        TetradVector means = DataUtils.means(vectors);
-
-        int NTHREADS = Runtime.getRuntime().availableProcessors() * 10;
-        int _chunk = variables.size() / NTHREADS + 1;
-        int minChunk = 100;
-        final int chunk = _chunk < minChunk ? minChunk : _chunk;
-
-        class VarianceTask extends RecursiveTask<Boolean> {
-
-            private int chunk;
-            private int from;
-            private int to;
-
-            public VarianceTask(int chunk, int from, int to) {
-                this.chunk = chunk;
-                this.from = from;
-                this.to = to;
-            }
-
-            @Override
-            protected Boolean compute() {
-                if (to - from <= chunk) {
-                    for (int i = from; i < to; i++) {
-                        double d = 0.0D;
-
-                        int count = 0;
-
-                        double[] v1 = vectors[i];
-
-                        for (int k = 0; k < sampleSize; ++k) {
-                            if (Double.isNaN(v1[k])) {
-                                continue;
-                            }
+        double[][] cov = BlockedCovariance.covariance(vectors, sampleSize, true);
 
-                            d += v1[k] * v1[k];
-                            count++;
-                        }
-
-                        double v = d;
-                        v /= (count - 1);
-
-                        matrix.set(i, i, v);
-
-                        if (v == 0) {
-                            System.out.println("    Zero variance! " + variables.get(i));
-                        }
-                    }
-
-                    return true;
-                } else {
-                    int mid = (to + from) / 2;
-
-                    VarianceTask left = new VarianceTask(chunk, from, mid);
-                    VarianceTask right = new VarianceTask(chunk, mid, to);
-
-                    left.fork();
-                    right.compute();
-                    left.join();
-
-                    return true;
-                }
-            }
-        }
-
-        class RestOfThemTask extends RecursiveTask<Boolean> {
-
-            private int chunk;
-            private int from;
-            private int to;
-
-            public RestOfThemTask(int chunk, int from, int to) {
-                this.chunk = chunk;
-                this.from = from;
-                this.to = to;
-            }
-
-            @Override
-            protected Boolean compute() {
-                if (to - from <= chunk) {
-                    for (int i = from; i < to; i++) {
-                        for (int j = 0; j < i; j++) {
-
-                            double d = 0.0D;
-
-                            double[] v1 = vectors[i];
-                            double[] v2 = vectors[j];
-                            int count = 0;
-
-                            for (int k = 0; k < sampleSize; k++) {
-                                if (Double.isNaN(v1[k])) {
-                                    continue;
-                                }
-                                if (Double.isNaN(v2[k])) {
-                                    continue;
-                                }
-
-                                d += v1[k] * v2[k];
-                                count++;
-                            }
-
-                            double v = d;
-                            v /= (count - 1);
-
-                            matrix.set(i, j, v);
-                            matrix.set(j, i, v);
-                        }
-                    }
-
-                    return true;
-                } else {
-                    int mid = (to + from) / 2;
-
-                    RestOfThemTask left = new RestOfThemTask(chunk, from, mid);
-                    RestOfThemTask right = new RestOfThemTask(chunk, mid, to);
-
-                    left.fork();
-                    right.compute();
-                    left.join();
-
-                    return true;
-                }
+        for (int i = 0; i < variables.size(); i++) {
+            if (cov[i][i] == 0) {
+                System.out.println("    Zero variance! " + variables.get(i));
             }
         }
 
-        VarianceTask task = new VarianceTask(chunk, 0, variables.size());
-        ForkJoinPoolInstance.getInstance().getPool().invoke(task);
-
-        RestOfThemTask task2 = new RestOfThemTask(chunk, 0, variables.size());
-        ForkJoinPoolInstance.getInstance().getPool().invoke(task2);
-
-        DataUtils.demean(vectors, means);
+        this.matrix = new TetradMatrix(cov);
 
         this.variables = Collections.unmodifiableList(dataSet.getVariables());
         this.sampleSize = dataSet.getNumRows();
@@ -29,6 +29,7 @@ import org.apache.commons.math3.linear.RealMatrix;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.nio.DoubleBuffer;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.RecursiveTask;
@@ -99,8 +100,20 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
 
     private double[][] vectors = null;
 
+    /**
+     * If the data are memory-mapped, the mapped box and its column means. The columns are then read in place
+     * rather than being copied and mean-centered into vectors.
+     */
+    private MappedDataBox mappedBox = null;
+    private double[] means;
+
     private double[] variances;
 
+    /**
+     * The memory budget, in bytes, for caching computed covariances and submatrices, or 0 if nothing is cached.
+     */
+    private long cacheBytes = 0;
+    private transient CovarianceCache cache = null;
 
     //=============================CONSTRUCTORS=========================//
 
@@ -173,12 +186,34 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
 
                 TetradVector means = DataUtils.means(vectors);
                 DataUtils.demean(vectors, means);
+            } else if (box instanceof MappedDataBox) {
+                if (verbose) {
+                    System.out.println("Calculating means of mapped columns");
+                }
+
+                mappedBox = (MappedDataBox) box;
+                means = new double[variables.size()];
+
+                for (int j = 0; j < variables.size(); j++) {
+                    DoubleBuffer column = mappedBox.getContinuousColumn(j);
+                    double sum = 0.0;
+                    int count = 0;
+
+                    for (int i = 0; i < sampleSize; i++) {
+                        double v = column.get(i);
+                        if (Double.isNaN(v)) continue;
+                        sum += v;
+                        count++;
+                    }
+
+                    means[j] = sum / count;
+                }
             }
 
 
         }
 
-        if (vectors == null) {
+        if (vectors == null && mappedBox == null) {
             if (verbose) {
                 System.out.println("Copying data");
             }
@@ -231,6 +266,16 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
             protected Boolean compute() {
                 if (to - from <= chunk) {
                     for (int i = from; i < to; i++) {
+                        if (mappedBox != null) {
+                            variances[i] = mappedCovariance(i, i, null);
+
+                            if (variances[i] == 0) {
+                                System.out.println("Zero variance! " + variables.get(i));
+                            }
+
+                            continue;
+                        }
+
                         double d = 0.0D;
 
                         int count = 0;
@@ -397,6 +442,16 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
             submatrixVars.add(variables.get(indice));
         }
 
+        CovarianceCache cache = this.cache;
+
+        if (cache != null) {
+            TetradMatrix cached = cache.getSubmatrix(indices);
+
+            if (cached != null) {
+                return new CovarianceMatrix(submatrixVars, cached.copy(), getSampleSize());
+            }
+        }
+
         TetradMatrix cov = new TetradMatrix(indices.length, indices.length);
 
         for (int i = 0; i < indices.length; i++) {
@@ -407,6 +462,10 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
             }
         }
 
+        if (cache != null) {
+            cache.putSubmatrix(indices, cov.copy());
+        }
+
         return new CovarianceMatrix(submatrixVars, cov, getSampleSize());
     }
 
@@ -450,6 +509,27 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
             return variances[i];
         }
 
+        CovarianceCache cache = this.cache;
+
+        if (cache != null) {
+            double v = cache.get(i, j);
+
+            if (Double.isNaN(v)) {
+                v = computeValue(i, j);
+                cache.put(i, j, v);
+            }
+
+            return v;
+        }
+
+        return computeValue(i, j);
+    }
+
+    private double computeValue(int i, int j) {
+        if (mappedBox != null) {
+            return mappedCovariance(i, j, null);
+        }
+
         double d = 0.0D;
 
         double[] v1 = vectors[i];
@@ -475,6 +555,10 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
 //            return variances[i];
 //        }
 
+        if (mappedBox != null) {
+            return mappedCovariance(i, j, rows);
+        }
+
         double d = 0.0D;
 
         double[] v1 = vectors[i];
@@ -496,6 +580,32 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
         return v;
     }
 
+    // The covariance of columns i and j of the mapped data over the given rows, or over all rows if rows is null.
+    private double mappedCovariance(int i, int j, int[] rows) {
+        DoubleBuffer v1 = mappedBox.getContinuousColumn(i);
+        DoubleBuffer v2 = mappedBox.getContinuousColumn(j);
+        double m1 = means[i];
+        double m2 = means[j];
+        int n = rows == null ? sampleSize : rows.length;
+
+        double d = 0.0D;
+        int count = 0;
+
+        for (int r = 0; r < n; r++) {
+            int k = rows == null ? r : rows[r];
+            double a = v1.get(k);
+            double b = v2.get(k);
+
+            if (Double.isNaN(a)) continue;
+            if (Double.isNaN(b)) continue;
+
+            d += (a - m1) * (b - m2);
+            count++;
+        }
+
+        return d / (count - 1);
+    }
+
     public void setMatrix(TetradMatrix matrix) {
         this.matrix = matrix;
         checkMatrix();
@@ -507,6 +617,31 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
         }
 
         this.sampleSize = sampleSize;
+
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Caches computed off-diagonal covariances, and submatrices returned by getSubmatrix(int[]), within the given
+     * memory budget in bytes, evicting the least recently used when it is spent. This pays when a search asks for
+     * the same entries over and over, as constraint-based searches do, and there are too many variables to compute
+     * the whole matrix up front. By default nothing is cached.
+     *
+     * @param cacheBytes The budget in bytes, or 0 to stop caching.
+     */
+    public void setCacheBytes(long cacheBytes) {
+        if (cacheBytes < 0) {
+            throw new IllegalArgumentException("Cache budget must be >= 0: " + cacheBytes);
+        }
+
+        this.cacheBytes = cacheBytes;
+        this.cache = cacheBytes == 0 ? null : new CovarianceCache(cacheBytes);
+    }
+
+    public long getCacheBytes() {
+        return cacheBytes;
     }
 
     /**
@@ -819,6 +954,10 @@ public class CovarianceMatrixOnTheFly implements ICovarianceMatrix {
         if (selectedVariables == null) {
             selectedVariables = new HashSet<>();
         }
+
+        if (cacheBytes > 0) {
+            cache = new CovarianceCache(cacheBytes);
+        }
     }
 }
 
@@ -30,6 +30,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -113,6 +114,23 @@ public final class DataReader implements IDataReader {
      */
     private boolean readVariablesLowercase = false;
 
+    /**
+     * True if tabular files should be parsed in parallel where possible.
+     */
+    private boolean parallel = false;
+
+    /**
+     * In parsing in parallel, the approximate number of bytes parsed by each
+     * task.
+     */
+    private long parallelRangeSize = ParallelTabularParser.DEFAULT_RANGE_SIZE;
+
+    /**
+     * In parsing in parallel, variable types are guessed from this many
+     * initial rows and then checked against the whole file.
+     */
+    private static final int NUM_SAMPLE_ROWS = 1000;
+
     /**
      * Constructs a new data parser.
      */
@@ -227,6 +245,24 @@ public final class DataReader implements IDataReader {
      */
     @Override
     public DataSet parseTabular(File file) throws IOException {
+        if (parallel) {
+            try {
+                DataSet dataSet = parseTabularParallel(file);
+
+                if (dataSet != null) {
+                    dataSet.setName(file.getName());
+
+                    this.logger.log("info", "\nData set loaded!");
+                    this.logger.reset();
+                    return dataSet;
+                }
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Parsing failed.", e);
+            }
+        }
+
         FileReader reader = null, reader2 = null;
 
         try {
@@ -263,6 +299,24 @@ public final class DataReader implements IDataReader {
         }
     }
 
+    /**
+     * Loads a data set saved by DataWriter.writeColumnarData. The columns are
+     * memory-mapped rather than read onto the heap, so the returned data set is
+     * read-only; copy it to modify it.
+     *
+     * @throws IOException if the file cannot be read or is not in the columnar
+     * format.
+     */
+    public DataSet parseColumnar(File file) throws IOException {
+        MappedDataBox box = new MappedDataBox(file);
+        DataSet dataSet = new BoxDataSet(box, new ArrayList<>(box.getVariables()));
+        dataSet.setName(file.getName());
+
+        this.logger.log("info", "\nData set loaded!");
+        this.logger.reset();
+        return dataSet;
+    }
+
     /**
      * Parses the given character array for a tabular data set, returning a
      * RectangularDataSet if successful. Log messages are written to the
@@ -472,6 +526,85 @@ public final class DataReader implements IDataReader {
         return description;
     }
 
+    /**
+     * Parses a tabular file in one parallel pass over its bytes. Variable
+     * types are guessed by doFirstTabularPass from the first NUM_SAMPLE_ROWS
+     * rows, and the guesses are checked against statistics gathered over the
+     * whole file, so the result is the same as with the two-pass parser.
+     *
+     * @return null if the file has sections, case IDs or quoted tokens, or if
+     * a guessed type turns out to be wrong; the two-pass parser should then
+     * be used.
+     */
+    private DataSet parseTabularParallel(File file) throws IOException {
+        if (idsSupplied) {
+            return null;
+        }
+
+        ParallelTabularParser parser = new ParallelTabularParser(file, delimiterType,
+                commentMarker, quoteChar, missingValueMarker);
+        parser.setRangeSize(parallelRangeSize);
+        List<String> lines = parser.readLines(NUM_SAMPLE_ROWS + 1);
+
+        if (lines.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder sample = new StringBuilder();
+
+        for (String line : lines) {
+            if (line.startsWith("/")) {
+                return null;
+            }
+
+            sample.append(line).append("\n");
+        }
+
+        DataSetDescription description = doFirstTabularPass(new StringReader(sample.toString()));
+        List<Node> variables = new ArrayList<>(description.getVariables());
+
+        long offset = varNamesSupplied ? parser.getLineEnd(0) : parser.getLineStart(0);
+
+        if (!parser.parse(offset, variables, maxIntegralDiscrete + 1)) {
+            return null;
+        }
+
+        for (int i = 0; i < variables.size(); i++) {
+            Node variable = variables.get(i);
+
+            if (knownVariables.contains(variable)) {
+                continue;
+            }
+
+            Set<String> strings = parser.getStrings(i);
+
+            if (variable instanceof ContinuousVariable) {
+                if (!parser.isNumeric(i)) {
+                    return null;
+                }
+
+                if (parser.isIntegral(i) && !tooManyDiscreteValues(strings)) {
+                    return null;
+                }
+            } else {
+                if (isDouble(strings) && !isIntegral(strings)) {
+                    return null;
+                }
+
+                if (isIntegral(strings) && tooManyDiscreteValues(strings)) {
+                    return null;
+                }
+
+                List<String> categories = new ArrayList<>(strings);
+                Collections.sort(categories);
+                variables.set(i, new DiscreteVariable(variable.getName(), categories));
+            }
+        }
+
+        this.logger.log("info", "\nNumber of data rows = " + parser.getNumRows());
+        return parser.toDataSet(variables);
+    }
+
     private DataSet doSecondTabularPass(DataSetDescription description, Reader reader2) {
         Lineizer lineizer;
         String dataFirstLine;
@@ -1013,6 +1146,28 @@ public final class DataReader implements IDataReader {
         this.readVariablesLowercase = readVariablesUppercase;
     }
 
+    /**
+     * If true, parseTabular(File) parses plain delimited files in a single
+     * parallel pass, falling back to the two-pass parser for files it can't
+     * handle that way. Default is false.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Sets the approximate number of bytes parsed by each task in parsing in
+     * parallel; small sizes split small files into several ranges, for
+     * testing.
+     */
+    void setParallelRangeSize(long parallelRangeSize) {
+        if (parallelRangeSize < 1) {
+            throw new IllegalArgumentException("Range size must be at least 1: " + parallelRangeSize);
+        }
+
+        this.parallelRangeSize = parallelRangeSize;
+    }
+
     private static class DataSetDescription {
 
         private final List<Node> variables;
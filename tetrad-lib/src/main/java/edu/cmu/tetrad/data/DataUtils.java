@@ -27,16 +27,15 @@ import edu.cmu.tetrad.util.*;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.linear.BlockRealMatrix;
 import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.stat.correlation.Covariance;
 
 import java.rmi.MarshalledObject;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Some static utility methods for dealing with data sets.
@@ -1482,6 +1481,58 @@ public final class DataUtils {
         return ColtDataSet.makeData(data.getVariables(), data.getDoubleData().getSelection(rows, cols));
     }
 
+    /**
+     * @return a sample with replacement with the given sample size from the
+     * given dataset, drawn using the given generator. For a BoxDataSet the
+     * sample is a view of the selected rows of the dataset's data box, so
+     * only the row indices are stored.
+     */
+    public static DataSet getBootstrapView(DataSet data, int sampleSize, RandomGenerator random) {
+        int actualSampleSize = data.getNumRows();
+
+        int[] rows = new int[sampleSize];
+
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = random.nextInt(actualSampleSize);
+        }
+
+        return getRowView(data, rows);
+    }
+
+    /**
+     * @return a sample without replacement with the given sample size (or the
+     * size of the dataset, if that is smaller) from the given dataset, drawn
+     * using the given generator. For a BoxDataSet the sample is a view of the
+     * selected rows of the dataset's data box, so only the row indices are
+     * stored.
+     */
+    public static DataSet getResamplingView(DataSet data, int sampleSize, RandomGenerator random) {
+        int actualSampleSize = data.getNumRows();
+        int _size = Math.min(sampleSize, actualSampleSize);
+
+        int[] availRows = new int[actualSampleSize];
+        for (int i = 0; i < actualSampleSize; i++) availRows[i] = i;
+
+        // Partial Fisher-Yates shuffle; the first _size entries are the sample.
+        for (int i = 0; i < _size; i++) {
+            int j = i + random.nextInt(actualSampleSize - i);
+            int t = availRows[i];
+            availRows[i] = availRows[j];
+            availRows[j] = t;
+        }
+
+        return getRowView(data, Arrays.copyOf(availRows, _size));
+    }
+
+    private static DataSet getRowView(DataSet data, int[] rows) {
+        if (data instanceof BoxDataSet) {
+            DataBox box = new RowSubsetDataBox(((BoxDataSet) data).getDataBox(), rows);
+            return new BoxDataSet(box, new ArrayList<>(data.getVariables()));
+        }
+
+        return data.subsetRows(rows);
+    }
+
     /**
      * @return a sample without replacement with the given sample size from the
      * given dataset. May return a sample of less than the given size; makes
@@ -1678,57 +1729,28 @@ public final class DataUtils {
     public static ICovarianceMatrix covarianceNonparanormalDrton(DataSet dataSet) {
         final CovarianceMatrix covMatrix = new CovarianceMatrix(dataSet);
         final TetradMatrix data = dataSet.getDoubleData();
-        final int NTHREDS = Runtime.getRuntime().availableProcessors() * 10;
-        final int EPOCH_COUNT = 100000;
-
-        ExecutorService executor = Executors.newFixedThreadPool(NTHREDS);
-        int runnableCount = 0;
+        List<Callable<Boolean>> tasks = new ArrayList<>();
 
         for (int _i = 0; _i < dataSet.getNumColumns(); _i++) {
-            for (int _j = _i; _j < dataSet.getNumColumns(); _j++) {
-                final int i = _i;
-                final int j = _j;
-
-//                double tau = StatUtils.rankCorrelation(data.viewColumn(i).toArray(), data.viewColumn(j).toArray());
-                Runnable worker = new Runnable() {
-                    @Override
-                    public void run() {
-                        double tau = StatUtils.kendallsTau(data.getColumn(i).toArray(), data.getColumn(j).toArray());
+            final int i = _i;
+
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    double[] x = data.getColumn(i).toArray();
+
+                    for (int j = i; j < data.columns(); j++) {
+                        double tau = StatUtils.kendallsTau(x, data.getColumn(j).toArray());
                         covMatrix.setValue(i, j, tau);
                         covMatrix.setValue(j, i, tau);
                     }
-                };
-
-                executor.execute(worker);
-
-                if (runnableCount < EPOCH_COUNT) {
-                    runnableCount++;
-//                    System.out.println(runnableCount);
-                } else {
-                    executor.shutdown();
-                    try {
-                        // Wait until all threads are finish
-                        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-                        System.out.println("Finished all threads");
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
 
-                    executor = Executors.newFixedThreadPool(NTHREDS);
-                    runnableCount = 0;
+                    return true;
                 }
-            }
+            });
         }
 
-        executor.shutdown();
-
-        try {
-            // Wait until all threads are finish
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
-            System.out.println("Finished all threads");
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        ForkJoinPoolInstance.getInstance().invokeAll(tasks);
 
         return covMatrix;
     }
@@ -24,9 +24,9 @@ package edu.cmu.tetrad.data;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.util.NumberFormatUtil;
 
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.Writer;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.NumberFormat;
 import java.util.Iterator;
 import java.util.List;
@@ -115,6 +115,95 @@ public final class DataWriter {
         out.close();
     }
 
+    /**
+     * Writes a dataset to file in the columnar binary format read by
+     * DataReader.parseColumnar and mapped into memory by MappedDataBox. The
+     * dataset may have continuous and/or discrete columns. Discrete values are
+     * stored as category indices, so the categories of each variable are saved
+     * with it.
+     *
+     * @param dataSet The data set to save.
+     * @param file    The file to write to; it is overwritten if it exists.
+     * @throws IOException If there is some problem writing the file.
+     */
+    public static void writeColumnarData(DataSet dataSet, File file) throws IOException {
+        int numRows = dataSet.getNumRows();
+        int numCols = dataSet.getNumColumns();
+        byte[] types = new byte[numCols];
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(numRows);
+        headerOut.writeInt(numCols);
+
+        for (int col = 0; col < numCols; col++) {
+            Node variable = dataSet.getVariable(col);
+            headerOut.writeUTF(variable.getName());
+
+            if (variable instanceof DiscreteVariable) {
+                types[col] = MappedDataBox.DISCRETE;
+                headerOut.writeByte(types[col]);
+
+                List<String> categories = ((DiscreteVariable) variable).getCategories();
+                headerOut.writeInt(categories.size());
+                for (String category : categories) headerOut.writeUTF(category);
+            } else {
+                types[col] = MappedDataBox.CONTINUOUS;
+                headerOut.writeByte(types[col]);
+            }
+        }
+
+        headerOut.flush();
+
+        // Magic number, version and data offset, then the header, padded so the columns are 8-byte aligned.
+        long offset = MappedDataBox.padded(16 + header.size());
+
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(MappedDataBox.MAGIC);
+            out.writeInt(MappedDataBox.VERSION);
+            out.writeLong(offset);
+            header.writeTo(out);
+            for (long i = 16 + header.size(); i < offset; i++) out.writeByte(0);
+            out.flush();
+
+            FileChannel channel = stream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(MappedDataBox.ORDER);
+
+            for (int col = 0; col < numCols; col++) {
+                for (int row = 0; row < numRows; row++) {
+                    if (buffer.remaining() < 8) {
+                        drain(buffer, channel);
+                    }
+
+                    if (types[col] == MappedDataBox.DISCRETE) {
+                        buffer.putInt(dataSet.getInt(row, col));
+                    } else {
+                        buffer.putDouble(dataSet.getDouble(row, col));
+                    }
+                }
+
+                long size = MappedDataBox.columnBytes(types[col], numRows);
+
+                if (buffer.remaining() < 8) {
+                    drain(buffer, channel);
+                }
+
+                for (long i = size; i < MappedDataBox.padded(size); i++) {
+                    buffer.put((byte) 0);
+                }
+            }
+
+            drain(buffer, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+    }
+
 //    /**
 //     * Writes a dataset to file. The dataset may have continuous and/or discrete
 //     * columns. Note that <code>out</code> is not closed by this method, so
@@ -0,0 +1,319 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stores a 2D array of mixed continuous and discrete data in a columnar binary file, mapped into memory column by
+ * column, so that large data sets can be searched over without being copied onto the heap. Files in this format are
+ * written by DataWriter.writeColumnarData and read back by DataReader.parseColumnar.
+ * <p>
+ * The file starts with the magic number, the format version and the offset of the first column, followed by the
+ * number of rows and columns and, for each column, the variable name, a type byte (0 for continuous, 1 for discrete)
+ * and, for discrete columns, the categories. Each column then follows in turn, 8-byte aligned and little-endian,
+ * continuous columns as doubles (missing values NaN) and discrete columns as ints (missing values -99).
+ * <p>
+ * The box is read-only; set() throws an UnsupportedOperationException. Copies and selections are made on the heap.
+ *
+ * @author Joseph Ramsey
+ */
+public class MappedDataBox implements DataBox {
+    static final long serialVersionUID = 23L;
+
+    static final int MAGIC = 0x54445442;
+    static final int VERSION = 1;
+    static final byte CONTINUOUS = 0;
+    static final byte DISCRETE = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * The path of the file the data are mapped from.
+     */
+    private final String path;
+
+    /**
+     * The variables described in the file header, in column order.
+     */
+    private transient List<Node> variables;
+
+    private transient int numRows;
+
+    // For each column, the mapped data; exactly one of the two is non-null.
+    private transient DoubleBuffer[] continuousData;
+    private transient IntBuffer[] discreteData;
+
+    /**
+     * Maps the given columnar data file.
+     *
+     * @throws IOException if the file cannot be read or is not in the columnar format.
+     */
+    public MappedDataBox(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("File not provided.");
+        }
+
+        this.path = file.getPath();
+        map();
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static BoxDataSet serializableInstance() {
+        return new BoxDataSet(new ShortDataBox(4, 4), null);
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return variables.size();
+    }
+
+    /**
+     * Mapped data boxes cannot be modified.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    public void set(int row, int col, Number value) {
+        throw new UnsupportedOperationException("This data box is mapped read-only from " + path + "; copy it to modify it.");
+    }
+
+    /**
+     * @return the Number value at the given row and column. A missing continuous value is returned as NaN; a
+     * missing discrete value as null.
+     */
+    public Number get(int row, int col) {
+        if (continuousData[col] != null) {
+            return continuousData[col].get(row);
+        } else {
+            int v = discreteData[col].get(row);
+            return v == DiscreteVariable.MISSING_VALUE ? null : v;
+        }
+    }
+
+    /**
+     * @return the value at the given row and column as a double, without boxing. Missing values are returned as NaN.
+     */
+    public double getDouble(int row, int col) {
+        if (continuousData[col] != null) {
+            return continuousData[col].get(row);
+        } else {
+            int v = discreteData[col].get(row);
+            return v == DiscreteVariable.MISSING_VALUE ? Double.NaN : v;
+        }
+    }
+
+    /**
+     * @return the value at the given row and column as an int, without boxing. Missing values are returned as
+     * DiscreteVariable.MISSING_VALUE.
+     */
+    public int getInt(int row, int col) {
+        if (discreteData[col] != null) {
+            return discreteData[col].get(row);
+        } else {
+            double v = continuousData[col].get(row);
+            return Double.isNaN(v) ? DiscreteVariable.MISSING_VALUE : (int) v;
+        }
+    }
+
+    /**
+     * @return the mapped data for the given continuous column, or null if the column is discrete. The buffer is
+     * shared and read-only; read it with absolute gets only.
+     */
+    public DoubleBuffer getContinuousColumn(int col) {
+        return continuousData[col];
+    }
+
+    /**
+     * @return the mapped data for the given discrete column, or null if the column is continuous. The buffer is
+     * shared and read-only; read it with absolute gets only.
+     */
+    public IntBuffer getDiscreteColumn(int col) {
+        return discreteData[col];
+    }
+
+    /**
+     * @return the variables described in the file header, in column order.
+     */
+    public List<Node> getVariables() {
+        return Collections.unmodifiableList(variables);
+    }
+
+    /**
+     * @return the file this box is mapped from.
+     */
+    public File getFile() {
+        return new File(path);
+    }
+
+    /**
+     * @return a copy of this data box, on the heap.
+     */
+    public DataBox copy() {
+        return like();
+    }
+
+    /**
+     * @return a heap copy of this data box.
+     */
+    public DataBox like() {
+        int[] rows = new int[numRows()];
+        int[] cols = new int[numCols()];
+
+        for (int i = 0; i < numRows(); i++) rows[i] = i;
+        for (int j = 0; j < numCols(); j++) cols[j] = j;
+
+        return viewSelection(rows, cols);
+    }
+
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        List<Node> newVars = new ArrayList<>();
+        double[][] continuous = new double[cols.length][];
+        int[][] discrete = new int[cols.length][];
+
+        for (int j = 0; j < cols.length; j++) {
+            newVars.add(variables.get(cols[j]));
+
+            if (continuousData[cols[j]] != null) {
+                DoubleBuffer column = continuousData[cols[j]];
+                continuous[j] = new double[rows.length];
+                for (int i = 0; i < rows.length; i++) continuous[j][i] = column.get(rows[i]);
+            } else {
+                IntBuffer column = discreteData[cols[j]];
+                discrete[j] = new int[rows.length];
+                for (int i = 0; i < rows.length; i++) discrete[j][i] = column.get(rows[i]);
+            }
+        }
+
+        return new MixedDataBox(newVars, rows.length, continuous, discrete);
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    private void map() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(path, "r")) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(raf.getFD())));
+
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a columnar data file: " + path);
+            }
+
+            int version = in.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported columnar data version " + version + ": " + path);
+            }
+
+            long offset = in.readLong();
+            int numRows = in.readInt();
+            int numCols = in.readInt();
+
+            List<Node> variables = new ArrayList<>();
+            byte[] types = new byte[numCols];
+
+            for (int j = 0; j < numCols; j++) {
+                String name = in.readUTF();
+                types[j] = in.readByte();
+
+                if (types[j] == CONTINUOUS) {
+                    variables.add(new ContinuousVariable(name));
+                } else if (types[j] == DISCRETE) {
+                    int numCategories = in.readInt();
+                    List<String> categories = new ArrayList<>();
+                    for (int k = 0; k < numCategories; k++) categories.add(in.readUTF());
+                    variables.add(new DiscreteVariable(name, categories));
+                } else {
+                    throw new IOException("Unrecognized column type " + types[j] + " for " + name + ": " + path);
+                }
+            }
+
+            DoubleBuffer[] continuousData = new DoubleBuffer[numCols];
+            IntBuffer[] discreteData = new IntBuffer[numCols];
+            FileChannel channel = raf.getChannel();
+
+            for (int j = 0; j < numCols; j++) {
+                long size = columnBytes(types[j], numRows);
+
+                if (offset + size > channel.size()) {
+                    throw new IOException("Columnar data file is truncated: " + path);
+                }
+
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+                buffer.order(ORDER);
+
+                if (types[j] == CONTINUOUS) {
+                    continuousData[j] = buffer.asDoubleBuffer();
+                } else {
+                    discreteData[j] = buffer.asIntBuffer();
+                }
+
+                offset += padded(size);
+            }
+
+            this.variables = variables;
+            this.numRows = numRows;
+            this.continuousData = continuousData;
+            this.discreteData = discreteData;
+        }
+    }
+
+    static long columnBytes(byte type, int numRows) {
+        return (long) numRows * (type == CONTINUOUS ? 8 : 4);
+    }
+
+    static long padded(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method must have the standard signature for a
+     * readObject method, and the body of the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from version to version. A readObject method
+     * of this form may be added to any class, even if Tetrad sessions were previously saved out using a version of
+     * the class that didn't include it. (That's what the "s.defaultReadObject();" is for. See J. Bloch, Effective
+     * Java, for help.
+     */
+    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        map();
+    }
+}
@@ -0,0 +1,732 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the data lines of a delimited text file in parallel. The file is split into byte ranges at line boundaries;
+ * each range is memory-mapped and parsed by its own task on the shared ForkJoinPoolInstance pool, first to count its
+ * rows and then to write its values straight into the columns of the data set. Continuous values are parsed from the
+ * bytes directly; discrete values are collected into per-range dictionaries and mapped onto the final categories at
+ * the end.
+ * <p>
+ * Only plain data lines are handled. If a line starts with "/" (a section marker) or a token starts with the quote
+ * character, parsing stops and parse() returns false, so that the caller can fall back to DataReader's two-pass
+ * parser. Variable types are not inferred here; for each column, the statistics needed to check a guessed type
+ * against the whole file are kept instead.
+ *
+ * @author Joseph Ramsey
+ */
+final class ParallelTabularParser {
+
+    // The default approximate number of bytes parsed by each task.
+    static final long DEFAULT_RANGE_SIZE = 1L << 25;
+
+    private static final int MISSING = DiscreteVariable.MISSING_VALUE;
+
+    private final File file;
+    private final Charset charset = Charset.defaultCharset();
+    private final boolean whitespace;
+    private final byte delimiter;
+    private final byte[] commentMarker;
+    private final byte quoteChar;
+    private final byte[] missingValueMarker;
+
+    // The approximate number of bytes parsed by each task.
+    private long rangeSize = DEFAULT_RANGE_SIZE;
+
+    // The start and end offsets of the lines returned by readLines.
+    private final List<Long> lineStarts = new ArrayList<>();
+    private final List<Long> lineEnds = new ArrayList<>();
+
+    // The parsed ranges, the variables they were parsed for, and the columns they were parsed into.
+    private List<Range> ranges;
+    private List<Node> variables;
+    private int numRows;
+    private double[][] continuousData;
+    private int[][] discreteData;
+
+    /**
+     * @param delimiterType      One of WHITESPACE, TAB, COMMA or COLON.
+     * @param commentMarker      Lines starting with this are skipped.
+     * @param quoteChar          A token starting with this character is not supported.
+     * @param missingValueMarker A token equal to this, or blank, is missing.
+     */
+    ParallelTabularParser(File file, DelimiterType delimiterType, String commentMarker, char quoteChar,
+                          String missingValueMarker) {
+        this.file = file;
+        this.whitespace = delimiterType == DelimiterType.WHITESPACE;
+
+        if (delimiterType == DelimiterType.TAB) {
+            this.delimiter = '\t';
+        } else if (delimiterType == DelimiterType.COMMA) {
+            this.delimiter = ',';
+        } else if (delimiterType == DelimiterType.COLON) {
+            this.delimiter = ':';
+        } else if (whitespace) {
+            this.delimiter = ' ';
+        } else {
+            throw new IllegalArgumentException("Unsupported delimiter: " + delimiterType);
+        }
+
+        if (quoteChar > 127) {
+            throw new IllegalArgumentException("Quote character must be ASCII: " + quoteChar);
+        }
+
+        this.commentMarker = commentMarker.getBytes(charset);
+        this.quoteChar = (byte) quoteChar;
+        this.missingValueMarker = missingValueMarker.getBytes(charset);
+    }
+
+    /**
+     * Sets the approximate number of bytes parsed by each task; each range is extended to the end of the line it
+     * stops in.
+     */
+    void setRangeSize(long rangeSize) {
+        if (rangeSize < 1) {
+            throw new IllegalArgumentException("Range size must be at least 1: " + rangeSize);
+        }
+
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @return up to the first n lines of the file that are neither blank nor comments.
+     */
+    List<String> readLines(int n) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lineStarts.clear();
+        lineEnds.clear();
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = 0;
+            long start = 0;
+            int b;
+
+            while (lines.size() < n) {
+                b = in.read();
+
+                if (b == -1 || b == '\n' || b == '\r') {
+                    byte[] bytes = line.toByteArray();
+                    long end = b == -1 ? offset : offset + 1;
+
+                    if (bytes.length > 0 && !startsWith(bytes, 0, bytes.length, commentMarker)) {
+                        lines.add(new String(bytes, charset));
+                        lineStarts.add(start);
+                        lineEnds.add(end);
+                    }
+
+                    if (b == -1) break;
+
+                    line.reset();
+                    start = end;
+                } else {
+                    line.write(b);
+                }
+
+                offset++;
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * @return the offset of the start of the i'th line returned by readLines.
+     */
+    long getLineStart(int i) {
+        return lineStarts.get(i);
+    }
+
+    /**
+     * @return the offset just past the end of the i'th line returned by readLines.
+     */
+    long getLineEnd(int i) {
+        return lineEnds.get(i);
+    }
+
+    /**
+     * Parses the data lines from the given offset to the end of the file. Columns whose variable is continuous are
+     * parsed as doubles; the rest are parsed as strings, to be mapped onto categories by toDataSet.
+     *
+     * @param integralCap the number of distinct integral strings to keep for continuous columns.
+     * @return false if the file uses a feature this parser does not handle.
+     */
+    boolean parse(long offset, List<Node> variables, int integralCap) throws IOException {
+        this.variables = variables;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+
+            ranges = new ArrayList<>();
+            long start = offset;
+
+            while (start < size) {
+                long end = start + rangeSize < size ? nextLineStart(raf, start + rangeSize) : size;
+                ranges.add(new Range(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), integralCap));
+                start = end;
+            }
+        }
+
+        List<Callable<Boolean>> counts = new ArrayList<>();
+
+        for (final Range range : ranges) {
+            counts.add(range::count);
+        }
+
+        if (!invokeAll(counts)) {
+            return false;
+        }
+
+        numRows = 0;
+
+        for (Range range : ranges) {
+            range.firstRow = numRows;
+            numRows += range.numRows;
+        }
+
+        final double[][] continuousData = new double[variables.size()][];
+        final int[][] discreteData = new int[variables.size()][];
+
+        for (int j = 0; j < variables.size(); j++) {
+            if (variables.get(j) instanceof ContinuousVariable) {
+                continuousData[j] = new double[numRows];
+            } else {
+                discreteData[j] = new int[numRows];
+            }
+        }
+
+        List<Callable<Boolean>> parses = new ArrayList<>();
+
+        for (final Range range : ranges) {
+            parses.add(() -> range.parse(continuousData, discreteData));
+        }
+
+        if (!invokeAll(parses)) {
+            return false;
+        }
+
+        this.continuousData = continuousData;
+        this.discreteData = discreteData;
+        return true;
+    }
+
+    /**
+     * @return the number of data rows parsed.
+     */
+    int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @return true if every non-missing token in the given continuous column parses as a double.
+     */
+    boolean isNumeric(int col) {
+        for (Range range : ranges) {
+            if (range.nonNumeric[col]) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if every non-missing token in the given continuous column parses as an int.
+     */
+    boolean isIntegral(int col) {
+        for (Range range : ranges) {
+            if (range.nonIntegral[col]) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return for a continuous column, its distinct integral tokens, up to the cap given to parse (meaningful only
+     * if the column is integral); for a discrete column, all of its distinct non-missing tokens.
+     */
+    Set<String> getStrings(int col) {
+        Set<String> strings = new HashSet<>();
+
+        for (Range range : ranges) {
+            strings.addAll(range.strings.get(col));
+        }
+
+        return strings;
+    }
+
+    /**
+     * @return the parsed data as a data set over the given variables, which must be of the same types, column by
+     * column, as those given to parse. Discrete values not among the categories of their variable are missing.
+     */
+    DataSet toDataSet(final List<Node> variables) {
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+
+        for (final Range range : ranges) {
+            tasks.add(() -> range.mapCategories(variables, discreteData));
+        }
+
+        invokeAll(tasks);
+
+        boolean continuous = true;
+
+        for (int j = 0; j < variables.size(); j++) {
+            if (discreteData[j] != null) continuous = false;
+        }
+
+        DataBox box = continuous && variables.size() > 0 && numRows > 0
+                ? new VerticalDoubleDataBox(continuousData)
+                : new MixedDataBox(variables, numRows, continuousData, discreteData);
+
+        return new BoxDataSet(box, variables);
+    }
+
+    //==============================PRIVATE METHODS=========================//
+
+    private static boolean invokeAll(List<Callable<Boolean>> tasks) {
+        boolean succeeded = true;
+
+        for (Future<Boolean> future : ForkJoinPoolInstance.getInstance().getPool().invokeAll(tasks)) {
+            try {
+                succeeded &= future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        return succeeded;
+    }
+
+    private static long nextLineStart(RandomAccessFile raf, long position) throws IOException {
+        raf.seek(position);
+        byte[] buf = new byte[8192];
+        int n;
+
+        while ((n = raf.read(buf)) > 0) {
+            for (int i = 0; i < n; i++) {
+                if (buf[i] == '\n' || buf[i] == '\r') {
+                    return position + i + 1;
+                }
+            }
+
+            position += n;
+        }
+
+        return position;
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) return false;
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[from + i] != prefix[i]) return false;
+        }
+
+        return true;
+    }
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * A contiguous run of whole lines, parsed by one task.
+     */
+    private final class Range {
+        private final MappedByteBuffer buffer;
+        private final int integralCap;
+
+        private int numRows;
+        private int firstRow;
+
+        // For each column: whether a token failed to parse as a double, or as an int, and the strings kept.
+        private boolean[] nonNumeric;
+        private boolean[] nonIntegral;
+        private List<Set<String>> strings;
+
+        // For each discrete column, the distinct trimmed tokens in order of first appearance; the column holds
+        // indices into this list until mapCategories is called.
+        private List<List<String>> dictionaries;
+
+        // Token bounds, untrimmed and trimmed, and the parsed value, set by nextToken and parseDouble.
+        private int tokenStart;
+        private int tokenEnd;
+        private int trimmedStart;
+        private int trimmedEnd;
+        private boolean integral;
+        private double value;
+
+        private Range(MappedByteBuffer buffer, int integralCap) {
+            this.buffer = buffer;
+            this.integralCap = integralCap;
+        }
+
+        // Counts the data lines, checking that each is one this parser handles.
+        private boolean count() {
+            int limit = buffer.limit();
+            int start = 0;
+
+            while (start < limit) {
+                int end = lineEnd(start, limit);
+
+                if (isDataLine(start, end)) {
+                    if (buffer.get(start) == '/') return false;
+                    numRows++;
+                }
+
+                start = end + 1;
+            }
+
+            return true;
+        }
+
+        private boolean parse(double[][] continuousData, int[][] discreteData) {
+            int numCols = variables.size();
+            nonNumeric = new boolean[numCols];
+            nonIntegral = new boolean[numCols];
+            strings = new ArrayList<>();
+            dictionaries = new ArrayList<>();
+
+            List<Map<String, Integer>> indices = new ArrayList<>();
+
+            for (int j = 0; j < numCols; j++) {
+                strings.add(new HashSet<String>());
+                dictionaries.add(discreteData[j] == null ? null : new ArrayList<String>());
+                indices.add(discreteData[j] == null ? null : new HashMap<String, Integer>());
+            }
+
+            int limit = buffer.limit();
+            int start = 0;
+            int row = firstRow;
+
+            while (start < limit) {
+                int end = lineEnd(start, limit);
+
+                if (!isDataLine(start, end)) {
+                    start = end + 1;
+                    continue;
+                }
+
+                int position = start;
+
+                // Leading spaces are skipped, as RegexTokenizer does.
+                while (position < end && buffer.get(position) == ' ') position++;
+                if (position == end) position = start;
+
+                int col = 0;
+
+                for (; col < numCols; col++) {
+                    if (position > end) break;
+
+                    position = nextToken(position, end);
+
+                    if (tokenStart < tokenEnd && buffer.get(tokenStart) == quoteChar) {
+                        return false;
+                    }
+
+                    boolean missing = trimmedStart == trimmedEnd || equalsMarker(trimmedStart, trimmedEnd);
+                    boolean counted = tokenStart != tokenEnd && !equalsMarker(tokenStart, tokenEnd);
+
+                    if (continuousData[col] != null) {
+                        boolean parsed = !missing && parseDouble();
+                        continuousData[col][row] = parsed ? value : Double.NaN;
+
+                        if (counted) {
+                            if (!parsed) {
+                                nonNumeric[col] = true;
+                            }
+
+                            boolean isIntegral = parsed && integral
+                                    && trimmedStart == tokenStart && trimmedEnd == tokenEnd;
+
+                            if (!isIntegral) {
+                                nonIntegral[col] = true;
+                            } else if (!nonIntegral[col] && strings.get(col).size() < integralCap) {
+                                strings.get(col).add(string(tokenStart, tokenEnd));
+                            }
+                        }
+                    } else {
+                        if (counted) {
+                            strings.get(col).add(string(tokenStart, tokenEnd));
+                        }
+
+                        if (missing) {
+                            discreteData[col][row] = MISSING;
+                        } else {
+                            String token = string(trimmedStart, trimmedEnd);
+                            Integer index = indices.get(col).get(token);
+
+                            if (index == null) {
+                                index = dictionaries.get(col).size();
+                                dictionaries.get(col).add(token);
+                                indices.get(col).put(token, index);
+                            }
+
+                            discreteData[col][row] = index;
+                        }
+                    }
+                }
+
+                // Columns past the end of a short line are missing.
+                for (; col < numCols; col++) {
+                    if (continuousData[col] != null) {
+                        continuousData[col][row] = Double.NaN;
+                    } else {
+                        discreteData[col][row] = MISSING;
+                    }
+                }
+
+                row++;
+                start = end + 1;
+            }
+
+            return true;
+        }
+
+        private boolean mapCategories(List<Node> variables, int[][] discreteData) {
+            for (int j = 0; j < variables.size(); j++) {
+                if (discreteData[j] == null) continue;
+
+                List<String> categories = ((DiscreteVariable) variables.get(j)).getCategories();
+                List<String> dictionary = dictionaries.get(j);
+                int[] map = new int[dictionary.size()];
+
+                for (int k = 0; k < map.length; k++) {
+                    map[k] = categories.indexOf(dictionary.get(k));
+                    if (map[k] == -1) map[k] = MISSING;
+                }
+
+                int[] column = discreteData[j];
+
+                for (int i = firstRow; i < firstRow + numRows; i++) {
+                    if (column[i] != MISSING) column[i] = map[column[i]];
+                }
+            }
+
+            return true;
+        }
+
+        private int lineEnd(int start, int limit) {
+            int end = start;
+
+            while (end < limit) {
+                byte b = buffer.get(end);
+                if (b == '\n' || b == '\r') break;
+                end++;
+            }
+
+            return end;
+        }
+
+        // Blank lines and comments are skipped, as Lineizer does.
+        private boolean isDataLine(int start, int end) {
+            if (start == end) return false;
+            if (end - start < commentMarker.length) return true;
+
+            for (int i = 0; i < commentMarker.length; i++) {
+                if (buffer.get(start + i) != commentMarker[i]) return true;
+            }
+
+            return false;
+        }
+
+        // Sets the bounds of the token at the given position and returns the position of the next token, or
+        // end + 1 if this was the last one on the line.
+        private int nextToken(int position, int end) {
+            int i = position;
+
+            if (whitespace) {
+                while (i < end && !isWhitespace(buffer.get(i))) i++;
+            } else {
+                while (i < end && buffer.get(i) != delimiter) i++;
+            }
+
+            tokenStart = position;
+            tokenEnd = i;
+
+            trimmedStart = tokenStart;
+            trimmedEnd = tokenEnd;
+            while (trimmedStart < trimmedEnd && (buffer.get(trimmedStart) & 0xff) <= ' ') trimmedStart++;
+            while (trimmedEnd > trimmedStart && (buffer.get(trimmedEnd - 1) & 0xff) <= ' ') trimmedEnd--;
+
+            if (i == end) {
+                return end + 1;
+            }
+
+            if (whitespace) {
+                while (i < end && isWhitespace(buffer.get(i))) i++;
+                return i;
+            } else {
+                return i + 1;
+            }
+        }
+
+        private boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == 0x0B || b == '\f';
+        }
+
+        private boolean equalsMarker(int from, int to) {
+            if (to - from != missingValueMarker.length) return false;
+
+            for (int i = 0; i < missingValueMarker.length; i++) {
+                if (buffer.get(from + i) != missingValueMarker[i]) return false;
+            }
+
+            return true;
+        }
+
+        private String string(int from, int to) {
+            byte[] bytes = new byte[to - from];
+            for (int i = from; i < to; i++) bytes[i - from] = buffer.get(i);
+            return new String(bytes, charset);
+        }
+
+        /**
+         * Parses the trimmed token into value, giving the same result as Double.parseDouble. Decimals of up to 15
+         * digits with exponents of at most 22 in magnitude are computed directly, since both the digits and the power
+         * of ten are then exact and one correctly rounded operation gives the correctly rounded result; anything else
+         * is handed to Double.parseDouble. Also sets integral if the token has the form of an int.
+         *
+         * @return false if the token is not a double.
+         */
+        private boolean parseDouble() {
+            int i = trimmedStart;
+            int end = trimmedEnd;
+            boolean negative = false;
+
+            if (buffer.get(i) == '-' || buffer.get(i) == '+') {
+                negative = buffer.get(i) == '-';
+                i++;
+            }
+
+            long digits = 0;
+            int numDigits = 0;
+            int exponent = 0;
+            boolean sawDigit = false;
+            boolean sawPoint = false;
+            boolean sawExponent = false;
+
+            for (; i < end; i++) {
+                byte b = buffer.get(i);
+
+                if (b >= '0' && b <= '9') {
+                    sawDigit = true;
+
+                    if (numDigits > 0 || b != '0') {
+                        if (numDigits < 18) {
+                            digits = 10 * digits + (b - '0');
+                            if (sawPoint) exponent--;
+                        } else if (!sawPoint) {
+                            exponent++;
+                        }
+
+                        numDigits++;
+                    } else if (sawPoint) {
+                        exponent--;
+                    }
+                } else if (b == '.' && !sawPoint) {
+                    sawPoint = true;
+                } else {
+                    break;
+                }
+            }
+
+            if (i < end && sawDigit && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+                sawExponent = true;
+                i++;
+                boolean negativeExponent = false;
+
+                if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                    negativeExponent = buffer.get(i) == '-';
+                    i++;
+                }
+
+                int e = 0;
+                boolean sawExponentDigit = false;
+
+                for (; i < end; i++) {
+                    byte b = buffer.get(i);
+                    if (b < '0' || b > '9') break;
+                    sawExponentDigit = true;
+                    if (e < 10000) e = 10 * e + (b - '0');
+                }
+
+                if (!sawExponentDigit) {
+                    return parseSlowly();
+                }
+
+                exponent += negativeExponent ? -e : e;
+            }
+
+            if (i != end || !sawDigit) {
+                return parseSlowly();
+            }
+
+            integral = !sawPoint && !sawExponent && numDigits <= 10
+                    && (negative ? -digits >= Integer.MIN_VALUE : digits <= Integer.MAX_VALUE);
+
+            if (numDigits > 15 || exponent < -22 || exponent > 22) {
+                return parseSlowly();
+            }
+
+            double d = exponent < 0 ? digits / POWERS_OF_TEN[-exponent] : digits * POWERS_OF_TEN[exponent];
+            value = negative ? -d : d;
+            return true;
+        }
+
+        private boolean parseSlowly() {
+            String token = string(trimmedStart, trimmedEnd);
+            integral = false;
+
+            try {
+                value = Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+
+            try {
+                Integer.parseInt(token);
+                integral = true;
+            } catch (NumberFormatException e) {
+                // Not an int.
+            }
+
+            return true;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+/**
+ * A view of the rows of another data box, selected (possibly with repetition) by index. Nothing is copied on
+ * construction, so the view costs one int per row; this is what lets each resampling replicate share the data of the
+ * original data set. The first call to set() copies the selected rows into a box of the underlying type, so writes
+ * never reach the shared box.
+ *
+ * @author Joseph Ramsey
+ */
+public class RowSubsetDataBox implements DataBox {
+    static final long serialVersionUID = 23L;
+
+    /**
+     * The box being viewed, or, once the view has been written to, the private copy of the selected rows.
+     */
+    private DataBox data;
+
+    /**
+     * The rows of data selected by this view, in order; null once the view has been copied.
+     */
+    private int[] rows;
+
+    /**
+     * Constructs a view of the given rows of the given data box. The rows array is used as is, not copied.
+     */
+    public RowSubsetDataBox(DataBox data, int[] rows) {
+        if (data == null) throw new NullPointerException("Data box not provided.");
+        if (rows == null) throw new NullPointerException("Rows not provided.");
+
+        for (int row : rows) {
+            if (row < 0 || row >= data.numRows()) {
+                throw new IllegalArgumentException("Row out of range: " + row);
+            }
+        }
+
+        this.data = data;
+        this.rows = rows;
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static BoxDataSet serializableInstance() {
+        return new BoxDataSet(new RowSubsetDataBox(new ShortDataBox(4, 4), new int[]{0, 2, 2, 3}), null);
+    }
+
+    /**
+     * @return the number of rows in this data box.
+     */
+    public int numRows() {
+        return rows == null ? data.numRows() : rows.length;
+    }
+
+    /**
+     * @return the number of columns in this data box.
+     */
+    public int numCols() {
+        return data.numCols();
+    }
+
+    /**
+     * Sets the value at the given row/column to the given Number value, first copying the selected rows out of the
+     * viewed box if that has not been done yet.
+     */
+    public void set(int row, int col, Number value) {
+        if (rows != null) {
+            data = data.viewSelection(rows, allCols());
+            rows = null;
+        }
+
+        data.set(row, col, value);
+    }
+
+    /**
+     * @return the Number value at the given row and column. If the value
+     * is missing, null is returned.
+     */
+    public Number get(int row, int col) {
+        return rows == null ? data.get(row, col) : data.get(rows[row], col);
+    }
+
+    /**
+     * @return the rows of the viewed box selected by this view, or null if the view has been copied.
+     */
+    public int[] getRows() {
+        return rows;
+    }
+
+    /**
+     * @return a copy of this data box, as a box of the type being viewed.
+     */
+    public DataBox copy() {
+        return rows == null ? data.copy() : data.viewSelection(rows, allCols());
+    }
+
+    /**
+     * @return a copy of this data box, as a box of the type being viewed.
+     */
+    public DataBox like() {
+        return copy();
+    }
+
+    /**
+     * @return the given selection of this view, copied into a box of the type being viewed.
+     */
+    @Override
+    public DataBox viewSelection(int[] rows, int[] cols) {
+        if (this.rows == null) {
+            return data.viewSelection(rows, cols);
+        }
+
+        int[] _rows = new int[rows.length];
+
+        for (int i = 0; i < rows.length; i++) {
+            _rows[i] = this.rows[rows[i]];
+        }
+
+        return data.viewSelection(_rows, cols);
+    }
+
+    private int[] allCols() {
+        int[] cols = new int[data.numCols()];
+        for (int j = 0; j < cols.length; j++) cols[j] = j;
+        return cols;
+    }
+}
@@ -0,0 +1,550 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.graph;
+
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>An index of a DAG, possibly with latent nodes, for the ancestry, inducing path and d-connection questions
+ * asked when converting it to a PAG or using it as an oracle. The DAG is compiled into integer parent and child
+ * arrays and, for each node, a bitset of its ancestors (including itself), so that ancestry questions take constant
+ * time.</p>
+ * <p>An inducing path between x and y (relative to the nodes that are not measured) is a path on which every
+ * measured interior node is a collider and every collider is an ancestor of x or y; x and y are adjacent in the MAG
+ * of the DAG just in case there is one. Rather than enumerating paths, existsInducingPath searches the pairs (node,
+ * whether it was entered through an arrowhead) reachable from x by walks obeying these conditions, which takes time
+ * linear in the size of the DAG; a walk of this kind can always be shortened to an inducing path, as for
+ * d-connecting walks. Answers are remembered, and inducing paths for all pairs of measured nodes are found in
+ * parallel by getInducingPathGraph.</p>
+ * <p>D-connection is checked by the same search, with colliders open if they are ancestors of the conditioning set
+ * and noncolliders open if they are not in it. Each thread keeps its own scratch space, so the queries by index
+ * allocate nothing, and getDConnectedNodes finds everything d-connected to a node given a set in one search. This
+ * makes it practical to use a DAG of many thousands of nodes as an independence oracle.</p>
+ * <p>The index is a snapshot; it does not see later changes to the DAG. It may be shared between threads.</p>
+ *
+ * @author Joseph Ramsey
+ */
+public final class AncestralIndex {
+
+    private final List<Node> nodes;
+    private final Map<Node, Integer> indices;
+    private final int[][] parents;
+    private final int[][] children;
+    private final boolean[] latent;
+
+    // For each node, a bitset of the indices of its ancestors, including itself.
+    private final long[][] ancestors;
+
+    // Remembered answers, by pair of indices.
+    private final Map<Long, Boolean> inducingPaths = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> inducingPathsInto = new ConcurrentHashMap<>();
+
+    // Scratch space for searches, one per thread, so that queries allocate nothing.
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace(nodes.size());
+        }
+    };
+
+    /**
+     * @return True if the given graph can be indexed: every edge is directed, and there is no directed cycle.
+     */
+    public static boolean isIndexable(Graph graph) {
+        Map<Node, Integer> inDegrees = new HashMap<>();
+
+        for (Node node : graph.getNodes()) {
+            inDegrees.put(node, 0);
+        }
+
+        for (Edge edge : graph.getEdges()) {
+            if (!Edges.isDirectedEdge(edge)) return false;
+            Node head = Edges.getDirectedEdgeHead(edge);
+            inDegrees.put(head, inDegrees.get(head) + 1);
+        }
+
+        // Removes nodes with no remaining parents; all are removed just in case there is no cycle.
+        LinkedList<Node> queue = new LinkedList<>();
+
+        for (Node node : graph.getNodes()) {
+            if (inDegrees.get(node) == 0) queue.add(node);
+        }
+
+        int removed = 0;
+
+        while (!queue.isEmpty()) {
+            Node node = queue.removeFirst();
+            removed++;
+
+            for (Node child : graph.getChildren(node)) {
+                int inDegree = inDegrees.get(child) - 1;
+                inDegrees.put(child, inDegree);
+                if (inDegree == 0) queue.add(child);
+            }
+        }
+
+        return removed == graph.getNumNodes();
+    }
+
+    /**
+     * Indexes the given DAG.
+     *
+     * @throws IllegalArgumentException if the graph has an edge that is not directed or has a directed cycle.
+     */
+    public AncestralIndex(Graph dag) {
+        if (dag == null) {
+            throw new NullPointerException("Graph must not be null.");
+        }
+
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(dag.getNodes()));
+        int n = nodes.size();
+
+        this.indices = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            indices.put(nodes.get(i), i);
+        }
+
+        List<List<Integer>> _parents = new ArrayList<>();
+        List<List<Integer>> _children = new ArrayList<>();
+
+        for (int i = 0; i < n; i++) {
+            _parents.add(new ArrayList<Integer>());
+            _children.add(new ArrayList<Integer>());
+        }
+
+        for (Edge edge : dag.getEdges()) {
+            if (!Edges.isDirectedEdge(edge)) {
+                throw new IllegalArgumentException("Only directed edges may be indexed: " + edge);
+            }
+
+            int tail = indices.get(Edges.getDirectedEdgeTail(edge));
+            int head = indices.get(Edges.getDirectedEdgeHead(edge));
+            _parents.get(head).add(tail);
+            _children.get(tail).add(head);
+        }
+
+        this.parents = new int[n][];
+        this.children = new int[n][];
+        this.latent = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            parents[i] = toArray(_parents.get(i));
+            children[i] = toArray(_children.get(i));
+            latent[i] = nodes.get(i).getNodeType() != NodeType.MEASURED;
+        }
+
+        // Ancestors, in topological order, so that the ancestors of each parent are known first.
+        int words = (n + 63) >>> 6;
+        this.ancestors = new long[n][];
+        int[] inDegree = new int[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+
+        for (int i = 0; i < n; i++) {
+            inDegree[i] = parents[i].length;
+            if (inDegree[i] == 0) queue[tail++] = i;
+        }
+
+        while (head < tail) {
+            int v = queue[head++];
+            long[] set = new long[words];
+            set[v >>> 6] |= 1L << v;
+
+            for (int p : parents[v]) {
+                long[] _set = ancestors[p];
+
+                for (int w = 0; w < words; w++) {
+                    set[w] |= _set[w];
+                }
+            }
+
+            ancestors[v] = set;
+
+            for (int c : children[v]) {
+                if (--inDegree[c] == 0) queue[tail++] = c;
+            }
+        }
+
+        if (tail < n) {
+            throw new IllegalArgumentException("Graph has a directed cycle.");
+        }
+    }
+
+    /**
+     * @return The nodes of the DAG, in the order of their indices.
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The index of the given node.
+     * @throws IllegalArgumentException if the node is not in the DAG.
+     */
+    public int getIndex(Node node) {
+        Integer index = indices.get(node);
+
+        if (index == null) {
+            throw new IllegalArgumentException("Not a node in the indexed graph: " + node);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return True iff node1 is an ancestor of node2; every node is an ancestor of itself.
+     */
+    public boolean isAncestorOf(Node node1, Node node2) {
+        return isAncestor(getIndex(node1), getIndex(node2));
+    }
+
+    /**
+     * @return True iff node is an ancestor of one of the given nodes.
+     */
+    public boolean isAncestorOfAnyOf(Node node, List<Node> nodes) {
+        int i = getIndex(node);
+
+        for (Node _node : nodes) {
+            if (isAncestor(i, getIndex(_node))) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return True iff there is an inducing path between x and y.
+     */
+    public boolean existsInducingPath(Node x, Node y) {
+        int i = getIndex(x);
+        int j = getIndex(y);
+        Long key = key(Math.min(i, j), Math.max(i, j));
+        Boolean exists = inducingPaths.get(key);
+
+        if (exists == null) {
+            exists = inducingPath(i, j, false);
+            inducingPaths.put(key, exists);
+        }
+
+        return exists;
+    }
+
+    /**
+     * @return True iff there is an inducing path between x and y that is into x.
+     */
+    public boolean existsInducingPathInto(Node x, Node y) {
+        int i = getIndex(x);
+        int j = getIndex(y);
+        Long key = key(i, j);
+        Boolean exists = inducingPathsInto.get(key);
+
+        if (exists == null) {
+            exists = inducingPath(i, j, true);
+            inducingPathsInto.put(key, exists);
+        }
+
+        return exists;
+    }
+
+    /**
+     * @return A graph over the given nodes of the DAG with a nondirected edge between each pair joined by an
+     * inducing path--that is, the adjacencies of the MAG over the measured nodes, if these are the measured nodes.
+     * Pairs are checked in parallel.
+     */
+    public Graph getInducingPathGraph(final List<Node> nodes) {
+        final int[] _nodes = new int[nodes.size()];
+
+        for (int i = 0; i < nodes.size(); i++) {
+            _nodes[i] = getIndex(nodes.get(i));
+        }
+
+        List<Callable<boolean[]>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < _nodes.length; i++) {
+            final int _i = i;
+
+            tasks.add(new Callable<boolean[]>() {
+                @Override
+                public boolean[] call() {
+                    boolean[] adjacent = new boolean[_nodes.length];
+
+                    for (int j = _i + 1; j < _nodes.length; j++) {
+                        adjacent[j] = existsInducingPath(nodes.get(_i), nodes.get(j));
+                    }
+
+                    return adjacent;
+                }
+            });
+        }
+
+        List<boolean[]> adjacencies = ForkJoinPoolInstance.getInstance().invokeAll(tasks);
+        Graph graph = new EdgeListGraphSingleConnections(nodes);
+
+        for (int i = 0; i < _nodes.length; i++) {
+            boolean[] adjacent = adjacencies.get(i);
+
+            for (int j = i + 1; j < _nodes.length; j++) {
+                if (adjacent[j]) {
+                    graph.addNondirectedEdge(nodes.get(i), nodes.get(j));
+                }
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * @return True iff x and y are d-connected given z.
+     */
+    public boolean isDConnectedTo(Node x, Node y, List<Node> z) {
+        int i = getIndex(x);
+        int j = getIndex(y);
+        Workspace workspace = workspaces.get();
+        workspace.clearSets();
+
+        for (Node node : z) {
+            workspace.addToZ(getIndex(node));
+        }
+
+        return i == j || reachable(workspace, i, j, false, workspace.anZ, workspace.inZ, false);
+    }
+
+    /**
+     * As isDConnectedTo(Node, Node, List), for nodes given by their indices. Nothing is allocated, so this is the
+     * method to use for large numbers of queries.
+     */
+    public boolean isDConnectedTo(int x, int y, int[] z) {
+        return isDConnectedTo(x, y, z, z.length);
+    }
+
+    /**
+     * As isDConnectedTo(int, int, int[]), where z is given by its first zLength entries, so that callers may reuse a
+     * buffer for it.
+     */
+    public boolean isDConnectedTo(int x, int y, int[] z, int zLength) {
+        Workspace workspace = workspaces.get();
+        workspace.clearSets();
+
+        for (int k = 0; k < zLength; k++) {
+            workspace.addToZ(z[k]);
+        }
+
+        return x == y || reachable(workspace, x, y, false, workspace.anZ, workspace.inZ, false);
+    }
+
+    /**
+     * @return The nodes not in z, other than x, that are d-connected to x given z, in the order of their indices.
+     * These are found with a single search from x.
+     */
+    public List<Node> getDConnectedNodes(Node x, List<Node> z) {
+        int i = getIndex(x);
+        Workspace workspace = workspaces.get();
+        workspace.clearSets();
+
+        for (Node node : z) {
+            workspace.addToZ(getIndex(node));
+        }
+
+        reachable(workspace, i, -1, false, workspace.anZ, workspace.inZ, false);
+
+        List<Node> connected = new ArrayList<>();
+
+        for (int k = 0; k < nodes.size(); k++) {
+            if (k != i && workspace.isVisited(k) && !contains(workspace.inZ, k)) {
+                connected.add(nodes.get(k));
+            }
+        }
+
+        return connected;
+    }
+
+    //==============================PRIVATE METHODS==========================//
+
+    private boolean isAncestor(int i, int j) {
+        return (ancestors[j][i >>> 6] & (1L << i)) != 0;
+    }
+
+    private boolean inducingPath(int x, int y, boolean into) {
+        if (x == y) return false;
+
+        // A collider must be an ancestor of x or y; a noncollider must be latent.
+        Workspace workspace = workspaces.get();
+        long[] anXY = workspace.anZ;
+        long[] anX = ancestors[x];
+        long[] anY = ancestors[y];
+
+        for (int w = 0; w < anXY.length; w++) {
+            anXY[w] = anX[w] | anY[w];
+        }
+
+        return reachable(workspace, x, y, into, anXY, null, true);
+    }
+
+    /**
+     * Searches the walks from x to y along which each collider is in openColliders and each noncollider is not in
+     * closedNoncolliders and, if latentNoncolliders, is latent. States are pairs of a node and whether the walk
+     * entered it through an arrowhead. If intoX, the walk must leave x through an arrowhead into x. If y is -1, the
+     * search continues until every reachable state is visited.
+     */
+    private boolean reachable(Workspace workspace, int x, int y, boolean intoX, long[] openColliders,
+                              long[] closedNoncolliders, boolean latentNoncolliders) {
+        int[] visitedInto = workspace.visitedInto;
+        int[] visitedOutOf = workspace.visitedOutOf;
+        int[] queue = workspace.queue;
+        int visit = workspace.nextVisit();
+        int head = 0;
+        int tail = 0;
+
+        // A state is encoded as 2 * node + (1 if entered through an arrowhead).
+        for (int p : parents[x]) {
+            if (p == y) return true;
+
+            if (visitedOutOf[p] != visit) {
+                visitedOutOf[p] = visit;
+                queue[tail++] = 2 * p;
+            }
+        }
+
+        if (!intoX) {
+            for (int c : children[x]) {
+                if (c == y) return true;
+
+                if (visitedInto[c] != visit) {
+                    visitedInto[c] = visit;
+                    queue[tail++] = 2 * c + 1;
+                }
+            }
+        }
+
+        while (head < tail) {
+            int state = queue[head++];
+            int b = state >>> 1;
+            boolean enteredInto = (state & 1) == 1;
+
+            if (b == x) continue;
+
+            boolean collidable = enteredInto && contains(openColliders, b);
+            boolean passable = (!latentNoncolliders || latent[b])
+                    && (closedNoncolliders == null || !contains(closedNoncolliders, b));
+
+            // Leaving b toward a parent: b is a collider iff the walk entered it through an arrowhead.
+            if (enteredInto ? collidable : passable) {
+                for (int p : parents[b]) {
+                    if (p == y) return true;
+
+                    if (visitedOutOf[p] != visit) {
+                        visitedOutOf[p] = visit;
+                        queue[tail++] = 2 * p;
+                    }
+                }
+            }
+
+            // Leaving b toward a child: b is a noncollider.
+            if (passable) {
+                for (int c : children[b]) {
+                    if (c == y) return true;
+
+                    if (visitedInto[c] != visit) {
+                        visitedInto[c] = visit;
+                        queue[tail++] = 2 * c + 1;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean contains(long[] set, int i) {
+        return (set[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private long key(int i, int j) {
+        return (long) i * nodes.size() + j;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i);
+        }
+
+        return array;
+    }
+
+    /**
+     * Visited marks, a queue of states and the sets of nodes in and ancestral to the conditioning set. Visited marks
+     * are numbered by search, so they need not be cleared between searches.
+     */
+    private final class Workspace {
+        final int[] visitedInto;
+        final int[] visitedOutOf;
+        final int[] queue;
+        final long[] inZ;
+        final long[] anZ;
+        int visit = 0;
+
+        Workspace(int n) {
+            visitedInto = new int[n];
+            visitedOutOf = new int[n];
+            queue = new int[2 * n];
+            inZ = new long[(n + 63) >>> 6];
+            anZ = new long[(n + 63) >>> 6];
+        }
+
+        int nextVisit() {
+            if (visit == Integer.MAX_VALUE) {
+                Arrays.fill(visitedInto, 0);
+                Arrays.fill(visitedOutOf, 0);
+                visit = 0;
+            }
+
+            return ++visit;
+        }
+
+        boolean isVisited(int i) {
+            return visitedInto[i] == visit || visitedOutOf[i] == visit;
+        }
+
+        void clearSets() {
+            Arrays.fill(inZ, 0L);
+            Arrays.fill(anZ, 0L);
+        }
+
+        // A collider is open if it is an ancestor of z; a noncollider if it is not in z.
+        void addToZ(int k) {
+            inZ[k >>> 6] |= 1L << k;
+            long[] an = ancestors[k];
+
+            for (int w = 0; w < anZ.length; w++) {
+                anZ[w] |= an[w];
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.graph;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+
+/**
+ * <p>A graph with at most one edge between any pair of nodes that, in addition to the
+ * edge lists of EdgeListGraphSingleConnections, gives each node an integer index and keeps
+ * for each node a bitset of adjacent node indices and packed arrays of neighbor indices and
+ * edges, in the same order as the node's edge list. Point queries--isAdjacentTo, getEdge,
+ * getEndpoint, isParentOf, isChildOf and the like--are answered from these without scanning
+ * edge lists or taking a lock, which makes the graph suitable for the orientation phases of
+ * large searches. Methods that return lists of nodes or edges return them in the same order
+ * as EdgeListGraphSingleConnections, so searches give the same results on either graph.</p>
+ * <p>Since this is an EdgeListGraph, it may be returned from a search as is; use
+ * new EdgeListGraph(graph) to drop the index, which takes O(p^2 / 8) bytes for p nodes.</p>
+ *
+ * @author Joseph Ramsey
+ */
+public class BitsetIndexedGraph extends EdgeListGraphSingleConnections {
+    static final long serialVersionUID = 23L;
+
+    private static final int[] NO_NEIGHBORS = new int[0];
+    private static final Edge[] NO_EDGES = new Edge[0];
+
+    // Map from nodes to their indices, and indices to nodes.
+    private transient Map<Node, Integer> indices;
+    private transient List<Node> indexed;
+
+    // For each node index, a bitset of the indices of adjacent nodes.
+    private transient long[][] adjacencies;
+
+    // For each node index, the indices of the adjacent nodes and the corresponding edges,
+    // in edge list order; only the first degrees[i] entries are used.
+    private transient int[][] neighbors;
+    private transient Edge[][] edges;
+    private transient int[] degrees;
+
+    //==============================CONSTUCTORS===========================//
+
+    /**
+     * Constructs a new (empty) graph.
+     */
+    public BitsetIndexedGraph() {
+        super();
+        reindex();
+    }
+
+    /**
+     * Constructs a new graph, with no edges, using the the given nodes.
+     */
+    public BitsetIndexedGraph(List<Node> nodes) {
+        this();
+
+        if (nodes == null) {
+            throw new NullPointerException();
+        }
+
+        ensureCapacity(nodes.size());
+
+        for (Node node : nodes) {
+            addNode(node);
+        }
+    }
+
+    /**
+     * Constructs a graph using the nodes and edges of the given graph, which must have at
+     * most one edge between any pair of nodes.
+     */
+    public BitsetIndexedGraph(Graph graph) {
+        this();
+
+        if (graph == null) {
+            throw new NullPointerException("Graph must not be null.");
+        }
+
+        ensureCapacity(graph.getNumNodes());
+        transferNodesAndEdges(graph);
+
+        this.ambiguousTriples = graph.getAmbiguousTriples();
+        this.underLineTriples = graph.getUnderLines();
+        this.dottedUnderLineTriples = graph.getDottedUnderlines();
+
+        for (Edge edge : graph.getEdges()) {
+            if (graph.isHighlighted(edge)) {
+                setHighlighted(edge, true);
+            }
+        }
+
+        setPag(graph.isPag());
+        setPattern(graph.isPattern());
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static BitsetIndexedGraph serializableInstance() {
+        return new BitsetIndexedGraph();
+    }
+
+    //===============================PUBLIC METHODS========================//
+
+    /**
+     * @return the index of the given node, or -1 if the node is not in the graph.
+     */
+    public int getIndex(Node node) {
+        Integer index = node == null ? null : indices.get(node);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the node with the given index.
+     */
+    public Node getNode(int index) {
+        return indexed.get(index);
+    }
+
+    /**
+     * Determines whether the nodes with the given indices are adjacent.
+     */
+    public boolean isAdjacentTo(int i, int j) {
+        return (adjacencies[i][j >> 6] & (1L << j)) != 0;
+    }
+
+    /**
+     * @return the edge connecting the nodes with the given indices, or null if there is none.
+     */
+    public Edge getEdge(int i, int j) {
+        if (!isAdjacentTo(i, j)) return null;
+
+        // Scan the packed neighbors of whichever node has the smaller degree.
+        if (degrees[j] < degrees[i]) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+
+        int[] _neighbors = neighbors[i];
+
+        for (int k = 0; k < degrees[i]; k++) {
+            if (_neighbors[k] == j) return edges[i][k];
+        }
+
+        return null;
+    }
+
+    /**
+     * @return a copy of the bitset of indices of the nodes adjacent to the node with the given
+     * index.
+     */
+    public BitSet getAdjacencies(int i) {
+        return BitSet.valueOf(adjacencies[i]);
+    }
+
+    public boolean isAdjacentTo(Node node1, Node node2) {
+        int i = getIndex(node1);
+        int j = getIndex(node2);
+        return i != -1 && j != -1 && isAdjacentTo(i, j);
+    }
+
+    public Edge getEdge(Node node1, Node node2) {
+        int i = getIndex(node1);
+        int j = getIndex(node2);
+        if (i == -1 || j == -1) return null;
+        return getEdge(i, j);
+    }
+
+    public List<Edge> getEdges(Node node1, Node node2) {
+        List<Edge> edges = new ArrayList<>(1);
+        Edge edge = getEdge(node1, node2);
+        if (edge != null) edges.add(edge);
+        return edges;
+    }
+
+    public Edge getDirectedEdge(Node node1, Node node2) {
+        Edge edge = getEdge(node1, node2);
+
+        if (edge != null && Edges.isDirectedEdge(edge) && edge.getProximalEndpoint(node2) == Endpoint.ARROW) {
+            return edge;
+        }
+
+        return null;
+    }
+
+    public boolean isParentOf(Node node1, Node node2) {
+        Edge edge = getEdge(node1, node2);
+        return edge != null && Edges.traverseDirected(node1, edge) == node2;
+    }
+
+    public boolean isChildOf(Node node1, Node node2) {
+        Edge edge = getEdge(node2, node1);
+        return edge != null && Edges.traverseDirected(node2, edge) == node1;
+    }
+
+    /**
+     * @return the list of parents for a node.
+     */
+    public List<Node> getParents(Node node) {
+        int i = getIndex(node);
+        List<Node> parents = new ArrayList<>();
+        if (i == -1) return parents;
+
+        for (int k = 0; k < degrees[i]; k++) {
+            Edge edge = edges[i][k];
+
+            if (edge.getDistalEndpoint(node) == Endpoint.TAIL && edge.getProximalEndpoint(node) == Endpoint.ARROW) {
+                parents.add(edge.getDistalNode(node));
+            }
+        }
+
+        return parents;
+    }
+
+    /**
+     * @return the list of children for a node.
+     */
+    public List<Node> getChildren(Node node) {
+        int i = getIndex(node);
+        List<Node> children = new ArrayList<>();
+        if (i == -1) return children;
+
+        for (int k = 0; k < degrees[i]; k++) {
+            Node child = Edges.traverseDirected(node, edges[i][k]);
+
+            if (child != null) {
+                children.add(child);
+            }
+        }
+
+        return children;
+    }
+
+    public boolean addNode(Node node) {
+        if (!super.addNode(node)) return false;
+
+        int i = indexed.size();
+        ensureCapacity(i + 1);
+        indices.put(node, i);
+        indexed.add(node);
+        neighbors[i] = NO_NEIGHBORS;
+        edges[i] = NO_EDGES;
+        degrees[i] = 0;
+        return true;
+    }
+
+    public boolean removeNode(Node node) {
+        boolean changed = super.removeNode(node);
+        reindex();
+        return changed;
+    }
+
+    public synchronized boolean addEdge(Edge edge) {
+        boolean added = super.addEdge(edge);
+
+        int i = getIndex(edge.getNode1());
+        int j = getIndex(edge.getNode2());
+
+        adjacencies[i][j >> 6] |= 1L << j;
+        adjacencies[j][i >> 6] |= 1L << i;
+
+        append(i, j, edge);
+        if (i != j) append(j, i, edge);
+
+        return added;
+    }
+
+    public synchronized boolean removeEdge(Edge edge) {
+        boolean removed = super.removeEdge(edge);
+
+        int i = getIndex(edge.getNode1());
+        int j = getIndex(edge.getNode2());
+
+        if (i != -1 && j != -1 && remove(i, j, edge)) {
+            if (i != j) remove(j, i, edge);
+            adjacencies[i][j >> 6] &= ~(1L << j);
+            adjacencies[j][i >> 6] &= ~(1L << i);
+        }
+
+        return removed;
+    }
+
+    public void fullyConnect(Endpoint endpoint) {
+        for (int i = 0; i < indexed.size(); i++) {
+            Arrays.fill(adjacencies[i], 0L);
+            neighbors[i] = NO_NEIGHBORS;
+            edges[i] = NO_EDGES;
+            degrees[i] = 0;
+        }
+
+        super.fullyConnect(endpoint);
+    }
+
+    public void clear() {
+        super.clear();
+        reindex();
+    }
+
+    public void setNodes(List<Node> nodes) {
+        super.setNodes(nodes);
+        reindex();
+    }
+
+    public void changeName(String name, String newName) {
+        super.changeName(name, newName);
+        reindex();
+    }
+
+    //===============================PRIVATE METHODS======================//
+
+    // Rebuilds the index from the nodes and edge lists.
+    private void reindex() {
+        indices = new HashMap<>();
+        indexed = new ArrayList<>();
+        adjacencies = new long[0][];
+        neighbors = new int[0][];
+        edges = new Edge[0][];
+        degrees = new int[0];
+
+        ensureCapacity(nodes.size());
+
+        for (Node node : nodes) {
+            int i = indexed.size();
+            indices.put(node, i);
+            indexed.add(node);
+        }
+
+        for (int i = 0; i < indexed.size(); i++) {
+            Node node = indexed.get(i);
+            List<Edge> list = edgeLists.get(node);
+
+            neighbors[i] = NO_NEIGHBORS;
+            edges[i] = NO_EDGES;
+
+            if (list == null) continue;
+
+            for (Edge edge : list) {
+                int j = getIndex(edge.getDistalNode(node));
+                if (j == -1) continue;
+                adjacencies[i][j >> 6] |= 1L << j;
+                append(i, j, edge);
+            }
+        }
+    }
+
+    // Makes room for at least the given number of nodes, growing geometrically.
+    private void ensureCapacity(int capacity) {
+        int old = adjacencies.length;
+        if (capacity <= old) return;
+
+        capacity = Math.max(capacity, Math.max(16, 2 * old));
+        int words = (capacity + 63) >> 6;
+
+        adjacencies = Arrays.copyOf(adjacencies, capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            adjacencies[i] = adjacencies[i] == null ? new long[words] : Arrays.copyOf(adjacencies[i], words);
+        }
+
+        neighbors = Arrays.copyOf(neighbors, capacity);
+        edges = Arrays.copyOf(edges, capacity);
+        degrees = Arrays.copyOf(degrees, capacity);
+    }
+
+    // Appends neighbor j and the edge to the packed arrays of node i.
+    private void append(int i, int j, Edge edge) {
+        int d = degrees[i];
+
+        if (d == neighbors[i].length) {
+            int length = Math.max(4, 2 * d);
+            neighbors[i] = Arrays.copyOf(neighbors[i], length);
+            edges[i] = Arrays.copyOf(edges[i], length);
+        }
+
+        neighbors[i][d] = j;
+        edges[i][d] = edge;
+        degrees[i] = d + 1;
+    }
+
+    // Removes neighbor j and the edge from the packed arrays of node i, keeping the order
+    // of the rest; returns false if they are not there.
+    private boolean remove(int i, int j, Edge edge) {
+        int d = degrees[i];
+
+        for (int k = 0; k < d; k++) {
+            if (neighbors[i][k] == j && edges[i][k].equals(edge)) {
+                System.arraycopy(neighbors[i], k + 1, neighbors[i], k, d - k - 1);
+                System.arraycopy(edges[i], k + 1, edges[i], k, d - k - 1);
+                edges[i][d - 1] = null;
+                degrees[i] = d - 1;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds semantic checks to the default deserialization method. This method
+     * must have the standard signature for a readObject method, and the body of
+     * the method must begin with "s.defaultReadObject();". Other than that, any
+     * semantic checks can be specified and do not need to stay the same from
+     * version to version. A readObject method of this form may be added to any
+     * class, even if Tetrad sessions were previously saved out using a version
+     * of the class that didn't include it. (That's what the
+     * "s.defaultReadObject();" is for. See J. Bloch, Effective Java, for help.
+     */
+    private void readObject(ObjectInputStream s)
+            throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        reindex();
+    }
+}
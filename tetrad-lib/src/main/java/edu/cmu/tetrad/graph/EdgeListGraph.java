@@ -625,24 +625,80 @@ public class EdgeListGraph implements Graph, TripleClassifier {
 //        return b;
 //    }
 
-    protected Map<Node, Set<Node>> ancestors = null;
+    /**
+     * Cached ancestor sets, by node, if ancestry caching is turned on; otherwise null.
+     */
+    protected transient Map<Node, Set<Node>> ancestors = null;
+
+    /**
+     * True iff ancestor sets computed by isAncestorOf are kept until an edge change affects them.
+     */
+    private boolean ancestryCached = false;
 
     /**
      * Determines whether one node is an ancestor of another.
      */
     public boolean isAncestorOf(Node node1, Node node2) {
+        if (ancestryCached) {
+            return getAncestorSet(node2).contains(node1);
+        }
+
         return getAncestors(Collections.singletonList(node2)).contains(node1);
-//        if (ancestors == null) {
-//            ancestors = new HashMap<>();
-//        }
-//
-//        if (ancestors.get(node2) != null) {
-//            return ancestors.get(node2).contains(node1);
-//        }
-//
-//        ancestors.put(node2, new HashSet<>(getAncestors(Collections.singletonList(node2))));
-//
-//        return ancestors.get(node2).contains(node1);
+    }
+
+    /**
+     * @return true iff ancestor sets are cached between edge changes.
+     */
+    public boolean isAncestryCached() {
+        return ancestryCached;
+    }
+
+    /**
+     * Sets whether ancestor sets are cached. When they are, the ancestors of a node are
+     * computed once, on the first ancestry query for that node, and kept until a directed edge
+     * into one of them is added or removed through this graph. This makes repeated ancestry
+     * queries against a graph that changes rarely, such as a true DAG, nearly free. Edges
+     * changed directly through Edge.setEndpoint1/2 are not seen, so caching should be left off
+     * for graphs whose edges are modified that way. Off by default.
+     */
+    public void setAncestryCached(boolean ancestryCached) {
+        this.ancestryCached = ancestryCached;
+        this.ancestors = null;
+    }
+
+    // Returns the (cached) set of ancestors of the given node, including the node itself.
+    private Set<Node> getAncestorSet(Node node) {
+        Map<Node, Set<Node>> ancestors = this.ancestors;
+
+        if (ancestors == null) {
+            ancestors = new ConcurrentHashMap<>();
+            this.ancestors = ancestors;
+        }
+
+        Set<Node> set = ancestors.get(node);
+
+        if (set == null) {
+            set = new HashSet<>();
+            collectAncestorsVisit(node, set);
+            ancestors.put(node, set);
+        }
+
+        return set;
+    }
+
+    /**
+     * Drops the cached ancestor sets that adding or removing the given edge could change. Only
+     * directed edges affect ancestry, and then only the ancestor sets that contain the head.
+     */
+    protected void invalidateAncestors(Edge edge) {
+        Map<Node, Set<Node>> ancestors = this.ancestors;
+        if (ancestors == null || !Edges.isDirectedEdge(edge)) return;
+
+        Node head = Edges.getDirectedEdgeHead(edge);
+
+        for (Iterator<Set<Node>> i = ancestors.values().iterator(); i.hasNext(); ) {
+            if (i.next().contains(head)) i.remove();
+        }
     }
 
     public boolean possibleAncestor(Node node1, Node node2) {
@@ -668,7 +724,12 @@ public class EdgeListGraph implements Graph, TripleClassifier {
 
         for (Object node1 : nodes) {
             Node node = (Node) node1;
-            collectAncestorsVisit(node, ancestors);
+
+            if (ancestryCached) {
+                ancestors.addAll(getAncestorSet(node));
+            } else {
+                collectAncestorsVisit(node, ancestors);
+            }
         }
 
         return new ArrayList<>(ancestors);
@@ -693,7 +754,7 @@ public class EdgeListGraph implements Graph, TripleClassifier {
      * Determines whether one node is a descendent of another.
      */
     public boolean isDescendentOf(Node node1, Node node2) {
-        return (node1 == node2) || isProperDescendentOf(node1, node2);
+        return (node1 == node2) || isAncestorOf(node2, node1);
     }
 
     /**
@@ -1123,7 +1184,6 @@ public class EdgeListGraph implements Graph, TripleClassifier {
     public boolean setEndpoint(Node from, Node to, Endpoint endPoint)
             throws IllegalArgumentException {
         List<Edge> edges = getEdges(from, to);
-        ancestors = null;
 
         if (endPoint == null) {
             throw new NullPointerException();
@@ -1267,7 +1327,7 @@ public class EdgeListGraph implements Graph, TripleClassifier {
             }
         }
 
-        ancestors = null;
+        invalidateAncestors(edge);
         getPcs().firePropertyChange("edgeAdded", null, edge);
         return true;
     }
@@ -1398,6 +1458,7 @@ public class EdgeListGraph implements Graph, TripleClassifier {
     public void fullyConnect(Endpoint endpoint) {
         edgesSet.clear();
         edgeLists.clear();
+        ancestors = null;
 
         for (Node node : nodes) {
             edgeLists.put(node, new ArrayList<Edge>(4));
@@ -1479,6 +1540,7 @@ public class EdgeListGraph implements Graph, TripleClassifier {
         }
 
         edgeLists.clear();
+        ancestors = null;
     }
 
     /**
@@ -1513,7 +1575,7 @@ public class EdgeListGraph implements Graph, TripleClassifier {
         highlightedEdges.remove(edge);
         stuffRemovedSinceLastTripleAccess = true;
 
-        ancestors = null;
+        invalidateAncestors(edge);
         getPcs().firePropertyChange("edgeRemoved", edge, null);
         return true;
     }
@@ -1577,6 +1639,7 @@ public class EdgeListGraph implements Graph, TripleClassifier {
         nodes.remove(node);
         namesHash.remove(node.getName());
         stuffRemovedSinceLastTripleAccess = true;
+        ancestors = null;
 
         getPcs().firePropertyChange("nodeRemoved", node, null);
         return changed;
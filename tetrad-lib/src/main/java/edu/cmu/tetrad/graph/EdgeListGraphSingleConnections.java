@@ -314,6 +314,7 @@ public class EdgeListGraphSingleConnections extends EdgeListGraph implements Tri
         edgeLists.put(edge.getNode2(), edgeList2);
 
         edgesSet.add(edge);
+        invalidateAncestors(edge);
 
         return true;
     }
@@ -404,6 +405,7 @@ public class EdgeListGraphSingleConnections extends EdgeListGraph implements Tri
         edgeLists.put(edge.getNode1(), edgeList1);
         edgeLists.put(edge.getNode2(), edgeList2);
 
+        invalidateAncestors(edge);
         getPcs().firePropertyChange("edgeRemoved", edge, null);
         return true;
     }
@@ -437,6 +439,7 @@ public class EdgeListGraphSingleConnections extends EdgeListGraph implements Tri
         nodes.remove(node);
         namesHash.remove(node.getName());
         stuffRemovedSinceLastTripleAccess = true;
+        ancestors = null;
 
         getPcs().firePropertyChange("nodeRemoved", node, null);
         return changed;
@@ -58,7 +58,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Callable;
 import java.util.regex.Matcher;
 import nu.xom.Builder;
 import nu.xom.Document;
@@ -3785,43 +3785,38 @@ public final class GraphUtils {
         }
     }
 
-    public static int[][] edgeMisclassificationCounts(Graph leftGraph, Graph topGraph, boolean print) {
+    public static int[][] edgeMisclassificationCounts(final Graph leftGraph, final Graph topGraph, boolean print) {
 //        topGraph = GraphUtils.replaceNodes(topGraph, leftGraph.getNodes());
 
-        class CountTask extends RecursiveTask<Counts> {
-
-            private int chunk;
-            private int from;
-            private int to;
-            private final List<Edge> edges;
-            private final Graph leftGraph;
-            private final Graph topGraph;
-            private final Counts counts;
-            private final int[] count;
-
-            public CountTask(int chunk, int from, int to, List<Edge> edges, Graph leftGraph, Graph topGraph, int[] count) {
-                this.chunk = chunk;
-                this.from = from;
-                this.to = to;
-                this.edges = edges;
-                this.leftGraph = leftGraph;
-                this.topGraph = topGraph;
-                this.counts = new Counts();
-                this.count = count;
-            }
-
-            @Override
-            protected Counts compute() {
-                int range = to - from;
-
-                if (range <= chunk) {
-                    for (int i = from; i < to; i++) {
-                        int j = ++count[0];
-                        if (j % 1000 == 0) {
-                            System.out.println("Counted " + (count[0]));
-                        }
+        // The union of the edges of the two graphs, without building a set of both.
+        final List<Edge> edges = new ArrayList<>(topGraph.getEdges());
 
-                        Edge edge = edges.get(i);
+        for (Edge edge : leftGraph.getEdges()) {
+            if (!topGraph.containsEdge(edge)) {
+                edges.add(edge);
+            }
+        }
+
+        if (print) {
+            System.out.println("Top graph " + topGraph.getEdges().size());
+            System.out.println("Left graph " + leftGraph.getEdges().size());
+            System.out.println("All edges " + edges.size());
+        }
+
+        final int chunk = 500;
+        List<Callable<Counts>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < edges.size(); i += chunk) {
+            final int from = i;
+            final int to = Math.min(i + chunk, edges.size());
+
+            tasks.add(new Callable<Counts>() {
+                @Override
+                public Counts call() {
+                    Counts counts = new Counts();
+
+                    for (int j = from; j < to; j++) {
+                        Edge edge = edges.get(j);
 
                         Node x = edge.getNode1();
                         Node y = edge.getNode2();
@@ -3836,49 +3831,16 @@ public final class GraphUtils {
                     }
 
                     return counts;
-                } else {
-                    int mid = (to + from) / 2;
-                    CountTask left = new CountTask(chunk, from, mid, edges, leftGraph, topGraph, count);
-                    CountTask right = new CountTask(chunk, mid, to, edges, leftGraph, topGraph, count);
-
-                    left.fork();
-                    Counts rightAnswer = right.compute();
-                    Counts leftAnswer = left.join();
-
-                    leftAnswer.addAll(rightAnswer);
-                    return leftAnswer;
                 }
-            }
-
-            public Counts getCounts() {
-                return counts;
-            }
+            });
         }
 
-//        System.out.println("Forming edge union");
-//        topGraph = GraphUtils.replaceNodes(topGraph, leftGraph.getNodes());
-//        int[][] counts = new int[8][6];
-        Set<Edge> edgeSet = new HashSet<>();
-        edgeSet.addAll(topGraph.getEdges());
-        edgeSet.addAll(leftGraph.getEdges());
+        Counts counts = new Counts();
 
-//        System.out.println("Union formed");
-        if (print) {
-            System.out.println("Top graph " + topGraph.getEdges().size());
-            System.out.println("Left graph " + leftGraph.getEdges().size());
-            System.out.println("All edges " + edgeSet.size());
+        for (Counts _counts : ForkJoinPoolInstance.getInstance().invokeAll(tasks)) {
+            counts.addAll(_counts);
         }
 
-        List<Edge> edges = new ArrayList<>(edgeSet);
-
-//        System.out.println("Finding pool");
-        ForkJoinPoolInstance pool = ForkJoinPoolInstance.getInstance();
-
-//        System.out.println("Starting count task");
-        CountTask task = new CountTask(500, 0, edges.size(), edges, leftGraph, topGraph, new int[1]);
-        Counts counts = pool.getPool().invoke(task);
-
-//        System.out.println("Finishing count task");
         return counts.countArray();
     }
 
@@ -81,13 +81,7 @@ public class AdLeafTree {
             }
         });
 
-        if (baseCase == null) {
-            Vary vary = new Vary();
-            this.baseCase = new ArrayList<>();
-            baseCase.add(vary);
-        }
-
-        List<Vary> varies = baseCase;
+        List<Vary> varies = getBaseCase();
 
         for (DiscreteVariable v : A) {
             varies = getVaries(varies, nodesHash.get(v));
@@ -119,13 +113,7 @@ public class AdLeafTree {
             }
         });
 
-        if (baseCase == null) {
-            Vary vary = new Vary();
-            this.baseCase = new ArrayList<>();
-            baseCase.add(vary);
-        }
-
-        List<Vary> varies = baseCase;
+        List<Vary> varies = getBaseCase();
 
         for (DiscreteVariable v : A) {
             varies = getVaries(varies, nodesHash.get(v));
@@ -143,6 +131,17 @@ public class AdLeafTree {
         return rows;
     }
 
+    // The tree is grown as it is queried; growth is synchronized so that one tree may be queried from several threads.
+    private synchronized List<Vary> getBaseCase() {
+        if (baseCase == null) {
+            Vary vary = new Vary();
+            this.baseCase = new ArrayList<>();
+            baseCase.add(vary);
+        }
+
+        return baseCase;
+    }
+
     public void setColumn(DiscreteVariable var, int[] col) {
         discreteData[dataSet.getColumn(var)] = col;
     }
@@ -204,14 +203,18 @@ public class AdLeafTree {
         }
 
         public Vary getSubvary(int w, int cat) {
-            Vary vary = subVaries.get(cat).get(w);
+            Map<Integer, Vary> subVaries = this.subVaries.get(cat);
 
-            if (vary == null) {
-                vary = new Vary(w, dims[w], rows.get(cat), discreteData);
-                subVaries.get(cat).put(w, vary);
-            }
+            synchronized (subVaries) {
+                Vary vary = subVaries.get(w);
 
-            return vary;
+                if (vary == null) {
+                    vary = new Vary(w, dims[w], rows.get(cat), discreteData);
+                    subVaries.put(w, vary);
+                }
+
+                return vary;
+            }
         }
 
         public int getNumCategories() {
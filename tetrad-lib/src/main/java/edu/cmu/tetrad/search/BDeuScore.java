@@ -32,7 +32,7 @@ import java.util.List;
  */
 public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
     private List<Node> variables;
-    private int[][] data;
+    private ContingencyCounter counter;
     private int sampleSize;
 
     private double samplePrior = 1;
@@ -41,37 +41,21 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
     private int[] numCategories;
 
     public BDeuScore(DataSet dataSet) {
+        this(dataSet, false);
+    }
+
+    /**
+     * @param packed True if the data should be stored a byte per value for counting, which is faster for large
+     *               samples if every variable has at most 127 categories.
+     */
+    public BDeuScore(DataSet dataSet, boolean packed) {
         if (dataSet == null) {
             throw new NullPointerException("Data was not provided.");
         }
 
-        if (dataSet instanceof BoxDataSet) {
-            DataBox dataBox = ((BoxDataSet) dataSet).getDataBox();
-
-            this.variables = dataSet.getVariables();
-
-            if (!(dataBox instanceof VerticalIntDataBox)) {
-                dataBox = new VerticalIntDataBox(dataBox);
-            }
-
-            VerticalIntDataBox box = (VerticalIntDataBox) dataBox;
-
-            data = box.getVariableVectors();
-            this.sampleSize = dataSet.getNumRows();
-        } else {
-            data = new int[dataSet.getNumColumns()][];
-            this.variables = dataSet.getVariables();
-
-            for (int j = 0; j < dataSet.getNumColumns(); j++) {
-                data[j] = new int[dataSet.getNumRows()];
-
-                for (int i = 0; i < dataSet.getNumRows(); i++) {
-                    data[j][i] = dataSet.getInt(i, j);
-                }
-            }
-
-            this.sampleSize = dataSet.getNumRows();
-        }
+        this.variables = dataSet.getVariables();
+        this.counter = new ContingencyCounter(dataSet, packed);
+        this.sampleSize = dataSet.getNumRows();
 
         final List<Node> variables = dataSet.getVariables();
         numCategories = new int[variables.size()];
@@ -90,54 +74,15 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         // Number of categories for node.
         int c = numCategories[node];
 
-        // Numbers of categories of parents.
-        int[] dims = new int[parents.length];
-
-        for (int p = 0; p < parents.length; p++) {
-            dims[p] = numCategories[parents[p]];
-        }
-
         // Number of parent states.
         int r = 1;
 
         for (int p = 0; p < parents.length; p++) {
-            r *= dims[p];
-        }
-
-        // Conditional cell coefs of data for node given parents(node).
-        int n_jk[][] = new int[r][c];
-        int n_j[] = new int[r];
-
-        int[] parentValues = new int[parents.length];
-
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
+            r *= numCategories[parents[p]];
         }
 
-        int[] myChild = data[node];
-
-
-        ROW:
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                if (myParents[p][i] == -99) continue ROW;
-                parentValues[p] = myParents[p][i];
-            }
-
-            int childValue = myChild[i];
-
-            if (childValue == -99) {
-                continue ROW;
-//                throw new IllegalStateException("Please remove or impute missing " +
-//                        "values (record " + i + " column " + i + ")");
-            }
-
-            int rowIndex = getRowIndex(dims, parentValues);
-
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
-        }
+        // Conditional cell coefs of data for node given parents(node), indexed by parent state * c + node value.
+        int[] n_jk = counter.count(append(parents, node));
 
         //Finally, compute the score
         double score = 0.0;
@@ -148,10 +93,16 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         final double rowPrior = getSamplePrior() / r;
 
         for (int j = 0; j < r; j++) {
-            score -= Gamma.logGamma(rowPrior + n_j[j]);
+            int n_j = 0;
 
             for (int k = 0; k < c; k++) {
-                score += Gamma.logGamma(cellPrior + n_jk[j][k]);
+                n_j += n_jk[j * c + k];
+            }
+
+            score -= Gamma.logGamma(rowPrior + n_j);
+
+            for (int k = 0; k < c; k++) {
+                score += Gamma.logGamma(cellPrior + n_jk[j * c + k]);
             }
         }
 
@@ -163,7 +114,7 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
 
     private double getPriorForStructure(int numParents) {
         double e = getStructurePrior();
-        int vm = data.length - 1;
+        int vm = variables.size() - 1;
         return numParents * Math.log(e / (vm)) + (vm - numParents) * Math.log(1.0 - (e / (vm)));
     }
 
@@ -215,15 +166,6 @@ public class BDeuScore implements LocalDiscreteScore, IBDeuScore, Score {
         throw new UnsupportedOperationException();
     }
 
-    private static int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
     @Override
     public double getStructurePrior() {
         return structurePrior;
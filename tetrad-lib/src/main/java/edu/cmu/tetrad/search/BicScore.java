@@ -33,7 +33,7 @@ import static edu.cmu.tetrad.search.XdslXmlConstants.ROW;
  */
 public class BicScore implements LocalDiscreteScore, IBDeuScore {
     private List<Node> variables;
-    private int[][] data;
+    private ContingencyCounter counter;
     private int sampleSize;
 
     private double penaltyDiscount = 1;
@@ -41,38 +41,28 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
     private int[] numCategories;
 
     public BicScore(DataSet dataSet) {
+        this(dataSet, false);
+    }
+
+    /**
+     * @param packed True if the data should be stored a byte per value for counting, which is faster for large
+     *               samples if every variable has at most 127 categories.
+     */
+    public BicScore(DataSet dataSet, boolean packed) {
         if (dataSet == null) {
             throw new NullPointerException();
         }
 
         if (dataSet instanceof BoxDataSet) {
-            DataBox dataBox = ((BoxDataSet) dataSet).getDataBox();
-
-            this.variables = dataSet.getVariables();
-
             if (!(((BoxDataSet) dataSet).getDataBox() instanceof VerticalIntDataBox)) {
                 throw new IllegalArgumentException();
             }
-
-            VerticalIntDataBox box = (VerticalIntDataBox) dataBox;
-
-            data = box.getVariableVectors();
-            this.sampleSize = dataSet.getNumRows();
-        } else {
-            data = new int[dataSet.getNumColumns()][];
-            this.variables = dataSet.getVariables();
-
-            for (int j = 0; j < dataSet.getNumColumns(); j++) {
-                data[j] = new int[dataSet.getNumRows()];
-
-                for (int i = 0; i < dataSet.getNumRows(); i++) {
-                    data[j][i] = dataSet.getInt(i, j);
-                }
-            }
-
-            this.sampleSize = dataSet.getNumRows();
         }
 
+        this.variables = dataSet.getVariables();
+        this.counter = new ContingencyCounter(dataSet, packed);
+        this.sampleSize = dataSet.getNumRows();
+
         final List<Node> variables = dataSet.getVariables();
         numCategories = new int[variables.size()];
         for (int i = 0; i < variables.size(); i++) {
@@ -108,61 +98,28 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
         // Number of categories for node.
         int c = numCategories[node];
 
-        // Numbers of categories of parents.
-        int[] dims = new int[parents.length];
-
-        for (int p = 0; p < parents.length; p++) {
-            dims[p] = numCategories[parents[p]];
-        }
-
         // Number of parent states.
         int r = 1;
 
         for (int p = 0; p < parents.length; p++) {
-            r *= dims[p];
+            r *= numCategories[parents[p]];
         }
 
-        // Conditional cell coefs of data for node given parents(node).
-        int n_jk[][] = new int[r][c];
-        int n_j[] = new int[r];
-
-        int[] parentValues = new int[parents.length];
-
-        int[][] myParents = new int[parents.length][];
-        for (int i = 0; i < parents.length; i++) {
-            myParents[i] = data[parents[i]];
-        }
-
-        int[] myChild = data[node];
-
-        ROW:
-        for (int i = 0; i < sampleSize; i++) {
-            for (int p = 0; p < parents.length; p++) {
-                if (myParents[p][i] == -99) continue ROW;
-                parentValues[p] = myParents[p][i];
-            }
-
-            int childValue = myChild[i];
-
-            if (childValue == -99) {
-                continue ROW;
-//                throw new IllegalStateException("Please remove or impute missing " +
-//                        "values (record " + i + " column " + i + ")");
-            }
-
-            int rowIndex = getRowIndex(dims, parentValues);
-
-            n_jk[rowIndex][childValue]++;
-            n_j[rowIndex]++;
-        }
+        // Conditional cell coefs of data for node given parents(node), indexed by parent state * c + node value.
+        int[] n_jk = counter.count(append(parents, node));
 
         //Finally, compute the score
         double lik = 0.0;
 
         for (int rowIndex = 0; rowIndex < r; rowIndex++) {
+            int rowCount = 0;
+
             for (int childValue = 0; childValue < c; childValue++) {
-                int cellCount = n_jk[rowIndex][childValue];
-                int rowCount = n_j[rowIndex];
+                rowCount += n_jk[rowIndex * c + childValue];
+            }
+
+            for (int childValue = 0; childValue < c; childValue++) {
+                int cellCount = n_jk[rowIndex * c + childValue];
 
                 if (cellCount == 0) continue;
                 lik += cellCount * Math.log(cellCount / (double) rowCount);
@@ -177,7 +134,7 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
 
     private double getPriorForStructure(int numParents) {
         double e = getStructurePrior();
-        int vm = data.length - 1;
+        int vm = variables.size() - 1;
         return numParents * Math.log(e / (vm)) + (vm - numParents) * Math.log(1.0 - (e / (vm)));
     }
 
@@ -229,15 +186,6 @@ public class BicScore implements LocalDiscreteScore, IBDeuScore {
         throw new UnsupportedOperationException();
     }
 
-    private static int getRowIndex(int[] dim, int[] values) {
-        int rowIndex = 0;
-        for (int i = 0; i < dim.length; i++) {
-            rowIndex *= dim[i];
-            rowIndex += values[i];
-        }
-        return rowIndex;
-    }
-
     @Override
     public double getStructurePrior() {
         throw new UnsupportedOperationException();
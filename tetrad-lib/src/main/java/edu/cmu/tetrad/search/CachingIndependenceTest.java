@@ -0,0 +1,270 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.DataModel;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.util.TetradMatrix;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps an independence test so that the results of independence questions are looked up in an
+ * IndependenceResultCache before being computed. Since x _||_ y | z is the same question as
+ * y _||_ x | z, and the order of z does not matter, a search that asks the same question in
+ * several phases--the adjacency search, then a sepset rule such as max p or conservative
+ * collider orientation, then possible-D-sep--computes it only once, so long as every phase is
+ * given this wrapper. Changing alpha clears the cache.
+ * <p>
+ * A question asked through isIndependent that is not in the cache is passed to the wrapped
+ * test's isIndependent, so the wrapped test still logs it and records it as a fact, and its
+ * p value and score are read from the wrapped test right afterwards and cached with the
+ * result; those calls are synchronized on the wrapped test, since they change its state. A
+ * question asked through checkIndependence that is not in the cache is passed to the wrapped
+ * test's checkIndependence, so one wrapper may be shared by several threads if the wrapped test
+ * may; since that leaves the wrapped test's score unknown, the question is asked again through
+ * the wrapped test's isIndependent the first time it is asked of this wrapper's isIndependent.
+ * <p>
+ * getPValue() and getScore() refer to the most recent call of isIndependent on this wrapper,
+ * whether or not it was answered from the cache, and are the values the wrapped test gave for
+ * that question, so scores are in the wrapped test's own convention.
+ *
+ * @author Joseph Ramsey
+ */
+public class CachingIndependenceTest implements IndependenceTest {
+
+    private final IndependenceTest test;
+    private final IndependenceResultCache cache;
+    private final Map<Node, Integer> indices = new HashMap<>();
+    private volatile IndependenceResult lastResult = null;
+
+    /**
+     * Wraps the given test with a cache of the default capacity.
+     */
+    public CachingIndependenceTest(IndependenceTest test) {
+        this(test, new IndependenceResultCache());
+    }
+
+    /**
+     * Wraps the given test with the given cache, which should not be shared with other tests.
+     */
+    public CachingIndependenceTest(IndependenceTest test, IndependenceResultCache cache) {
+        if (test == null) throw new NullPointerException("Test not provided.");
+        if (cache == null) throw new NullPointerException("Cache not provided.");
+        this.test = test;
+        this.cache = cache;
+
+        List<Node> variables = test.getVariables();
+
+        for (int i = 0; i < variables.size(); i++) {
+            indices.put(variables.get(i), i);
+        }
+    }
+
+    @Override
+    public IndependenceTest indTestSubset(List<Node> vars) {
+        return new CachingIndependenceTest(test.indTestSubset(vars), new IndependenceResultCache(cache.getCapacity()));
+    }
+
+    @Override
+    public boolean isIndependent(Node x, Node y, List<Node> z) {
+        int[] _z = indices(z);
+        Integer _x = indices.get(x);
+        Integer _y = indices.get(y);
+        IndependenceResult result = null;
+
+        if (_z != null && _x != null && _y != null) {
+            result = cache.get(_x, _y, _z);
+        }
+
+        if (result == null || Double.isNaN(result.getScore())) {
+            synchronized (test) {
+                boolean independent = test.isIndependent(x, y, z);
+                result = new IndependenceResult(independent, test.getPValue(), Double.NaN, Double.NaN,
+                        test.getScore());
+            }
+
+            if (_z != null && _x != null && _y != null) {
+                cache.put(_x, _y, _z, result);
+            }
+        }
+
+        lastResult = result;
+        return result.isIndependent();
+    }
+
+    @Override
+    public boolean isIndependent(Node x, Node y, Node... z) {
+        return isIndependent(x, y, Arrays.asList(z));
+    }
+
+    @Override
+    public boolean isDependent(Node x, Node y, List<Node> z) {
+        return !isIndependent(x, y, z);
+    }
+
+    @Override
+    public boolean isDependent(Node x, Node y, Node... z) {
+        return !isIndependent(x, y, z);
+    }
+
+    /**
+     * Returns the cached result of x _||_ y | z if there is one, otherwise the result of the wrapped
+     * test, which is then cached. Questions about variables the wrapped test does not list are
+     * passed through uncached.
+     */
+    @Override
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        Integer _x = indices.get(x);
+        Integer _y = indices.get(y);
+        int[] _z = indices(z);
+
+        if (_z == null || _x == null || _y == null) {
+            return test.checkIndependence(x, y, z);
+        }
+
+        IndependenceResult result = cache.get(_x, _y, _z);
+
+        if (result == null) {
+            result = test.checkIndependence(x, y, z);
+            cache.put(_x, _y, _z, result);
+        }
+
+        return result;
+    }
+
+    @Override
+    public double getPValue() {
+        IndependenceResult result = lastResult;
+        return result == null ? test.getPValue() : result.getPValue();
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return test.getVariables();
+    }
+
+    @Override
+    public Node getVariable(String name) {
+        return test.getVariable(name);
+    }
+
+    @Override
+    public List<String> getVariableNames() {
+        return test.getVariableNames();
+    }
+
+    @Override
+    public boolean determines(List<Node> z, Node y) {
+        return test.determines(z, y);
+    }
+
+    @Override
+    public double getAlpha() {
+        return test.getAlpha();
+    }
+
+    @Override
+    public void setAlpha(double alpha) {
+        test.setAlpha(alpha);
+        cache.clear();
+    }
+
+    @Override
+    public DataModel getData() {
+        return test.getData();
+    }
+
+    @Override
+    public ICovarianceMatrix getCov() {
+        return test.getCov();
+    }
+
+    @Override
+    public List<DataSet> getDataSets() {
+        return test.getDataSets();
+    }
+
+    @Override
+    public int getSampleSize() {
+        return test.getSampleSize();
+    }
+
+    @Override
+    public List<TetradMatrix> getCovMatrices() {
+        return test.getCovMatrices();
+    }
+
+    @Override
+    public double getScore() {
+        IndependenceResult result = lastResult;
+        return result == null ? test.getScore() : result.getScore();
+    }
+
+    @Override
+    public void setVerbose(boolean verbose) {
+        test.setVerbose(verbose);
+    }
+
+    @Override
+    public boolean isVerbose() {
+        return test.isVerbose();
+    }
+
+    /**
+     * The wrapped test.
+     */
+    public IndependenceTest getTest() {
+        return test;
+    }
+
+    /**
+     * The cache, from which hit, miss and eviction counts may be read.
+     */
+    public IndependenceResultCache getCache() {
+        return cache;
+    }
+
+    public String toString() {
+        return test.toString();
+    }
+
+    //=============================PRIVATE METHODS=========================//
+
+    // The indices of the given variables, or null if the wrapped test does not list one of them.
+    private int[] indices(List<Node> z) {
+        int[] _z = new int[z.size()];
+
+        for (int i = 0; i < z.size(); i++) {
+            Integer index = indices.get(z.get(i));
+            if (index == null) return null;
+            _z[i] = index;
+        }
+
+        return _z;
+    }
+}
@@ -0,0 +1,166 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.Node;
+
+import java.util.List;
+
+/**
+ * Wraps a score so that local scores and local score differences are looked up in a
+ * LocalScoreCache before being computed. Score differences are cached separately from
+ * local scores, since for some scores (e.g. SemBicScore) the difference is not computed
+ * as a difference of local scores. NaN values are not distinguished from missing entries
+ * and so are recomputed.
+ *
+ * @author Joseph Ramsey
+ */
+public class CachingScore implements Score {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Score score;
+    private final LocalScoreCache cache;
+
+    /**
+     * Wraps the given score with a cache of the default capacity.
+     */
+    public CachingScore(Score score) {
+        this(score, new LocalScoreCache());
+    }
+
+    /**
+     * Wraps the given score with the given cache, which should not be shared with other
+     * scores.
+     */
+    public CachingScore(Score score, LocalScoreCache cache) {
+        if (score == null) throw new NullPointerException("Score not provided.");
+        if (cache == null) throw new NullPointerException("Cache not provided.");
+        this.score = score;
+        this.cache = cache;
+    }
+
+    @Override
+    public double localScore(int node, int... parents) {
+        double s = cache.get(node, parents);
+
+        if (Double.isNaN(s)) {
+            s = score.localScore(node, parents);
+            cache.add(node, parents, s);
+        }
+
+        return s;
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y, int[] z) {
+        double d = cache.getDiff(x, y, z);
+
+        if (Double.isNaN(d)) {
+            d = score.localScoreDiff(x, y, z);
+            cache.addDiff(x, y, z, d);
+        }
+
+        return d;
+    }
+
+    @Override
+    public double localScoreDiff(int x, int y) {
+        double d = cache.getDiff(x, y, EMPTY);
+
+        if (Double.isNaN(d)) {
+            d = score.localScoreDiff(x, y);
+            cache.addDiff(x, y, EMPTY, d);
+        }
+
+        return d;
+    }
+
+    @Override
+    public double localScore(int node, int parent) {
+        int[] parents = {parent};
+        double s = cache.get(node, parents);
+
+        if (Double.isNaN(s)) {
+            s = score.localScore(node, parent);
+            cache.add(node, parents, s);
+        }
+
+        return s;
+    }
+
+    @Override
+    public double localScore(int node) {
+        double s = cache.get(node, EMPTY);
+
+        if (Double.isNaN(s)) {
+            s = score.localScore(node);
+            cache.add(node, EMPTY, s);
+        }
+
+        return s;
+    }
+
+    @Override
+    public List<Node> getVariables() {
+        return score.getVariables();
+    }
+
+    @Override
+    public boolean isEffectEdge(double bump) {
+        return score.isEffectEdge(bump);
+    }
+
+    @Override
+    public int getSampleSize() {
+        return score.getSampleSize();
+    }
+
+    @Override
+    public Node getVariable(String targetName) {
+        return score.getVariable(targetName);
+    }
+
+    @Override
+    public int getMaxDegree() {
+        return score.getMaxDegree();
+    }
+
+    @Override
+    public boolean determines(List<Node> z, Node y) {
+        return score.determines(z, y);
+    }
+
+    /**
+     * The wrapped score.
+     */
+    public Score getScore() {
+        return score;
+    }
+
+    /**
+     * The cache, from which hit, miss and eviction counts may be read.
+     */
+    public LocalScoreCache getCache() {
+        return cache;
+    }
+}
@@ -22,6 +22,7 @@
 package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.CellTable;
+import edu.cmu.tetrad.data.ContingencyCounter;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.util.CombinationIterator;
@@ -50,9 +51,9 @@ public class ChiSquareTest {
     private int[] dims;
 
     /**
-     * Stores the data in the form of a cell table.
+     * Counts the data into the cell table.
      */
-    private CellTable cellTable;
+    private ContingencyCounter counter;
 
     /**
      * The significance level of the test.
@@ -83,8 +84,7 @@ public class ChiSquareTest {
 
         this.dataSet = dataSet;
         this.alpha = alpha;
-        this.cellTable = new CellTable(null);
-        this.getCellTable().setMissingValue(DiscreteVariable.MISSING_VALUE);
+        this.counter = new ContingencyCounter(dataSet);
     }
 
     /**
@@ -92,11 +92,11 @@ public class ChiSquareTest {
      * by summing up chi square and degrees of freedom for each conditional table in turn, where rows or columns that
      * consist entirely of zeros have been removed.
      */
-    public synchronized ChiSquareTest.Result calcChiSquare(int[] testIndices) {
+    public ChiSquareTest.Result calcChiSquare(int[] testIndices) {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
+        CellTable cellTable = newCellTable(testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
@@ -114,8 +114,8 @@ public class ChiSquareTest {
                 condDims.length);
 
         int[] coords = new int[testIndices.length];
-        int numRows = this.getCellTable().getNumValues(0);
-        int numCols = this.getCellTable().getNumValues(1);
+        int numRows = cellTable.getNumValues(0);
+        int numCols = cellTable.getNumValues(1);
 
         boolean[] attestedRows = new boolean[numRows];
         boolean[] attestedCols = new boolean[numCols];
@@ -142,9 +142,9 @@ public class ChiSquareTest {
                     coords[0] = i;
                     coords[1] = j;
 
-                    long sumRow = this.getCellTable().calcMargin(coords, secondVar);
-                    long sumCol = this.getCellTable().calcMargin(coords, firstVar);
-                    long observed = (int) this.getCellTable().getValue(coords);
+                    long sumRow = cellTable.calcMargin(coords, secondVar);
+                    long sumCol = cellTable.calcMargin(coords, firstVar);
+                    long observed = (int) cellTable.getValue(coords);
 
                     boolean skip = false;
 
@@ -223,7 +223,7 @@ public class ChiSquareTest {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        this.getCellTable().addToTable(getDataSet(), testIndices);
+        CellTable cellTable = newCellTable(testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
@@ -236,7 +236,7 @@ public class ChiSquareTest {
                 condDims.length);
 
         int[] coords = new int[testIndices.length];
-        int numValues = this.getCellTable().getNumValues(0);
+        int numValues = cellTable.getNumValues(0);
 
         CombinationIterator combinationIterator =
                 new CombinationIterator(condDims);
@@ -245,7 +245,7 @@ public class ChiSquareTest {
             int[] combination = (int[]) combinationIterator.next();
             System.arraycopy(combination, 0, coords, 1, combination.length);
 
-            long total = this.getCellTable().calcMargin(coords, firstVar);
+            long total = cellTable.calcMargin(coords, firstVar);
 
             if (total == 0) {
                 continue;
@@ -256,7 +256,7 @@ public class ChiSquareTest {
             for (int i = 0; i < numValues; i++) {
                 coords[0] = i;
 
-                long numi = this.getCellTable().getValue(coords);
+                long numi = cellTable.getValue(coords);
 
                 if ((double) numi / total >= p) {
                     dominates = true;
@@ -389,10 +389,21 @@ public class ChiSquareTest {
         return dims;
     }
 
-    public CellTable getCellTable() {
+    /**
+     * @return a new cell table holding the counts of the given columns of the data. Each test counts into its own
+     * table, so that tests may be run concurrently.
+     */
+    public CellTable newCellTable(int[] testIndices) {
+        CellTable cellTable = new CellTable(null);
+        cellTable.setMissingValue(DiscreteVariable.MISSING_VALUE);
+        cellTable.addToTable(getCounter(), testIndices);
         return cellTable;
     }
 
+    public ContingencyCounter getCounter() {
+        return counter;
+    }
+
     //===============================CLASSES==============================//
 
     /**
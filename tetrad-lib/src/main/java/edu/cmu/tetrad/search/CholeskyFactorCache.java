@@ -0,0 +1,291 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps Cholesky factors of the covariance submatrices of recently used sets of variables.
+ * A factor for a set that differs by one variable from a set already factored is obtained
+ * by a rank-one insertion (appending a row) or deletion (removing a row and restoring
+ * triangularity with Givens rotations), either of which is O(k^2) for a set of size k,
+ * rather than by factoring or inverting the submatrix from scratch, which is O(k^3).
+ * <p>
+ * Factors are kept in an access-ordered map of bounded size. Instances are not thread
+ * safe; a score used from several threads should keep one instance per thread.
+ *
+ * @author Joseph Ramsey
+ */
+final class CholeskyFactorCache {
+
+    // Pivots smaller than this times the variance of the variable being appended are taken
+    // to indicate a singular submatrix.
+    private static final double SINGULARITY_TOLERANCE = 1e-10;
+
+    private final ICovarianceMatrix cov;
+    private final Map<Key, Factor> factors;
+
+    // The most recently returned factor, which is checked for deletions.
+    private Factor last = null;
+
+    CholeskyFactorCache(ICovarianceMatrix cov, final int maxSize) {
+        this.cov = cov;
+        this.factors = new LinkedHashMap<Key, Factor>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Factor> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the Cholesky factor of the covariance submatrix of the given variables, or null
+     * if that submatrix is (numerically) singular.
+     */
+    Factor factor(int[] set) {
+        int[] sorted = Arrays.copyOf(set, set.length);
+        Arrays.sort(sorted);
+        Key key = new Key(sorted);
+
+        Factor factor = factors.get(key);
+
+        if (factor == null) {
+            factor = derive(sorted);
+            if (factor == null) return null;
+            factors.put(key, factor);
+        }
+
+        last = factor;
+        return factor;
+    }
+
+    /**
+     * Returns the residual variance of y regressed on the variables of the given factor.
+     */
+    double residualVariance(int y, Factor factor) {
+        double[] w = factor.solve(y);
+        return cov.getValue(y, y) - dot(w, w);
+    }
+
+    /**
+     * Returns the partial correlation of x and y given the variables of the given factor.
+     */
+    double partialCorrelation(int x, int y, Factor factor) {
+        double[] wx = factor.solve(x);
+        double[] wy = factor.solve(y);
+
+        double sxy = cov.getValue(x, y) - dot(wx, wy);
+        double sxx = cov.getValue(x, x) - dot(wx, wx);
+        double syy = cov.getValue(y, y) - dot(wy, wy);
+
+        return sxy / Math.sqrt(sxx * syy);
+    }
+
+    void clear() {
+        factors.clear();
+        last = null;
+    }
+
+    //=============================PRIVATE METHODS=========================//
+
+    // Finds a factor for the given (sorted) set from one that differs by a single variable,
+    // falling back to factoring from scratch.
+    private Factor derive(int[] sorted) {
+        if (last != null && last.vars.length == sorted.length + 1 && containsAll(last.vars, sorted)) {
+            for (int j = 0; j < last.vars.length; j++) {
+                if (Arrays.binarySearch(sorted, last.vars[j]) < 0) {
+                    return delete(last, j);
+                }
+            }
+        }
+
+        if (sorted.length > 0) {
+            for (int j = 0; j < sorted.length; j++) {
+                Factor smaller = factors.get(new Key(without(sorted, j)));
+
+                if (smaller != null) {
+                    return insert(smaller, sorted[j]);
+                }
+            }
+        }
+
+        Factor factor = new Factor(new int[0], new double[0]);
+
+        for (int v : sorted) {
+            factor = insert(factor, v);
+            if (factor == null) return null;
+        }
+
+        return factor;
+    }
+
+    // Appends variable v to the factor: solves L l = cov(vars, v) for the new row l and sets
+    // the new pivot to sqrt(var(v) - l'l).
+    private Factor insert(Factor factor, int v) {
+        int k = factor.vars.length;
+        double[] row = factor.solve(v);
+        double d2 = cov.getValue(v, v) - dot(row, row);
+
+        if (!(d2 > SINGULARITY_TOLERANCE * cov.getValue(v, v))) {
+            return null;
+        }
+
+        int[] vars = Arrays.copyOf(factor.vars, k + 1);
+        vars[k] = v;
+
+        double[] l = Arrays.copyOf(factor.l, (k + 1) * (k + 2) / 2);
+        int start = k * (k + 1) / 2;
+        System.arraycopy(row, 0, l, start, k);
+        l[start + k] = Math.sqrt(d2);
+
+        return new Factor(vars, l);
+    }
+
+    // Removes the j'th variable of the factor. Dropping row j of L leaves a matrix whose rows
+    // below j have one entry above the diagonal; Givens rotations on adjacent columns zero
+    // those entries without changing L L'.
+    private Factor delete(Factor factor, int j) {
+        int k = factor.vars.length;
+        double[][] a = new double[k - 1][];
+
+        for (int i = 0, r = 0; i < k; i++) {
+            if (i == j) continue;
+            a[r++] = Arrays.copyOfRange(factor.l, i * (i + 1) / 2, i * (i + 1) / 2 + i + 1);
+        }
+
+        for (int i = j; i < k - 1; i++) {
+            double p = a[i][i];
+            double q = a[i][i + 1];
+            double h = Math.hypot(p, q);
+            double c = p / h;
+            double s = q / h;
+
+            for (int r = i; r < k - 1; r++) {
+                double u = a[r][i];
+                double w = a[r][i + 1];
+                a[r][i] = c * u + s * w;
+                a[r][i + 1] = -s * u + c * w;
+            }
+        }
+
+        int[] vars = new int[k - 1];
+        double[] l = new double[(k - 1) * k / 2];
+
+        for (int i = 0, r = 0; i < k; i++) {
+            if (i == j) continue;
+            vars[r++] = factor.vars[i];
+        }
+
+        for (int r = 0; r < k - 1; r++) {
+            System.arraycopy(a[r], 0, l, r * (r + 1) / 2, r + 1);
+        }
+
+        return new Factor(vars, l);
+    }
+
+    private static boolean containsAll(int[] vars, int[] sorted) {
+        for (int v : sorted) {
+            boolean found = false;
+
+            for (int u : vars) {
+                if (u == v) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) return false;
+        }
+
+        return true;
+    }
+
+    private static int[] without(int[] array, int j) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, j);
+        System.arraycopy(array, j + 1, result, j, array.length - j - 1);
+        return result;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    /**
+     * A lower triangular Cholesky factor L of the covariance submatrix of vars (in the order
+     * given), stored packed by rows.
+     */
+    final class Factor {
+        private final int[] vars;
+        private final double[] l;
+
+        private Factor(int[] vars, double[] l) {
+            this.vars = vars;
+            this.l = l;
+        }
+
+        // Solves L w = cov(vars, v) by forward substitution.
+        private double[] solve(int v) {
+            int k = vars.length;
+            double[] w = new double[k];
+
+            for (int i = 0; i < k; i++) {
+                int start = i * (i + 1) / 2;
+                double sum = cov.getValue(vars[i], v);
+
+                for (int m = 0; m < i; m++) {
+                    sum -= l[start + m] * w[m];
+                }
+
+                w[i] = sum / l[start + i];
+            }
+
+            return w;
+        }
+    }
+
+    private static final class Key {
+        private final int[] sorted;
+        private final int hash;
+
+        private Key(int[] sorted) {
+            this.sorted = sorted;
+            this.hash = Arrays.hashCode(sorted);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(sorted, ((Key) o).sorted);
+        }
+    }
+}
@@ -21,41 +21,69 @@
 
 package edu.cmu.tetrad.search;
 
+import edu.cmu.tetrad.graph.AncestralIndex;
 import edu.cmu.tetrad.graph.EdgeListGraphSingleConnections;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.NodeType;
 
 import java.util.List;
 
 /**
  * Determines sepsets, collider, and noncolliders by examining d-separation facts in
- * a DAG.
+ * a DAG. If the graph is a DAG, an ancestral index of it is used to check d-separation,
+ * to rule out sepsets for pairs joined by inducing paths, and to decide unshielded
+ * triples of measured nodes in the MAG without finding a sepset: the middle node of such
+ * a triple is in every sepset of the endpoints or in none, according to whether it is an
+ * ancestor of one of them. Otherwise (e.g. for a MAG) the graph is searched directly.
  *
  * @author Joseph Ramsey
  */
 public class DagSepsets implements SepsetProducer {
     private EdgeListGraphSingleConnections dag;
+    private AncestralIndex index;
     private boolean verbose = false;
 
     public DagSepsets(Graph dag) {
+        this(dag, indexOf(dag));
+    }
+
+    /**
+     * Uses the given index of the DAG, which may be null, so that it can be shared with other users of the DAG.
+     */
+    public DagSepsets(Graph dag, AncestralIndex index) {
         this.dag = new EdgeListGraphSingleConnections(dag);
+        this.dag.setAncestryCached(true);
+        this.index = index;
     }
 
     @Override
     public List<Node> getSepset(Node a, Node b) {
+        if (index != null && index.existsInducingPath(a, b)) {
+            return null;
+        }
+
         return dag.getSepset(a, b);
     }
 
     @Override
     public boolean isCollider(Node i, Node j, Node k) {
-        List<Node> sepset = dag.getSepset(i, k);
+        if (isUnshieldedInMag(i, j, k)) {
+            return !index.isAncestorOf(j, i) && !index.isAncestorOf(j, k);
+        }
+
+        List<Node> sepset = getSepset(i, k);
         return sepset != null && !sepset.contains(j);
     }
 
     @Override
     public boolean isNoncollider(Node i, Node j, Node k) {
 //        return true;
-        List<Node> sepset = dag.getSepset(i, k);
+        if (isUnshieldedInMag(i, j, k)) {
+            return index.isAncestorOf(j, i) || index.isAncestorOf(j, k);
+        }
+
+        List<Node> sepset = getSepset(i, k);
         return sepset != null && sepset.contains(j);
     }
 
@@ -71,6 +99,10 @@ public class DagSepsets implements SepsetProducer {
 
     @Override
     public boolean isIndependent(Node a, Node b, List<Node> c) {
+        if (index != null) {
+            return !index.isDConnectedTo(a, b, c);
+        }
+
         return dag.isDSeparatedFrom(a, b, c);
     }
 
@@ -91,5 +123,27 @@ public class DagSepsets implements SepsetProducer {
     public Graph getDag() {
         return dag;
     }
+
+    /**
+     * @return The ancestral index of the DAG, or null if the graph is not a DAG.
+     */
+    public AncestralIndex getAncestralIndex() {
+        return index;
+    }
+
+    private boolean isUnshieldedInMag(Node i, Node j, Node k) {
+        if (index == null || i == k) return false;
+
+        if (i.getNodeType() != NodeType.MEASURED || j.getNodeType() != NodeType.MEASURED
+                || k.getNodeType() != NodeType.MEASURED) {
+            return false;
+        }
+
+        return index.existsInducingPath(i, j) && index.existsInducingPath(j, k) && !index.existsInducingPath(i, k);
+    }
+
+    private static AncestralIndex indexOf(Graph graph) {
+        return AncestralIndex.isIndexable(graph) ? new AncestralIndex(graph) : null;
+    }
 }
 
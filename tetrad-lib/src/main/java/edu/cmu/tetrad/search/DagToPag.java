@@ -48,6 +48,11 @@ public final class DagToPag {
     private final Graph dag;
 //    private final IndTestDSep dsep;
 
+    /*
+     * The ancestral index of the DAG, shared with the final orientation, or null if the graph is not a DAG.
+     */
+    private final AncestralIndex index;
+
     /*
      * The background knowledge.
      */
@@ -76,7 +81,17 @@ public final class DagToPag {
      * Constructs a new FCI search for the given independence test and background knowledge.
      */
     public DagToPag(Graph dag) {
-        this.dag = dag;
+        this(dag, true);
+    }
+
+    /**
+     * If not indexed, the DAG is searched directly, as it is when it can't be indexed, so that the two can be
+     * compared.
+     */
+    DagToPag(Graph dag, boolean indexed) {
+        this.dag = cachingAncestry(dag);
+        this.index = indexed && dag != null && AncestralIndex.isIndexable(this.dag)
+                ? new AncestralIndex(this.dag) : null;
     }
 
     //========================PUBLIC METHODS==========================//
@@ -102,7 +117,7 @@ public final class DagToPag {
             System.out.println("DAG to PAG_of_the_true_DAG: Starting final orientation");
         }
 
-        final FciOrient fciOrient = new FciOrient(new DagSepsets(dag));
+        final FciOrient fciOrient = new FciOrient(new DagSepsets(dag, index));
         fciOrient.setCompleteRuleSetUsed(completeRuleSetUsed);
         fciOrient.skipDiscriminatingPathRule(false);
         fciOrient.setChangeFlag(false);
@@ -126,6 +141,10 @@ public final class DagToPag {
             }
         }
 
+        if (index != null) {
+            return index.getInducingPathGraph(measured);
+        }
+
         Graph graph = new EdgeListGraphSingleConnections(measured);
 
         for (int i = 0; i < measured.size(); i++) {
@@ -269,7 +288,7 @@ public final class DagToPag {
 //
 //                    List<Node> anc = dag.getAncestors(d);
 
-                    if (!graph.isAdjacentTo(a, c) && !dag.isAncestorOf(b, a) && !dag.isAncestorOf(b, c)) {// !anc.contains(b)) {
+                    if (!graph.isAdjacentTo(a, c) && !isAncestorOf(b, a) && !isAncestorOf(b, c)) {// !anc.contains(b)) {
 
 //                        if (verbose) {
 //                            System.out.println("Orienting collider " + a + "*->" + b + "<-*" + c);
@@ -283,6 +302,25 @@ public final class DagToPag {
         }
     }
 
+    // The DAG is not changed here, so its ancestor sets can be cached for the many ancestry checks made while
+    // finding inducing paths and orienting colliders. A graph that already caches them is used as is; otherwise
+    // the DAG is copied into an EdgeListGraph that does.
+    private static Graph cachingAncestry(Graph dag) {
+        if (dag == null) return null;
+
+        if (dag instanceof EdgeListGraph && ((EdgeListGraph) dag).isAncestryCached()) {
+            return dag;
+        }
+
+        EdgeListGraph _dag = new EdgeListGraph(dag);
+        _dag.setAncestryCached(true);
+        return _dag;
+    }
+
+    private boolean isAncestorOf(Node a, Node b) {
+        return index != null ? index.isAncestorOf(a, b) : dag.isAncestorOf(a, b);
+    }
+
     private boolean foundCollider(Graph dag, Node a, Node b, Node c) {
         boolean ipba = existsInducingPathInto(b, a, dag);
         boolean ipbc = existsInducingPathInto(b, c, dag);
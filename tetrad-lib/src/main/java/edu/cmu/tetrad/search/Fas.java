@@ -124,6 +124,11 @@ public class Fas implements IFas {
     private PrintStream out = System.out;
     private boolean sepsetsReturnEmptyIfNotFixed;
 
+    /**
+     * True iff the graph returned should be a BitsetIndexedGraph.
+     */
+    private boolean useIndexedGraph = false;
+
     //==========================CONSTRUCTORS=============================//
 
     /**
@@ -186,7 +191,7 @@ public class Fas implements IFas {
             }
         }
 
-        graph = new EdgeListGraph(nodes);
+        graph = useIndexedGraph ? new BitsetIndexedGraph(nodes) : new EdgeListGraph(nodes);
 
         for (int i = 0; i < nodes.size(); i++) {
             for (int j = i + 1; j < nodes.size(); j++) {
@@ -499,6 +504,15 @@ public class Fas implements IFas {
         this.verbose = verbose;
     }
 
+    /**
+     * Sets whether the graph returned by search() is a BitsetIndexedGraph, so that the
+     * orientation steps run on it afterward (MeekRules, FciOrient) can look up adjacencies
+     * and edges by index rather than scanning edge lists.
+     */
+    public void setUseIndexedGraph(boolean useIndexedGraph) {
+        this.useIndexedGraph = useIndexedGraph;
+    }
+
     @Override
     public boolean isAggressivelyPreventCycles() {
         return false;
@@ -384,55 +384,72 @@ public class FasStable implements IFas {
             }
 
             List<Node> adjx = new ArrayList<>(adjacenciesCopy.get(x));
+            List<Node> ppx = possibleParents(x, adjx, knowledge);
 
-            EDGE:
-            for (Node y : adjx) {
-                List<Node> _adjx = new ArrayList<>(adjx);
-                _adjx.remove(y);
-                List<Node> ppx = possibleParents(x, _adjx, knowledge);
+            if (ppx.size() < depth) {
+                continue;
+            }
 
-                if (ppx.size() >= depth) {
-                    ChoiceGenerator cg = new ChoiceGenerator(ppx.size(), depth);
-                    int[] choice;
+            // Each conditioning set is tested against all of the remaining adjacents of x at once, so that
+            // tests that can share work across a conditioning set need only do that work once. For each y the
+            // conditioning sets are visited in the same order as choosing from ppx - {y} directly, so the
+            // sepsets found are the same.
+            Set<Node> separated = new HashSet<>();
+            ChoiceGenerator cg = new ChoiceGenerator(ppx.size(), depth);
+            int[] choice;
+
+            while ((choice = cg.next()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
 
-                    while ((choice = cg.next()) != null) {
-                        if (Thread.currentThread().isInterrupted()) {
-                            break;
-                        }
+                List<Node> condSet = GraphUtils.asList(choice, ppx);
+                List<Node> ys = new ArrayList<>();
 
-                        List<Node> condSet = GraphUtils.asList(choice, ppx);
+                for (Node y : adjx) {
+                    if (!separated.contains(y) && !condSet.contains(y)) {
+                        ys.add(y);
+                    }
+                }
 
-                        boolean independent;
+                if (ys.isEmpty()) {
+                    continue;
+                }
 
-                        try {
-                            numIndependenceTests++;
-                            independent = test.isIndependent(x, y, condSet);
-                        } catch (Exception e) {
-                            independent = false;
-                        }
+                boolean[] independent;
 
-                        if (independent) {
-                            numIndependenceJudgements++;
-                        } else {
-                            numDependenceJudgement++;
-                        }
+                try {
+                    numIndependenceTests += ys.size();
+                    independent = test.isIndependent(x, ys, condSet);
+                } catch (Exception e) {
+                    independent = new boolean[ys.size()];
+                }
+
+                for (int i = 0; i < ys.size(); i++) {
+                    Node y = ys.get(i);
 
-                        boolean noEdgeRequired =
-                                knowledge.noEdgeRequired(x.getName(), y.getName());
+                    if (independent[i]) {
+                        numIndependenceJudgements++;
+                    } else {
+                        numDependenceJudgement++;
+                    }
 
-                        if (independent && noEdgeRequired) {
-                            adjacencies.get(x).remove(y);
-                            adjacencies.get(y).remove(x);
+                    boolean noEdgeRequired =
+                            knowledge.noEdgeRequired(x.getName(), y.getName());
 
-                            getSepsets().set(x, y, condSet);
+                    if (independent[i] && noEdgeRequired) {
+                        adjacencies.get(x).remove(y);
+                        adjacencies.get(y).remove(x);
 
-                            if (verbose) {
-                                TetradLogger.getInstance().forceLogMessage(SearchLogUtils.independenceFact(x, y, condSet) + " p = " +
-                                        nf.format(test.getPValue()));
-                                out.println(SearchLogUtils.independenceFactMsg(x, y, condSet, test.getPValue()));
-                            }
+                        getSepsets().set(x, y, condSet);
+                        separated.add(y);
 
-                            continue EDGE;
+                        if (verbose) {
+                            // Asks again so that the p value logged is this pair's.
+                            test.isIndependent(x, y, condSet);
+                            TetradLogger.getInstance().forceLogMessage(SearchLogUtils.independenceFact(x, y, condSet) + " p = " +
+                                    nf.format(test.getPValue()));
+                            out.println(SearchLogUtils.independenceFactMsg(x, y, condSet, test.getPValue()));
                         }
                     }
                 }
@@ -298,16 +298,16 @@ public class FasStableConcurrentFdr implements IFas {
                                 }
                             }
 
+                            double pValue = 0.0;
+
                             try {
-                                test.isIndependent(x, y, empty);
+                                pValue = test.checkIndependence(x, y, empty).getPValue();
                             } catch (Exception e) {
                                 e.printStackTrace();
                             }
 
                             numIndependenceTests++;
 
-                            final double pValue = test.getPValue();
-
                             sorted.add(pValue);
                         }
                     }
@@ -365,8 +365,10 @@ public class FasStableConcurrentFdr implements IFas {
                                 }
                             }
 
+                            double pValue = 0.0;
+
                             try {
-                                test.isIndependent(x, y, empty);
+                                pValue = test.checkIndependence(x, y, empty).getPValue();
                             } catch (Exception e) {
                                 e.printStackTrace();
                             }
@@ -376,7 +378,7 @@ public class FasStableConcurrentFdr implements IFas {
                             boolean noEdgeRequired =
                                     knowledge.noEdgeRequired(x.getName(), y.getName());
 
-                            if (test.getPValue() > cutoff && noEdgeRequired) {
+                            if (pValue > cutoff && noEdgeRequired) {
                                 if (recordSepsets && !sepsets.isReturnEmptyIfNotSet()) {
                                     getSepsets().set(x, y, empty);
                                 }
@@ -386,7 +388,7 @@ public class FasStableConcurrentFdr implements IFas {
 
                                 if (verbose) {
                                     TetradLogger.getInstance().log("dependencies", SearchLogUtils.independenceFact(x, y, empty) + " p = " +
-                                            nf.format(test.getPValue()));
+                                            nf.format(pValue));
                                 }
                             }
                         }
@@ -518,20 +520,20 @@ public class FasStableConcurrentFdr implements IFas {
                                 while ((choice = cg.next()) != null) {
                                     List<Node> condSet = GraphUtils.asList(choice, ppx);
 
-                                    boolean independent;
+                                    IndependenceResult result;
 
                                     try {
                                         numIndependenceTests++;
-                                        independent = test.isIndependent(x, y, condSet);
+                                        result = test.checkIndependence(x, y, condSet);
                                     } catch (Exception e) {
-                                        independent = false;
+                                        result = null;
                                     }
 
                                     boolean noEdgeRequired =
                                             knowledge.noEdgeRequired(x.getName(), y.getName());
 
-                                    if (independent && noEdgeRequired) {
-                                        sorted.add(test.getPValue());
+                                    if (result != null && result.isIndependent() && noEdgeRequired) {
+                                        sorted.add(result.getPValue());
                                         continue EDGE;
                                     }
                                 }
@@ -600,9 +602,7 @@ public class FasStableConcurrentFdr implements IFas {
 
                                     try {
                                         numIndependenceTests++;
-                                        test.isIndependent(x, y, condSet);
-
-                                        if (test.getPValue() > cutoff) {
+                                        if (test.checkIndependence(x, y, condSet).getPValue() > cutoff) {
                                             adjacencies.get(x).remove(y);
                                             adjacencies.get(y).remove(x);
 
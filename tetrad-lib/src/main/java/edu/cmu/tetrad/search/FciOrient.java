@@ -23,6 +23,7 @@ package edu.cmu.tetrad.search;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.data.KnowledgeEdge;
+import edu.cmu.tetrad.graph.AncestralIndex;
 import edu.cmu.tetrad.graph.Endpoint;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
@@ -91,6 +92,7 @@ public final class FciOrient {
 
     private Graph truePag;
     private Graph dag;
+    private AncestralIndex index;
     private boolean skipDiscriminatingPathRule;
 
     //============================CONSTRUCTORS============================//
@@ -107,6 +109,7 @@ public final class FciOrient {
         } else if (sepsets instanceof DagSepsets) {
             DagSepsets _sepsets = (DagSepsets) sepsets;
             this.dag = _sepsets.getDag();
+            this.index = _sepsets.getAncestralIndex();
         }
     }
 
@@ -849,7 +852,7 @@ public final class FciOrient {
      */
     private boolean doDdpOrientation(Node d, Node a, Node b, Node c, Map<Node, Node> previous, Graph graph) {
         if (dag != null) {
-            if (dag.isAncestorOf(b, c)) {
+            if (index != null ? index.isAncestorOf(b, c) : dag.isAncestorOf(b, c)) {
                 graph.setEndpoint(c, b, Endpoint.TAIL);
                 changeFlag = true;
             } else {
@@ -26,11 +26,16 @@ import edu.cmu.tetrad.util.ChoiceGenerator;
 import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.TaskManager;
 import edu.cmu.tetrad.util.TetradLogger;
-import java.io.PrintStream;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * GesSearch is an implementation of the GES algorithm, as specified in
@@ -49,6 +54,11 @@ import java.util.concurrent.*;
  * explicitly turned on using setHeuristicSpeedup(true).
  * <p>
  * A number of other optimizations were added 5/2015. See code for details.
+ * <p>
+ * If a checkpoint file is set, the search state is written to it at the end of
+ * each phase and periodically within the forward and backward searches, and a
+ * search started with an existing checkpoint file resumes from it. See
+ * setCheckpointFile().
  *
  * @author Ricardo Silva, Summer 2003
  * @author Joseph Ramsey, Revisions 5/2015
@@ -62,6 +72,19 @@ public final class Fges implements GraphSearch, GraphScorer {
         allowUnfaithfulness, heuristicSpeedup, coverNoncolliders
     }
 
+    /**
+     * The steps of the search, in order. Checkpoints record the step to
+     * resume at.
+     */
+    private enum Phase {
+        initializeForward, forward, initializeBackward, backward,
+        initializeSecondForward, secondForward, initializeSecondBackward, secondBackward, done
+    }
+
+    // Identifies checkpoint files, and their format version.
+    private static final int CHECKPOINT_MAGIC = 0x46474553;
+    private static final int CHECKPOINT_VERSION = 1;
+
     /**
      * Specification of forbidden and required edges.
      */
@@ -179,8 +202,21 @@ public final class Fges implements GraphSearch, GraphScorer {
     // for each edge with the maximum score chosen.
     private boolean symmetricFirstStep = false;
 
+    // True if the graph should be built as a BitsetIndexedGraph, which answers adjacency and
+    // edge queries without scanning edge lists.
+    private boolean useIndexedGraph = false;
+
     final int maxThreads = 10 * ForkJoinPoolInstance.getInstance().getPool().getParallelism();
 
+    // If not null, search state is saved to this file, and resumed from it if it exists.
+    private File checkpointFile = null;
+
+    // Minimum time between checkpoints within the forward and backward searches, in milliseconds.
+    private long checkpointInterval = 10 * 60 * 1000;
+
+    // Time of the last checkpoint.
+    private long lastCheckpoint;
+
     //===========================CONSTRUCTORS=============================//
     /**
      * Construct a Score and pass it in here. The totalScore should return a
@@ -225,43 +261,67 @@ public final class Fges implements GraphSearch, GraphScorer {
 
         lookupArrows = new ConcurrentHashMap<>();
         final List<Node> nodes = new ArrayList<>(variables);
-        graph = new EdgeListGraphSingleConnections(nodes);
+        graph = useIndexedGraph ? new BitsetIndexedGraph(nodes) : new EdgeListGraphSingleConnections(nodes);
 
         if (adjacencies != null) {
             adjacencies = GraphUtils.replaceNodes(adjacencies, nodes);
         }
 
-        if (initialGraph != null) {
-            graph = new EdgeListGraphSingleConnections(initialGraph);
-            graph = GraphUtils.replaceNodes(graph, nodes);
-        }
+        Phase phase = Phase.initializeForward;
+        lastCheckpoint = System.currentTimeMillis();
 
-        addRequiredEdges(graph);
+        if (checkpointFile != null && checkpointFile.exists()) {
+            phase = readCheckpoint(nodes);
+        } else {
+            if (initialGraph != null) {
+                graph = new EdgeListGraphSingleConnections(initialGraph);
+                graph = GraphUtils.replaceNodes(graph, nodes);
+                if (useIndexedGraph) graph = new BitsetIndexedGraph(graph);
+            }
 
-        if (faithfulnessAssumed) {
-            initializeForwardEdgesFromEmptyGraph(getVariables());
+            addRequiredEdges(graph);
+        }
 
-            // Do forward search.
-            this.mode = Mode.heuristicSpeedup;
-            fes();
-            bes();
+        while (phase != Phase.done) {
+            switch (phase) {
+                case initializeForward:
+                    initializeForwardEdgesFromEmptyGraph(getVariables());
+                    this.mode = Mode.heuristicSpeedup;
+                    break;
+                case forward:
+                case secondForward:
+                    fes(phase);
+                    break;
+                case initializeBackward:
+                case initializeSecondBackward:
+                    initializeBackward();
+                    break;
+                case backward:
+                case secondBackward:
+                    bes(phase);
+                    break;
+                case initializeSecondForward:
+                    if (faithfulnessAssumed) {
+                        this.mode = Mode.coverNoncolliders;
+                        initializeTwoStepEdges(getVariables());
+                    } else {
+                        this.mode = Mode.allowUnfaithfulness;
+                        initializeForwardEdgesFromExistingGraph(getVariables());
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
 
-            this.mode = Mode.coverNoncolliders;
-            initializeTwoStepEdges(getVariables());
-            fes();
-            bes();
-        } else {
-            initializeForwardEdgesFromEmptyGraph(getVariables());
+            phase = Phase.values()[phase.ordinal() + 1];
 
-            // Do forward search.
-            this.mode = Mode.heuristicSpeedup;
-            fes();
-            bes();
+            if (checkpointFile != null && phase != Phase.done) {
+                writeCheckpoint(phase);
+            }
+        }
 
-            this.mode = Mode.allowUnfaithfulness;
-            initializeForwardEdgesFromExistingGraph(getVariables());
-            fes();
-            bes();
+        if (checkpointFile != null && !checkpointFile.delete()) {
+            out.println("Could not delete checkpoint file " + checkpointFile);
         }
 
         long start = System.currentTimeMillis();
@@ -279,6 +339,10 @@ public final class Fges implements GraphSearch, GraphScorer {
 
         this.modelScore = totalScore;
 
+        if (useIndexedGraph) {
+            graph = new EdgeListGraphSingleConnections(graph);
+        }
+
         return graph;
     }
 
@@ -375,6 +439,15 @@ public final class Fges implements GraphSearch, GraphScorer {
         this.initialGraph = initialGraph;
     }
 
+    /**
+     * Sets whether the graph is built internally as a BitsetIndexedGraph, which speeds up
+     * searches over thousands of variables at the cost of O(p^2 / 8) bytes for the adjacency
+     * bitsets. The returned graph is an EdgeListGraphSingleConnections either way.
+     */
+    public void setUseIndexedGraph(boolean useIndexedGraph) {
+        this.useIndexedGraph = useIndexedGraph;
+    }
+
     /**
      * Sets whether verbose output should be produced.
      */
@@ -520,6 +593,45 @@ public final class Fges implements GraphSearch, GraphScorer {
         this.symmetricFirstStep = symmetricFirstStep;
     }
 
+    /**
+     * @return the checkpoint file, or null if checkpointing is off.
+     */
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    /**
+     * Sets a file to checkpoint the search to. The search state--the graph,
+     * the effect edges, the pending arrows, the score total and the phase of
+     * the search--is written to it after each phase (notably after the
+     * expensive initialization of forward arrows) and every
+     * checkpointInterval milliseconds during the forward and backward
+     * searches. If the file exists when search() is called, the search is
+     * resumed from it instead of started anew; it must have been written by a
+     * search over the same variables, with the same score and settings. The
+     * file is deleted when the search completes. Null (the default) turns
+     * checkpointing off.
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Sets the minimum time between checkpoints during the forward and
+     * backward searches, in milliseconds. Default 10 minutes.
+     */
+    public void setCheckpointInterval(long checkpointInterval) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be >= 0: " + checkpointInterval);
+        }
+
+        this.checkpointInterval = checkpointInterval;
+    }
+
     //===========================PRIVATE METHODS========================//
     //Sets the discrete scoring function to use.
     private void setScore(Score totalScore) {
@@ -906,7 +1018,7 @@ public final class Fges implements GraphSearch, GraphScorer {
         pool.invoke(new InitializeFromExistingGraphTask(getMinChunk(nodes.size()), 0, nodes.size()));
     }
 
-    private void fes() {
+    private void fes(Phase phase) {
         if (verbose) {
             TetradLogger.getInstance().log("info", "** FORWARD EQUIVALENCE SEARCH");
         }
@@ -914,6 +1026,8 @@ public final class Fges implements GraphSearch, GraphScorer {
         int maxDegree = this.maxDegree == -1 ? 1000 : this.maxDegree;
 
         while (!sortedArrows.isEmpty()) {
+            checkpointIfDue(phase);
+
             Arrow arrow = sortedArrows.first();
             sortedArrows.remove(arrow);
 
@@ -973,18 +1087,22 @@ public final class Fges implements GraphSearch, GraphScorer {
         }
     }
 
-    private void bes() {
-        if (verbose) {
-            TetradLogger.getInstance().log("info", "** BACKWARD EQUIVALENCE SEARCH");
-        }
-
+    private void initializeBackward() {
         sortedArrows = new ConcurrentSkipListSet<>();
         lookupArrows = new ConcurrentHashMap<>();
         neighbors = new ConcurrentHashMap<>();
 
         initializeArrowsBackward();
+    }
+
+    private void bes(Phase phase) {
+        if (verbose) {
+            TetradLogger.getInstance().log("info", "** BACKWARD EQUIVALENCE SEARCH");
+        }
 
         while (!sortedArrows.isEmpty()) {
+            checkpointIfDue(phase);
+
             Arrow arrow = sortedArrows.first();
             sortedArrows.remove(arrow);
 
@@ -1959,6 +2077,252 @@ public final class Fges implements GraphSearch, GraphScorer {
         arrows.add(arrow);
     }
 
+    //===========================CHECKPOINTING=====================//
+
+    private void checkpointIfDue(Phase phase) {
+        if (checkpointFile != null
+                && System.currentTimeMillis() - lastCheckpoint >= checkpointInterval) {
+            writeCheckpoint(phase);
+        }
+    }
+
+    /**
+     * Writes the search state to the checkpoint file, to be resumed at the
+     * given phase. Nodes are written as indices into the variables. The file
+     * is written to a temporary file first and moved into place, so a crash
+     * while writing leaves the previous checkpoint intact. Lookup arrows are
+     * not written; they are rebuilt from the sorted arrows.
+     */
+    private void writeCheckpoint(Phase phase) {
+        long start = System.currentTimeMillis();
+
+        List<Node> nodes = getVariables();
+        Map<Node, Integer> indices = new HashMap<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i), i);
+        }
+
+        File temp = new File(checkpointFile.getPath() + ".tmp");
+
+        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(temp))))) {
+            data.writeInt(CHECKPOINT_MAGIC);
+            data.writeInt(CHECKPOINT_VERSION);
+
+            data.writeInt(nodes.size());
+
+            for (Node node : nodes) {
+                data.writeUTF(node.getName());
+            }
+
+            data.writeInt(phase.ordinal());
+            data.writeInt(mode.ordinal());
+            data.writeDouble(totalScore);
+            data.writeInt(arrowIndex);
+
+            writeEdges(data, graph, indices, true);
+
+            data.writeBoolean(effectEdgesGraph != null);
+
+            if (effectEdgesGraph != null) {
+                writeEdges(data, effectEdgesGraph, indices, false);
+            }
+
+            data.writeInt(removedEdges.size());
+
+            for (Edge edge : removedEdges) {
+                data.writeInt(indices.get(edge.getNode1()));
+                data.writeInt(indices.get(edge.getNode2()));
+            }
+
+            data.writeInt(neighbors.size());
+
+            for (Node node : nodes) {
+                Set<Node> _neighbors = neighbors.get(node);
+                if (_neighbors == null) continue;
+                data.writeInt(indices.get(node));
+                writeNodes(data, _neighbors, indices);
+            }
+
+            data.writeInt(sortedArrows.size());
+
+            for (Arrow arrow : sortedArrows) {
+                data.writeDouble(arrow.getBump());
+                data.writeInt(indices.get(arrow.getA()));
+                data.writeInt(indices.get(arrow.getB()));
+                data.writeInt(arrow.getIndex());
+                writeNodes(data, arrow.getHOrT(), indices);
+                writeNodes(data, arrow.getNaYX(), indices);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write checkpoint file " + temp, e);
+        }
+
+        try {
+            Files.move(temp.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write checkpoint file " + checkpointFile, e);
+        }
+
+        lastCheckpoint = System.currentTimeMillis();
+
+        if (verbose) {
+            out.println("Checkpoint at " + phase + " written in " + (lastCheckpoint - start) + " ms");
+        }
+    }
+
+    /**
+     * Restores the search state from the checkpoint file, returning the phase
+     * to resume at.
+     */
+    private Phase readCheckpoint(List<Node> nodes) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(checkpointFile))))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+                throw new IllegalArgumentException("Not an FGES checkpoint file: " + checkpointFile);
+            }
+
+            int numNodes = in.readInt();
+
+            if (numNodes != nodes.size()) {
+                throw new IllegalArgumentException("Checkpoint file " + checkpointFile
+                        + " was written for " + numNodes + " variables, not " + nodes.size() + ".");
+            }
+
+            for (Node node : nodes) {
+                String name = in.readUTF();
+
+                if (!name.equals(node.getName())) {
+                    throw new IllegalArgumentException("Checkpoint file " + checkpointFile
+                            + " was written for different variables: " + name + " vs. " + node.getName());
+                }
+            }
+
+            Phase phase = Phase.values()[in.readInt()];
+            this.mode = Mode.values()[in.readInt()];
+            this.totalScore = in.readDouble();
+            this.arrowIndex = in.readInt();
+
+            this.graph = useIndexedGraph ? new BitsetIndexedGraph(nodes) : new EdgeListGraphSingleConnections(nodes);
+            readEdges(in, graph, nodes, true);
+
+            if (in.readBoolean()) {
+                this.effectEdgesGraph = new EdgeListGraphSingleConnections(nodes);
+                readEdges(in, effectEdgesGraph, nodes, false);
+            } else {
+                this.effectEdgesGraph = null;
+            }
+
+            this.removedEdges = new HashSet<>();
+            int numRemoved = in.readInt();
+
+            for (int i = 0; i < numRemoved; i++) {
+                Node x = nodes.get(in.readInt());
+                Node y = nodes.get(in.readInt());
+                removedEdges.add(Edges.undirectedEdge(x, y));
+            }
+
+            this.neighbors = new ConcurrentHashMap<>();
+            int numNeighbors = in.readInt();
+
+            for (int i = 0; i < numNeighbors; i++) {
+                Node node = nodes.get(in.readInt());
+                neighbors.put(node, readNodes(in, nodes));
+            }
+
+            this.sortedArrows = new ConcurrentSkipListSet<>();
+            this.lookupArrows = new ConcurrentHashMap<>();
+            int numArrows = in.readInt();
+
+            for (int i = 0; i < numArrows; i++) {
+                double bump = in.readDouble();
+                Node a = nodes.get(in.readInt());
+                Node b = nodes.get(in.readInt());
+                int index = in.readInt();
+                Set<Node> hOrT = readNodes(in, nodes);
+                Set<Node> naYX = readNodes(in, nodes);
+
+                Arrow arrow = new Arrow(bump, a, b, hOrT, naYX, index);
+                sortedArrows.add(arrow);
+                addLookupArrow(a, b, arrow);
+            }
+
+            if (verbose) {
+                out.println("Resuming from checkpoint at " + phase);
+            }
+
+            return phase;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read checkpoint file " + checkpointFile, e);
+        }
+    }
+
+    // Writes the edges of the graph, node by node so that adjacency order is roughly kept.
+    private static void writeEdges(DataOutputStream out, Graph graph, Map<Node, Integer> indices,
+                                   boolean endpoints) throws IOException {
+        List<Edge> edges = new ArrayList<>();
+        Set<Edge> seen = new HashSet<>();
+
+        for (Node node : graph.getNodes()) {
+            for (Edge edge : graph.getEdges(node)) {
+                if (seen.add(edge)) edges.add(edge);
+            }
+        }
+
+        List<Endpoint> types = Arrays.asList(Endpoint.TYPES);
+
+        out.writeInt(edges.size());
+
+        for (Edge edge : edges) {
+            out.writeInt(indices.get(edge.getNode1()));
+            out.writeInt(indices.get(edge.getNode2()));
+
+            if (endpoints) {
+                out.writeByte(types.indexOf(edge.getEndpoint1()));
+                out.writeByte(types.indexOf(edge.getEndpoint2()));
+            }
+        }
+    }
+
+    private static void readEdges(DataInputStream in, Graph graph, List<Node> nodes,
+                                  boolean endpoints) throws IOException {
+        int numEdges = in.readInt();
+
+        for (int i = 0; i < numEdges; i++) {
+            Node x = nodes.get(in.readInt());
+            Node y = nodes.get(in.readInt());
+
+            if (endpoints) {
+                Endpoint endpoint1 = Endpoint.TYPES[in.readByte()];
+                Endpoint endpoint2 = Endpoint.TYPES[in.readByte()];
+                graph.addEdge(new Edge(x, y, endpoint1, endpoint2));
+            } else {
+                graph.addUndirectedEdge(x, y);
+            }
+        }
+    }
+
+    private static void writeNodes(DataOutputStream out, Set<Node> nodes, Map<Node, Integer> indices)
+            throws IOException {
+        out.writeInt(nodes.size());
+
+        for (Node node : nodes) {
+            out.writeInt(indices.get(node));
+        }
+    }
+
+    private static Set<Node> readNodes(DataInputStream in, List<Node> nodes) throws IOException {
+        int size = in.readInt();
+        Set<Node> set = new HashSet<>();
+
+        for (int i = 0; i < size; i++) {
+            set.add(nodes.get(in.readInt()));
+        }
+
+        return set;
+    }
+
     //===========================SCORING METHODS===================//
     /**
      * Scores the given DAG, up to a constant.
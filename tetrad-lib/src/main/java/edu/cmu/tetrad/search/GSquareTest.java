@@ -21,6 +21,7 @@
 
 package edu.cmu.tetrad.search;
 
+import edu.cmu.tetrad.data.CellTable;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.util.CombinationIterator;
 import edu.cmu.tetrad.util.ProbUtils;
@@ -84,11 +85,11 @@ public final class GSquareTest extends ChiSquareTest {
      * summing up g square and degrees of freedom for each conditional table in turn, where rows or columns that consist
      * entirely of zeros have been removed.
      */
-    public synchronized GSquareTest.Result calcGSquare(int[] testIndices) {
+    public GSquareTest.Result calcGSquare(int[] testIndices) {
 
         // Reset the cell table for the columns referred to in
         // 'testIndices.' Do cell coefs for those columns.
-        getCellTable().addToTable(getDataSet(), testIndices);
+        CellTable cellTable = newCellTable(testIndices);
 
         // Indicator arrays to tell the cell table which margins
         // to calculate. For x _||_ y | z1, z2, ..., we want to
@@ -106,8 +107,8 @@ public final class GSquareTest extends ChiSquareTest {
                 condDims.length);
 
         int[] coords = new int[testIndices.length];
-        int numRows = this.getCellTable().getNumValues(0);
-        int numCols = this.getCellTable().getNumValues(1);
+        int numRows = cellTable.getNumValues(0);
+        int numCols = cellTable.getNumValues(1);
 
         boolean[] attestedRows = new boolean[numRows];
         boolean[] attestedCols = new boolean[numCols];
@@ -134,9 +135,9 @@ public final class GSquareTest extends ChiSquareTest {
                     coords[0] = i;
                     coords[1] = j;
 
-                    long sumRow = this.getCellTable().calcMargin(coords, secondVar);
-                    long sumCol = this.getCellTable().calcMargin(coords, firstVar);
-                    long observed = (int) this.getCellTable().getValue(coords);
+                    long sumRow = cellTable.calcMargin(coords, secondVar);
+                    long sumCol = cellTable.calcMargin(coords, firstVar);
+                    long observed = (int) cellTable.getValue(coords);
 
                     boolean skip = false;
 
@@ -22,6 +22,7 @@
 package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.AncestralIndex;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.Node;
 import edu.cmu.tetrad.graph.NodeType;
@@ -38,6 +39,20 @@ public class GraphScore implements Score {
 
     private final Graph dag;
 
+    // An index of the DAG for d-separation checks, with the index in it of each variable, or null if the graph is not
+    // a DAG.
+    private final AncestralIndex index;
+    private final int[] indices;
+
+    // The indices in the DAG of a conditioning set, one buffer per thread, so that d-separation checks allocate
+    // nothing.
+    private final ThreadLocal<int[]> zBuffers = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[variables.size()];
+        }
+    };
+
     // The variables of the covariance matrix.
     private List<Node> variables;
 
@@ -57,6 +72,15 @@ public class GraphScore implements Score {
                 this.variables.add(node);
             }
         }
+
+        this.index = AncestralIndex.isIndexable(dag) ? new AncestralIndex(dag) : null;
+        this.indices = new int[variables.size()];
+
+        if (index != null) {
+            for (int i = 0; i < variables.size(); i++) {
+                indices[i] = index.getIndex(variables.get(i));
+            }
+        }
     }
 
     /**
@@ -88,6 +112,10 @@ public class GraphScore implements Score {
     }
 
     private double locallyConsistentScoringCriterion(int x, int y, int[] z) {
+        if (index != null) {
+            return isDSeparated(x, y, z) ? -1.0 : 1.0;
+        }
+
         Node _y = variables.get(y);
         Node _x = variables.get(x);
         List<Node> _z = getVariableList(z);
@@ -102,6 +130,16 @@ public class GraphScore implements Score {
         return dSeparatedFrom ? -1.0 : 1.0;
     }
 
+    private boolean isDSeparated(int x, int y, int[] z) {
+        int[] _z = zBuffers.get();
+
+        for (int i = 0; i < z.length; i++) {
+            _z[i] = indices[z[i]];
+        }
+
+        return !index.isDConnectedTo(indices[x], indices[y], _z, z.length);
+    }
+
     private double aBetterScore(int x, int y, int[] z) {
         Node _y = variables.get(y);
         Node _x = variables.get(x);
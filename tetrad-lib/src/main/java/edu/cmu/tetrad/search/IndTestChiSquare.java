@@ -182,36 +182,7 @@ public final class IndTestChiSquare implements IndependenceTest {
     public boolean isIndependent(Node x, Node y, List<Node> z) {
         NumberFormat nf = NumberFormatUtil.getInstance().getNumberFormat();
 
-        if (z == null) {
-            throw new NullPointerException();
-        }
-
-        for (Node v : z) {
-            if (v == null) {
-                throw new NullPointerException();
-            }
-        }
-
-        // For testing x, y given z1,...,zn, set up an array of length
-        // n + 2 containing the indices of these variables in order.
-        int[] testIndices = new int[2 + z.size()];
-
-        testIndices[0] = variables.indexOf(x);
-        testIndices[1] = variables.indexOf(y);
-
-        for (int i = 0; i < z.size(); i++) {
-            testIndices[i + 2] = variables.indexOf(z.get(i));
-        }
-
-        // the following is lame code--need a better test
-        for (int i = 0; i < testIndices.length; i++) {
-            if (testIndices[i] < 0) {
-                throw new IllegalArgumentException("Variable " + i +
-                        " was not used in the constructor.");
-            }
-        }
-
-        ChiSquareTest.Result result = chiSquareTest.calcChiSquare(testIndices);
+        ChiSquareTest.Result result = chiSquareTest.calcChiSquare(testIndices(x, y, z));
         this.xSquare = result.getXSquare();
         this.df = result.getDf();
         this.pValue = result.getPValue();
@@ -243,6 +214,53 @@ public final class IndTestChiSquare implements IndependenceTest {
         return result.isIndep();
     }
 
+    /**
+     * Determines whether variable x is independent of variable y given a list of conditioning varNames z, without
+     * recording or logging anything in this test, so one instance may be shared by any number of threads.
+     *
+     * @param x the one variable being compared.
+     * @param y the second variable being compared.
+     * @param z the list of conditioning varNames.
+     * @return the result of the test of x _||_ y | z, with the X square statistic.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        ChiSquareTest.Result result = chiSquareTest.calcChiSquare(testIndices(x, y, z));
+        return new IndependenceResult(result.isIndep(), result.getPValue(), result.getXSquare(), result.getDf());
+    }
+
+    private int[] testIndices(Node x, Node y, List<Node> z) {
+        if (z == null) {
+            throw new NullPointerException();
+        }
+
+        for (Node v : z) {
+            if (v == null) {
+                throw new NullPointerException();
+            }
+        }
+
+        // For testing x, y given z1,...,zn, set up an array of length
+        // n + 2 containing the indices of these variables in order.
+        int[] testIndices = new int[2 + z.size()];
+
+        testIndices[0] = variables.indexOf(x);
+        testIndices[1] = variables.indexOf(y);
+
+        for (int i = 0; i < z.size(); i++) {
+            testIndices[i + 2] = variables.indexOf(z.get(i));
+        }
+
+        // the following is lame code--need a better test
+        for (int i = 0; i < testIndices.length; i++) {
+            if (testIndices[i] < 0) {
+                throw new IllegalArgumentException("Variable " + i +
+                        " was not used in the constructor.");
+            }
+        }
+
+        return testIndices;
+    }
+
     public boolean isIndependent(Node x, Node y, Node... z) {
         List<Node> zList = Arrays.asList(z);
         return isIndependent(x, y, zList);
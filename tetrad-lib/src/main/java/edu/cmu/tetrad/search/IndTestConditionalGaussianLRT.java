@@ -85,8 +85,17 @@ public class IndTestConditionalGaussianLRT implements IndependenceTest {
      * getVariableNames().
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
-        likelihood.setNumCategoriesToDiscretize(numCategoriesToDiscretize);
+        IndependenceResult result = checkIndependence(x, y, z);
+        this.pValue = result.getPValue();
+        return result.isIndependent();
+    }
 
+    /**
+     * Determines whether x is independent of y given z without recording anything in this test, so one instance may
+     * be shared by any number of threads. Of the two likelihood ratio tests, of x and of y, the result reports the
+     * statistic and degrees of freedom of the one with the smaller p value.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
         int _x = nodesHash.get(x);
         int _y = nodesHash.get(y);
 
@@ -136,9 +145,11 @@ public class IndTestConditionalGaussianLRT implements IndependenceTest {
             e.printStackTrace();
         }
 
-        this.pValue = Math.min(p0, p1);
+        double pValue = Math.min(p0, p1);
+        double statistic = p0 <= p1 ? 2.0 * lik0 : 2.0 * lik1;
+        double dof = p0 <= p1 ? dof0 : dof1;
 
-//        return this.pValue > alpha;
+//        return pValue > alpha;
 
         if(fastFDR) {
             final int d1 = 0; // reference
@@ -146,9 +157,9 @@ public class IndTestConditionalGaussianLRT implements IndependenceTest {
             final int v = data.getNumColumns() - 2;
 
             double alpha2 = (exp(log(alpha) + logChoose(v, d1) - logChoose(v, d2)));
-            return this.pValue > alpha2;
+            return new IndependenceResult(pValue > alpha2, pValue, statistic, dof);
         } else {
-            return this.pValue > alpha;
+            return new IndependenceResult(pValue > alpha, pValue, statistic, dof);
         }
     }
 
@@ -272,6 +283,7 @@ public class IndTestConditionalGaussianLRT implements IndependenceTest {
 
     public void setNumCategoriesToDiscretize(int numCategoriesToDiscretize) {
         this.numCategoriesToDiscretize = numCategoriesToDiscretize;
+        this.likelihood.setNumCategoriesToDiscretize(numCategoriesToDiscretize);
     }
 
     @Override
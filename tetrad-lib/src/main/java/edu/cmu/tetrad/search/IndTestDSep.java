@@ -23,6 +23,7 @@ package edu.cmu.tetrad.search;
 
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.AncestralIndex;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.IndependenceFact;
 import edu.cmu.tetrad.graph.Node;
@@ -54,6 +55,12 @@ public class IndTestDSep implements IndependenceTest {
     private boolean verbose = false;
     private double pvalue = 0;
 
+    /**
+     * An index of the graph for d-separation checks, or null if the graph is not a DAG. Built in the constructor from
+     * a snapshot of the graph, so that checks take no locks; changes made to a DAG after that are not seen.
+     */
+    private final AncestralIndex index;
+
     public IndTestDSep(Graph graph) {
         this(graph, false);
     }
@@ -67,6 +74,7 @@ public class IndTestDSep implements IndependenceTest {
         }
 
         this.graph = graph;
+        this.index = AncestralIndex.isIndexable(graph) ? new AncestralIndex(graph) : null;
 
         this._observedVars = calcVars(graph, keepLatents);
         this.observedVars = new HashSet<>(_observedVars);
@@ -153,7 +161,7 @@ public class IndTestDSep implements IndependenceTest {
             }
         }
 
-        boolean dSeparated = !getGraph().isDConnectedTo(x, y, z);
+        boolean dSeparated = !isDConnectedTo(x, y, z);
 
         if (verbose) {
             if (dSeparated) {
@@ -194,6 +202,30 @@ public class IndTestDSep implements IndependenceTest {
         return isDependent(x, y, zList);
     }
 
+    /**
+     * @return The observed variables other than x and those in z that are d-connected to x given z. If the graph is a
+     * DAG, these are found with a single search.
+     */
+    public List<Node> getDConnectedVariables(Node x, List<Node> z) {
+        List<Node> connected = new ArrayList<>();
+
+        if (index != null) {
+            for (Node y : index.getDConnectedNodes(x, z)) {
+                if (observedVars.contains(y)) {
+                    connected.add(y);
+                }
+            }
+        } else {
+            for (Node y : _observedVars) {
+                if (y != x && !z.contains(y) && getGraph().isDConnectedTo(x, y, z)) {
+                    connected.add(y);
+                }
+            }
+        }
+
+        return connected;
+    }
+
     /**
      * Auxiliary method to calculate dseparation facts directly from nodes instead of from variables.
      */
@@ -208,7 +240,7 @@ public class IndTestDSep implements IndependenceTest {
             }
         }
 
-        return getGraph().isDSeparatedFrom(x, y, z);
+        return !isDConnectedTo(x, y, z);
     }
 
     /**
@@ -315,9 +347,12 @@ public class IndTestDSep implements IndependenceTest {
     public void setVerbose(boolean verbose) {
         this.verbose = verbose;
     }
-}
-
-
-
-
 
+    private boolean isDConnectedTo(Node x, Node y, List<Node> z) {
+        if (index != null) {
+            return index.isDConnectedTo(x, y, z);
+        } else {
+            return getGraph().isDConnectedTo(x, y, z);
+        }
+    }
+}
@@ -184,7 +184,6 @@ public final class IndTestFisherZ implements IndependenceTest {
      * @throws RuntimeException if a matrix singularity is encountered.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
-        int n = sampleSize();
         double r;
 
         try {
@@ -195,13 +194,44 @@ public final class IndTestFisherZ implements IndependenceTest {
             return false;
         }
 
-        double fisherZ = Math.sqrt(n - 3 - z.size()) * 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
+        double fisherZ = fisherZ(r, z.size());
         this.fisherZ = fisherZ;
         this.rho = r;
 
         return Math.abs(fisherZ) < cutoff;
     }
 
+    /**
+     * Determines whether x is independent of y given z without recording anything in this test, so one instance may
+     * be shared by any number of threads. The statistic is the Fisher Z value; there are no degrees of freedom.
+     *
+     * @param x the one variable being compared.
+     * @param y the second variable being compared.
+     * @param z the list of conditioning variables.
+     * @return the result of the test of x _||_ y | z.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        double r;
+
+        try {
+            r = partialCorrelation(x, y, z);
+        } catch (SingularMatrixException e) {
+            System.out.println(SearchLogUtils.determinismDetected(z, x));
+            return new IndependenceResult(false, 0.0, Double.POSITIVE_INFINITY, Double.NaN);
+        }
+
+        double fisherZ = fisherZ(r, z.size());
+        return new IndependenceResult(Math.abs(fisherZ) < cutoff, pValue(fisherZ), fisherZ, Double.NaN);
+    }
+
+    private double fisherZ(double r, int numConditioning) {
+        return Math.sqrt(sampleSize() - 3 - numConditioning) * 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
+    }
+
+    private double pValue(double fisherZ) {
+        return 2.0 * (1.0 - normal.cumulativeProbability(abs(fisherZ)));
+    }
+
     private double partialCorrelation(Node x, Node y, List<Node> z) throws SingularMatrixException {
         if (z.isEmpty()) {
             double a = covMatrix.getValue(indexMap.get(x), indexMap.get(y));
@@ -221,6 +251,87 @@ public final class IndTestFisherZ implements IndependenceTest {
         }
     }
 
+    /**
+     * Determines for each y in ys whether x is independent of y given z. The covariance submatrix over z is inverted
+     * once, and each partial correlation is then read off the 2 x 2 Schur complement of (x, y) given z, so no
+     * submatrix is copied or inverted per y.
+     *
+     * @param x  the one variable being compared.
+     * @param ys the variables being compared to x.
+     * @param z  the list of conditioning variables.
+     * @return an array whose i'th entry is true iff x _||_ ys.get(i) | z.
+     */
+    public boolean[] isIndependent(Node x, List<Node> ys, List<Node> z) {
+        if (z.isEmpty()) {
+            return IndependenceTest.super.isIndependent(x, ys, z);
+        }
+
+        int k = z.size();
+        int[] zIndices = new int[k];
+        for (int i = 0; i < k; i++) zIndices[i] = indexMap.get(z.get(i));
+
+        TetradMatrix zzInverse;
+
+        try {
+            zzInverse = covMatrix.getSelection(zIndices, zIndices).inverse();
+        } catch (SingularMatrixException e) {
+            return IndependenceTest.super.isIndependent(x, ys, z);
+        }
+
+        int _x = indexMap.get(x);
+        double[] zx = new double[k];
+        for (int i = 0; i < k; i++) zx[i] = covMatrix.getValue(zIndices[i], _x);
+
+        double[] w = new double[k];
+
+        for (int i = 0; i < k; i++) {
+            double sum = 0.0;
+            for (int j = 0; j < k; j++) sum += zzInverse.get(i, j) * zx[j];
+            w[i] = sum;
+        }
+
+        double xx = covMatrix.getValue(_x, _x);
+        for (int i = 0; i < k; i++) xx -= zx[i] * w[i];
+
+        int n = sampleSize();
+        boolean[] independent = new boolean[ys.size()];
+        double[] zy = new double[k];
+
+        for (int m = 0; m < ys.size(); m++) {
+            Node y = ys.get(m);
+            int _y = indexMap.get(y);
+
+            for (int i = 0; i < k; i++) zy[i] = covMatrix.getValue(zIndices[i], _y);
+
+            double xy = covMatrix.getValue(_x, _y);
+            double yy = covMatrix.getValue(_y, _y);
+
+            for (int i = 0; i < k; i++) {
+                xy -= zy[i] * w[i];
+
+                double sum = 0.0;
+                for (int j = 0; j < k; j++) sum += zzInverse.get(i, j) * zy[j];
+                yy -= zy[i] * sum;
+            }
+
+            if (!(xx > 0) || !(yy > 0)) {
+                System.out.println(SearchLogUtils.determinismDetected(z, x));
+                this.fisherZ = Double.POSITIVE_INFINITY;
+                independent[m] = false;
+                continue;
+            }
+
+            double r = xy / Math.sqrt(xx * yy);
+            double fisherZ = Math.sqrt(n - 3 - k) * 0.5 * (Math.log(1.0 + r) - Math.log(1.0 - r));
+            this.fisherZ = fisherZ;
+            this.rho = r;
+
+            independent[m] = Math.abs(fisherZ) < cutoff;
+        }
+
+        return independent;
+    }
+
     public boolean isIndependent(Node x, Node y, Node... z) {
         return isIndependent(x, y, Arrays.asList(z));
     }
@@ -238,7 +349,7 @@ public final class IndTestFisherZ implements IndependenceTest {
      * @return the probability associated with the most recently computed independence test.
      */
     public double getPValue() {
-        return 2.0 * (1.0 - normal.cumulativeProbability(abs(fisherZ)));
+        return pValue(fisherZ);
     }
 
     /**
@@ -172,6 +172,43 @@ public final class IndTestGSquare implements IndependenceTest {
      * @return true iff x _||_ y | z.
      */
     public boolean isIndependent(Node x, Node y, List<Node> z) {
+        GSquareTest.Result result = gSquareTest.calcGSquare(testIndices(x, y, z));
+        this.gSquare = result.getGSquare();
+        this.pValue = result.getPValue();
+
+        if (result.isIndep()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("INDEPENDENCE ACCEPTED: ");
+            sb.append(SearchLogUtils.independenceFact(x, y, z));
+            sb.append("\tp = ").append(nf.format(result.getPValue())).append(
+                    "\tg^2 = ").append(nf.format(result.getGSquare())).append(
+                    "\tdf = ").append(result.getDf());
+            TetradLogger.getInstance().log("independencies", sb.toString());
+        } else {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Not independent: ");
+            sb.append(SearchLogUtils.independenceFact(x, y, z));
+            sb.append("\tp = ").append(nf.format(result.getPValue())).append(
+                    "\tg^2 = ").append(nf.format(result.getGSquare())).append(
+                    "\tdf = ").append(result.getDf());
+            TetradLogger.getInstance().log("independencies", sb.toString());
+        }
+
+        return result.isIndep();
+    }
+
+    /**
+     * Determines whether variable x is independent of variable y given a list of conditioning variables z, without
+     * recording or logging anything in this test, so one instance may be shared by any number of threads.
+     *
+     * @return the result of the test of x _||_ y | z, with the G square statistic.
+     */
+    public IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        GSquareTest.Result result = gSquareTest.calcGSquare(testIndices(x, y, z));
+        return new IndependenceResult(result.isIndep(), result.getPValue(), result.getGSquare(), result.getDf());
+    }
+
+    private int[] testIndices(Node x, Node y, List<Node> z) {
         if (x == null) {
             throw new NullPointerException();
         }
@@ -209,31 +246,7 @@ public final class IndTestGSquare implements IndependenceTest {
             }
         }
 
-        //        System.out.println("Testing " + x + " _||_ " + y + " | " + z);
-
-        GSquareTest.Result result = gSquareTest.calcGSquare(testIndices);
-        this.gSquare = result.getGSquare();
-        this.pValue = result.getPValue();
-
-        if (result.isIndep()) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("INDEPENDENCE ACCEPTED: ");
-            sb.append(SearchLogUtils.independenceFact(x, y, z));
-            sb.append("\tp = ").append(nf.format(result.getPValue())).append(
-                    "\tg^2 = ").append(nf.format(result.getGSquare())).append(
-                    "\tdf = ").append(result.getDf());
-            TetradLogger.getInstance().log("independencies", sb.toString());
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append("Not independent: ");
-            sb.append(SearchLogUtils.independenceFact(x, y, z));
-            sb.append("\tp = ").append(nf.format(result.getPValue())).append(
-                    "\tg^2 = ").append(nf.format(result.getGSquare())).append(
-                    "\tdf = ").append(result.getDf());
-            TetradLogger.getInstance().log("independencies", sb.toString());
-        }
-
-        return result.isIndep();
+        return testIndices;
     }
 
     public boolean isIndependent(Node x, Node y, Node... z) {
@@ -0,0 +1,112 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+/**
+ * The outcome of a single conditional independence test: the judgment, together with the p value, test statistic
+ * and degrees of freedom it was based on, and, if known, the score the test reported for it through getScore().
+ * Immutable, so results can be handed between threads freely.
+ *
+ * @author Joseph Ramsey
+ * @see IndependenceTest#checkIndependence
+ */
+public final class IndependenceResult {
+
+    private final boolean independent;
+    private final double pValue;
+    private final double statistic;
+    private final double dof;
+    private final double score;
+
+    /**
+     * @param independent true if independence is judged to hold.
+     * @param pValue      the p value of the test, or Double.NaN if it is not meaningful for the test.
+     * @param statistic   the test statistic, or Double.NaN if the test does not report one.
+     * @param dof         the degrees of freedom of the test statistic, or Double.NaN if not meaningful.
+     */
+    public IndependenceResult(boolean independent, double pValue, double statistic, double dof) {
+        this(independent, pValue, statistic, dof, Double.NaN);
+    }
+
+    /**
+     * @param independent true if independence is judged to hold.
+     * @param pValue      the p value of the test, or Double.NaN if it is not meaningful for the test.
+     * @param statistic   the test statistic, or Double.NaN if the test does not report one.
+     * @param dof         the degrees of freedom of the test statistic, or Double.NaN if not meaningful.
+     * @param score       the score the test reported through getScore(), or Double.NaN if not known.
+     */
+    public IndependenceResult(boolean independent, double pValue, double statistic, double dof, double score) {
+        this.independent = independent;
+        this.pValue = pValue;
+        this.statistic = statistic;
+        this.dof = dof;
+        this.score = score;
+    }
+
+    /**
+     * @return true if independence is judged to hold.
+     */
+    public boolean isIndependent() {
+        return independent;
+    }
+
+    /**
+     * @return true if independence is judged not to hold.
+     */
+    public boolean isDependent() {
+        return !independent;
+    }
+
+    /**
+     * @return the p value, or Double.NaN if it is not meaningful for the test.
+     */
+    public double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * @return the test statistic, or Double.NaN if the test does not report one.
+     */
+    public double getStatistic() {
+        return statistic;
+    }
+
+    /**
+     * @return the degrees of freedom of the test statistic, or Double.NaN if not meaningful.
+     */
+    public double getDof() {
+        return dof;
+    }
+
+    /**
+     * @return the score the test reported through getScore(), in the test's own convention, or Double.NaN if not
+     * known.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    public String toString() {
+        return (independent ? "Independent" : "Dependent") + ": p = " + pValue + ", statistic = " + statistic
+                + ", dof = " + dof;
+    }
+}
@@ -0,0 +1,115 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.util.ClockCache;
+
+/**
+ * Stores a map from independence questions x _||_ y | z to their results. The question is
+ * canonical: x and y may be given in either order, and z is treated as a set. Variables are
+ * given by index.
+ * <p>
+ * The results are kept in a ClockCache keyed on (min(x, y), max(x, y), z), so the cache never
+ * grows past its capacity, lookups take no locks and do not allocate, and it is safe for use by
+ * several threads at once.
+ *
+ * @author Joseph Ramsey
+ * @see CachingIndependenceTest
+ */
+public class IndependenceResultCache {
+
+    private final ClockCache<IndependenceResult> cache;
+
+    /**
+     * Constructs a cache with room for 2^20 entries.
+     */
+    public IndependenceResultCache() {
+        this(1 << 20);
+    }
+
+    /**
+     * Constructs a cache with room for at least the given number of entries.
+     *
+     * @param capacity The maximum number of entries to keep; rounded up to a power of two.
+     */
+    public IndependenceResultCache(int capacity) {
+        this.cache = new ClockCache<>(capacity);
+    }
+
+    /**
+     * Returns the stored result of x _||_ y | z, or null if no such result is stored.
+     */
+    public IndependenceResult get(int x, int y, int[] z) {
+        return cache.get(Math.min(x, y), Math.max(x, y), z);
+    }
+
+    /**
+     * Stores the result of x _||_ y | z.
+     */
+    public void put(int x, int y, int[] z, IndependenceResult result) {
+        if (result == null) throw new NullPointerException("Result not provided.");
+        cache.put(Math.min(x, y), Math.max(x, y), z, result);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * The maximum number of entries the cache can hold.
+     */
+    public int getCapacity() {
+        return cache.getCapacity();
+    }
+
+    /**
+     * The number of lookups that found a stored result.
+     */
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * The number of lookups that found no stored result.
+     */
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    /**
+     * The number of entries that have been evicted to make room for new ones.
+     */
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * Sets the hit, miss and eviction counts back to zero.
+     */
+    public void resetCounts() {
+        cache.resetCounts();
+    }
+
+    public String toString() {
+        return "IndependenceResultCache " + cache;
+    }
+}
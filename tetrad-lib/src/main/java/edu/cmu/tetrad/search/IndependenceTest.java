@@ -71,6 +71,38 @@ public interface IndependenceTest {
      */
     boolean isDependent(Node x, Node y, Node... z);
 
+    /**
+     * Judges x _||_ y | z as isIndependent does, returning the judgment together with the p value, statistic and
+     * degrees of freedom it was based on. Since nothing is read back from the test afterward, a test that keeps no
+     * per-call state can answer this for many threads at once; such tests should override this. By default, the
+     * question is asked through isIndependent and getPValue while holding the test's monitor, so that the p value
+     * belongs to the same question as long as all concurrent callers use this method.
+     */
+    default IndependenceResult checkIndependence(Node x, Node y, List<Node> z) {
+        synchronized (this) {
+            boolean independent = isIndependent(x, y, z);
+            return new IndependenceResult(independent, getPValue(), Double.NaN, Double.NaN);
+        }
+    }
+
+    /**
+     * Judges x _||_ y | z for each y in ys, all with the same conditioning set z. Tests that can reuse work across
+     * a common conditioning set (for instance, a single inverse of the covariance submatrix over z) should override
+     * this; by default each question is simply asked in turn. After the call, getPValue() and getScore() refer to the
+     * last y in ys.
+     *
+     * @return an array whose i'th entry is true just in case x _||_ ys.get(i) | z is judged true.
+     */
+    default boolean[] isIndependent(Node x, List<Node> ys, List<Node> z) {
+        boolean[] independent = new boolean[ys.size()];
+
+        for (int i = 0; i < ys.size(); i++) {
+            independent[i] = isIndependent(x, ys.get(i), z);
+        }
+
+        return independent;
+    }
+
     /**
      * @return the probability associated with the most recently executed independence test, of Double.NaN if p value is
      * not meaningful for tis test.
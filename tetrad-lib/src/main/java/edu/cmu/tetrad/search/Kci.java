@@ -16,6 +16,7 @@ import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.linear.RealMatrix;
 import org.apache.commons.math3.linear.RealVector;
 import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.SynchronizedRandomGenerator;
 import org.apache.commons.math3.random.Well44497b;
 
@@ -39,6 +40,15 @@ import static java.lang.Math.*;
  * Bowman, A. W., & Azzalini, A. (1997). Applied smoothing techniques for data analysis: the kernel
  * approach with S-Plus illustrations (Vol. 18). OUP Oxford.
  *
+ * If a rank m > 0 is set, the N x N kernel matrices are replaced by m random Fourier features each,
+ * so that a test costs O(N m^2) time and O(N m) memory instead of O(N^3) and O(N^2):
+ *
+ * Rahimi, A., & Recht, B. (2008). Random features for large-scale kernel machines. In Advances in
+ * neural information processing systems (pp. 1177-1184).
+ *
+ * Strobl, E. V., Zhang, K., & Visweswaran, S. (2019). Approximate kernel-based conditional
+ * independence tests for fast non-parametric causal discovery. Journal of Causal Inference, 7(1).
+ *
  * @author Vineet Raghu on 7/3/2016
  * @author jdramsey refactoring 7/4/2018
  */
@@ -102,6 +112,9 @@ public class Kci implements IndependenceTest, ScoreForFact {
     // Epsilon for Propositio 5.
     private double epsilon = 0.001;
 
+    // Number of random Fourier features per kernel; 0 for the exact N x N kernel matrices.
+    private int rank = 0;
+
     private boolean verbose = false;
     private boolean fastFDR = false;
 
@@ -116,12 +129,6 @@ public class Kci implements IndependenceTest, ScoreForFact {
         this.variables = data.getVariables();
         this._data = this.data.getDoubleData().transpose().toArray();
         this.N = this.data.getNumRows();
-        this.I = TetradMatrix.identity(N);
-
-        TetradMatrix Ones = new TetradMatrix(N, 1);
-        for (int j = 0; j < N; j++) Ones.set(j, 0, 1);
-
-        this.H = TetradMatrix.identity(N).minus(Ones.times(Ones.transpose()).scalarMult(1.0 / N));
 
         this.alpha = alpha;
         this.p = -1;
@@ -367,6 +374,19 @@ public class Kci implements IndependenceTest, ScoreForFact {
         this.epsilon = epsilon;
     }
 
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Sets the number of random Fourier features used to approximate each kernel matrix. If 0 (the
+     * default), the exact N x N kernel matrices are used.
+     */
+    public void setRank(int rank) {
+        if (rank < 0) throw new IllegalArgumentException("Rank must be >= 0: " + rank);
+        this.rank = rank;
+    }
+
     //====================================PRIVATE METHODS==================================//
 
     /**
@@ -375,52 +395,17 @@ public class Kci implements IndependenceTest, ScoreForFact {
      * @return true just in case independence holds.
      */
     private boolean isIndependentUnconditional(Node x, Node y, IndependenceFact fact) {
+        if (getRank() > 0) {
+            return isIndependentUnconditionalLowRank(x, y, fact);
+        }
+
         TetradMatrix kx = center(kernelMatrix(_data, x, null, getWidthMultiplier()));
         TetradMatrix ky = center(kernelMatrix(_data, y, null, getWidthMultiplier()));
 
         try {
             if (isApproximate()) {
-                double sta = kx.times(ky).trace();
-                double mean_appr = kx.trace() * ky.trace() / N;
-                double var_appr = 2 * kx.times(kx).trace() * ky.times(ky).trace() / (N * N);
-                double k_appr = mean_appr * mean_appr / var_appr;
-                double theta_appr = var_appr / mean_appr;
-                double p_appr = 1.0 - new GammaDistribution(k_appr, theta_appr).cumulativeProbability(sta);
-                p = p_appr;
-                pValues.put(fact, p);
-
-                if (fastFDR) {
-                    final int d1 = 0; // reference
-                    final int d2 = fact.getZ().size();
-                    final int v = variables.size() - 2;
-
-                    double alpha2 = (exp(log(alpha) + logChoose(v, d1) - logChoose(v, d2)));
-                    final boolean independent = p > alpha2;
-
-//                    if (independent) {
-//                        System.out.println(fact + " INDEPENDENT p = " + p);
-//                        TetradLogger.getInstance().log("info", fact + " Independent");
-//
-//                    } else {
-//                        System.out.println(fact + " dependent p = " + p);
-//                        TetradLogger.getInstance().log("info", fact.toString());
-//                    }
-
-                    return independent;
-                } else {
-                    final boolean independent = p > alpha;
-
-//                    if (independent) {
-//                        System.out.println(fact + " INDEPENDENT p = " + p);
-//                        TetradLogger.getInstance().log("info", fact + " Independent");
-//
-//                    } else {
-//                        System.out.println(fact + " dependent p = " + p);
-//                        TetradLogger.getInstance().log("info", fact.toString());
-//                    }
-
-                    return independent;
-                }
+                return gamma(kx.times(ky).trace(), kx.trace(), ky.trace(),
+                        kx.times(kx).trace(), ky.times(ky).trace(), fact);
             } else {
                 return theorem4(kx, ky, fact);
             }
@@ -432,12 +417,75 @@ public class Kci implements IndependenceTest, ScoreForFact {
         }
     }
 
+    /**
+     * The unconditional test with kx and ky replaced by fx fx' and fy fy', fx and fy being centered
+     * random Fourier features. The nonzero eigenvalues of fx fx' are those of fx' fx, and
+     * trace(kx ky) = ||fx' fy||^2, so nothing N x N is formed.
+     */
+    private boolean isIndependentUnconditionalLowRank(Node x, Node y, IndependenceFact fact) {
+        try {
+            TetradMatrix fx = features(x, null);
+            TetradMatrix fy = features(y, null);
+
+            TetradMatrix gx = fx.transpose().times(fx);
+            TetradMatrix gy = fy.transpose().times(fy);
+            double sta = squaredNorm(fx.transpose().times(fy));
+
+            if (isApproximate()) {
+                return gamma(sta, gx.trace(), gy.trace(), squaredNorm(gx), squaredNorm(gy), fact);
+            } else {
+                List<Double> evx = new Eigendecomposition(gx).invoke().getTopEigenvalues();
+                List<Double> evy = new Eigendecomposition(gy).invoke().getTopEigenvalues();
+                return theorem4(sta, evx, evy, fact);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            pValues.put(fact, 0.0);
+            facts.put(fact, false);
+            return false;
+        }
+    }
+
+    /**
+     * The Gamma approximation to the null distribution of the unconditional statistic, given
+     * trace(kx ky), trace(kx), trace(ky), trace(kx kx) and trace(ky ky).
+     */
+    private boolean gamma(double sta, double traceX, double traceY, double traceXX, double traceYY,
+                          IndependenceFact fact) {
+        double mean_appr = traceX * traceY / N;
+        double var_appr = 2 * traceXX * traceYY / (N * N);
+        double k_appr = mean_appr * mean_appr / var_appr;
+        double theta_appr = var_appr / mean_appr;
+        double p_appr = 1.0 - new GammaDistribution(k_appr, theta_appr).cumulativeProbability(sta);
+        p = p_appr;
+        pValues.put(fact, p);
+
+        if (fastFDR) {
+            final int d1 = 0; // reference
+            final int d2 = fact.getZ().size();
+            final int v = variables.size() - 2;
+
+            double alpha2 = (exp(log(alpha) + logChoose(v, d1) - logChoose(v, d2)));
+            return p > alpha2;
+        } else {
+            return p > alpha;
+        }
+    }
+
     /**
      * KCI independence for the conditional case. Uses Theorem 3 from the paper.
      *
      * @return true just in case independence holds.
      */
     private boolean isIndependentConditional(Node x, Node y, List<Node> z, IndependenceFact fact) {
+        if (getRank() > 0) {
+            return isIndependentConditionalLowRank(x, y, z, fact);
+        }
+
+        if (I == null) {
+            I = TetradMatrix.identity(N);
+        }
+
         TetradMatrix kx = null;
         TetradMatrix ky = null;
 
@@ -460,9 +508,42 @@ public class Kci implements IndependenceTest, ScoreForFact {
         }
     }
 
-    private boolean theorem4(TetradMatrix kx, TetradMatrix ky, IndependenceFact fact) {
+    /**
+     * The conditional test with the kernel matrices replaced by products of centered random Fourier
+     * features. For KZ = fz fz', Rz = epsilon (KZ + epsilon I)^-1 = I - fz (fz' fz + epsilon I)^-1 fz'
+     * by the Woodbury identity, so kx = Rz KXZ Rz = ax ax' with ax = Rz fxz, and likewise for ky;
+     * only m x m matrices are inverted or decomposed.
+     */
+    private boolean isIndependentConditionalLowRank(Node x, Node y, List<Node> z, IndependenceFact fact) {
+        try {
+            TetradMatrix fxz = features(x, z);
+            TetradMatrix fy = features(y, null);
+            TetradMatrix fz = features(null, z);
+
+            TetradMatrix fzt = fz.transpose();
+            TetradMatrix g = fzt.times(fz).plus(TetradMatrix.identity(getRank()).scalarMult(epsilon)).inverse();
+
+            TetradMatrix ax = fxz.minus(fz.times(g.times(fzt.times(fxz))));
+            TetradMatrix ay = fy.minus(fz.times(g.times(fzt.times(fy))));
+
+            double sta = squaredNorm(ax.transpose().times(ay));
+
+            // The eigenvectors of ax ax' scaled by the root eigenvalues are ax times the
+            // eigenvectors of ax' ax.
+            TetradMatrix vdx = ax.times(new Eigendecomposition(ax.transpose().times(ax)).invoke().getV());
+            TetradMatrix vdy = ay.times(new Eigendecomposition(ay.transpose().times(ay)).invoke().getV());
+
+            return proposition5(sta, vdx, vdy, fact);
+        } catch (Exception e) {
+            e.printStackTrace();
+            pValues.put(fact, 0.0);
+            facts.put(fact, false);
+            return false;
+        }
+    }
 
-        double T = (1.0 / N) * (kx.times(ky).trace());
+    private boolean theorem4(TetradMatrix kx, TetradMatrix ky, IndependenceFact fact) {
+        double sta = kx.times(ky).trace();
 
         // Eigen decomposition of kx and ky.
         Eigendecomposition eigendecompositionx = new Eigendecomposition(kx).invoke();
@@ -471,6 +552,15 @@ public class Kci implements IndependenceTest, ScoreForFact {
         Eigendecomposition eigendecompositiony = new Eigendecomposition(ky).invoke();
         List<Double> evy = eigendecompositiony.getTopEigenvalues();
 
+        return theorem4(sta, evx, evy, fact);
+    }
+
+    /**
+     * Theorem 4, given sta = trace(kx ky) and the top eigenvalues of kx and ky.
+     */
+    private boolean theorem4(double sta, List<Double> evx, List<Double> evy, IndependenceFact fact) {
+        double T = (1.0 / N) * sta;
+
         // Calculate formula (9).
         int sum = 0;
 
@@ -527,7 +617,7 @@ public class Kci implements IndependenceTest, ScoreForFact {
     }
 
     private boolean proposition5(TetradMatrix kx, TetradMatrix ky, IndependenceFact fact) {
-        double T = (1.0 / N) * kx.times(ky).trace();
+        double sta = kx.times(ky).trace();
 
         Eigendecomposition eigendecompositionx = new Eigendecomposition(kx).invoke();
         TetradMatrix vx = eigendecompositionx.getV();
@@ -541,14 +631,23 @@ public class Kci implements IndependenceTest, ScoreForFact {
         TetradMatrix vdx = vx.times(dx);
         TetradMatrix vdy = vy.times(dy);
 
-        final int prod = vx.columns() * vy.columns();
+        return proposition5(sta, vdx, vdy, fact);
+    }
+
+    /**
+     * Proposition 5, given sta = trace(kx ky) and the eigenvectors of kx and ky scaled by the roots
+     * of their eigenvalues.
+     */
+    private boolean proposition5(double sta, TetradMatrix vdx, TetradMatrix vdy, IndependenceFact fact) {
+        double T = (1.0 / N) * sta;
+        final int prod = vdx.columns() * vdy.columns();
         TetradMatrix UU = new TetradMatrix(N, prod);
 
         // stack
-        for (int i = 0; i < vx.columns(); i++) {
-            for (int j = 0; j < vy.columns(); j++) {
+        for (int i = 0; i < vdx.columns(); i++) {
+            for (int j = 0; j < vdy.columns(); j++) {
                 for (int k = 0; k < N; k++) {
-                    UU.set(k, i * dy.columns() + j, vdx.get(k, i) * vdy.get(k, j));
+                    UU.set(k, i * vdy.columns() + j, vdx.get(k, i) * vdy.get(k, j));
                 }
             }
         }
@@ -556,7 +655,6 @@ public class Kci implements IndependenceTest, ScoreForFact {
         TetradMatrix uuprod = prod > N ? UU.times(UU.transpose()) : UU.transpose().times(UU);
 
         if (isApproximate()) {
-            double sta = kx.times(ky).trace();
             double mean_appr = uuprod.trace();
             double var_appr = 2.0 * uuprod.times(uuprod).trace();
             double k_appr = mean_appr * mean_appr / var_appr;
@@ -633,9 +731,83 @@ public class Kci implements IndependenceTest, ScoreForFact {
     }
 
     private TetradMatrix center(TetradMatrix K) {
+        if (H == null) {
+            TetradMatrix Ones = new TetradMatrix(N, 1);
+            for (int j = 0; j < N; j++) Ones.set(j, 0, 1);
+
+            H = TetradMatrix.identity(N).minus(Ones.times(Ones.transpose()).scalarMult(1.0 / N));
+        }
+
         return H.times(K).times(H);
     }
 
+    /**
+     * Centered random Fourier features for the kernel of kernelMatrix(_data, x, z, widthMultiplier),
+     * an N x rank matrix f with f f' approximately equal to the centered kernel matrix. That kernel
+     * is exp(-|u - v|^2 / (4 w^2)), w being the width, which is Gaussian with sigma = sqrt(2) w, so
+     * the frequencies are drawn from N(0, 1 / sigma^2). The features for a given set of variables
+     * are always the same.
+     */
+    private TetradMatrix features(Node x, List<Node> z) {
+        List<Integer> _z = columns(x, z);
+        double width = getWidthMultiplier() * getH(_z);
+
+        if (width == 0) {
+            throw new IllegalArgumentException("Width is zero.");
+        }
+
+        double sigma = sqrt(2.0) * width;
+        double scale = sqrt(2.0 / rank);
+        RandomGenerator random = new Well44497b(193924L + _z.hashCode());
+        double[] omega = new double[_z.size()];
+        double[][] features = new double[N][rank];
+
+        for (int k = 0; k < rank; k++) {
+            for (int c = 0; c < omega.length; c++) {
+                omega[c] = random.nextGaussian() / sigma;
+            }
+
+            double b = 2 * PI * random.nextDouble();
+            double sum = 0.0;
+
+            for (int i = 0; i < N; i++) {
+                double t = b;
+
+                for (int c = 0; c < omega.length; c++) {
+                    double d = _data[_z.get(c)][i];
+
+                    if (!Double.isNaN(d)) {
+                        t += omega[c] * d;
+                    }
+                }
+
+                features[i][k] = scale * cos(t);
+                sum += features[i][k];
+            }
+
+            double mean = sum / N;
+
+            for (int i = 0; i < N; i++) {
+                features[i][k] -= mean;
+            }
+        }
+
+        return new TetradMatrix(features);
+    }
+
+    // Sum of squares of the entries.
+    private double squaredNorm(TetradMatrix m) {
+        double sum = 0.0;
+
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.columns(); j++) {
+                sum += m.get(i, j) * m.get(i, j);
+            }
+        }
+
+        return sum;
+    }
+
     private double getChisqSample() {
         double z = normal.sample();
         return z * z;
@@ -672,17 +844,7 @@ public class Kci implements IndependenceTest, ScoreForFact {
 
     private TetradMatrix kernelMatrix(double[][] _data, Node x, List<Node> z, double widthMultiplier) {
 
-        List<Integer> _z = new ArrayList<>();
-
-        if (x != null) {
-            _z.add(hash.get(x));
-        }
-
-        if (z != null) {
-            for (Node z2 : z) {
-                _z.add(hash.get(z2));
-            }
-        }
+        List<Integer> _z = columns(x, z);
 
         double h = getH(_z);
 
@@ -706,6 +868,22 @@ public class Kci implements IndependenceTest, ScoreForFact {
         return result;
     }
 
+    private List<Integer> columns(Node x, List<Node> z) {
+        List<Integer> _z = new ArrayList<>();
+
+        if (x != null) {
+            _z.add(hash.get(x));
+        }
+
+        if (z != null) {
+            for (Node z2 : z) {
+                _z.add(hash.get(z2));
+            }
+        }
+
+        return _z;
+    }
+
     private double getH(List<Integer> _z) {
         double h = 0;
 
@@ -21,48 +21,114 @@
 
 package edu.cmu.tetrad.search;
 
-import org.apache.commons.collections4.map.MultiKeyMap;
-
-import java.util.HashSet;
-import java.util.Set;
+import edu.cmu.tetrad.util.DoubleClockCache;
 
 /**
- * Stores a map from (variable, parents) to score.
+ * Stores a map from (variable, parents) to score, and optionally from (x, y, z) to score
+ * difference. The parents are treated as a set, so that the order in which they are given
+ * does not matter.
+ * <p>
+ * The values are kept unboxed in a DoubleClockCache, keyed on (variable, -1, parents) for
+ * scores and on (y, x, z) for score differences, so the cache never grows past its capacity,
+ * lookups do not allocate, and it is safe for use by several threads at once.
  *
  * @author Joseph Ramsey
  */
 public class LocalScoreCache {
-    private MultiKeyMap map;
 
+    // The tag used for (variable, parents) keys; score difference keys use x, which is >= 0.
+    private static final int NO_TAG = -1;
+
+    private final DoubleClockCache cache;
+
+    /**
+     * Constructs a cache with room for 2^20 entries.
+     */
     public LocalScoreCache() {
-        map = new MultiKeyMap();
+        this(1 << 20);
     }
 
-    public void add(int variable, int[] parents, double score) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
-
-        for (int parent : parents) {
-            _parents.add(parent);
-        }
+    /**
+     * Constructs a cache with room for at least the given number of entries.
+     *
+     * @param capacity The maximum number of entries to keep; rounded up to a power of two.
+     */
+    public LocalScoreCache(int capacity) {
+        this.cache = new DoubleClockCache(capacity);
+    }
 
-        map.put(variable, _parents, score);
+    /**
+     * Stores the score of the given variable conditional on the given parents.
+     */
+    public void add(int variable, int[] parents, double score) {
+        cache.put(variable, NO_TAG, parents, score);
     }
 
+    /**
+     * Returns the stored score of the given variable conditional on the given parents, or
+     * Double.NaN if no such score is stored.
+     */
     public double get(int variable, int[] parents) {
-        Set<Integer> _parents = new HashSet<>(parents.length);
+        return cache.get(variable, NO_TAG, parents);
+    }
 
-        for (int parent : parents) {
-            _parents.add(parent);
-        }
+    /**
+     * Stores the score difference for adding x to the parents z of y.
+     */
+    public void addDiff(int x, int y, int[] z, double diff) {
+        if (x < 0) throw new IllegalArgumentException("Negative variable index: " + x);
+        cache.put(y, x, z, diff);
+    }
 
-        Double _score = (Double) map.get(variable, _parents);
-        return _score == null ? Double.NaN : (_score);
+    /**
+     * Returns the stored score difference for adding x to the parents z of y, or Double.NaN
+     * if no such difference is stored.
+     */
+    public double getDiff(int x, int y, int[] z) {
+        if (x < 0) throw new IllegalArgumentException("Negative variable index: " + x);
+        return cache.get(y, x, z);
     }
 
     public void clear() {
-        map.clear();
+        cache.clear();
     }
-}
 
+    /**
+     * The maximum number of entries the cache can hold.
+     */
+    public int getCapacity() {
+        return cache.getCapacity();
+    }
+
+    /**
+     * The number of lookups that found a stored value.
+     */
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    /**
+     * The number of lookups that found no stored value.
+     */
+    public long getMisses() {
+        return cache.getMisses();
+    }
 
+    /**
+     * The number of entries that have been evicted to make room for new ones.
+     */
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * Sets the hit, miss and eviction counts back to zero.
+     */
+    public void resetCounts() {
+        cache.resetCounts();
+    }
 
+    public String toString() {
+        return "LocalScoreCache " + cache;
+    }
+}
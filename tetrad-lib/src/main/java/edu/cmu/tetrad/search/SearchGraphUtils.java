@@ -3040,7 +3040,11 @@ public final class SearchGraphUtils {
         }
     }
 
-    private static int structuralHammingDistanceOneEdge3(Edge e1, Edge e2) {
+    /**
+     * @return The contribution to structuralHammingDistance3 of a pair of nodes with true edge e1 and estimated edge
+     * e2, either of which may be null.
+     */
+    public static int structuralHammingDistanceOneEdge3(Edge e1, Edge e2) {
         if (noEdge3(e1) && nondirected3(e2)) {
             return 1;
         } else if (noEdge3(e2) && nondirected3(e1)) {
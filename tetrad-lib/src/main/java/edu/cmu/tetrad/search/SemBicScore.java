@@ -69,6 +69,15 @@ public class SemBicScore implements Score {
 
     private Map<String, Integer> indexMap;
 
+    // True if Cholesky factors of recently scored parent sets should be kept and updated by
+    // rank-one insertions and deletions, rather than inverting a fresh submatrix per score.
+    private boolean useCholeskyUpdates = false;
+
+    // The maximum number of Cholesky factors kept per thread.
+    private int choleskyCacheSize = 10000;
+
+    // One cache of Cholesky factors per thread, since FGES scores in parallel.
+    private ThreadLocal<CholeskyFactorCache> factors;
 
     /**
      * Constructs the score using a covariance matrix.
@@ -90,6 +99,21 @@ public class SemBicScore implements Score {
     public double localScore(int i, int... parents) {
         for (int p : parents) if (forbidden.contains(p)) return Double.NaN;
 
+        if (useCholeskyUpdates) {
+            CholeskyFactorCache cache = factors.get();
+            CholeskyFactorCache.Factor factor = cache.factor(parents);
+
+            // Singular parent sets are left to the code below, which reports them.
+            if (factor != null) {
+                double s2 = cache.residualVariance(i, factor);
+
+                if (s2 > 0) {
+                    int n = getSampleSize();
+                    return -(n) * log(s2) - getPenaltyDiscount() * log(n);
+                }
+            }
+        }
+
         try {
             double s2 = getCovariances().getValue(i, i);
             int p = parents.length;
@@ -140,18 +164,28 @@ public class SemBicScore implements Score {
 
     @Override
     public double localScoreDiff(int x, int y, int[] z) {
+        double r = Double.NaN;
 
-        Node _x = variables.get(x);
-        Node _y = variables.get(y);
-        List<Node> _z = getVariableList(z);
+        if (useCholeskyUpdates) {
+            CholeskyFactorCache cache = factors.get();
+            CholeskyFactorCache.Factor factor = cache.factor(z);
 
-        double r;
+            if (factor != null) {
+                r = cache.partialCorrelation(x, y, factor);
+            }
+        }
 
-        try {
-            r = partialCorrelation(_x, _y, _z);
-        } catch (SingularMatrixException e) {
+        if (Double.isNaN(r)) {
+            Node _x = variables.get(x);
+            Node _y = variables.get(y);
+            List<Node> _z = getVariableList(z);
+
+            try {
+                r = partialCorrelation(_x, _y, _z);
+            } catch (SingularMatrixException e) {
 //            System.out.println(SearchLogUtils.determinismDetected(_z, _x));
-            return Double.NaN;
+                return Double.NaN;
+            }
         }
 
         int p = 2 + z.length;
@@ -343,11 +377,50 @@ public class SemBicScore implements Score {
 
     private void setCovariances(ICovarianceMatrix covariances) {
         this.covariances = covariances;
+        resetFactors();
     }
 
     public void setVariables(List<Node> variables) {
         covariances.setVariables(variables);
         this.variables = variables;
+        resetFactors();
+    }
+
+    /**
+     * True iff Cholesky factors of recently scored parent sets are kept and updated by rank-one
+     * insertions and deletions, so that scoring a parent set that differs by one variable from
+     * one just scored costs O(k^2) rather than O(k^3). False by default.
+     */
+    public boolean isUseCholeskyUpdates() {
+        return useCholeskyUpdates;
+    }
+
+    public void setUseCholeskyUpdates(boolean useCholeskyUpdates) {
+        this.useCholeskyUpdates = useCholeskyUpdates;
+    }
+
+    /**
+     * Sets the maximum number of Cholesky factors kept per thread when Cholesky updates are used.
+     */
+    public void setCholeskyCacheSize(int choleskyCacheSize) {
+        if (choleskyCacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1: " + choleskyCacheSize);
+        }
+
+        this.choleskyCacheSize = choleskyCacheSize;
+        resetFactors();
+    }
+
+    private void resetFactors() {
+        final ICovarianceMatrix cov = this.covariances;
+        final int size = this.choleskyCacheSize;
+
+        this.factors = new ThreadLocal<CholeskyFactorCache>() {
+            @Override
+            protected CholeskyFactorCache initialValue() {
+                return new CholeskyFactorCache(cov, size);
+            }
+        };
     }
 
     @Override
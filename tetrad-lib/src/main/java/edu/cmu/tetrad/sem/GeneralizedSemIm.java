@@ -21,6 +21,7 @@
 
 package edu.cmu.tetrad.sem;
 
+import edu.cmu.tetrad.calculator.expression.CompiledExpression;
 import edu.cmu.tetrad.calculator.expression.Context;
 import edu.cmu.tetrad.calculator.expression.Expression;
 import edu.cmu.tetrad.calculator.parser.ExpressionLexer;
@@ -71,6 +72,16 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
      */
     private double selfLoopCoef = Double.NaN;
 
+    /**
+     * True if the recursive and Fisher simulations simulate rows in parallel.
+     */
+    private boolean parallel = false;
+
+    /**
+     * The number of rows in each chunk of a parallel simulation.
+     */
+    private static final int SIMULATION_CHUNK_SIZE = 1000;
+
 
     /**
      * Constructs a new GeneralizedSemIm from the given GeneralizedSemPm by picking values for each of
@@ -348,31 +359,35 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
             }
         }
 
-        final Map<String, Double> variableValues = new HashMap<>();
-
-        Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
+        // Lagged copies of the lag 0 nodes get slots after the lag 0 nodes themselves.
+        List<Node> slotNodes = new ArrayList<>(lag0Nodes);
+        int maxLag = timeLagGraph.getMaxLag();
+        int[][] laggedIndices = new int[lag0Nodes.size()][maxLag + 1];
 
-                if (value != null) {
-                    return value;
-                }
+        for (int i = 0; i < lag0Nodes.size(); i++) {
+            TimeLagGraph.NodeId _id = timeLagGraph.getNodeId(lag0Nodes.get(i));
 
-                value = variableValues.get(term);
+            for (int lag = 1; lag <= maxLag; lag++) {
+                Node _node = timeLagGraph.getNode(_id.getName(), lag);
 
-                if (value != null) {
-                    return value;
+                if (_node == null) {
+                    laggedIndices[i][lag] = -1;
                 } else {
-                    return RandomUtil.getInstance().nextNormal(0, 1);
+                    laggedIndices[i][lag] = slotNodes.size();
+                    slotNodes.add(_node);
                 }
             }
-        };
+        }
+
+        // Terms with no recorded value, such as the error terms, are drawn from N(0, 1).
+        Slots slots = new Slots(slotNodes, true);
+        CompiledExpression[] expressions = slots.compile(tierOrdering);
 
         ROW:
         for (int currentStep = 0; currentStep < sampleSize; currentStep++) {
-            for (Node node : tierOrdering) {
-                Expression expression = pm.getNodeExpression(node);
-                double value = expression.evaluate(context);
+            for (int t = 0; t < tierOrdering.size(); t++) {
+                Node node = tierOrdering.get(t);
+                double value = slots.evaluate(expressions[t]);
 
                 if (isSimulatePositiveDataOnly() && value < 0) {
                     currentStep--;
@@ -381,23 +396,18 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
 
                 int col = nodeIndices.get(node);
                 fullData.setDouble(currentStep, col, value);
-                variableValues.put(node.getName(), value);
+                slots.put(col, value);
             }
 
-            for (Node node : lag0Nodes) {
-                TimeLagGraph.NodeId _id = timeLagGraph.getNodeId(node);
-
-                for (int lag = 1; lag <= timeLagGraph.getMaxLag(); lag++) {
-                    Node _node = timeLagGraph.getNode(_id.getName(), lag);
-                    int col = lag0Nodes.indexOf(node);
-
-                    if (_node == null) {
+            for (int col = 0; col < lag0Nodes.size(); col++) {
+                for (int lag = 1; lag <= maxLag; lag++) {
+                    if (laggedIndices[col][lag] == -1) {
                         continue;
                     }
 
                     if (currentStep - lag + 1 >= 0) {
                         double _value = fullData.getDouble((currentStep - lag + 1), col);
-                        variableValues.put(_node.getName(), _value);
+                        slots.put(laggedIndices[col][lag], _value);
                     }
                 }
             }
@@ -415,27 +425,7 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
      * @return the simulated data set.
      */
     public DataSet simulateDataRecursive(int sampleSize, boolean latentDataSaved) {
-        final Map<String, Double> variableValues = new HashMap<>();
-
-        Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                value = variableValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
-            }
-        };
-
-        List<Node> variables = pm.getNodes();
+        final List<Node> variables = pm.getNodes();
         List<Node> continuousVariables = new LinkedList<>();
         List<Node> nonErrorVariables = pm.getVariableNodes();
 
@@ -449,62 +439,50 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
             }
         }
 
-        DataSet fullDataSet = new ColtDataSet(sampleSize, continuousVariables);
+        final double[][] all = new double[continuousVariables.size()][sampleSize];
 
         // Create some index arrays to hopefully speed up the simulation.
         SemGraph graph = pm.getGraph();
-        List<Node> tierOrdering = graph.getFullTierOrdering();
+        final List<Node> tierOrdering = graph.getFullTierOrdering();
 
-        int[] tierIndices = new int[variables.size()];
+        final int[] tierIndices = new int[variables.size()];
 
         for (int i = 0; i < tierIndices.length; i++) {
             tierIndices[i] = nonErrorVariables.indexOf(tierOrdering.get(i));
         }
 
-        int[][] _parents = new int[variables.size()][];
-
-        for (int i = 0; i < variables.size(); i++) {
-            Node node = variables.get(i);
-            List<Node> parents = graph.getParents(node);
+        final int[] slotIndices = new int[variables.size()];
 
-            _parents[i] = new int[parents.size()];
-
-            for (int j = 0; j < parents.size(); j++) {
-                Node _parent = parents.get(j);
-                _parents[i][j] = variables.indexOf(_parent);
-            }
+        for (int i = 0; i < slotIndices.length; i++) {
+            slotIndices[i] = variables.indexOf(tierOrdering.get(i));
         }
 
         // Do the simulation.
-        for (int row = 0; row < sampleSize; row++) {
-            variableValues.clear();
+        simulateRows(sampleSize, new ChunkedSimulation.Rows() {
+            public void simulate(int from, int to) {
+                Slots slots = new Slots(variables, false);
+                CompiledExpression[] expressions = slots.compile(tierOrdering);
 
-            for (int tier = 0; tier < tierOrdering.size(); tier++) {
-                Node node = tierOrdering.get(tier);
-                Expression expression = pm.getNodeExpression(node);
-                double value = expression.evaluate(context);
-                variableValues.put(node.getName(), value);
+                for (int row = from; row < to; row++) {
+                    slots.clear();
 
-                int col = tierIndices[tier];
+                    for (int tier = 0; tier < tierOrdering.size(); tier++) {
+                        double value = slots.evaluate(expressions[tier]);
+                        slots.put(slotIndices[tier], value);
 
-                if (col == -1) {
-                    continue;
-                }
-
-//                if (isSimulatePositiveDataOnly() && value < 0) {
-//                    row--;
-//                    continue ROW;
-//                }
+                        int col = tierIndices[tier];
 
-//                if (!Double.isNaN(selfLoopCoef) && row > 0) {
-//                    value += selfLoopCoef * fullDataSet.getDouble(row - 1, col);
-//                }
-
-//                value = min(max(value, -5.), 5.);
+                        if (col == -1) {
+                            continue;
+                        }
 
-                fullDataSet.setDouble(row, col, value);
+                        all[col][row] = value;
+                    }
+                }
             }
-        }
+        });
+
+        DataSet fullDataSet = new BoxDataSet(new VerticalDoubleDataBox(all), continuousVariables);
 
         if (latentDataSaved) {
             return fullDataSet;
@@ -513,10 +491,7 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
         }
     }
 
-
     public DataSet simulateDataMinimizeSurface(int sampleSize, boolean latentDataSaved) {
-        final Map<String, Double> variableValues = new HashMap<>();
-
         List<Node> continuousVariables = new LinkedList<>();
         final List<Node> variableNodes = pm.getVariableNodes();
 
@@ -532,23 +507,11 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
 
         DataSet fullDataSet = new ColtDataSet(sampleSize, continuousVariables);
 
-        final Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                value = variableValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
-            }
-        };
+        final List<Node> errorNodes = getErrorNodes(variableNodes);
+        final int numVariables = variableNodes.size();
+        final Slots slots = new Slots(variablesAndErrors(variableNodes, errorNodes), false);
+        final CompiledExpression[] expressions = slots.compile(variableNodes);
+        CompiledExpression[] errorExpressions = slots.compile(errorNodes);
 
         final double[] _metric = new double[1];
 
@@ -556,19 +519,18 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
             double metric;
 
             public double value(double[] doubles) {
-                for (int i = 0; i < variableNodes.size(); i++) {
-                    variableValues.put(variableNodes.get(i).getName(), doubles[i]);
+                for (int i = 0; i < numVariables; i++) {
+                    slots.put(i, doubles[i]);
                 }
 
                 double[] image = new double[doubles.length];
 
-                for (int i = 0; i < variableNodes.size(); i++) {
-                    Node node = variableNodes.get(i);
-                    Expression expression = pm.getNodeExpression(node);
-                    image[i] = expression.evaluate(context);
+                for (int i = 0; i < numVariables; i++) {
+                    image[i] = slots.evaluate(expressions[i]);
 
                     if (Double.isNaN(image[i])) {
-                        throw new IllegalArgumentException("Undefined value for expression " + expression);
+                        throw new IllegalArgumentException("Undefined value for expression "
+                                + pm.getNodeExpression(variableNodes.get(i)));
                     }
                 }
 
@@ -579,8 +541,8 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
                     metric += diff * diff;
                 }
 
-                for (int i = 0; i < variableNodes.size(); i++) {
-                    variableValues.put(variableNodes.get(i).getName(), image[i]);
+                for (int i = 0; i < numVariables; i++) {
+                    slots.put(i, image[i]);
                 }
 
                 _metric[0] = metric;
@@ -596,25 +558,19 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
         for (int row = 0; row < sampleSize; row++) {
 
             // Take random draws from error distributions.
-            for (Node variable : variableNodes) {
-                Node error = pm.getErrorNode(variable);
-
-                if (error == null) {
-                    throw new NullPointerException();
-                }
-
-                Expression expression = pm.getNodeExpression(error);
-                double value = expression.evaluate(context);
+            for (int j = 0; j < errorNodes.size(); j++) {
+                double value = slots.evaluate(errorExpressions[j]);
 
                 if (Double.isNaN(value)) {
-                    throw new IllegalArgumentException("Undefined value for expression: " + expression);
+                    throw new IllegalArgumentException("Undefined value for expression: "
+                            + pm.getNodeExpression(errorNodes.get(j)));
                 }
 
-                variableValues.put(error.getName(), value);
+                slots.put(numVariables + j, value);
             }
 
-            for (Node variable : variableNodes) {
-                variableValues.put(variable.getName(), 0.0);// RandomUtil.getInstance().nextUniform(-5, 5));
+            for (int i = 0; i < numVariables; i++) {
+                slots.put(i, 0.0);// RandomUtil.getInstance().nextUniform(-5, 5));
             }
 
             while (true) {
@@ -622,7 +578,7 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
                 double[] values = new double[variableNodes.size()];
 
                 for (int i = 0; i < values.length; i++) {
-                    values[i] = variableValues.get(variableNodes.get(i).getName());
+                    values[i] = slots.get(i);
                 }
 
                 PointValuePair pair = search.optimize(
@@ -643,7 +599,7 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
                         values[i] += selfLoopCoef * fullDataSet.getDouble(row - 1, i);
                     }
 
-                    variableValues.put(variableNodes.get(i).getName(), values[i]);
+                    slots.put(i, values[i]);
                     fullDataSet.setDouble(row, i, values[i]);
                 }
 
@@ -661,8 +617,6 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
     }
 
     public DataSet simulateDataAvoidInfinity(int sampleSize, boolean latentDataSaved) {
-        final Map<String, Double> variableValues = new HashMap<>();
-
         List<Node> continuousVariables = new LinkedList<>();
         final List<Node> variableNodes = pm.getVariableNodes();
 
@@ -678,23 +632,11 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
 
         DataSet fullDataSet = new ColtDataSet(sampleSize, continuousVariables);
 
-        final Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                value = variableValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
-            }
-        };
+        final List<Node> errorNodes = getErrorNodes(variableNodes);
+        final int numVariables = variableNodes.size();
+        final Slots slots = new Slots(variablesAndErrors(variableNodes, errorNodes), false);
+        final CompiledExpression[] expressions = slots.compile(variableNodes);
+        CompiledExpression[] errorExpressions = slots.compile(errorNodes);
 
         boolean allInRange = true;
 
@@ -703,37 +645,27 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
         for (int row = 0; row < sampleSize; row++) {
 
             // Take random draws from error distributions.
-            for (Node variable : variableNodes) {
-                Node error = pm.getErrorNode(variable);
-
-                if (error == null) {
-                    throw new NullPointerException();
-                }
-
-                Expression expression = pm.getNodeExpression(error);
-                double value;
-
-                value = expression.evaluate(context);
+            for (int j = 0; j < errorNodes.size(); j++) {
+                double value = slots.evaluate(errorExpressions[j]);
 
                 if (Double.isNaN(value)) {
-                    throw new IllegalArgumentException("Undefined value for expression: " + expression);
+                    throw new IllegalArgumentException("Undefined value for expression: "
+                            + pm.getNodeExpression(errorNodes.get(j)));
                 }
 
-                variableValues.put(error.getName(), value);
+                slots.put(numVariables + j, value);
             }
 
             // Set the variable nodes to zero.
-            for (Node variable : variableNodes) {
-                Node error = pm.getErrorNode(variable);
-
-                Expression expression = pm.getNodeExpression(error);
-                double value = expression.evaluate(context);
+            for (int i = 0; i < numVariables; i++) {
+                double value = slots.evaluate(errorExpressions[i]);
 
                 if (Double.isNaN(value)) {
-                    throw new IllegalArgumentException("Undefined value for expression: " + expression);
+                    throw new IllegalArgumentException("Undefined value for expression: "
+                            + pm.getNodeExpression(errorNodes.get(i)));
                 }
 
-                variableValues.put(variable.getName(), 0.0);//value); //0.0; //RandomUtil.getInstance().nextUniform(-1, 1));
+                slots.put(i, 0.0);//value); //0.0; //RandomUtil.getInstance().nextUniform(-1, 1));
             }
 
             // Repeatedly update variable values until one of them hits infinity or negative infinity or
@@ -746,21 +678,17 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
                 double[] values = new double[variableNodes.size()];
 
                 for (int i = 0; i < values.length; i++) {
-                    Node node = variableNodes.get(i);
-                    Expression expression = pm.getNodeExpression(node);
-                    double value = expression.evaluate(context);
-                    values[i] = value;
+                    values[i] = slots.evaluate(expressions[i]);
                 }
 
                 allInRange = true;
 
                 for (int i = 0; i < values.length; i++) {
-                    Node node = variableNodes.get(i);
 
                     // If any of the variables hasn't converged or if any of the variable values has gone
                     // outside of the bound (-1e6, 1e6), judge nonconvergence and pick another random starting point.
-                    if (!(Math.abs(variableValues.get(node.getName()) - values[i]) < delta)) {
-                        if (!(Math.abs(variableValues.get(node.getName())) < 1e6)) {
+                    if (!(Math.abs(slots.get(i) - values[i]) < delta)) {
+                        if (!(Math.abs(slots.get(i)) < 1e6)) {
                             if (count < 1000) {
                                 row--;
                                 continue ROW;
@@ -773,8 +701,8 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
 
                 }
 
-                for (int i = 0; i < variableNodes.size(); i++) {
-                    variableValues.put(variableNodes.get(i).getName(), values[i]);
+                for (int i = 0; i < numVariables; i++) {
+                    slots.put(i, values[i]);
                 }
 
                 if (allInRange) {
@@ -799,7 +727,7 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
             }
 
             for (int i = 0; i < variableNodes.size(); i++) {
-                double value = variableValues.get(variableNodes.get(i).getName());
+                double value = slots.get(i);
 
                 if (isSimulatePositiveDataOnly() && value < 0) {
                     row--;
@@ -851,91 +779,70 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
      *                              Must be positive integer.
      * @param epsilon               The convergence criterion; |xi.t - xi.t-1| < epsilon.
      */
-    public DataSet simulateDataFisher(int sampleSize, int intervalBetweenShocks,
-                                      double epsilon) {
+    public DataSet simulateDataFisher(int sampleSize, final int intervalBetweenShocks,
+                                      final double epsilon) {
         if (intervalBetweenShocks < 1) throw new IllegalArgumentException(
                 "Interval between shocks must be >= 1: " + intervalBetweenShocks);
         if (epsilon <= 0.0) throw new IllegalArgumentException(
                 "Epsilon must be > 0: " + epsilon);
 
-        final Map<String, Double> variableValues = new HashMap<>();
-
-        final Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                value = variableValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
-            }
-        };
-
         final List<Node> variableNodes = pm.getVariableNodes();
+        final List<Node> errorNodes = getErrorNodes(variableNodes);
+        final int numVariables = variableNodes.size();
+        final double[][] all = new double[variableNodes.size()][sampleSize];
+
+        // Do the simulation. A chunk of rows simulated in parallel starts the process afresh.
+        simulateRows(sampleSize, new ChunkedSimulation.Rows() {
+            public void simulate(int from, int to) {
+                Slots slots = new Slots(variablesAndErrors(variableNodes, errorNodes), false);
+                CompiledExpression[] expressions = slots.compile(variableNodes);
+                CompiledExpression[] errorExpressions = slots.compile(errorNodes);
+
+                double[] t1 = new double[numVariables];
+                double[] t2 = new double[numVariables];
+
+                for (int row = from; row < to; row++) {
+                    for (int j = 0; j < t1.length; j++) {
+                        double value = slots.evaluate(errorExpressions[j]);
+
+                        if (Double.isNaN(value)) {
+                            throw new IllegalArgumentException("Undefined value for expression: "
+                                    + pm.getNodeExpression(errorNodes.get(j)));
+                        }
 
-        double[] t1 = new double[variableNodes.size()];
-        double[] t2 = new double[variableNodes.size()];
-        double[] shocks = new double[variableNodes.size()];
-        double[][] all = new double[variableNodes.size()][sampleSize];
-
-        // Do the simulation.
-        for (int row = 0; row < sampleSize; row++) {
-            for (int j = 0; j < t1.length; j++) {
-                Node error = pm.getErrorNode(variableNodes.get(j));
-
-                if (error == null) {
-                    throw new NullPointerException();
-                }
-
-                Expression expression = pm.getNodeExpression(error);
-                double value = expression.evaluate(context);
+                        slots.put(numVariables + j, value);
+                    }
 
-                if (Double.isNaN(value)) {
-                    throw new IllegalArgumentException("Undefined value for expression: " + expression);
-                }
+                    for (int i = 0; i < intervalBetweenShocks; i++) {
+                        for (int j = 0; j < t1.length; j++) {
+                            t2[j] = slots.evaluate(expressions[j]);
+                            slots.put(j, t2[j]);
+                        }
 
-                variableValues.put(error.getName(), value);
-                shocks[j] = value;
-            }
+                        boolean converged = true;
 
-            for (int i = 0; i < intervalBetweenShocks; i++) {
-                for (int j = 0; j < t1.length; j++) {
-                    t2[j] = shocks[j];
-                    Node node = variableNodes.get(j);
-                    Expression expression = pm.getNodeExpression(node);
-                    t2[j] = expression.evaluate(context);
-                    variableValues.put(node.getName(), t2[j]);
-                }
+                        for (int j = 0; j < t1.length; j++) {
+                            if (Math.abs(t2[j] - t1[j]) > epsilon) {
+                                converged = false;
+                                break;
+                            }
+                        }
 
-                boolean converged = true;
+                        double[] t3 = t1;
+                        t1 = t2;
+                        t2 = t3;
 
-                for (int j = 0; j < t1.length; j++) {
-                    if (Math.abs(t2[j] - t1[j]) > epsilon) {
-                        converged = false;
-                        break;
+                        if (converged) {
+                            break;
+                        }
                     }
-                }
 
-                double[] t3 = t1;
-                t1 = t2;
-                t2 = t3;
-
-                if (converged) {
-                    break;
+                    for (int j = 0; j < t1.length; j++) {
+                        all[j][row] = t1[j];
+                    }
                 }
             }
-
-            for (int j = 0; j < t1.length; j++) {
-                all[j][row] = t1[j];
-            }
-        }
+        });
 
         List<Node> continuousVars = new ArrayList<>();
 
@@ -951,42 +858,21 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
 
 
     public TetradVector simulateOneRecord(TetradVector e) {
-        final Map<String, Double> variableValues = new HashMap<>();
-
         final List<Node> variableNodes = pm.getVariableNodes();
 
-        final Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                value = variableValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
-            }
-        };
+        final List<Node> errorNodes = getErrorNodes(variableNodes);
+        final int numVariables = variableNodes.size();
+        final Slots slots = new Slots(variablesAndErrors(variableNodes, errorNodes), false);
+        final CompiledExpression[] expressions = slots.compile(variableNodes);
 
         // Take random draws from error distributions.
-        for (int i = 0; i < variableNodes.size(); i++) {
-            Node error = pm.getErrorNode(variableNodes.get(i));
-
-            if (error == null) {
-                throw new NullPointerException();
-            }
-
-            variableValues.put(error.getName(), e.get(i));
+        for (int i = 0; i < errorNodes.size(); i++) {
+            slots.put(numVariables + i, e.get(i));
         }
 
         // Set the variable nodes to zero.
-        for (Node variable : variableNodes) {
-            variableValues.put(variable.getName(), 0.0);// RandomUtil.getInstance().nextUniform(-5, 5));
+        for (int i = 0; i < numVariables; i++) {
+            slots.put(i, 0.0);// RandomUtil.getInstance().nextUniform(-5, 5));
         }
 
         // Repeatedly update variable values until one of them hits infinity or negative infinity or
@@ -999,26 +885,21 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
             double[] values = new double[variableNodes.size()];
 
             for (int i = 0; i < values.length; i++) {
-                Node node = variableNodes.get(i);
-                Expression expression = pm.getNodeExpression(node);
-                double value = expression.evaluate(context);
-                values[i] = value;
+                values[i] = slots.evaluate(expressions[i]);
             }
 
             boolean allInRange = true;
 
             for (int i = 0; i < values.length; i++) {
-                Node node = variableNodes.get(i);
-
-                if (!(Math.abs(variableValues.get(node.getName()) - values[i]) < delta)) {
+                if (!(Math.abs(slots.get(i) - values[i]) < delta)) {
                     allInRange = false;
                     break;
                 }
             }
 
 
-            for (int i = 0; i < variableNodes.size(); i++) {
-                variableValues.put(variableNodes.get(i).getName(), values[i]);
+            for (int i = 0; i < numVariables; i++) {
+                slots.put(i, values[i]);
             }
 
             if (allInRange) {
@@ -1029,16 +910,13 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
         TetradVector _case = new TetradVector(e.size());
 
         for (int i = 0; i < variableNodes.size(); i++) {
-            double value = variableValues.get(variableNodes.get(i).getName());
-            _case.set(i, value);
+            _case.set(i, slots.get(i));
         }
 
         return _case;
     }
 
     public DataSet simulateDataNSteps(int sampleSize, boolean latentDataSaved) {
-        final Map<String, Double> variableValues = new HashMap<>();
-
         List<Node> continuousVariables = new LinkedList<>();
         final List<Node> variableNodes = pm.getVariableNodes();
 
@@ -1054,49 +932,31 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
 
         DataSet fullDataSet = new ColtDataSet(sampleSize, continuousVariables);
 
-        final Context context = new Context() {
-            public Double getValue(String term) {
-                Double value = parameterValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                value = variableValues.get(term);
-
-                if (value != null) {
-                    return value;
-                }
-
-                throw new IllegalArgumentException("No value recorded for '" + term + "'");
-            }
-        };
+        final List<Node> errorNodes = getErrorNodes(variableNodes);
+        final int numVariables = variableNodes.size();
+        final Slots slots = new Slots(variablesAndErrors(variableNodes, errorNodes), false);
+        final CompiledExpression[] expressions = slots.compile(variableNodes);
+        CompiledExpression[] errorExpressions = slots.compile(errorNodes);
 
         // Do the simulation.
         ROW:
         for (int row = 0; row < sampleSize; row++) {
 
             // Take random draws from error distributions.
-            for (Node variable : variableNodes) {
-                Node error = pm.getErrorNode(variable);
-
-                if (error == null) {
-                    throw new NullPointerException();
-                }
-
-                Expression expression = pm.getNodeExpression(error);
-                double value = expression.evaluate(context);
+            for (int j = 0; j < errorNodes.size(); j++) {
+                double value = slots.evaluate(errorExpressions[j]);
 
                 if (Double.isNaN(value)) {
-                    throw new IllegalArgumentException("Undefined value for expression: " + expression);
+                    throw new IllegalArgumentException("Undefined value for expression: "
+                            + pm.getNodeExpression(errorNodes.get(j)));
                 }
 
-                variableValues.put(error.getName(), value);
+                slots.put(numVariables + j, value);
             }
 
             // Set the variable nodes to zero.
-            for (Node variable : variableNodes) {
-                variableValues.put(variable.getName(), 0.0);// RandomUtil.getInstance().nextUniform(-5, 5));
+            for (int i = 0; i < numVariables; i++) {
+                slots.put(i, 0.0);// RandomUtil.getInstance().nextUniform(-5, 5));
             }
 
             // Repeatedly update variable values until one of them hits infinity or negative infinity or
@@ -1106,12 +966,11 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
                 double[] values = new double[variableNodes.size()];
 
                 for (int i = 0; i < values.length; i++) {
-                    Node node = variableNodes.get(i);
-                    Expression expression = pm.getNodeExpression(node);
-                    double value = expression.evaluate(context);
+                    double value = slots.evaluate(expressions[i]);
 
                     if (Double.isNaN(value)) {
-                        throw new IllegalArgumentException("Undefined value for expression: " + expression);
+                        throw new IllegalArgumentException("Undefined value for expression: "
+                                + pm.getNodeExpression(variableNodes.get(i)));
                     }
 
                     values[i] = value;
@@ -1124,15 +983,14 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
                     }
                 }
 
-                for (int i = 0; i < variableNodes.size(); i++) {
-                    variableValues.put(variableNodes.get(i).getName(), values[i]);
+                for (int i = 0; i < numVariables; i++) {
+                    slots.put(i, values[i]);
                 }
 
             }
 
             for (int i = 0; i < variableNodes.size(); i++) {
-                double value = variableValues.get(variableNodes.get(i).getName());
-                fullDataSet.setDouble(row, i, value);
+                fullDataSet.setDouble(row, i, slots.get(i));
             }
         }
 
@@ -1157,6 +1015,17 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
         }
     }
 
+    /**
+     * If true, the recursive and Fisher simulations (and so simulateData for models that are not time series)
+     * simulate rows in parallel, in chunks of a fixed number of rows, each drawing from its own random number
+     * generator seeded from RandomUtil. For a given seed the data then do not depend on the number of threads,
+     * though they differ from the data simulated serially. For the Fisher simulation each chunk starts the
+     * process afresh. False by default.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
     private boolean isSimulatePositiveDataOnly() {
         return simulatePositiveDataOnly;
     }
@@ -1164,7 +1033,134 @@ public class GeneralizedSemIm implements IM, Simulator, TetradSerializable {
     public void setSimulatePositiveDataOnly(boolean simulatedPositiveDataOnly) {
         this.simulatePositiveDataOnly = simulatedPositiveDataOnly;
     }
-}
 
+    //==================================== Private methods ====================================//
+
+    private void simulateRows(int sampleSize, ChunkedSimulation.Rows rows) {
+        if (parallel) {
+            ChunkedSimulation.simulate(sampleSize, SIMULATION_CHUNK_SIZE, rows);
+        } else {
+            rows.simulate(0, sampleSize);
+        }
+    }
+
+    /**
+     * @return the error node of each of the given variables, in order.
+     */
+    private List<Node> getErrorNodes(List<Node> variableNodes) {
+        List<Node> errorNodes = new ArrayList<>();
+
+        for (Node variable : variableNodes) {
+            Node error = pm.getErrorNode(variable);
+
+            if (error == null) {
+                throw new NullPointerException();
+            }
+
+            errorNodes.add(error);
+        }
+
+        return errorNodes;
+    }
+
+    private List<Node> variablesAndErrors(List<Node> variableNodes, List<Node> errorNodes) {
+        List<Node> nodes = new ArrayList<>(variableNodes);
+        nodes.addAll(errorNodes);
+        return nodes;
+    }
+
+    /**
+     * The values of the parameters and of a list of nodes, held in slots so that node expressions can be
+     * compiled against them. Looks names up the way the simulations always have: parameters first, then
+     * node values recorded so far, and otherwise either an exception or, for time series, a standard
+     * normal draw.
+     */
+    private class Slots implements Context {
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Map<String, Integer> nodeSlots = new HashMap<>();
+        private final double[] values;
+        private final boolean[] recorded;
+        private final int offset;
+        private final boolean normalIfMissing;
+
+        Slots(List<Node> nodes, boolean normalIfMissing) {
+            this.offset = parameterValues.size();
+            this.values = new double[offset + nodes.size()];
+            this.recorded = new boolean[values.length];
+            this.normalIfMissing = normalIfMissing;
+
+            for (String parameter : parameterValues.keySet()) {
+                Double value = parameterValues.get(parameter);
+                values[slots.size()] = value == null ? Double.NaN : value;
+                slots.put(parameter, slots.size());
+            }
+
+            for (int i = 0; i < nodes.size(); i++) {
+                String name = nodes.get(i).getName();
+                nodeSlots.put(name, offset + i);
+
+                if (!slots.containsKey(name)) {
+                    slots.put(name, offset + i);
+                }
+            }
 
+            clear();
+        }
+
+        CompiledExpression[] compile(List<Node> nodes) {
+            CompiledExpression[] expressions = new CompiledExpression[nodes.size()];
+
+            for (int i = 0; i < nodes.size(); i++) {
+                expressions[i] = CompiledExpression.compile(pm.getNodeExpression(nodes.get(i)), slots, this);
+            }
+
+            return expressions;
+        }
+
+        double evaluate(CompiledExpression expression) {
+            return expression.evaluate(values);
+        }
+
+        /**
+         * Records the value of the i'th node.
+         */
+        void put(int i, double value) {
+            values[offset + i] = value;
+            recorded[offset + i] = true;
+        }
+
+        double get(int i) {
+            return values[offset + i];
+        }
+
+        /**
+         * Forgets all recorded node values.
+         */
+        void clear() {
+            for (int i = offset; i < values.length; i++) {
+                values[i] = Double.NaN;
+                recorded[i] = false;
+            }
+        }
 
+        public Double getValue(String term) {
+            Double value = parameterValues.get(term);
+
+            if (value != null) {
+                return value;
+            }
+
+            Integer slot = nodeSlots.get(term);
+
+            if (slot != null && recorded[slot]) {
+                return values[slot];
+            }
+
+            if (normalIfMissing) {
+                return RandomUtil.getInstance().nextNormal(0, 1);
+            }
+
+            throw new IllegalArgumentException("No value recorded for '" + term + "'");
+        }
+    }
+}
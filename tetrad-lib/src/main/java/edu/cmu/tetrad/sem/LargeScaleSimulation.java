@@ -542,6 +542,14 @@ public final class LargeScaleSimulation {
         this.meanHigh = meanHigh;
     }
 
+    /**
+     * Sets the seed for the error distributions, so that simulations can be repeated. Coefficients, variances and
+     * means are drawn from RandomUtil, whose seed should be set as well.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     public void setOut(PrintStream out) {
         this.out = out;
     }
@@ -135,7 +135,7 @@ public class ReidentifyVariables {
             SemPm pm = new SemPm(subgraph);
             pm.fixOneLoadingPerLatent();
 
-            SemOptimizer semOptimizer = new SemOptimizerPowell();
+            SemOptimizer semOptimizer = new SemOptimizerLbfgs();
             SemEstimator est = new SemEstimator(data, pm, semOptimizer);
             est.setScoreType(ScoreType.Fgls);
             SemIm im = est.estimate();
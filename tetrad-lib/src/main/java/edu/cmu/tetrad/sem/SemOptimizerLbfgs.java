@@ -0,0 +1,519 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.sem;
+
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.graph.SemGraph;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.apache.commons.math3.linear.*;
+
+import java.util.List;
+
+/**
+ * Optimizes a SEM by minimizing its fitting function (F_ML or F_GLS, as given by its score type) with the
+ * limited-memory BFGS quasi-Newton method, using the analytic gradient with respect to the free edge coefficients
+ * and error (co)variances. Each evaluation factors I - B and the implied covariance of the measured variables once
+ * and uses the factorizations for both the value and the gradient. Error variances are optimized on a log scale, so
+ * they stay positive. Unlike SemOptimizerPowell, the first trial starts from the values already in the SemIm; any
+ * restarts start from random values.
+ *
+ * @author Joseph Ramsey
+ */
+public class SemOptimizerLbfgs implements SemOptimizer {
+    static final long serialVersionUID = 23L;
+
+    private int numRestarts = 0;
+
+    /**
+     * The number of past steps used to approximate the inverse Hessian.
+     */
+    private int memory = 10;
+
+    /**
+     * The most iterations in each trial.
+     */
+    private int maxIterations = 2000;
+
+    /**
+     * The search stops once the largest component of the gradient is below this.
+     */
+    private double gradientTolerance = 1e-8;
+
+    //=========================CONSTRUCTORS============================//
+
+    /**
+     * Blank constructor.
+     */
+    public SemOptimizerLbfgs() {
+    }
+
+    /**
+     * Generates a simple exemplar of this class to test serialization.
+     */
+    public static SemOptimizerLbfgs serializableInstance() {
+        return new SemOptimizerLbfgs();
+    }
+
+    //=========================PUBLIC METHODS==========================//
+
+    public void optimize(SemIm semIm) {
+        FittingFunction function = new FittingFunction(semIm);
+        List<Parameter> freeParameters = semIm.getFreeParameters();
+
+        double min = Double.POSITIVE_INFINITY;
+        double[] point = null;
+
+        for (int count = 0; count < numRestarts + 1; count++) {
+            double[] p;
+
+            if (count == 0) {
+                p = semIm.getFreeParamValues();
+            } else {
+                p = new double[freeParameters.size()];
+
+                for (int i = 0; i < freeParameters.size(); i++) {
+                    if (freeParameters.get(i).getType() == ParamType.VAR) {
+                        p[i] = RandomUtil.getInstance().nextUniform(0, 1);
+                    } else {
+                        p[i] = RandomUtil.getInstance().nextUniform(-1, 1);
+                    }
+                }
+            }
+
+            double[] x = function.toPoint(p);
+
+            if (Double.isInfinite(function.value(x))) {
+                for (int i = 0; i < freeParameters.size(); i++) {
+                    if (freeParameters.get(i).getType() == ParamType.COVAR) {
+                        x[i] = 0.0;
+                    }
+                }
+
+                if (Double.isInfinite(function.value(x))) {
+                    continue;
+                }
+            }
+
+            double fml = minimize(function, x);
+
+            if (fml < min) {
+                min = fml;
+                point = function.toValues(x);
+            }
+        }
+
+        if (point == null) {
+            throw new IllegalArgumentException("Could not find a starting point at which the implied " +
+                    "covariance matrix is positive definite.");
+        }
+
+        semIm.setFreeParamValues(point);
+    }
+
+    public String toString() {
+        return "Sem Optimizer L-BFGS";
+    }
+
+    @Override
+    public void setNumRestarts(int numRestarts) {
+        this.numRestarts = numRestarts;
+    }
+
+    @Override
+    public int getNumRestarts() {
+        return numRestarts;
+    }
+
+    public int getMemory() {
+        return memory;
+    }
+
+    /**
+     * Sets the number of past steps used to approximate the inverse Hessian; 10 by default.
+     */
+    public void setMemory(int memory) {
+        if (memory < 1) throw new IllegalArgumentException("Memory must be at least 1: " + memory);
+        this.memory = memory;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) throw new IllegalArgumentException("Max iterations must be at least 1: " + maxIterations);
+        this.maxIterations = maxIterations;
+    }
+
+    public double getGradientTolerance() {
+        return gradientTolerance;
+    }
+
+    public void setGradientTolerance(double gradientTolerance) {
+        if (gradientTolerance < 0) throw new IllegalArgumentException("Tolerance must be >= 0: " + gradientTolerance);
+        this.gradientTolerance = gradientTolerance;
+    }
+
+    //=========================PRIVATE METHODS==========================//
+
+    /**
+     * Minimizes the function from x, which is overwritten with the minimizing point, and returns the minimum.
+     */
+    private double minimize(FittingFunction function, double[] x) {
+        int n = x.length;
+        double[] g = new double[n];
+        double f = function.valueAndGradient(x, g);
+
+        double[][] s = new double[memory][];
+        double[][] y = new double[memory][];
+        double[] rho = new double[memory];
+        double[] alpha = new double[memory];
+        int stored = 0;
+        int newest = -1;
+
+        double[] d = new double[n];
+        double[] xNew = new double[n];
+        double[] gNew = new double[n];
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            if (maxAbs(g) < gradientTolerance) {
+                break;
+            }
+
+            // Two-loop recursion for d = -H g.
+            System.arraycopy(g, 0, d, 0, n);
+
+            for (int k = 0; k < stored; k++) {
+                int m = (newest - k + memory) % memory;
+                alpha[m] = rho[m] * dot(s[m], d);
+                axpy(-alpha[m], y[m], d);
+            }
+
+            if (stored > 0) {
+                scale(dot(s[newest], y[newest]) / dot(y[newest], y[newest]), d);
+            } else {
+                scale(1.0 / Math.max(1.0, Math.sqrt(dot(g, g))), d);
+            }
+
+            for (int k = stored - 1; k >= 0; k--) {
+                int m = (newest - k + memory) % memory;
+                double beta = rho[m] * dot(y[m], d);
+                axpy(alpha[m] - beta, s[m], d);
+            }
+
+            scale(-1.0, d);
+
+            double slope = dot(g, d);
+
+            if (slope >= 0) {
+                // Not a descent direction; start the approximation over.
+                stored = 0;
+
+                for (int i = 0; i < n; i++) {
+                    d[i] = -g[i];
+                }
+
+                scale(1.0 / Math.max(1.0, Math.sqrt(dot(g, g))), d);
+                slope = dot(g, d);
+            }
+
+            // Backtracking line search for the Armijo condition.
+            double step = 1.0;
+            double fNew = Double.POSITIVE_INFINITY;
+
+            for (int tries = 0; tries < 60; tries++) {
+                for (int i = 0; i < n; i++) {
+                    xNew[i] = x[i] + step * d[i];
+                }
+
+                fNew = function.valueAndGradient(xNew, gNew);
+
+                if (fNew <= f + 1e-4 * step * slope) {
+                    break;
+                }
+
+                step *= 0.5;
+            }
+
+            if (!(fNew <= f + 1e-4 * step * slope)) {
+                break;
+            }
+
+            newest = (newest + 1) % memory;
+            s[newest] = new double[n];
+            y[newest] = new double[n];
+
+            for (int i = 0; i < n; i++) {
+                s[newest][i] = xNew[i] - x[i];
+                y[newest][i] = gNew[i] - g[i];
+            }
+
+            double sy = dot(s[newest], y[newest]);
+
+            if (sy > 1e-12 * dot(y[newest], y[newest])) {
+                rho[newest] = 1.0 / sy;
+                stored = Math.min(stored + 1, memory);
+            } else {
+                newest = (newest - 1 + memory) % memory;
+            }
+
+            double decrease = f - fNew;
+
+            System.arraycopy(xNew, 0, x, 0, n);
+            System.arraycopy(gNew, 0, g, 0, n);
+            f = fNew;
+
+            if (decrease <= 1e-14 * Math.max(1.0, Math.abs(f))) {
+                break;
+            }
+        }
+
+        return f;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+
+        return sum;
+    }
+
+    private static void axpy(double a, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            y[i] += a * x[i];
+        }
+    }
+
+    private static void scale(double a, double[] x) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] *= a;
+        }
+    }
+
+    private static double maxAbs(double[] x) {
+        double max = 0.0;
+
+        for (double v : x) {
+            max = Math.max(max, Math.abs(v));
+        }
+
+        return max;
+    }
+
+    /**
+     * The fitting function of a SEM, F_ML = log|Sigma| + tr(S Sigma^-1) - log|S| - p or
+     * F_GLS = tr((I - Sigma S^-1)^2) / 2, as given by the score type of the SemIm, where Sigma is the implied
+     * covariance matrix of its p measured variables and S their sample covariance matrix, with its gradient. Each
+     * has a differential tr(M dSigma) for a symmetric M: Sigma^-1 - Sigma^-1 S Sigma^-1 for F_ML and the symmetric
+     * part of -S^-1 (I - Sigma S^-1) for F_GLS. For Sigma = F A Omega A' F', with A = (I - B)^-1 and F selecting the
+     * measured variables, and W = F' M F, the derivative with respect to B(j, i) is then 2 (A Omega A' W A)(i, j),
+     * and with respect to Omega(i, j) it is (A' W A)(i, j), counted twice for a covariance.
+     */
+    static class FittingFunction {
+        private final ParamType[] types;
+        private final int[] rows;
+        private final int[] columns;
+        private final int[] measured;
+        private final RealMatrix edgeCoef;
+        private final RealMatrix errCovar;
+        private final RealMatrix sample;
+        private final boolean gls;
+        private RealMatrix sampleInv;
+        private double logDetSample;
+
+        FittingFunction(SemIm semIm) {
+            List<Parameter> parameters = semIm.getFreeParameters();
+            List<Node> variables = semIm.getVariableNodes();
+            SemGraph graph = semIm.getSemPm().getGraph();
+
+            this.types = new ParamType[parameters.size()];
+            this.rows = new int[parameters.size()];
+            this.columns = new int[parameters.size()];
+
+            for (int k = 0; k < parameters.size(); k++) {
+                Parameter parameter = parameters.get(k);
+                types[k] = parameter.getType();
+                rows[k] = variables.indexOf(graph.getVarNode(parameter.getNodeA()));
+                columns[k] = variables.indexOf(graph.getVarNode(parameter.getNodeB()));
+            }
+
+            List<Node> measuredNodes = semIm.getMeasuredNodes();
+            this.measured = new int[measuredNodes.size()];
+
+            for (int i = 0; i < measuredNodes.size(); i++) {
+                measured[i] = variables.indexOf(measuredNodes.get(i));
+            }
+
+            // Fixed parameters keep their values in these.
+            this.edgeCoef = semIm.getEdgeCoef().getRealMatrix().copy();
+            this.errCovar = semIm.getErrCovar().getRealMatrix().copy();
+            this.sample = semIm.getSampleCovar().getRealMatrix();
+            this.gls = semIm.getScoreType() == ScoreType.Fgls;
+
+            if (gls) {
+                this.sampleInv = new LUDecomposition(sample).getSolver().getInverse();
+            } else {
+                try {
+                    this.logDetSample = logDet(new CholeskyDecomposition(sample, 1e-10, 1e-15));
+                } catch (RuntimeException e) {
+                    this.logDetSample = Math.log(new LUDecomposition(sample).getDeterminant());
+                }
+            }
+        }
+
+        /**
+         * Maps parameter values to a point, taking the log of each variance.
+         */
+        double[] toPoint(double[] values) {
+            double[] x = new double[values.length];
+
+            for (int k = 0; k < values.length; k++) {
+                x[k] = types[k] == ParamType.VAR ? Math.log(values[k]) : values[k];
+            }
+
+            return x;
+        }
+
+        /**
+         * Maps a point back to parameter values.
+         */
+        double[] toValues(double[] x) {
+            double[] values = new double[x.length];
+
+            for (int k = 0; k < x.length; k++) {
+                values[k] = types[k] == ParamType.VAR ? Math.exp(x[k]) : x[k];
+            }
+
+            return values;
+        }
+
+        double value(double[] x) {
+            return valueAndGradient(x, null);
+        }
+
+        /**
+         * @return The value of the function at x, or positive infinity if it is undefined there (for F_ML, if
+         * the implied covariance matrix is not positive definite); if the gradient array is not null and the value
+         * is finite, the gradient with respect to x is put in it.
+         */
+        double valueAndGradient(double[] x, double[] gradient) {
+            for (double v : x) {
+                if (Double.isNaN(v) || Double.isInfinite(v)) return Double.POSITIVE_INFINITY;
+            }
+
+            int n = edgeCoef.getRowDimension();
+            int p = measured.length;
+
+            for (int k = 0; k < x.length; k++) {
+                double v = types[k] == ParamType.VAR ? Math.exp(x[k]) : x[k];
+
+                if (types[k] == ParamType.COEF) {
+                    edgeCoef.setEntry(rows[k], columns[k], v);
+                } else {
+                    errCovar.setEntry(rows[k], columns[k], v);
+                    errCovar.setEntry(columns[k], rows[k], v);
+                }
+            }
+
+            // I - B, with B(child, parent) = edgeCoef(parent, child).
+            RealMatrix iMinusB = MatrixUtils.createRealIdentityMatrix(n).subtract(edgeCoef.transpose());
+            DecompositionSolver lu = new LUDecomposition(iMinusB).getSolver();
+
+            if (!lu.isNonSingular()) return Double.POSITIVE_INFINITY;
+
+            RealMatrix a = lu.getInverse();
+            RealMatrix sigmaAll = a.multiply(errCovar).multiply(a.transpose());
+            RealMatrix sigma = sigmaAll.getSubMatrix(measured, measured);
+
+            double f;
+            RealMatrix m = null;
+
+            if (gls) {
+                RealMatrix diff = MatrixUtils.createRealIdentityMatrix(p).subtract(sigma.multiply(sampleInv));
+                f = 0.5 * diff.multiply(diff).getTrace();
+
+                if (gradient != null) {
+                    RealMatrix sInvDiff = sampleInv.multiply(diff);
+                    m = sInvDiff.add(sInvDiff.transpose()).scalarMultiply(-0.5);
+                }
+            } else {
+                CholeskyDecomposition cholesky;
+
+                try {
+                    cholesky = new CholeskyDecomposition(sigma, 1e-10, 1e-15);
+                } catch (RuntimeException e) {
+                    return Double.POSITIVE_INFINITY;
+                }
+
+                RealMatrix sigmaInv = cholesky.getSolver().getInverse();
+                RealMatrix sigmaInvS = sigmaInv.multiply(sample);
+                f = logDet(cholesky) + sigmaInvS.getTrace() - logDetSample - p;
+
+                if (gradient != null) {
+                    m = sigmaInv.subtract(sigmaInvS.multiply(sigmaInv));
+                }
+            }
+
+            if (Double.isNaN(f) || Double.isInfinite(f)) return Double.POSITIVE_INFINITY;
+            if (gradient == null) return f;
+
+            RealMatrix w = new BlockRealMatrix(n, n);
+
+            for (int i = 0; i < p; i++) {
+                for (int j = 0; j < p; j++) {
+                    w.setEntry(measured[i], measured[j], m.getEntry(i, j));
+                }
+            }
+
+            RealMatrix wA = w.multiply(a);
+            RealMatrix h = a.transpose().multiply(wA);
+            RealMatrix g = sigmaAll.multiply(wA);
+
+            for (int k = 0; k < x.length; k++) {
+                if (types[k] == ParamType.COEF) {
+                    gradient[k] = 2.0 * g.getEntry(rows[k], columns[k]);
+                } else if (types[k] == ParamType.VAR) {
+                    gradient[k] = h.getEntry(rows[k], rows[k]) * Math.exp(x[k]);
+                } else {
+                    gradient[k] = h.getEntry(rows[k], columns[k]) + h.getEntry(columns[k], rows[k]);
+                }
+            }
+
+            return f;
+        }
+
+        private static double logDet(CholeskyDecomposition cholesky) {
+            RealMatrix l = cholesky.getL();
+            double sum = 0.0;
+
+            for (int i = 0; i < l.getRowDimension(); i++) {
+                sum += Math.log(l.getEntry(i, i));
+            }
+
+            return 2.0 * sum;
+        }
+    }
+}
@@ -91,11 +91,8 @@ public class SemOptimizerPowell implements SemOptimizer {
                     new MaxEval(100000)
             );
 
-            double chisq = _sem2.getChiSquare();
-//            System.out.println("chisq = " + chisq);
-
-            if (chisq < min) {
-                min = chisq;
+            if (pair.getValue() < min) {
+                min = pair.getValue();
                 point = pair.getPoint();
             }
         }
@@ -104,7 +101,7 @@ public class SemOptimizerPowell implements SemOptimizer {
             throw new NullPointerException("Point could not be found.");
         }
 
-        System.arraycopy(point, 0, semIm.getFreeParamValues(), 0, point.length);
+        semIm.setFreeParamValues(point);
     }
 
     public String toString() {
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2016 University of Pittsburgh.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package edu.cmu.tetrad.stat.correlation;
+
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes a covariance matrix from mean-centered data columns, tile by tile in parallel.
+ * <p>
+ * The lower triangle of the matrix is cut into square tiles, which are computed in parallel. Each tile is computed a
+ * block of rows at a time, so the rows of the columns it needs stay in cache while they are used. Each column is
+ * then multiplied by four others at once, with four independent sums, so one load feeds four products and the
+ * processor can overlap the additions. Each sum still adds up its products in row order, so the results are exactly
+ * those of the plain loop, one pair of columns at a time.
+ * <p>
+ * Missing values (NaN) are deleted pairwise: the covariance of two columns is taken over the rows where both are
+ * present.
+ *
+ * @author Joseph Ramsey
+ */
+public final class BlockedCovariance {
+
+    // The number of columns on a side of a tile.
+    private static final int TILE = 32;
+
+    // The number of rows per block; two tiles' worth of columns, 32 * 2 * 1024 * 8 bytes, take 512K.
+    private static final int ROW_BLOCK = 1024;
+
+    private BlockedCovariance() {
+    }
+
+    /**
+     * @param columns        The data, column by column, each column mean-centered and of length at least n. Not
+     *                       modified.
+     * @param n              The number of rows to use.
+     * @param biasCorrected  True if sums of products should be divided by the count minus one, false if by the count.
+     * @return the covariance matrix of the columns.
+     */
+    public static double[][] covariance(double[][] columns, int n, boolean biasCorrected) {
+        int p = columns.length;
+        double[][] cov = new double[p][p];
+
+        boolean[] hasMissing = new boolean[p];
+
+        for (int i = 0; i < p; i++) {
+            for (int k = 0; k < n; k++) {
+                if (Double.isNaN(columns[i][k])) {
+                    hasMissing[i] = true;
+                    break;
+                }
+            }
+        }
+
+        List<int[]> tiles = new ArrayList<>();
+
+        for (int from1 = 0; from1 < p; from1 += TILE) {
+            for (int from2 = 0; from2 <= from1; from2 += TILE) {
+                tiles.add(new int[]{from1, from2});
+            }
+        }
+
+        if (tiles.isEmpty()) {
+            return cov;
+        }
+
+        ForkJoinPoolInstance.getInstance().getPool().invoke(
+                new TileAction(columns, n, biasCorrected, hasMissing, cov, tiles, 0, tiles.size()));
+
+        return cov;
+    }
+
+    private static class TileAction extends RecursiveAction {
+        private final double[][] columns;
+        private final int n;
+        private final boolean biasCorrected;
+        private final boolean[] hasMissing;
+        private final double[][] cov;
+        private final List<int[]> tiles;
+        private final int from;
+        private final int to;
+
+        private TileAction(double[][] columns, int n, boolean biasCorrected, boolean[] hasMissing, double[][] cov,
+                           List<int[]> tiles, int from, int to) {
+            this.columns = columns;
+            this.n = n;
+            this.biasCorrected = biasCorrected;
+            this.hasMissing = hasMissing;
+            this.cov = cov;
+            this.tiles = tiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 0) {
+                return;
+            } else if (to - from == 1) {
+                int[] tile = tiles.get(from);
+                computeTile(tile[0], tile[1]);
+            } else {
+                int mid = (from + to) / 2;
+                invokeAll(new TileAction(columns, n, biasCorrected, hasMissing, cov, tiles, from, mid),
+                        new TileAction(columns, n, biasCorrected, hasMissing, cov, tiles, mid, to));
+            }
+        }
+
+        // Fills in cov[i][j] and cov[j][i] for i in [from1, from1 + TILE) and j in [from2, from2 + TILE), j <= i.
+        private void computeTile(int from1, int from2) {
+            int p = columns.length;
+            int to1 = Math.min(from1 + TILE, p);
+            int to2 = Math.min(from2 + TILE, p);
+
+            double[][] sums = new double[TILE][TILE];
+
+            for (int start = 0; start < n; start += ROW_BLOCK) {
+                int end = Math.min(start + ROW_BLOCK, n);
+
+                for (int i = from1; i < to1; i++) {
+                    double[] a = columns[i];
+                    double[] s = sums[i - from1];
+                    int last = Math.min(to2, i + 1);
+                    int j = from2;
+
+                    for (; j + 3 < last; j += 4) {
+                        double[] b0 = columns[j];
+                        double[] b1 = columns[j + 1];
+                        double[] b2 = columns[j + 2];
+                        double[] b3 = columns[j + 3];
+
+                        double s0 = s[j - from2];
+                        double s1 = s[j + 1 - from2];
+                        double s2 = s[j + 2 - from2];
+                        double s3 = s[j + 3 - from2];
+
+                        for (int k = start; k < end; k++) {
+                            double x = a[k];
+                            s0 += x * b0[k];
+                            s1 += x * b1[k];
+                            s2 += x * b2[k];
+                            s3 += x * b3[k];
+                        }
+
+                        s[j - from2] = s0;
+                        s[j + 1 - from2] = s1;
+                        s[j + 2 - from2] = s2;
+                        s[j + 3 - from2] = s3;
+                    }
+
+                    for (; j < last; j++) {
+                        double[] b = columns[j];
+                        double s0 = s[j - from2];
+
+                        for (int k = start; k < end; k++) {
+                            s0 += a[k] * b[k];
+                        }
+
+                        s[j - from2] = s0;
+                    }
+                }
+            }
+
+            for (int i = from1; i < to1; i++) {
+                int last = Math.min(to2, i + 1);
+
+                for (int j = from2; j < last; j++) {
+                    double v;
+
+                    if (hasMissing[i] || hasMissing[j]) {
+                        v = pairwiseCovariance(columns[i], columns[j]);
+                    } else {
+                        v = sums[i - from1][j - from2] / (biasCorrected ? n - 1 : n);
+                    }
+
+                    cov[i][j] = v;
+                    cov[j][i] = v;
+                }
+            }
+        }
+
+        private double pairwiseCovariance(double[] a, double[] b) {
+            double d = 0.0;
+            int count = 0;
+
+            for (int k = 0; k < n; k++) {
+                if (Double.isNaN(a[k])) continue;
+                if (Double.isNaN(b[k])) continue;
+
+                d += a[k] * b[k];
+                count++;
+            }
+
+            return d / (biasCorrected ? count - 1 : count);
+        }
+    }
+}
@@ -51,55 +51,38 @@ public class RealCovarianceMatrix implements RealCovariance {
         return mean;
     }
 
-    @Override
-    public double[] computeLowerTriangle(boolean biasCorrected) {
-        double[] covarianceMatrix = new double[(numOfCols * (numOfCols + 1)) / 2];
-
+    // The data column by column, mean-centered, for BlockedCovariance.
+    private double[][] centeredColumns() {
         double[] mean = computeMeans();
+        double[][] columns = new double[numOfCols][numOfRows];
 
-        int index = 0;
-        for (int col = 0; col < numOfCols; col++) {
-            for (int col2 = 0; col2 < col; col2++) {
-                double variance = 0;
-                for (int row = 0; row < numOfRows; row++) {
-                    variance += ((data[row][col] - mean[col]) * (data[row][col2] - mean[col2]) - variance) / (row + 1);
-                }
-                covarianceMatrix[index++] = biasCorrected ? variance * ((double) numOfRows / (double) (numOfRows - 1)) : variance;
+        for (int row = 0; row < numOfRows; row++) {
+            for (int col = 0; col < numOfCols; col++) {
+                columns[col][row] = data[row][col] - mean[col];
             }
-            double variance = 0;
-            for (int row = 0; row < numOfRows; row++) {
-                variance += ((data[row][col] - mean[col]) * (data[row][col] - mean[col]) - variance) / (row + 1);
-            }
-            covarianceMatrix[index++] = biasCorrected ? variance * ((double) numOfRows / (double) (numOfRows - 1)) : variance;
         }
 
-        return covarianceMatrix;
+        return columns;
     }
 
     @Override
-    public double[][] compute(boolean biasCorrected) {
-        double[][] covarianceMatrix = new double[numOfCols][numOfCols];
-
-        double[] mean = computeMeans();
+    public double[] computeLowerTriangle(boolean biasCorrected) {
+        double[][] cov = compute(biasCorrected);
+        double[] covarianceMatrix = new double[(numOfCols * (numOfCols + 1)) / 2];
 
+        int index = 0;
         for (int col = 0; col < numOfCols; col++) {
-            for (int col2 = 0; col2 < col; col2++) {
-                double variance = 0;
-                for (int row = 0; row < numOfRows; row++) {
-                    variance += ((data[row][col] - mean[col]) * (data[row][col2] - mean[col2]) - variance) / (row + 1);
-                }
-                variance = biasCorrected ? variance * ((double) numOfRows / (double) (numOfRows - 1)) : variance;
-                covarianceMatrix[col][col2] = variance;
-                covarianceMatrix[col2][col] = variance;
-            }
-            double variance = 0;
-            for (int row = 0; row < numOfRows; row++) {
-                variance += ((data[row][col] - mean[col]) * (data[row][col] - mean[col]) - variance) / (row + 1);
+            for (int col2 = 0; col2 <= col; col2++) {
+                covarianceMatrix[index++] = cov[col][col2];
             }
-            covarianceMatrix[col][col] = biasCorrected ? variance * ((double) numOfRows / (double) (numOfRows - 1)) : variance;
         }
 
         return covarianceMatrix;
     }
 
+    @Override
+    public double[][] compute(boolean biasCorrected) {
+        return BlockedCovariance.covariance(centeredColumns(), numOfRows, biasCorrected);
+    }
+
 }
@@ -0,0 +1,246 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The core of a bounded map from keys (a, b, z), where a and b are ints and z is a set of ints, so that the order
+ * in which z is given does not matter. Subclasses store the entries, and so decide how values are held; this class
+ * hashes the keys and keeps the table, its eviction policy, its locks and its counts.
+ * <p>
+ * Each key is hashed to 64 bits by combining (a, b) with an order-independent hash of z, and entries are stored in
+ * a set-associative table; each set holds a fixed number of ways and is evicted with the CLOCK (second chance)
+ * policy once full, so the cache never grows past its capacity. Changes to a set are guarded by a fixed array of
+ * lock stripes.
+ *
+ * @author Joseph Ramsey
+ * @see ClockCache
+ * @see DoubleClockCache
+ */
+public abstract class AbstractClockCache {
+
+    // The number of entries in each set of the table.
+    protected static final int WAYS = 8;
+
+    // The number of lock stripes guarding the sets.
+    private static final int NUM_STRIPES = 256;
+
+    protected static final int[] EMPTY = new int[0];
+
+    // The number of sets in the table; a power of two.
+    private final int numSets;
+
+    // CLOCK reference bits, one per entry, and the clock hand of each set. Reference bits may be set without
+    // locking; a lost update only makes an eviction slightly less accurate.
+    protected final boolean[] referenced;
+    private final int[] hands;
+
+    private final Object[] locks;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a cache with room for at least the given number of entries.
+     *
+     * @param capacity The maximum number of entries to keep; rounded up to a power of two.
+     */
+    protected AbstractClockCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+
+        int numSets = 1;
+        while (numSets * WAYS < capacity) numSets <<= 1;
+
+        this.numSets = numSets;
+        referenced = new boolean[numSets * WAYS];
+        hands = new int[numSets];
+
+        locks = new Object[Math.min(NUM_STRIPES, numSets)];
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+    }
+
+    public void clear() {
+        for (int set = 0; set < numSets; set++) {
+            synchronized (lockFor(set)) {
+                int base = set * WAYS;
+
+                for (int i = base; i < base + WAYS; i++) {
+                    clearEntry(i);
+                    referenced[i] = false;
+                }
+
+                hands[set] = 0;
+            }
+        }
+    }
+
+    /**
+     * The maximum number of entries the cache can hold.
+     */
+    public int getCapacity() {
+        return numSets * WAYS;
+    }
+
+    /**
+     * The number of lookups that found a stored value.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of lookups that found no stored value.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The number of entries that have been evicted to make room for new ones.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Sets the hit, miss and eviction counts back to zero.
+     */
+    public void resetCounts() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public String toString() {
+        return "capacity = " + getCapacity() + " hits = " + getHits()
+                + " misses = " + getMisses() + " evictions = " + getEvictions();
+    }
+
+    //=============================PROTECTED METHODS=========================//
+
+    /**
+     * True if the entry at the given index of the table is empty.
+     */
+    protected abstract boolean isEmpty(int i);
+
+    /**
+     * Empties the entry at the given index of the table; called holding the lock of its set.
+     */
+    protected abstract void clearEntry(int i);
+
+    /**
+     * Records a lookup of the entry at the given index, or a miss if the index is -1.
+     */
+    protected final void recordLookup(int i) {
+        if (i == -1) {
+            misses.increment();
+        } else {
+            referenced[i] = true;
+            hits.increment();
+        }
+    }
+
+    /**
+     * Returns an empty entry of the given set if there is one, otherwise evicts one by CLOCK. Must be called
+     * holding the lock of the set.
+     */
+    protected final int victim(int set) {
+        int base = set * WAYS;
+
+        for (int i = base; i < base + WAYS; i++) {
+            if (isEmpty(i)) return i;
+        }
+
+        while (true) {
+            int i = base + hands[set];
+            hands[set] = (hands[set] + 1) % WAYS;
+
+            if (referenced[i]) {
+                referenced[i] = false;
+            } else {
+                evictions.increment();
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Hashes (a, b, z), summing mixed elements of z so that the result does not depend on their order.
+     */
+    protected static long hash(int a, int b, int[] z) {
+        long sum = 0;
+
+        for (int v : z) {
+            sum += mix(v + 0x632BE59BD9B4E019L);
+        }
+
+        return mix(sum ^ mix(((long) a << 32) ^ (b & 0xFFFFFFFFL)));
+    }
+
+    /**
+     * True if the sorted array and the (unsorted) probe contain the same distinct elements.
+     */
+    protected static boolean sameSet(int[] sorted, int[] probe) {
+        if (sorted.length != probe.length) return false;
+
+        for (int v : probe) {
+            if (Arrays.binarySearch(sorted, v) < 0) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * A sorted copy of z.
+     */
+    protected static int[] sortedCopy(int[] z) {
+        int[] sorted = Arrays.copyOf(z, z.length);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * The set of the table a key with the given hash is stored in.
+     */
+    protected final int setFor(long hash) {
+        return (int) (hash >>> 32) & (numSets - 1);
+    }
+
+    /**
+     * The lock guarding the given set.
+     */
+    protected final Object lockFor(int set) {
+        return locks[set & (locks.length - 1)];
+    }
+
+    // The finalizer of the SplitMix64 generator.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,119 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well44497b;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates rows of data in parallel in the shared fork-join pool, in chunks of a fixed number of rows. Each
+ * chunk draws its random numbers from its own generator, installed for the chunk's thread in RandomUtil and
+ * seeded from RandomUtil before any chunk starts. Since chunk boundaries and seeds do not depend on the number
+ * of threads, neither does the simulated data, for a given RandomUtil seed.
+ *
+ * @author Joseph Ramsey
+ */
+public final class ChunkedSimulation {
+
+    /**
+     * Simulates a range of rows.
+     */
+    public interface Rows {
+
+        /**
+         * Simulates rows from (inclusive) to to (exclusive), drawing random numbers through RandomUtil.
+         */
+        void simulate(int from, int to);
+    }
+
+    private ChunkedSimulation() {
+    }
+
+    /**
+     * Simulates the given number of rows.
+     *
+     * @param numRows   The number of rows to simulate.
+     * @param chunkSize The number of rows in each chunk.
+     * @param rows      Simulates a chunk of rows; must be safe to call concurrently for disjoint chunks.
+     */
+    public static void simulate(final int numRows, final int chunkSize, final Rows rows) {
+        if (numRows < 0) {
+            throw new IllegalArgumentException("Number of rows must be >= 0: " + numRows);
+        }
+
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be >= 1: " + chunkSize);
+        }
+
+        final int numChunks = (int) ((numRows + (long) chunkSize - 1) / chunkSize);
+        final long[] seeds = new long[numChunks];
+
+        for (int c = 0; c < numChunks; c++) {
+            seeds[c] = RandomUtil.getInstance().nextLong();
+        }
+
+        class SimulationTask extends RecursiveTask<Boolean> {
+            private final int from;
+            private final int to;
+
+            private SimulationTask(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected Boolean compute() {
+                if (to - from <= 1) {
+                    for (int c = from; c < to; c++) {
+                        simulateChunk(c);
+                    }
+                } else {
+                    int mid = (from + to) / 2;
+                    SimulationTask left = new SimulationTask(from, mid);
+                    SimulationTask right = new SimulationTask(mid, to);
+
+                    left.fork();
+                    right.compute();
+                    left.join();
+                }
+
+                return true;
+            }
+
+            private void simulateChunk(int c) {
+                RandomUtil random = RandomUtil.getInstance();
+                RandomGenerator previous = random.getThreadRandomGenerator();
+                random.setThreadRandomGenerator(new Well44497b(seeds[c]));
+
+                try {
+                    rows.simulate(c * chunkSize, (int) Math.min(numRows, (c + 1L) * chunkSize));
+                } finally {
+                    random.setThreadRandomGenerator(previous);
+                }
+            }
+        }
+
+        ForkJoinPoolInstance.getInstance().getPool().invoke(new SimulationTask(0, numChunks));
+    }
+}
@@ -0,0 +1,137 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded map from keys (a, b, z) to values of type V, where a and b are ints and z is a set of ints, so that
+ * the order in which z is given does not matter. This is the cache of independence results; the cache of local
+ * scores, whose values are doubles, uses DoubleClockCache, which keeps them unboxed.
+ * <p>
+ * Entries are immutable and are published through an atomic array, so lookups take no locks and do not allocate;
+ * only stores are guarded. The cache is therefore safe for use by several threads at once.
+ *
+ * @author Joseph Ramsey
+ * @see AbstractClockCache
+ */
+public class ClockCache<V> extends AbstractClockCache {
+
+    // The entries; null if empty.
+    private final AtomicReferenceArray<Entry<V>> entries;
+
+    /**
+     * Constructs a cache with room for at least the given number of entries.
+     *
+     * @param capacity The maximum number of entries to keep; rounded up to a power of two.
+     */
+    public ClockCache(int capacity) {
+        super(capacity);
+        entries = new AtomicReferenceArray<>(getCapacity());
+    }
+
+    /**
+     * Returns the value stored for (a, b, z), or null if no such value is stored.
+     */
+    public V get(int a, int b, int[] z) {
+        if (z == null) z = EMPTY;
+
+        long hash = hash(a, b, z);
+        int base = setFor(hash) * WAYS;
+
+        for (int i = base; i < base + WAYS; i++) {
+            Entry<V> entry = entries.get(i);
+
+            if (entry != null && entry.matches(hash, a, b, z)) {
+                recordLookup(i);
+                return entry.value;
+            }
+        }
+
+        recordLookup(-1);
+        return null;
+    }
+
+    /**
+     * Stores the value for (a, b, z), replacing any value already stored for it.
+     */
+    public void put(int a, int b, int[] z, V value) {
+        if (value == null) throw new NullPointerException("Value not provided.");
+        if (z == null) z = EMPTY;
+
+        long hash = hash(a, b, z);
+        int set = setFor(hash);
+        int base = set * WAYS;
+
+        Entry<V> entry = new Entry<>(hash, a, b, sortedCopy(z), value);
+
+        synchronized (lockFor(set)) {
+            int i = -1;
+
+            for (int j = base; j < base + WAYS; j++) {
+                Entry<V> e = entries.get(j);
+
+                if (e != null && e.matches(hash, a, b, z)) {
+                    i = j;
+                    break;
+                }
+            }
+
+            if (i == -1) i = victim(set);
+
+            entries.set(i, entry);
+            referenced[i] = true;
+        }
+    }
+
+    @Override
+    protected boolean isEmpty(int i) {
+        return entries.get(i) == null;
+    }
+
+    @Override
+    protected void clearEntry(int i) {
+        entries.set(i, null);
+    }
+
+    // An immutable entry of the table, with z sorted.
+    private static final class Entry<V> {
+        private final long hash;
+        private final int a;
+        private final int b;
+        private final int[] z;
+        private final V value;
+
+        private Entry(long hash, int a, int b, int[] z, V value) {
+            this.hash = hash;
+            this.a = a;
+            this.b = b;
+            this.z = z;
+            this.value = value;
+        }
+
+        // True if this is the entry for the given key; the probe z need not be sorted.
+        private boolean matches(long hash, int a, int b, int[] probe) {
+            return this.hash == hash && this.a == a && this.b == b && sameSet(z, probe);
+        }
+    }
+}
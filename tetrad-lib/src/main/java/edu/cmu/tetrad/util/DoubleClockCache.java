@@ -0,0 +1,124 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.util;
+
+/**
+ * A bounded map from keys (a, b, z) to double values, where a and b are ints and z is a set of ints, so that the
+ * order in which z is given does not matter. This is the cache of local scores.
+ * <p>
+ * Keys and values are never boxed; entries are stored in primitive arrays. Lookups do not allocate, and neither
+ * do stores of a key already in the table; a sorted copy of z is made only when a new entry is stored. Lookups
+ * and stores take the lock of their set, so the cache is safe for use by several threads at once.
+ *
+ * @author Joseph Ramsey
+ * @see AbstractClockCache
+ */
+public class DoubleClockCache extends AbstractClockCache {
+
+    // The key hashes, a's, b's, sorted z's and values of the entries. An entry is empty if its z is null.
+    private final long[] hashes;
+    private final int[] as;
+    private final int[] bs;
+    private final int[][] zs;
+    private final double[] values;
+
+    /**
+     * Constructs a cache with room for at least the given number of entries.
+     *
+     * @param capacity The maximum number of entries to keep; rounded up to a power of two.
+     */
+    public DoubleClockCache(int capacity) {
+        super(capacity);
+        int size = getCapacity();
+
+        hashes = new long[size];
+        as = new int[size];
+        bs = new int[size];
+        zs = new int[size][];
+        values = new double[size];
+    }
+
+    /**
+     * Returns the value stored for (a, b, z), or Double.NaN if no such value is stored.
+     */
+    public double get(int a, int b, int[] z) {
+        if (z == null) z = EMPTY;
+
+        long hash = hash(a, b, z);
+        int set = setFor(hash);
+
+        synchronized (lockFor(set)) {
+            int i = find(set, hash, a, b, z);
+            recordLookup(i);
+            return i == -1 ? Double.NaN : values[i];
+        }
+    }
+
+    /**
+     * Stores the value for (a, b, z), replacing any value already stored for it.
+     */
+    public void put(int a, int b, int[] z, double value) {
+        if (z == null) z = EMPTY;
+
+        long hash = hash(a, b, z);
+        int set = setFor(hash);
+
+        synchronized (lockFor(set)) {
+            int i = find(set, hash, a, b, z);
+
+            if (i == -1) {
+                i = victim(set);
+
+                hashes[i] = hash;
+                as[i] = a;
+                bs[i] = b;
+                zs[i] = sortedCopy(z);
+            }
+
+            values[i] = value;
+            referenced[i] = true;
+        }
+    }
+
+    @Override
+    protected boolean isEmpty(int i) {
+        return zs[i] == null;
+    }
+
+    @Override
+    protected void clearEntry(int i) {
+        zs[i] = null;
+    }
+
+    // Returns the index of the entry for the given key in the given set, or -1 if none.
+    private int find(int set, long hash, int a, int b, int[] z) {
+        int base = set * WAYS;
+
+        for (int i = base; i < base + WAYS; i++) {
+            if (zs[i] != null && hashes[i] == hash && as[i] == a && bs[i] == b && sameSet(zs[i], z)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -19,28 +19,260 @@
 // Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
 ///////////////////////////////////////////////////////////////////////////////
 
+
 package edu.cmu.tetrad.util;
 
-import java.util.concurrent.ForkJoinPool;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Static instance of a ForkJoinPool. Not sure this is necessary.
+ * The shared execution service for parallel work in Tetrad. CPU-bound work runs in a single fork-join pool, so
+ * that several searches in one JVM share its threads rather than each starting a pool of its own. The
+ * parallelism of the pool may be limited, by the system property tetrad.parallelism or by setParallelism; it
+ * defaults to the number of available processors.
+ * <p>
+ * Lists of tasks may be run with invokeAll, optionally limiting the number of them that run at once (a budget for
+ * the caller). Calls made from inside tasks already running in the pool are run in the same pool, helping with
+ * the queued work while they wait, so nested parallel loops do not add threads; if nested parallelism is turned
+ * off, such calls run their tasks one after another in the calling thread instead. Work that mostly blocks, on
+ * I/O, say, should be submitted with submitBlocking, which runs it on a virtual thread where the JVM supports them
+ * and otherwise on a cached daemon thread, so that it does not hold up a thread of the pool.
+ * <p>
  * Created by josephramsey on 2/7/15.
  */
 public class ForkJoinPoolInstance {
     private static final ForkJoinPoolInstance INSTANCE = new ForkJoinPoolInstance();
-    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
-    private ForkJoinPoolInstance() {
+    private volatile ForkJoinPool pool;
+    private volatile boolean nestedParallelism = true;
+    private ExecutorService blockingExecutor;
+
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final AtomicInteger activeBlockingTasks = new AtomicInteger();
+    private final AtomicLong completedTasks = new AtomicLong();
 
+    private ForkJoinPoolInstance() {
+        int parallelism = Integer.getInteger("tetrad.parallelism", Runtime.getRuntime().availableProcessors());
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
     }
 
     public static ForkJoinPoolInstance getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * @return The shared fork-join pool.
+     */
     public ForkJoinPool getPool() {
         return pool;
     }
-}
 
+    /**
+     * @return The maximum number of threads the shared pool runs tasks in at once.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Limits the number of threads the shared pool runs tasks in at once. Work already submitted, and work
+     * submitted later by classes that kept a reference to the old pool, finishes in the old pool, whose threads
+     * end once it is idle.
+     *
+     * @param parallelism The new parallelism, at least 1.
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+
+        if (parallelism != pool.getParallelism()) {
+            pool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * @return True if tasks invoked from inside the shared pool are run in parallel; true by default.
+     */
+    public boolean isNestedParallelism() {
+        return nestedParallelism;
+    }
+
+    /**
+     * Sets whether tasks invoked from inside the shared pool are run in parallel. If not, they are run one after
+     * another in the invoking thread.
+     */
+    public void setNestedParallelism(boolean nestedParallelism) {
+        this.nestedParallelism = nestedParallelism;
+    }
+
+    /**
+     * @return True if the current thread is a thread of the shared pool.
+     */
+    public boolean isInPool() {
+        return ForkJoinTask.getPool() == pool;
+    }
+
+    /**
+     * Runs the given tasks in the shared pool, with as many at once as the pool allows, and returns their results
+     * in order.
+     *
+     * @throws RuntimeException If any of the tasks throws an exception; checked exceptions are wrapped.
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) {
+        return invokeAll(tasks, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Runs the given tasks in the shared pool, with at most the given number of them at once, and returns their
+     * results in order.
+     *
+     * @param tasks  The tasks.
+     * @param budget The most tasks to run at once, at least 1.
+     * @throws RuntimeException If any of the tasks throws an exception; checked exceptions are wrapped.
+     */
+    public <T> List<T> invokeAll(final List<? extends Callable<T>> tasks, int budget) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("Budget must be at least 1: " + budget);
+        }
+
+        final ForkJoinPool pool = this.pool;
+        final Object[] results = new Object[tasks.size()];
+        int width = Math.min(Math.min(budget, pool.getParallelism()), tasks.size());
+
+        if (width <= 1 || (!nestedParallelism && ForkJoinTask.getPool() == pool)) {
+            for (int i = 0; i < tasks.size(); i++) {
+                results[i] = call(tasks.get(i));
+            }
+        } else {
+            final AtomicInteger next = new AtomicInteger();
+
+            class Worker extends RecursiveAction {
+                @Override
+                protected void compute() {
+                    int i;
+
+                    while ((i = next.getAndIncrement()) < tasks.size()) {
+                        results[i] = call(tasks.get(i));
+                    }
+                }
+            }
+
+            final List<Worker> workers = new ArrayList<>();
+
+            for (int w = 0; w < width; w++) {
+                workers.add(new Worker());
+            }
+
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    ForkJoinTask.invokeAll(workers);
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return new ArrayList<>(list);
+    }
+
+    /**
+     * Submits a task that spends most of its time blocked, to run outside of the shared pool.
+     */
+    public <T> Future<T> submitBlocking(final Callable<T> task) {
+        return getBlockingExecutor().submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                activeBlockingTasks.incrementAndGet();
+
+                try {
+                    return task.call();
+                } finally {
+                    activeBlockingTasks.decrementAndGet();
+                    completedTasks.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The number of tasks waiting in the queues of the shared pool, whether submitted from outside the
+     * pool or forked inside it.
+     */
+    public long getQueueDepth() {
+        ForkJoinPool pool = this.pool;
+        return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+    }
+
+    /**
+     * @return The number of threads of the shared pool currently running tasks.
+     */
+    public int getActiveThreadCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    /**
+     * @return The number of tasks given to invokeAll that are running now.
+     */
+    public int getActiveTaskCount() {
+        return activeTasks.get();
+    }
+
+    /**
+     * @return The number of tasks given to submitBlocking that are running now.
+     */
+    public int getActiveBlockingTaskCount() {
+        return activeBlockingTasks.get();
+    }
+
+    /**
+     * @return The number of tasks given to invokeAll or submitBlocking that have finished.
+     */
+    public long getCompletedTaskCount() {
+        return completedTasks.get();
+    }
+
+    private <T> T call(Callable<T> task) {
+        activeTasks.incrementAndGet();
+
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            activeTasks.decrementAndGet();
+            completedTasks.incrementAndGet();
+        }
+    }
+
+    // Virtual threads, where the JVM has them (Java 21 on); Tetrad is built for Java 8, so they are looked up
+    // reflectively.
+    private synchronized ExecutorService getBlockingExecutor() {
+        if (blockingExecutor == null) {
+            try {
+                blockingExecutor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                blockingExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "tetrad-blocking-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+
+        return blockingExecutor;
+    }
+}
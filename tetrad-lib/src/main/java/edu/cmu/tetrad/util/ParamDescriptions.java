@@ -173,6 +173,9 @@ public class ParamDescriptions {
         map.put("numberResampling", new ParamDescription("The number of resampling iterations (min = 0)", 0, 0, Integer.MAX_VALUE));
         map.put("resampleSize", new ParamDescription("The resample size (min = 1)", 1, 1, Integer.MAX_VALUE));
         map.put("resamplingWithReplacement", new ParamDescription("Yes, if resampling with replacement (bootstrapping)", true));
+        map.put("lazyResampling", new ParamDescription("Yes, if each resample is drawn as a view of the data when it is searched, rather than copied up front", false));
+        map.put("covarianceResampling", new ParamDescription("Yes, if only the covariance matrix of each resample is given to the algorithm, all computed in one pass over the data", false));
+        map.put("parallelSimulation", new ParamDescription("Yes, if rows are simulated in parallel (reproducible for a given seed, whatever the number of threads)", false));
         map.put("resamplingEnsemble", new ParamDescription("Ensemble method: Preserved (0), Highest (1), Majority (2)", 1, 0, 2));
         //~Resampling
 
@@ -315,6 +318,10 @@ public class ParamDescriptions {
         map.put("kciUseAppromation", new ParamDescription(
                 "Use the approximate Gamma approximation algorithm", true));
 
+        map.put("kciRank", new ParamDescription(
+                "Number of random Fourier features per kernel for KCI (0 = exact kernel matrices)",
+                0, 0, Integer.MAX_VALUE));
+
     }
 
     public static ParamDescriptions getInstance() {
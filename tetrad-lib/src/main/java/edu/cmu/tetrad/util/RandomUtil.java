@@ -61,6 +61,11 @@ public class RandomUtil {
 
     private Map<Long, RandomGenerator> seedsToGenerators = new HashedMap<>();
 
+    // Generators that stand in for the shared one on the threads that set them.
+    private final ThreadLocal<RandomGenerator> threadGenerators = new ThreadLocal<>();
+
+    private final ThreadLocal<NormalDistribution> threadNormals = new ThreadLocal<>();
+
 
     //========================================CONSTRUCTORS===================================//
 
@@ -94,11 +99,11 @@ public class RandomUtil {
      * @return Ibid.
      */
     public int nextInt(int n) {
-        return randomGenerator.nextInt(n);
+        return getRandomGenerator().nextInt(n);
     }
 
     public double nextDouble() {
-        return randomGenerator.nextDouble();
+        return getRandomGenerator().nextDouble();
     }
 
     /**
@@ -109,7 +114,7 @@ public class RandomUtil {
     public double nextUniform(double low, double high) {
         if (low == high) return low;
         else {
-            return new UniformRealDistribution(randomGenerator, low, high).sample();
+            return new UniformRealDistribution(getRandomGenerator(), low, high).sample();
         }
     }
 
@@ -123,7 +128,7 @@ public class RandomUtil {
             throw new IllegalArgumentException("Standard deviation must be non-negative: " + sd);
         }
 
-        double sample = normal.sample();
+        double sample = getNormal().sample();
         return sample * sd + mean;
 
 //        return new NormalDistribution(randomGenerator, mean, sd).sample();
@@ -183,7 +188,7 @@ public class RandomUtil {
      * @return Ibid.
      */
     public double nextPoisson(double lambda) {
-        return new PoissonDistribution(randomGenerator, lambda, 1.0E-12D, 100000).sample();
+        return new PoissonDistribution(getRandomGenerator(), lambda, 1.0E-12D, 100000).sample();
     }
 
     /**
@@ -222,7 +227,7 @@ public class RandomUtil {
      * @return Ibid.
      */
     public double nextT(double df) {
-        return new TDistribution(randomGenerator, df).sample();
+        return new TDistribution(getRandomGenerator(), df).sample();
     }
 
     /**
@@ -230,7 +235,7 @@ public class RandomUtil {
      * @return Ibid.
      */
     public double nextExponential(double lambda) {
-        return new ExponentialDistribution(randomGenerator, lambda).sample();
+        return new ExponentialDistribution(getRandomGenerator(), lambda).sample();
     }
 
     /**
@@ -238,7 +243,7 @@ public class RandomUtil {
      * @return Ibid.
      */
     public double nextChiSquare(double df) {
-        return new ChiSquaredDistribution(randomGenerator, df).sample();
+        return new ChiSquaredDistribution(getRandomGenerator(), df).sample();
     }
 
     /**
@@ -247,19 +252,53 @@ public class RandomUtil {
      * @return Ibid.
      */
     public double nextGamma(double shape, double scale) {
-        return new GammaDistribution(randomGenerator, shape, scale).sample();
+        return new GammaDistribution(getRandomGenerator(), shape, scale).sample();
+    }
+
+    private NormalDistribution getNormal() {
+        NormalDistribution normal = threadNormals.get();
+        return normal != null ? normal : this.normal;
     }
 
     public long getSeed() {
         return seed;
     }
 
+    /**
+     * @return the generator draws on the current thread come from--the thread's own generator if one has been
+     * set, otherwise the shared one.
+     */
     public RandomGenerator getRandomGenerator() {
-        return randomGenerator;
+        RandomGenerator generator = threadGenerators.get();
+        return generator != null ? generator : randomGenerator;
+    }
+
+    /**
+     * Makes draws on the current thread come from the given generator instead of the shared one, so that parallel
+     * code can give each chunk of its work an independent, reproducible stream while still drawing through this
+     * class (as, for instance, expressions in generalized SEMs do). Pass null to go back to the shared generator.
+     *
+     * @param generator The generator for this thread, or null.
+     */
+    public void setThreadRandomGenerator(RandomGenerator generator) {
+        if (generator == null) {
+            threadGenerators.remove();
+            threadNormals.remove();
+        } else {
+            threadGenerators.set(generator);
+            threadNormals.set(new NormalDistribution(generator, 0, 1));
+        }
+    }
+
+    /**
+     * @return the generator set for the current thread, or null if it uses the shared one.
+     */
+    public RandomGenerator getThreadRandomGenerator() {
+        return threadGenerators.get();
     }
 
     public long nextLong() {
-        return randomGenerator.nextLong();
+        return getRandomGenerator().nextLong();
     }
 }
 
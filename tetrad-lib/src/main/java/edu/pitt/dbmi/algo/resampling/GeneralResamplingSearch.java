@@ -6,18 +6,20 @@ package edu.pitt.dbmi.algo.resampling;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
 
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.algorithm.MultiDataSetAlgorithm;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DataUtils;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
 import edu.cmu.tetrad.util.Parameters;
+import edu.cmu.tetrad.util.RandomUtil;
 import edu.pitt.dbmi.algo.resampling.task.GeneralResamplingSearchRunnable;
 
 /**
@@ -40,13 +42,24 @@ public class GeneralResamplingSearch {
 
 	private boolean runParallel = false;
 
+	private boolean lazyResampling = false;
+
+	private boolean covarianceResampling = false;
+
+	/**
+	 * The covariance matrices of the resamples, during a search with
+	 * covariance resampling.
+	 */
+	private List<ICovarianceMatrix> covariances = null;
+
 	private boolean verbose = false;
 
 	private List<Graph> PAGs = new ArrayList<>();
 
-	// private ForkJoinPool pool = null;
-
-	private final ExecutorService pool;
+	/**
+	 * The most resamplings searched at once, in parallel mode.
+	 */
+	private int parallelism = Integer.MAX_VALUE;
 
 	private DataSet data = null;
 
@@ -68,17 +81,13 @@ public class GeneralResamplingSearch {
 
 	public GeneralResamplingSearch(DataSet data) {
 		this.data = data;
-		// pool = ForkJoinPoolInstance.getInstance().getPool();
-		pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 	}
 
 	public GeneralResamplingSearch(List<DataSet> dataSets) {
 		this.dataSets = dataSets;
-		// pool = ForkJoinPoolInstance.getInstance().getPool();
-		pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 	}
 
-	public void addPAG(Graph pag) {
+	public synchronized void addPAG(Graph pag) {
 		PAGs.add(pag);
 	}
 
@@ -108,6 +117,45 @@ public class GeneralResamplingSearch {
 		this.runParallel = runParallel;
 	}
 
+	/**
+	 * Sets the most resamplings searched at once in parallel mode, so that a
+	 * resampling search run alongside others in the shared pool leaves threads
+	 * for them. By default as many are searched at once as the pool allows.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets whether each resample is drawn by its own task, as a view of the
+	 * selected rows of the data, when the task is run. By default every resample
+	 * is copied out of the data before any task is run, which holds all of the
+	 * copies in memory at once; lazily, only the row indices of the resamples
+	 * being searched are held. The resamples are drawn from seeds taken from
+	 * RandomUtil, so a seeded run is reproducible either way, though the two
+	 * modes draw different resamples.
+	 */
+	public void setLazyResampling(boolean lazyResampling) {
+		this.lazyResampling = lazyResampling;
+	}
+
+	/**
+	 * Sets whether the algorithm is given only the covariance matrix of each
+	 * resample, for algorithms that need nothing more of continuous data (those
+	 * using the SEM BIC score or the Fisher Z test, for instance). The
+	 * covariance matrices of all of the resamples are then computed from row
+	 * weights in one pass over the data, by ResamplingCovariances, with no
+	 * resampled data set built. Applies to a single, complete, continuous data
+	 * set, and takes precedence over lazy resampling.
+	 */
+	public void setCovarianceResampling(boolean covarianceResampling) {
+		this.covarianceResampling = covarianceResampling;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -163,6 +211,23 @@ public class GeneralResamplingSearch {
 
 		long start, stop;
 
+		if (covarianceResampling && data != null) {
+			start = System.currentTimeMillis();
+
+			long[] seeds = new long[numberResampling];
+			for (int i = 0; i < seeds.length; i++) {
+				seeds[i] = RandomUtil.getInstance().nextLong();
+			}
+
+			covariances = new ResamplingCovariances(data, resampleSize, resamplingWithReplacement, seeds)
+					.getCovarianceMatrices();
+
+			stop = System.currentTimeMillis();
+			if (verbose) {
+				out.println("processing time of resampled covariance matrices : " + (stop - start) / 1000.0 + " sec");
+			}
+		}
+
 		if (!this.runParallel) {
 			// Running in the sequential form
 			if (verbose) {
@@ -171,37 +236,7 @@ public class GeneralResamplingSearch {
 			for (int i1 = 0; i1 < this.numberResampling; i1++) {
 				start = System.currentTimeMillis();
 
-				GeneralResamplingSearchRunnable task = null;
-
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Resampling
-				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				}
+				GeneralResamplingSearchRunnable task = newTask(i1);
 
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
@@ -220,97 +255,35 @@ public class GeneralResamplingSearch {
 				out.println("Running Resamplings in Parallel Mode, numberResampling = " + numberResampling);
 			}
 
+			List<Callable<Boolean>> tasks = new ArrayList<>();
+
 			for (int i1 = 0; i1 < this.numberResampling; i1++) {
 
-				GeneralResamplingSearchRunnable task = null;
-
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Resampling
-				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				}
+				final GeneralResamplingSearchRunnable task = newTask(i1);
 
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
 				}
 				task.setKnowledge(knowledge);
-				pool.submit(task);
-			}
-
-			pool.shutdown();
 
-			while (!pool.isTerminated()) {
-				try {
-					Thread.sleep(1000);
-					// out.println("Waiting...");
-				} catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				}
+				tasks.add(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						task.run();
+						return true;
+					}
+				});
 			}
-			// out.println("Is terminated: " + pool.isTerminated());
+
+			ForkJoinPoolInstance.getInstance().invokeAll(tasks, parallelism);
 		}
 
-		// If the pool is prematurely terminated, do sequentially
+		// If the parallel search produced no graphs, do sequentially
 		if (PAGs == null || PAGs.size() == 0) {
 			for (int i1 = 0; i1 < this.numberResampling; i1++) {
 				start = System.currentTimeMillis();
 
-				GeneralResamplingSearchRunnable task = null;
-
-				// Bootstrapping
-				if (resamplingWithReplacement) {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				// Resampling
-				} else {
-					if (data != null) {
-						DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
-						task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
-					} else {
-						List<DataModel> dataModels = new ArrayList<>();
-						for (DataSet data : dataSets) {
-							DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
-							dataModels.add(dataSet);
-						}
-						task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
-								verbose);
-					}
-				}
+				GeneralResamplingSearchRunnable task = newTask(i1);
 
 				if (initialGraph != null) {
 					task.setInitialGraph(initialGraph);
@@ -325,9 +298,64 @@ public class GeneralResamplingSearch {
 			}
 		}
 
+		covariances = null;
+
 		parameters.set("numberResampling", numberResampling); // This needs to be reset back to the previous value
 
 		return PAGs;
 	}
 
+	private GeneralResamplingSearchRunnable newTask(int replicate) {
+		GeneralResamplingSearchRunnable task = null;
+
+		if (covariances != null) {
+			return new GeneralResamplingSearchRunnable(covariances.get(replicate), algorithm, parameters, this,
+					verbose);
+		}
+
+		if (lazyResampling) {
+			if (data != null) {
+				task = new GeneralResamplingSearchRunnable(data, algorithm, parameters, this, verbose);
+			} else {
+				List<DataModel> dataModels = new ArrayList<DataModel>(dataSets);
+				task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
+						verbose);
+			}
+			task.setResampling(RandomUtil.getInstance().nextLong(), resampleSize, resamplingWithReplacement);
+			return task;
+		}
+
+		// Bootstrapping
+		if (resamplingWithReplacement) {
+			if (data != null) {
+				DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
+				task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
+			} else {
+				List<DataModel> dataModels = new ArrayList<>();
+				for (DataSet data : dataSets) {
+					DataSet dataSet = DataUtils.getBootstrapSample(data, resampleSize);
+					dataModels.add(dataSet);
+				}
+				task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
+						verbose);
+			}
+		// Resampling
+		} else {
+			if (data != null) {
+				DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
+				task = new GeneralResamplingSearchRunnable(dataSet, algorithm, parameters, this, verbose);
+			} else {
+				List<DataModel> dataModels = new ArrayList<>();
+				for (DataSet data : dataSets) {
+					DataSet dataSet = DataUtils.getResamplingDataset(data, resampleSize);
+					dataModels.add(dataSet);
+				}
+				task = new GeneralResamplingSearchRunnable(dataModels, multiDataSetAlgorithm, parameters, this,
+						verbose);
+			}
+		}
+
+		return task;
+	}
+
 }
@@ -87,6 +87,8 @@ public class GeneralResamplingTest {
         if (obj instanceof PrintStream) {
             setOut((PrintStream) obj);
         }
+		this.resamplingSearch.setLazyResampling(parameters.getBoolean("lazyResampling", false));
+		this.resamplingSearch.setCovarianceResampling(parameters.getBoolean("covarianceResampling", false));
 	}
 
 	public void setResampleSize(int resampleSize) {
@@ -97,6 +99,24 @@ public class GeneralResamplingTest {
 		this.resamplingSearch.setResamplingWithReplacement(ResamplingWithReplacement);
 	}
 
+	/**
+	 * Sets whether each resample is drawn, as a view of the data, only when it
+	 * is searched. Also set from the "lazyResampling" parameter by
+	 * setParameters().
+	 */
+	public void setLazyResampling(boolean lazyResampling) {
+		this.resamplingSearch.setLazyResampling(lazyResampling);
+	}
+
+	/**
+	 * Sets whether the algorithm is given only the covariance matrix of each
+	 * resample, all of them computed in one pass over the data. Also set from
+	 * the "covarianceResampling" parameter by setParameters().
+	 */
+	public void setCovarianceResampling(boolean covarianceResampling) {
+		this.resamplingSearch.setCovarianceResampling(covarianceResampling);
+	}
+
 	public void setNumberResampling(int numberResampling) {
 		this.resamplingSearch.setNumberResampling(numberResampling);
 	}
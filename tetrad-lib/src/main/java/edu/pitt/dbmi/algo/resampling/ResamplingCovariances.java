@@ -0,0 +1,417 @@
+package edu.pitt.dbmi.algo.resampling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.distribution.HypergeometricDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well44497b;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.data.VerticalDoubleDataBox;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.TetradMatrix;
+
+/**
+ * Computes the covariance matrices of a number of resamples of a continuous
+ * data set without building the resampled data sets. Each resample is a vector
+ * of row multiplicities--multinomial for sampling with replacement,
+ * hypergeometric for sampling without--and its covariance matrix is the
+ * correspondingly weighted covariance of the rows. The weighted sums for all
+ * of the resamples are accumulated together in one pass over the data, block
+ * of rows by block of rows, with the resamples of each block divided among
+ * the threads of the shared pool.
+ * <p>
+ * Each resample is drawn from its own seed, so the matrices don't depend on
+ * the number of threads. The data must be complete. Accumulating a resample
+ * takes (p + 1)(p + 2) / 2 doubles; if the resamples asked for together need
+ * more than getMaxBytes() for this, the data is passed over once for each
+ * group of resamples that fits.
+ *
+ * @author Joseph Ramsey
+ */
+public class ResamplingCovariances {
+
+	private final DataSet data;
+
+	/**
+	 * The data, by column.
+	 */
+	private final double[][] columns;
+
+	private final double[] means;
+
+	private final int numRows;
+
+	private final int numColumns;
+
+	private final int resampleSize;
+
+	private final boolean resamplingWithReplacement;
+
+	private final long[] seeds;
+
+	private final int blockRows;
+
+	/**
+	 * The number of rows of each resample drawn from each block of rows,
+	 * blockTotals[replicate][block].
+	 */
+	private final int[][] blockTotals;
+
+	private long maxBytes = 1L << 28;
+
+	/**
+	 * Per-thread scratch for accumulating a block: the row counts, the
+	 * shuffled rows, and the drawn rows, unweighted and weighted.
+	 */
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	/**
+	 * @param data
+	 *            the continuous, complete data set to resample.
+	 * @param resampleSize
+	 *            the number of rows in each resample. Without replacement, at
+	 *            most the number of rows in the data.
+	 * @param resamplingWithReplacement
+	 *            true for bootstrap resamples, false for resamples without
+	 *            replacement.
+	 * @param seeds
+	 *            one seed for each resample.
+	 */
+	public ResamplingCovariances(DataSet data, int resampleSize, boolean resamplingWithReplacement, long[] seeds) {
+		if (!data.isContinuous()) {
+			throw new IllegalArgumentException("Not a continuous data set.");
+		}
+
+		if (resampleSize < 2) {
+			throw new IllegalArgumentException("Resample size must be at least 2: " + resampleSize);
+		}
+
+		this.data = data;
+		this.numRows = data.getNumRows();
+		this.numColumns = data.getNumColumns();
+		this.resampleSize = resamplingWithReplacement ? resampleSize : Math.min(resampleSize, numRows);
+		this.resamplingWithReplacement = resamplingWithReplacement;
+		this.seeds = seeds.clone();
+		this.columns = columns(data);
+		this.means = new double[numColumns];
+
+		for (int j = 0; j < numColumns; j++) {
+			double sum = 0.0;
+
+			for (int i = 0; i < numRows; i++) {
+				if (Double.isNaN(columns[j][i])) {
+					throw new IllegalArgumentException(
+							"Data for " + data.getVariable(j) + " has missing values; resample the rows instead.");
+				}
+
+				sum += columns[j][i];
+			}
+
+			means[j] = sum / numRows;
+		}
+
+		this.blockRows = Math.max(64, Math.min(4096, (1 << 18) / Math.max(numColumns, 1)));
+		int numBlocks = (numRows + blockRows - 1) / blockRows;
+		this.blockTotals = new int[seeds.length][];
+
+		for (int b = 0; b < seeds.length; b++) {
+			blockTotals[b] = blockTotals(seeds[b], numBlocks);
+		}
+	}
+
+	/**
+	 * @return the number of bytes of accumulators that may be held at once.
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Sets the number of bytes of accumulators that may be held at once;
+	 * by default 256 MB. At least one resample is always accumulated per pass.
+	 */
+	public void setMaxBytes(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Must be positive: " + maxBytes);
+		}
+
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return the number of resamples.
+	 */
+	public int getNumResamples() {
+		return seeds.length;
+	}
+
+	/**
+	 * @return the covariance matrices of all of the resamples, in order.
+	 */
+	public List<ICovarianceMatrix> getCovarianceMatrices() {
+		List<ICovarianceMatrix> covariances = new ArrayList<>();
+		long perResample = 8L * ((numColumns + 1L) * (numColumns + 2L) / 2);
+		int perPass = (int) Math.max(1, Math.min(seeds.length, maxBytes / perResample));
+
+		for (int from = 0; from < seeds.length; from += perPass) {
+			covariances.addAll(getCovarianceMatrices(from, Math.min(seeds.length, from + perPass)));
+		}
+
+		return covariances;
+	}
+
+	/**
+	 * @return the covariance matrices of resamples from (inclusive) to to
+	 *         (exclusive), in order, accumulated in a single pass over the data.
+	 */
+	public List<ICovarianceMatrix> getCovarianceMatrices(int from, int to) {
+		if (from < 0 || to > seeds.length || from > to) {
+			throw new IllegalArgumentException("Not a range of resamples: " + from + " to " + to);
+		}
+
+		int p = numColumns;
+		int numResamples = to - from;
+
+		// For each resample, the sums of the centered values followed by the
+		// lower triangle of the sums of their products, both weighted.
+		double[][] sums = new double[numResamples][p + p * (p + 1) / 2];
+		double[][] block = new double[p][blockRows];
+
+		for (int start = 0; start < numRows; start += blockRows) {
+			int rows = Math.min(blockRows, numRows - start);
+
+			for (int j = 0; j < p; j++) {
+				for (int i = 0; i < rows; i++) {
+					block[j][i] = columns[j][start + i] - means[j];
+				}
+			}
+
+			ForkJoinPoolInstance.getInstance().getPool()
+					.invoke(new AccumulateTask(block, start / blockRows, rows, from, sums, 0, numResamples));
+		}
+
+		List<ICovarianceMatrix> covariances = new ArrayList<>();
+		double n = resampleSize;
+
+		for (double[] sum : sums) {
+			TetradMatrix cov = new TetradMatrix(p, p);
+
+			for (int i = 0, t = p; i < p; i++) {
+				for (int j = 0; j <= i; j++, t++) {
+					double c = (sum[t] - sum[i] * sum[j] / n) / (n - 1);
+					cov.set(i, j, c);
+					cov.set(j, i, c);
+				}
+			}
+
+			covariances.add(new CovarianceMatrix(data.getVariables(), cov, resampleSize));
+		}
+
+		return covariances;
+	}
+
+	/**
+	 * @return the number of times each row of the data occurs in the given
+	 *         resample.
+	 */
+	public int[] getRowCounts(int replicate) {
+		int[] counts = new int[numRows];
+		int[] scratch = new int[blockRows];
+
+		for (int start = 0; start < numRows; start += blockRows) {
+			int rows = Math.min(blockRows, numRows - start);
+			drawBlock(replicate, start / blockRows, rows, counts, start, scratch);
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Splits the resample size among the blocks of rows, as a multinomial or
+	 * multivariate hypergeometric draw.
+	 */
+	private int[] blockTotals(long seed, int numBlocks) {
+		RandomGenerator random = new Well44497b(seed);
+		int[] totals = new int[numBlocks];
+		int remaining = resampleSize;
+
+		for (int k = 0; k < numBlocks && remaining > 0; k++) {
+			int rows = Math.min(blockRows, numRows - k * blockRows);
+			int remainingRows = numRows - k * blockRows;
+
+			if (rows == remainingRows) {
+				totals[k] = remaining;
+			} else if (resamplingWithReplacement) {
+				totals[k] = new BinomialDistribution(random, remaining, rows / (double) remainingRows).sample();
+			} else {
+				totals[k] = new HypergeometricDistribution(random, remainingRows, rows, remaining).sample();
+			}
+
+			remaining -= totals[k];
+		}
+
+		return totals;
+	}
+
+	/**
+	 * Draws the rows of the given resample that fall in the given block,
+	 * adding their multiplicities to counts[offset..offset + rows).
+	 */
+	private void drawBlock(int replicate, int block, int rows, int[] counts, int offset, int[] scratch) {
+		int total = blockTotals[replicate][block];
+		long state = seeds[replicate] ^ (0x9E3779B97F4A7C15L * (block + 1));
+
+		if (resamplingWithReplacement) {
+			for (int k = 0; k < total; k++) {
+				state += 0x9E3779B97F4A7C15L;
+				counts[offset + nextInt(state, rows)]++;
+			}
+		} else {
+			for (int i = 0; i < rows; i++) {
+				scratch[i] = i;
+			}
+
+			// Partial Fisher-Yates shuffle; the first total entries are drawn.
+			for (int k = 0; k < total; k++) {
+				state += 0x9E3779B97F4A7C15L;
+				int j = k + nextInt(state, rows - k);
+				int t = scratch[k];
+				scratch[k] = scratch[j];
+				scratch[j] = t;
+				counts[offset + scratch[k]]++;
+			}
+		}
+	}
+
+	/**
+	 * @return a number in [0, bound) from the SplitMix64 output for the given
+	 *         state.
+	 */
+	private static int nextInt(long state, int bound) {
+		long z = state;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) (((z >>> 32) * bound) >>> 32);
+	}
+
+	private static double[][] columns(DataSet data) {
+		if (data instanceof BoxDataSet && ((BoxDataSet) data).getDataBox() instanceof VerticalDoubleDataBox) {
+			return ((VerticalDoubleDataBox) ((BoxDataSet) data).getDataBox()).getVariableVectors();
+		}
+
+		double[][] columns = new double[data.getNumColumns()][data.getNumRows()];
+
+		for (int i = 0; i < data.getNumRows(); i++) {
+			for (int j = 0; j < data.getNumColumns(); j++) {
+				columns[j][i] = data.getDouble(i, j);
+			}
+		}
+
+		return columns;
+	}
+
+	private class AccumulateTask extends RecursiveAction {
+		private static final long serialVersionUID = 23L;
+
+		private final double[][] block;
+		private final int blockIndex;
+		private final int rows;
+		private final int offset;
+		private final double[][] sums;
+		private final int from;
+		private final int to;
+
+		AccumulateTask(double[][] block, int blockIndex, int rows, int offset, double[][] sums, int from, int to) {
+			this.block = block;
+			this.blockIndex = blockIndex;
+			this.rows = rows;
+			this.offset = offset;
+			this.sums = sums;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				accumulate(offset + from, sums[from]);
+			} else {
+				int mid = (from + to) / 2;
+				AccumulateTask left = new AccumulateTask(block, blockIndex, rows, offset, sums, from, mid);
+				AccumulateTask right = new AccumulateTask(block, blockIndex, rows, offset, sums, mid, to);
+				left.fork();
+				right.compute();
+				left.join();
+			}
+		}
+
+		private void accumulate(int replicate, double[] sum) {
+			int p = numColumns;
+			Scratch scratch = ResamplingCovariances.this.scratch.get();
+			int[] counts = scratch.counts;
+			double[][] x = scratch.x;
+			double[][] wx = scratch.wx;
+
+			Arrays.fill(counts, 0, rows, 0);
+			drawBlock(replicate, blockIndex, rows, counts, 0, scratch.shuffle);
+
+			// Gathers the drawn rows, weighted and unweighted.
+			int k = 0;
+			for (int i = 0; i < rows; i++) {
+				if (counts[i] != 0) k++;
+			}
+
+			for (int j = 0; j < p; j++) {
+				double[] column = block[j];
+				double s = 0.0;
+
+				for (int i = 0, r = 0; i < rows; i++) {
+					if (counts[i] != 0) {
+						x[j][r] = column[i];
+						wx[j][r] = counts[i] * column[i];
+						s += wx[j][r];
+						r++;
+					}
+				}
+
+				sum[j] += s;
+			}
+
+			for (int i = 0, t = p; i < p; i++) {
+				double[] wxi = wx[i];
+
+				for (int j = 0; j <= i; j++, t++) {
+					double[] xj = x[j];
+					double s = 0.0;
+
+					for (int r = 0; r < k; r++) {
+						s += wxi[r] * xj[r];
+					}
+
+					sum[t] += s;
+				}
+			}
+		}
+	}
+
+	private class Scratch {
+		final int[] counts = new int[blockRows];
+		final int[] shuffle = new int[blockRows];
+		final double[][] x = new double[numColumns][blockRows];
+		final double[][] wx = new double[numColumns][blockRows];
+	}
+}
@@ -1,13 +1,18 @@
 package edu.pitt.dbmi.algo.resampling.task;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well44497b;
+
 import edu.cmu.tetrad.algcomparison.algorithm.Algorithm;
 import edu.cmu.tetrad.algcomparison.algorithm.MultiDataSetAlgorithm;
 import edu.cmu.tetrad.algcomparison.utils.HasKnowledge;
 import edu.cmu.tetrad.data.DataModel;
 import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.DataUtils;
 import edu.cmu.tetrad.data.IKnowledge;
 import edu.cmu.tetrad.data.Knowledge2;
 import edu.cmu.tetrad.graph.Graph;
@@ -23,7 +28,7 @@ import edu.pitt.dbmi.algo.resampling.GeneralResamplingSearch;
  */
 public class GeneralResamplingSearchRunnable implements Runnable {
 
-	private DataSet dataSet = null;
+	private DataModel dataSet = null;
 
 	private List<DataModel> dataSets = null;
 
@@ -49,7 +54,18 @@ public class GeneralResamplingSearchRunnable implements Runnable {
 
 	private PrintStream out = System.out;
 
-	public GeneralResamplingSearchRunnable(DataSet dataSet, Algorithm algorithm, Parameters parameters,
+	/**
+	 * Whether the data is resampled when the task is run, and how.
+	 */
+	private boolean resampling = false;
+
+	private long resamplingSeed;
+
+	private int resampleSize;
+
+	private boolean resamplingWithReplacement = true;
+
+	public GeneralResamplingSearchRunnable(DataModel dataSet, Algorithm algorithm, Parameters parameters,
 			GeneralResamplingSearch resamplingAlgorithmSearch, boolean verbose){
 		this.dataSet = dataSet;
 		this.algorithm = algorithm;
@@ -111,6 +127,35 @@ public class GeneralResamplingSearchRunnable implements Runnable {
 		return out;
 	}
 
+	/**
+	 * Makes this task search a resample of its data set(s) rather than the data
+	 * set(s) themselves. The resample is drawn from the given seed when the task
+	 * is run, as a view of the selected rows, so a queued task holds no copy of
+	 * the data.
+	 *
+	 * @param seed
+	 *            the seed of the generator the rows are drawn with.
+	 * @param resampleSize
+	 *            the number of rows to draw.
+	 * @param resamplingWithReplacement
+	 *            true for a bootstrap sample, false for a sample without
+	 *            replacement.
+	 */
+	public void setResampling(long seed, int resampleSize, boolean resamplingWithReplacement) {
+		this.resampling = true;
+		this.resamplingSeed = seed;
+		this.resampleSize = resampleSize;
+		this.resamplingWithReplacement = resamplingWithReplacement;
+	}
+
+	private DataSet resample(DataSet data, RandomGenerator random) {
+		if (resamplingWithReplacement) {
+			return DataUtils.getBootstrapView(data, resampleSize, random);
+		} else {
+			return DataUtils.getResamplingView(data, resampleSize, random);
+		}
+	}
+
 	@Override
 	public void run() {
 		//System.out.println("#dataSet rows: " + dataSet.getNumRows());
@@ -122,6 +167,22 @@ public class GeneralResamplingSearchRunnable implements Runnable {
 		}
 
 		Graph graph = null;
+
+		DataModel dataSet = this.dataSet;
+		List<DataModel> dataSets = this.dataSets;
+
+		if (resampling) {
+			RandomGenerator random = new Well44497b(resamplingSeed);
+
+			if (dataSet != null) {
+				dataSet = resample((DataSet) dataSet, random);
+			} else {
+				dataSets = new ArrayList<>();
+				for (DataModel data : this.dataSets) {
+					dataSets.add(resample((DataSet) data, random));
+				}
+			}
+		}
 		
 		if(dataSet != null){
 			if (algorithm instanceof HasKnowledge) {
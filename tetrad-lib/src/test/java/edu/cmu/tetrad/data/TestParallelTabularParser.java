@@ -0,0 +1,178 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.data;
+
+import edu.cmu.tetrad.graph.Node;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Parses small files in parallel with ranges of every size from one byte to the whole file, so that the ranges
+ * are split and merged at every line and every line straddles a range boundary for some range size.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestParallelTabularParser {
+
+    @Test
+    public void testContinuous() throws IOException {
+        String text = "X1 X2 X3\n1.5 -2.25 3e2\n0.125 7.5 -1.0\n2.0 .5 8.75\n-3.5 4.0 0.0\n";
+
+        checkRanges(text, DelimiterType.WHITESPACE);
+        checkParser(text, 4);
+    }
+
+    @Test
+    public void testNoTrailingNewline() throws IOException {
+        String text = "X1 X2 X3\n1.5 -2.25 3e2\n0.125 7.5 -1.0\n2.0 .5 8.75\n-3.5 4.0 0.0";
+
+        checkRanges(text, DelimiterType.WHITESPACE);
+        checkParser(text, 4);
+    }
+
+    @Test
+    public void testCarriageReturns() throws IOException {
+        String text = "X1 X2 X3\r\n1.5 -2.25 3e2\r\n0.125 7.5 -1.0\r\n2.0 .5 8.75\r\n";
+
+        checkRanges(text, DelimiterType.WHITESPACE);
+        checkParser(text, 3);
+    }
+
+    @Test
+    public void testMixed() throws IOException {
+        String text = "A,X,B\na,1.5,b\n// a comment\nc,*,b\n\na,0.25,*\nc,-1.75,d";
+
+        DataSet data = checkRanges(text, DelimiterType.COMMA);
+
+        assertTrue(data.getVariable("A") instanceof DiscreteVariable);
+        assertTrue(data.getVariable("X") instanceof ContinuousVariable);
+        assertEquals(4, data.getNumRows());
+    }
+
+    @Test
+    public void testQuoted() throws IOException {
+        String text = "A,X\n\"a\",1.5\n\"b\",2.5\n\"a\",-0.5\n";
+
+        checkRanges(text, DelimiterType.COMMA);
+
+        File file = write(text);
+
+        try {
+            for (int size = 1; size <= text.length(); size++) {
+                ParallelTabularParser parser = parser(file, DelimiterType.COMMA, size);
+                parser.readLines(1);
+
+                List<Node> variables = new ArrayList<>();
+                variables.add(new ContinuousVariable("A"));
+                variables.add(new ContinuousVariable("X"));
+
+                assertFalse(parser.parse(parser.getLineEnd(0), variables, 1));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    // Checks that the parallel parse matches the serial one for every range size, returning the serial one.
+    private static DataSet checkRanges(String text, DelimiterType delimiter) throws IOException {
+        File file = write(text);
+
+        try {
+            DataReader reader = new DataReader();
+            reader.setDelimiter(delimiter);
+            DataSet expected = reader.parseTabular(file);
+
+            for (int size = 1; size <= text.length() + 1; size++) {
+                reader = new DataReader();
+                reader.setDelimiter(delimiter);
+                reader.setParallel(true);
+                reader.setParallelRangeSize(size);
+                DataSet data = reader.parseTabular(file);
+
+                assertEquals(expected.getVariables(), data.getVariables());
+                assertEquals(expected.getNumRows(), data.getNumRows());
+
+                for (int i = 0; i < expected.getNumRows(); i++) {
+                    for (int j = 0; j < expected.getNumColumns(); j++) {
+                        assertEquals(expected.getObject(i, j), data.getObject(i, j));
+                    }
+                }
+            }
+
+            return expected;
+        } finally {
+            file.delete();
+        }
+    }
+
+    // Checks that the parallel parser itself handles a continuous file for every range size, rather than falling
+    // back to the serial parser.
+    private static void checkParser(String text, int numRows) throws IOException {
+        File file = write(text);
+
+        try {
+            for (int size = 1; size <= text.length() + 1; size++) {
+                ParallelTabularParser parser = parser(file, DelimiterType.WHITESPACE, size);
+                List<String> lines = parser.readLines(1);
+
+                List<Node> variables = new ArrayList<>();
+
+                for (String name : lines.get(0).trim().split(" ")) {
+                    variables.add(new ContinuousVariable(name));
+                }
+
+                assertTrue(parser.parse(parser.getLineEnd(0), variables, 1));
+                assertEquals(numRows, parser.getNumRows());
+
+                for (int j = 0; j < variables.size(); j++) {
+                    assertTrue(parser.isNumeric(j));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static ParallelTabularParser parser(File file, DelimiterType delimiter, long rangeSize) {
+        ParallelTabularParser parser = new ParallelTabularParser(file, delimiter, "//", '"', "*");
+        parser.setRangeSize(rangeSize);
+        return parser;
+    }
+
+    private static File write(String text) throws IOException {
+        File file = File.createTempFile("tetrad", ".txt");
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes());
+        }
+
+        return file;
+    }
+}
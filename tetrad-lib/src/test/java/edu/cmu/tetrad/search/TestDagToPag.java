@@ -0,0 +1,82 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.search;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestDagToPag {
+
+    @Test
+    public void testIndexed() {
+        RandomUtil.getInstance().setSeed(58293L);
+
+        for (int t = 0; t < 10; t++) {
+            Graph dag = GraphUtils.randomGraph(20, 5, 30, 10, 10, 10, false);
+
+            for (boolean completeRuleSetUsed : new boolean[]{false, true}) {
+                DagToPag indexed = new DagToPag(dag);
+                DagToPag searched = new DagToPag(dag, false);
+                indexed.setCompleteRuleSetUsed(completeRuleSetUsed);
+                searched.setCompleteRuleSetUsed(completeRuleSetUsed);
+
+                Graph pag = indexed.convert();
+                Graph expected = searched.convert();
+
+                // Edge marks included.
+                assertEquals(expected.getNodes(), pag.getNodes());
+                assertEquals(new HashSet<>(expected.getEdges()), new HashSet<>(pag.getEdges()));
+            }
+        }
+    }
+
+    @Test
+    public void testInput() {
+        RandomUtil.getInstance().setSeed(38472L);
+        Graph dag = GraphUtils.randomGraph(20, 4, 30, 10, 10, 10, false);
+
+        // A DAG that already caches its ancestry is used without copying; the PAG is the same.
+        EdgeListGraph cached = new EdgeListGraph(dag);
+        cached.setAncestryCached(true);
+        assertEquals(new DagToPag(dag).convert(), new DagToPag(cached).convert());
+
+        // A graph with two edges between a pair is accepted, as it is by EdgeListGraph, though it is not indexed.
+        Node x = new GraphNode("X");
+        Node y = new GraphNode("Y");
+
+        Graph graph = new EdgeListGraph();
+        graph.addNode(x);
+        graph.addNode(y);
+        graph.addDirectedEdge(x, y);
+        graph.addBidirectedEdge(x, y);
+
+        new DagToPag(graph);
+    }
+}
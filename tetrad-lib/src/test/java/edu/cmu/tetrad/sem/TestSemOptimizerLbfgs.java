@@ -0,0 +1,178 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.sem;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the analytic gradient of the fitting functions used by SemOptimizerLbfgs against finite differences, and
+ * its fits of a model with a latent variable and fixed parameters against those of SemOptimizerPowell.
+ *
+ * @author Joseph Ramsey
+ */
+public class TestSemOptimizerLbfgs {
+
+    @Test
+    public void testGradientFml() {
+        checkGradient(ScoreType.Fml);
+    }
+
+    @Test
+    public void testGradientFgls() {
+        checkGradient(ScoreType.Fgls);
+    }
+
+    @Test
+    public void testLatentFitFml() {
+        checkAgainstPowell(ScoreType.Fml);
+    }
+
+    @Test
+    public void testLatentFitFgls() {
+        checkAgainstPowell(ScoreType.Fgls);
+    }
+
+    /**
+     * A model with a latent variable, a fixed loading, a fixed coefficient and an error covariance, so that there
+     * are free coefficients, variances and covariances.
+     */
+    private static SemPm latentModel() {
+        Node l = new GraphNode("L");
+        l.setNodeType(NodeType.LATENT);
+        Node x1 = new GraphNode("X1");
+        Node x2 = new GraphNode("X2");
+        Node x3 = new GraphNode("X3");
+        Node x4 = new GraphNode("X4");
+        Node x5 = new GraphNode("X5");
+
+        Graph graph = new EdgeListGraph();
+        for (Node node : new Node[]{l, x1, x2, x3, x4, x5}) graph.addNode(node);
+
+        graph.addDirectedEdge(l, x1);
+        graph.addDirectedEdge(l, x2);
+        graph.addDirectedEdge(l, x3);
+        graph.addDirectedEdge(x3, x4);
+        graph.addDirectedEdge(x4, x5);
+        graph.addDirectedEdge(x2, x5);
+        graph.addBidirectedEdge(x1, x4);
+
+        SemPm pm = new SemPm(graph);
+        pm.fixOneLoadingPerLatent();
+
+        Parameter fixed = pm.getCoefficientParameter(x4, x5);
+        fixed.setFixed(true);
+        fixed.setInitializedRandomly(false);
+        fixed.setStartingValue(0.7);
+
+        return pm;
+    }
+
+    private void checkAgainstPowell(ScoreType scoreType) {
+        RandomUtil.getInstance().setSeed(2938471L);
+
+        SemPm pm = latentModel();
+        DataSet data = new SemIm(pm).simulateData(1000, false);
+
+        // Powell starts from random values, so it is restarted a few times to find the global minimum.
+        SemEstimator powell = new SemEstimator(data, pm, new SemOptimizerPowell());
+        powell.setNumRestarts(5);
+        powell.setScoreType(scoreType);
+        SemIm im1 = powell.estimate();
+
+        SemEstimator lbfgs = new SemEstimator(data, pm, new SemOptimizerLbfgs());
+        lbfgs.setScoreType(scoreType);
+        SemIm im2 = lbfgs.estimate();
+
+        // Powell stops short of the minimum by a little, so L-BFGS should do at least as well, and nearly the same.
+        assertTrue(im2.getScore() <= im1.getScore() + 1e-10);
+        assertEquals(im1.getScore(), im2.getScore(), 1e-4);
+
+        // The fixed parameters keep their values.
+        assertEquals(0.7, im2.getParamValue(pm.getCoefficientParameter(pm.getGraph().getNode("X4"),
+                pm.getGraph().getNode("X5"))), 0.0);
+
+        double[] values1 = im1.getFreeParamValues();
+        double[] values2 = im2.getFreeParamValues();
+
+        for (int i = 0; i < values1.length; i++) {
+            assertEquals(values1[i], values2[i], 5e-2);
+        }
+    }
+
+    private void checkGradient(ScoreType scoreType) {
+        RandomUtil.getInstance().setSeed(5938472L);
+
+        SemPm pm = latentModel();
+        DataSet data = new SemIm(pm).simulateData(1000, false);
+
+        SemIm im = new SemIm(pm);
+        im.setDataSet(data);
+        im.setScoreType(scoreType);
+
+        List<Parameter> free = im.getFreeParameters();
+        Set<ParamType> types = new HashSet<>();
+        for (Parameter parameter : free) types.add(parameter.getType());
+        assertTrue(types.containsAll(Arrays.asList(ParamType.COEF, ParamType.VAR, ParamType.COVAR)));
+
+        SemOptimizerLbfgs.FittingFunction function = new SemOptimizerLbfgs.FittingFunction(im);
+
+        // Away from the true values, so the gradient is not near zero.
+        double[] values = im.getFreeParamValues();
+
+        for (int k = 0; k < values.length; k++) {
+            values[k] *= free.get(k).getType() == ParamType.VAR ? 1.3 : 0.8;
+        }
+
+        double[] x = function.toPoint(values);
+        double[] gradient = new double[x.length];
+        double f = function.valueAndGradient(x, gradient);
+
+        assertTrue(!Double.isInfinite(f));
+
+        for (int k = 0; k < x.length; k++) {
+            double h = 1e-6;
+            double[] xPlus = x.clone();
+            double[] xMinus = x.clone();
+            xPlus[k] += h;
+            xMinus[k] -= h;
+
+            double difference = (function.value(xPlus) - function.value(xMinus)) / (2 * h);
+
+            assertEquals(free.get(k).getName(), difference, gradient[k], 1e-5 * Math.max(1.0, Math.abs(difference)));
+        }
+
+        // The value agrees with the SemIm's own score.
+        im.setFreeParamValues(values);
+        assertEquals(im.getScore(), f, 1e-8 * Math.max(1.0, Math.abs(f)));
+    }
+}
@@ -0,0 +1,159 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.DagToPag;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestAncestralIndex {
+
+    @Test
+    public void testAgainstGraph() {
+        RandomUtil.getInstance().setSeed(48283L);
+
+        for (int t = 0; t < 20; t++) {
+            Graph dag = GraphUtils.randomGraph(10, 3, 14, 10, 10, 10, false);
+            AncestralIndex index = new AncestralIndex(dag);
+            List<Node> nodes = dag.getNodes();
+            List<Node> measured = measured(dag);
+
+            for (Node x : nodes) {
+                for (Node y : nodes) {
+                    assertEquals(dag.isAncestorOf(x, y), index.isAncestorOf(x, y));
+
+                    if (x == y) continue;
+
+                    List<Node> z = new ArrayList<>();
+
+                    for (Node w : nodes) {
+                        if (w != x && w != y && RandomUtil.getInstance().nextDouble() < 0.3) {
+                            z.add(w);
+                        }
+                    }
+
+                    assertEquals(GraphUtils.isDConnectedTo(x, y, z, dag), index.isDConnectedTo(x, y, z));
+                }
+            }
+
+            for (Node x : measured) {
+                for (Node y : measured) {
+                    if (x == y) continue;
+
+                    assertEquals(GraphUtils.existsInducingPath(x, y, dag), index.existsInducingPath(x, y));
+                    assertEquals(DagToPag.existsInducingPathInto(x, y, dag), index.existsInducingPathInto(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInducingPathGraph() {
+        RandomUtil.getInstance().setSeed(29384L);
+        Graph dag = GraphUtils.randomGraph(20, 4, 30, 10, 10, 10, false);
+        List<Node> measured = measured(dag);
+        Graph graph = new AncestralIndex(dag).getInducingPathGraph(measured);
+        Graph pag = new DagToPag(dag).convert();
+
+        for (int i = 0; i < measured.size(); i++) {
+            for (int j = i + 1; j < measured.size(); j++) {
+                Node x = measured.get(i);
+                Node y = measured.get(j);
+                boolean adjacent = GraphUtils.existsInducingPath(x, y, dag);
+                assertEquals(adjacent, graph.isAdjacentTo(x, y));
+                assertEquals(adjacent, pag.isAdjacentTo(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testDConnectedNodes() {
+        RandomUtil.getInstance().setSeed(9384L);
+        Graph dag = GraphUtils.randomGraph(30, 0, 45, 10, 10, 10, false);
+        AncestralIndex index = new AncestralIndex(dag);
+        List<Node> nodes = dag.getNodes();
+
+        for (Node x : nodes) {
+            List<Node> z = new ArrayList<>();
+            int[] _z = new int[3];
+
+            for (int k = 0; k < 3; k++) {
+                Node w = nodes.get(RandomUtil.getInstance().nextInt(nodes.size()));
+                z.add(w);
+                _z[k] = index.getIndex(w);
+            }
+
+            List<Node> connected = index.getDConnectedNodes(x, z);
+
+            for (Node y : nodes) {
+                if (y == x || z.contains(y)) {
+                    assertFalse(connected.contains(y));
+                } else {
+                    boolean dConnected = GraphUtils.isDConnectedTo(x, y, z, dag);
+                    assertEquals(dConnected, connected.contains(y));
+                    assertEquals(dConnected, index.isDConnectedTo(index.getIndex(x), index.getIndex(y), _z));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycle() {
+        Node x = new GraphNode("X");
+        Node y = new GraphNode("Y");
+        Node z = new GraphNode("Z");
+
+        Graph graph = new EdgeListGraph();
+        graph.addNode(x);
+        graph.addNode(y);
+        graph.addNode(z);
+        graph.addDirectedEdge(x, y);
+        graph.addDirectedEdge(y, z);
+        graph.addDirectedEdge(z, x);
+
+        assertFalse(AncestralIndex.isIndexable(graph));
+        new AncestralIndex(graph);
+    }
+
+    private List<Node> measured(Graph dag) {
+        List<Node> measured = new ArrayList<>();
+
+        for (Node node : dag.getNodes()) {
+            if (node.getNodeType() == NodeType.MEASURED) {
+                measured.add(node);
+            }
+        }
+
+        return measured;
+    }
+}
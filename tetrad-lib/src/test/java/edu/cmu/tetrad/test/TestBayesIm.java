@@ -24,7 +24,10 @@ package edu.cmu.tetrad.test;
 import edu.cmu.tetrad.bayes.BayesIm;
 import edu.cmu.tetrad.bayes.BayesPm;
 import edu.cmu.tetrad.bayes.MlBayesIm;
+import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
@@ -203,6 +206,68 @@ public final class TestBayesIm {
         }
     }
 
+    @Test
+    public void testParallelSimulationReproducible() {
+        Graph graph = GraphConverter.convert("X1-->X2,X1-->X3,X2-->X4,X3-->X4");
+        BayesPm bayesPm = new BayesPm(graph);
+        MlBayesIm bayesIm = new MlBayesIm(bayesPm, MlBayesIm.RANDOM);
+        bayesIm.setParallel(true);
+
+        ForkJoinPoolInstance pool = ForkJoinPoolInstance.getInstance();
+        int parallelism = pool.getParallelism();
+        DataSet data1;
+        DataSet data2;
+
+        try {
+            pool.setParallelism(1);
+            RandomUtil.getInstance().setSeed(4829384L);
+            data1 = bayesIm.simulateData(2500, false);
+
+            pool.setParallelism(4);
+            RandomUtil.getInstance().setSeed(4829384L);
+            data2 = bayesIm.simulateData(2500, false);
+        } finally {
+            pool.setParallelism(parallelism);
+        }
+
+        assertEquals(2500, data1.getNumRows());
+
+        for (int i = 0; i < data1.getNumRows(); i++) {
+            for (int j = 0; j < data1.getNumColumns(); j++) {
+                assertEquals(data1.getInt(i, j), data2.getInt(i, j));
+                assertTrue(data1.getInt(i, j) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSimulateIntoDataSet() {
+        Graph graph = GraphConverter.convert("X1-->X2,X1-->X3,X2-->X4,X3-->X4");
+        BayesPm bayesPm = new BayesPm(graph);
+        MlBayesIm bayesIm = new MlBayesIm(bayesPm, MlBayesIm.RANDOM);
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            bayesIm.setParallel(parallel);
+
+            RandomUtil.getInstance().setSeed(3928471L);
+            DataSet expected = bayesIm.simulateData(2500, true);
+
+            // Written straight into the columns of the box, or chunk by chunk into another kind of box.
+            DataBox[] boxes = {new VerticalIntDataBox(2500, 4), new IntDataBox(2500, 4)};
+
+            for (DataBox box : boxes) {
+                RandomUtil.getInstance().setSeed(3928471L);
+                DataSet data = bayesIm.simulateData(new BoxDataSet(box, expected.getVariables()), true);
+
+                for (int i = 0; i < expected.getNumRows(); i++) {
+                    for (int j = 0; j < expected.getNumColumns(); j++) {
+                        assertEquals(expected.getInt(i, j), data.getInt(i, j));
+                    }
+                }
+            }
+        }
+    }
+
     private static boolean rowsEqual(BayesIm bayesIm, int node, int row1,
                                      int row2) {
         for (int col = 0; col < bayesIm.getNumColumns(node); col++) {
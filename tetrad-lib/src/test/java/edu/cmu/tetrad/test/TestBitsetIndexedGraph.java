@@ -0,0 +1,149 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.MeekRules;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Joseph Ramsey
+ */
+public final class TestBitsetIndexedGraph {
+
+    @Test
+    public void testEdges() {
+        Node x1 = new GraphNode("x1");
+        Node x2 = new GraphNode("x2");
+        Node x3 = new GraphNode("x3");
+        Node x4 = new GraphNode("x4");
+
+        BitsetIndexedGraph graph = new BitsetIndexedGraph();
+        graph.addNode(x1);
+        graph.addNode(x2);
+        graph.addNode(x3);
+        graph.addNode(x4);
+
+        graph.addDirectedEdge(x1, x2);
+        graph.addDirectedEdge(x3, x2);
+        graph.addUndirectedEdge(x3, x4);
+
+        assertTrue(graph.isAdjacentTo(x2, x1));
+        assertFalse(graph.isAdjacentTo(x1, x3));
+        assertTrue(graph.isParentOf(x1, x2));
+        assertTrue(graph.isChildOf(x2, x3));
+        assertTrue(graph.isDefCollider(x1, x2, x3));
+        assertTrue(graph.isUndirectedFromTo(x4, x3));
+        assertEquals(Endpoint.ARROW, graph.getEndpoint(x1, x2));
+        assertEquals(Endpoint.TAIL, graph.getEndpoint(x2, x1));
+        assertEquals(Edges.directedEdge(x3, x2), graph.getDirectedEdge(x3, x2));
+        assertEquals(Edges.directedEdge(x3, x2), graph.getEdge(graph.getIndex(x2), graph.getIndex(x3)));
+
+        graph.setEndpoint(x4, x3, Endpoint.ARROW);
+        assertTrue(graph.isParentOf(x4, x3));
+        assertEquals(Collections.singletonList(x4), graph.getParents(x3));
+
+        graph.removeEdge(x1, x2);
+        assertFalse(graph.isAdjacentTo(x1, x2));
+        assertNull(graph.getEdge(x1, x2));
+
+        graph.removeNode(x3);
+        assertEquals(-1, graph.getIndex(x3));
+        assertEquals(0, graph.getNumEdges());
+        assertFalse(graph.isAdjacentTo(x4, x3));
+
+        graph.fullyConnect(Endpoint.CIRCLE);
+        assertTrue(graph.isAdjacentTo(x1, x4));
+        assertEquals(Endpoint.CIRCLE, graph.getEndpoint(x4, x2));
+    }
+
+    @Test
+    public void testMatchesEdgeListGraph() {
+        RandomUtil.getInstance().setSeed(28374983L);
+
+        Graph dag = GraphUtils.randomGraph(100, 0, 150, 30, 15, 15, false);
+        Graph pattern = new EdgeListGraphSingleConnections(dag);
+        Graph indexed = new BitsetIndexedGraph(dag);
+
+        for (Node x : dag.getNodes()) {
+            assertEquals(new HashSet<>(pattern.getParents(x)), new HashSet<>(indexed.getParents(x)));
+            assertEquals(new HashSet<>(pattern.getChildren(x)), new HashSet<>(indexed.getChildren(x)));
+
+            for (Node y : dag.getNodes()) {
+                assertEquals(pattern.isAdjacentTo(x, y), indexed.isAdjacentTo(x, y));
+                assertEquals(pattern.getEdge(x, y), indexed.getEdge(x, y));
+                assertEquals(pattern.getEndpoint(x, y), indexed.getEndpoint(x, y));
+            }
+        }
+
+        for (Edge edge : new ArrayList<>(pattern.getEdges())) {
+            pattern.removeEdge(edge);
+            pattern.addUndirectedEdge(edge.getNode1(), edge.getNode2());
+            indexed.removeEdge(edge);
+            indexed.addUndirectedEdge(edge.getNode1(), edge.getNode2());
+        }
+
+        MeekRules rules = new MeekRules();
+        rules.orientImplied(pattern);
+        rules.orientImplied(indexed);
+
+        assertEquals(pattern, indexed);
+        assertEquals(pattern, new EdgeListGraph(indexed));
+    }
+
+    @Test
+    public void testFges() {
+        RandomUtil.getInstance().setSeed(28374983L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 30; i++) {
+            vars.add(new ContinuousVariable("X" + i));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, 30, 30, 15, 15, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+        CovarianceMatrix cov = new CovarianceMatrix(data);
+
+        Graph expected = new Fges(new SemBicScore(cov)).search();
+
+        Fges fges = new Fges(new SemBicScore(cov));
+        fges.setUseIndexedGraph(true);
+
+        assertEquals(expected, fges.search());
+    }
+}
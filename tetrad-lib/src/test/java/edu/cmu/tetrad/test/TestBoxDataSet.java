@@ -273,9 +273,36 @@ public final class TestBoxDataSet {
             fail("Missing row in permutation.");
         }
     }
-}
 
+    @Test
+    public void testRowView() {
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 3; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet dataSet = new BoxDataSet(new VerticalDoubleDataBox(20, 3), variables);
+        RandomUtil randomUtil = RandomUtil.getInstance();
+
+        for (int i = 0; i < dataSet.getNumRows(); i++) {
+            for (int j = 0; j < dataSet.getNumColumns(); j++) {
+                dataSet.setDouble(i, j, randomUtil.nextDouble());
+            }
+        }
 
+        int[] rows = {3, 3, 0, 19, 7};
+        DataSet view = new BoxDataSet(new RowSubsetDataBox(((BoxDataSet) dataSet).getDataBox(), rows), variables);
 
+        assertEquals(rows.length, view.getNumRows());
+        assertTrue(view.getDoubleData().equals(dataSet.subsetRows(rows).getDoubleData(), 0.0));
+        assertTrue(((BoxDataSet) view).getDataBox().copy() instanceof VerticalDoubleDataBox);
 
+        double value = dataSet.getDouble(3, 1);
+        view.setDouble(0, 1, -1.0);
 
+        assertEquals(-1.0, view.getDouble(0, 1), 0.0);
+        assertEquals(value, view.getDouble(1, 1), 0.0);
+        assertEquals(value, dataSet.getDouble(3, 1), 0.0);
+    }
+}
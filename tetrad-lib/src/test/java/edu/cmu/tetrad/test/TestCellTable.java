@@ -23,6 +23,7 @@ package edu.cmu.tetrad.test;
 
 import edu.cmu.tetrad.data.CellTable;
 import edu.cmu.tetrad.data.ColtDataSet;
+import edu.cmu.tetrad.data.ContingencyCounter;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.data.DiscreteVariable;
 import edu.cmu.tetrad.graph.Node;
@@ -408,6 +409,46 @@ public final class TestCellTable {
         }
     }
 
+    /**
+     * Tests that counting with a ContingencyCounter, packed or not, gives the same table as counting the data set
+     * directly, with columns out of order and a missing value.
+     */
+    @Test
+    public final void testCounter() {
+        List<Node> variables = new LinkedList<>();
+        variables.add(new DiscreteVariable("X1", 2));
+        variables.add(new DiscreteVariable("X2", 2));
+        variables.add(new DiscreteVariable("X3", 2));
+        variables.add(new DiscreteVariable("X4", 2));
+
+        DataSet dataSet = new ColtDataSet(data.length, variables);
+
+        for (int i = 0; i < data.length; i++) {
+            for (int j = 0; j < data[0].length; j++) {
+                dataSet.setInt(i, j, data[i][j]);
+            }
+        }
+
+        dataSet.setInt(5, 2, DiscreteVariable.MISSING_VALUE);
+
+        int[] indices = new int[]{2, 0, 3};
+
+        CellTable expected = new CellTable(null);
+        expected.addToTable(dataSet, indices);
+
+        for (boolean packed : new boolean[]{false, true}) {
+            CellTable table = new CellTable(null);
+            table.addToTable(new ContingencyCounter(dataSet, packed), indices);
+
+            for (int i = 0; i < 8; i++) {
+                int[] cell = {i / 4, (i / 2) % 2, i % 2};
+                assertEquals(expected.getValue(cell), table.getValue(cell));
+            }
+
+            assertEquals(data.length - 1, table.calcMargin(new int[]{-1, -1, -1}));
+        }
+    }
+
     private static int[] pickRandomCell(int size) {
 
         int[] cell = new int[size];
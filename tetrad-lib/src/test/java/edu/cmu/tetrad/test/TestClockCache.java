@@ -0,0 +1,119 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.util.ClockCache;
+import edu.cmu.tetrad.util.DoubleClockCache;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestClockCache {
+
+    @Test
+    public void testSetOrder() {
+        ClockCache<String> cache = new ClockCache<>(1024);
+
+        cache.put(3, 8, new int[]{5, 1, 7}, "a");
+
+        assertEquals("a", cache.get(3, 8, new int[]{7, 5, 1}));
+        assertEquals("a", cache.get(3, 8, new int[]{1, 5, 7}));
+        assertNull(cache.get(8, 3, new int[]{1, 5, 7}));
+        assertNull(cache.get(3, 8, new int[]{1, 5}));
+        assertNull(cache.get(3, 8, null));
+
+        cache.put(3, 8, new int[]{7, 1, 5}, "b");
+        cache.put(3, 8, null, "c");
+
+        assertEquals("b", cache.get(3, 8, new int[]{5, 1, 7}));
+        assertEquals("c", cache.get(3, 8, new int[0]));
+
+        assertEquals(4, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+
+        cache.clear();
+        assertNull(cache.get(3, 8, new int[]{5, 1, 7}));
+    }
+
+    @Test
+    public void testEviction() {
+        ClockCache<Integer> cache = new ClockCache<>(64);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i + 1, new int[]{i + 2, i + 3}, i);
+        }
+
+        int found = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            Integer value = cache.get(i, i + 1, new int[]{i + 3, i + 2});
+
+            if (value != null) {
+                assertEquals(i, (int) value);
+                found++;
+            }
+        }
+
+        assertTrue(found <= cache.getCapacity());
+        assertEquals(1000 - found, cache.getEvictions());
+    }
+
+    @Test
+    public void testDoubles() {
+        DoubleClockCache cache = new DoubleClockCache(64);
+
+        cache.put(3, -1, new int[]{5, 1, 7}, 2.5);
+        cache.put(3, 5, new int[]{1, 7}, -1.0);
+
+        assertEquals(2.5, cache.get(3, -1, new int[]{7, 5, 1}), 0.0);
+        assertEquals(-1.0, cache.get(3, 5, new int[]{7, 1}), 0.0);
+        assertTrue(Double.isNaN(cache.get(3, 1, new int[]{5, 7})));
+
+        cache.put(3, -1, new int[]{1, 7, 5}, 4.0);
+        assertEquals(4.0, cache.get(3, -1, new int[]{5, 1, 7}), 0.0);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i + 1, new int[]{i + 2}, i);
+        }
+
+        int found = 0;
+
+        for (int i = 0; i < 1000; i++) {
+            double value = cache.get(i, i + 1, new int[]{i + 2});
+
+            if (!Double.isNaN(value)) {
+                assertEquals(i, value, 0.0);
+                found++;
+            }
+        }
+
+        assertTrue(found <= cache.getCapacity());
+        assertTrue(cache.getEvictions() >= 1000 - found);
+
+        cache.clear();
+        assertTrue(Double.isNaN(cache.get(999, 1000, new int[]{1001})));
+    }
+}
@@ -23,6 +23,7 @@ package edu.cmu.tetrad.test;
 
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.stat.correlation.BlockedCovariance;
 import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.TetradMatrix;
 import org.junit.Test;
@@ -31,6 +32,7 @@ import java.util.LinkedList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests CovarianceMatrix.
@@ -83,9 +85,96 @@ public final class TestCovarianceMatrix {
         assertEquals(-.051, c2.getValue(0, 1), 0.001);
         assertEquals(-.609, c3.getValue(0, 1), 0.001);
     }
-}
 
+    /**
+     * Tests that caching entries and submatrices, even in a budget small enough to force eviction, doesn't change
+     * any values.
+     */
+    @Test
+    public void testCached() {
+        RandomUtil.getInstance().setSeed(4828384834L);
+
+        List<Node> variables = new LinkedList<>();
+
+        for (int i = 0; i < 40; i++) {
+            variables.add(new ContinuousVariable("X" + i));
+        }
+
+        DataSet dataSet = new BoxDataSet(new DoubleDataBox(200, 40), variables);
+
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 40; j++) {
+                dataSet.setDouble(i, j, RandomUtil.getInstance().nextNormal(0, 1));
+            }
+        }
+
+        CovarianceMatrixOnTheFly expected = new CovarianceMatrixOnTheFly(dataSet);
+
+        for (long bytes : new long[]{1000, 1000000}) {
+            CovarianceMatrixOnTheFly cov = new CovarianceMatrixOnTheFly(dataSet);
+            cov.setCacheBytes(bytes);
+
+            for (int trial = 0; trial < 3; trial++) {
+                for (int i = 0; i < 40; i++) {
+                    for (int j = 0; j < 40; j++) {
+                        assertEquals(expected.getValue(i, j), cov.getValue(i, j), 0.0);
+                    }
+                }
+
+                for (int k = 0; k < 50; k++) {
+                    int[] indices = {k % 40, (7 * k + 3) % 40, (13 * k + 5) % 40};
+                    TetradMatrix submatrix = cov.getSubmatrix(indices).getMatrix();
+                    assertTrue(expected.getSubmatrix(indices).getMatrix().equals(submatrix, 0.0));
+
+                    // Modifying a returned submatrix must not affect the cache.
+                    submatrix.set(0, 0, 100);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that the blocked covariance kernel gives exactly the pairwise loop's values, with missing values and a
+     * number of columns that isn't a multiple of the tile size.
+     */
+    @Test
+    public void testBlocked() {
+        RandomUtil.getInstance().setSeed(4828384834L);
+
+        int n = 1500;
+        int p = 45;
+        double[][] columns = new double[p][n];
 
+        for (int i = 0; i < p; i++) {
+            for (int k = 0; k < n; k++) {
+                columns[i][k] = RandomUtil.getInstance().nextNormal(0, 1);
+            }
+        }
 
+        columns[3][100] = Double.NaN;
+        columns[40][7] = Double.NaN;
 
+        double[][] cov = BlockedCovariance.covariance(columns, n, true);
 
+        for (int i = 0; i < p; i++) {
+            for (int j = 0; j < p; j++) {
+                double d = 0.0;
+                int count = 0;
+
+                for (int k = 0; k < n; k++) {
+                    if (Double.isNaN(columns[i][k]) || Double.isNaN(columns[j][k])) continue;
+                    d += columns[i][k] * columns[j][k];
+                    count++;
+                }
+
+                assertEquals(d / (count - 1), cov[i][j], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testBlockedNoColumns() {
+        double[][] cov = BlockedCovariance.covariance(new double[0][], 10, true);
+        assertEquals(0, cov.length);
+    }
+}
@@ -28,6 +28,7 @@ import edu.cmu.tetrad.graph.Dag;
 import edu.cmu.tetrad.graph.Graph;
 import edu.cmu.tetrad.graph.GraphUtils;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.BDeuScore;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemPm;
 import edu.cmu.tetrad.util.RandomUtil;
@@ -38,6 +39,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static junit.framework.TestCase.fail;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -134,9 +136,55 @@ public class TestDataLoadersRoundtrip {
             fail(e.getMessage());
         }
     }
-}
 
+    @Test
+    public void testColumnarRoundtrip() {
+        setUp();
+
+        try {
+            List<Node> nodes = new ArrayList<>();
 
+            for (int i = 0; i < 5; i++) {
+                nodes.add(new ContinuousVariable("X" + (i + 1)));
+            }
+
+            Graph randomGraph = new Dag(GraphUtils.randomGraph(nodes, 0, 5,
+                    30, 15, 15, false));
+            DataSet dataSet = new SemIm(new SemPm(randomGraph)).simulateData(100, false);
+            dataSet.setDouble(3, 2, Double.NaN);
+
+            File file = new File("target/test_data/roundtrip.tdb");
+            DataWriter.writeColumnarData(dataSet, file);
+            DataSet _dataSet = new DataReader().parseColumnar(file);
+
+            assertTrue(dataSet.equals(_dataSet));
 
+            ICovarianceMatrix cov = new CovarianceMatrixOnTheFly(dataSet.copy());
+            ICovarianceMatrix _cov = new CovarianceMatrixOnTheFly(_dataSet);
 
+            for (int i = 0; i < cov.getDimension(); i++) {
+                for (int j = 0; j < cov.getDimension(); j++) {
+                    assertEquals(cov.getValue(i, j), _cov.getValue(i, j), 1e-10);
+                }
+            }
+
+            BayesPm bayesPm = new BayesPm(new Dag(randomGraph));
+            DataSet discrete = new MlBayesIm(bayesPm, MlBayesIm.RANDOM).simulateData(100, false);
+
+            DataWriter.writeColumnarData(discrete, file);
+            DataSet _discrete = new DataReader().parseColumnar(file);
+
+            assertTrue(discrete.equals(_discrete));
+
+            BDeuScore score = new BDeuScore(discrete);
+            BDeuScore _score = new BDeuScore(_discrete);
+
+            assertEquals(score.localScore(0, new int[]{1, 2}), _score.localScore(0, new int[]{1, 2}), 1e-10);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail(e.getMessage());
+        }
+    }
+}
 
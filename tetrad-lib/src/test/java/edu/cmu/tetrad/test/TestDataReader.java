@@ -91,6 +91,33 @@ public final class TestDataReader {
 
     }
 
+    @Test
+    public void testParallel() throws IOException {
+        String[] files = {"sim_discrete_data_20vars_100cases.txt", "dataLG.txt", "uscrime.txt", "cheese.txt"};
+
+        for (String name : files) {
+            File file = new File("src/test/resources/" + name);
+
+            DataReader reader = new DataReader();
+            reader.setDelimiter(DelimiterType.WHITESPACE);
+            DataSet expected = reader.parseTabular(file);
+
+            reader = new DataReader();
+            reader.setDelimiter(DelimiterType.WHITESPACE);
+            reader.setParallel(true);
+            DataSet data = reader.parseTabular(file);
+
+            assertEquals(expected.getVariables(), data.getVariables());
+            assertEquals(expected.getNumRows(), data.getNumRows());
+
+            for (int i = 0; i < expected.getNumRows(); i++) {
+                for (int j = 0; j < expected.getNumColumns(); j++) {
+                    assertEquals(expected.getObject(i, j), data.getObject(i, j));
+                }
+            }
+        }
+    }
+
     private char[] fileToCharArray(File file) {
         try {
             FileReader reader = new FileReader(file);
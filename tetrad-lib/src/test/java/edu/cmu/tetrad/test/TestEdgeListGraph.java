@@ -23,6 +23,7 @@ package edu.cmu.tetrad.test;
 
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.util.ArrayList;
@@ -167,9 +168,37 @@ public final class TestEdgeListGraph {
 
         assertEquals(2, shd);
     }
-}
-
-
-
-
 
+    @Test
+    public void testAncestryCached() {
+        RandomUtil.getInstance().setSeed(3839283L);
+
+        Graph dag = GraphUtils.randomGraph(40, 0, 60, 30, 15, 15, false);
+
+        EdgeListGraph cached = new EdgeListGraph(dag);
+        cached.setAncestryCached(true);
+
+        List<Node> nodes = dag.getNodes();
+        List<Edge> edges = new ArrayList<>(dag.getEdges());
+
+        for (int round = 0; round < 10; round++) {
+            for (Node x : nodes) {
+                for (Node y : nodes) {
+                    assertEquals(dag.isAncestorOf(x, y), cached.isAncestorOf(x, y));
+                    assertEquals(dag.isAncestorOf(y, x), cached.isDescendentOf(x, y));
+                }
+            }
+
+            // Removing an edge and adding it back reversed keeps the graph acyclic only
+            // sometimes, which doesn't matter for ancestry.
+            Edge edge = edges.get(round);
+            dag.removeEdge(edge);
+            cached.removeEdge(edge);
+
+            if (round % 2 == 0) {
+                dag.addDirectedEdge(edge.getNode2(), edge.getNode1());
+                cached.addDirectedEdge(edge.getNode2(), edge.getNode1());
+            }
+        }
+    }
+}
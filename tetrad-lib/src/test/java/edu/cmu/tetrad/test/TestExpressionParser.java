@@ -21,9 +21,11 @@
 
 package edu.cmu.tetrad.test;
 
+import edu.cmu.tetrad.calculator.expression.CompiledExpression;
 import edu.cmu.tetrad.calculator.expression.Context;
 import edu.cmu.tetrad.calculator.expression.Expression;
 import edu.cmu.tetrad.calculator.parser.ExpressionParser;
+import edu.cmu.tetrad.util.RandomUtil;
 import org.junit.Test;
 
 import java.text.ParseException;
@@ -68,6 +70,15 @@ public class TestExpressionParser {
         };
 
 
+        // The same values, in slots, for compiled expressions.
+        final Map<String, Integer> slots = new HashMap<>();
+        final double[] row = new double[values.size()];
+
+        for (String var : values.keySet()) {
+            row[slots.size()] = values.get(var);
+            slots.put(var, slots.size());
+        }
+
         Map<String, Double> formulasToEvaluations = new HashMap<>();
 
         formulasToEvaluations.put("0", 0.0);
@@ -155,6 +166,9 @@ public class TestExpressionParser {
                 double value = expression.evaluate(context);
 
                 assertEquals(formulasToEvaluations.get(formula), value, 0.01);
+
+                CompiledExpression compiled = CompiledExpression.compile(expression, slots, context);
+                assertEquals(value, compiled.evaluate(row), 0.0);
             }
         } catch (ParseException e) {
             e.printStackTrace();
@@ -366,6 +380,55 @@ public class TestExpressionParser {
             e.printStackTrace();
         }
     }
-}
 
+    // Compiled expressions must draw the same random numbers as the expressions they were compiled from.
+    @Test
+    public void test6() {
+        final Map<String, Double> values = new HashMap<>();
+        values.put("X", 2.0);
+        values.put("b", 0.5);
+
+        Context context = new Context() {
+            public Double getValue(String var) {
+                return values.get(var);
+            }
+        };
+
+        Map<String, Integer> slots = new HashMap<>();
+        slots.put("X", 0);
+        slots.put("b", 1);
+        double[] row = {2.0, 0.5};
+
+        List<String> formulas = new ArrayList<>();
+
+        formulas.add("b * X + Normal(0, X)");
+        formulas.add("tanh(b * X) + U(-1, 1) * Beta(2, 5)");
+        formulas.add("IF(X > 1, N(0, 1), Split(0, 1, 5, 6))");
+        formulas.add("max(X, ChiSquare(1)) - Indicator(b)");
+        formulas.add("Y + X");
 
+        ExpressionParser parser = new ExpressionParser();
+
+        try {
+            for (String formula : formulas) {
+                Expression expression = parser.parseExpression(formula);
+                CompiledExpression compiled = CompiledExpression.compile(expression, slots, context);
+
+                RandomUtil.getInstance().setSeed(3928374L);
+                double[] expected = new double[100];
+
+                for (int i = 0; i < expected.length; i++) {
+                    expected[i] = expression.evaluate(context);
+                }
+
+                RandomUtil.getInstance().setSeed(3928374L);
+
+                for (int i = 0; i < expected.length; i++) {
+                    assertEquals(expected[i], compiled.evaluate(row), 0.0);
+                }
+            }
+        } catch (ParseException e) {
+            e.printStackTrace();
+        }
+    }
+}
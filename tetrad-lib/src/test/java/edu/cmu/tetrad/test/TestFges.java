@@ -54,11 +54,13 @@ import java.io.*;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.Math.exp;
 import static junit.framework.TestCase.assertFalse;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Joseph Ramsey
@@ -1607,8 +1609,117 @@ public class TestFges {
         }
     }
 
-}
+    /**
+     * Runs FGES with checkpointing, stopping it at several points by having the score throw, and
+     * checks that resuming from the checkpoint gives the same pattern as an uninterrupted search.
+     */
+    @Test
+    public void testCheckpointResume() throws IOException {
+        for (boolean faithfulnessAssumed : new boolean[]{true, false}) {
+            RandomUtil.getInstance().setSeed(3928474L);
+
+            Graph dag = GraphUtils.randomGraph(30, 0, 60, 6, 6, 6, false);
+            SemIm im = new SemIm(new SemPm(dag));
+            DataSet data = im.simulateData(1000, false);
+            SemBicScore score = new SemBicScore(new CovarianceMatrix(data));
+
+            StoppingScore counting = new StoppingScore(score, Long.MAX_VALUE);
+            Fges fges = new Fges(counting);
+            fges.setFaithfulnessAssumed(faithfulnessAssumed);
+            Graph expected = fges.search();
+            long numCalls = counting.getNumCalls();
+
+            for (double fraction : new double[]{0.1, 0.4, 0.7, 0.95}) {
+                File checkpoint = File.createTempFile("fges", ".checkpoint");
+                assertTrue(checkpoint.delete());
+
+                Fges stopped = new Fges(new StoppingScore(score, (long) (fraction * numCalls)));
+                stopped.setFaithfulnessAssumed(faithfulnessAssumed);
+                stopped.setCheckpointFile(checkpoint);
+                stopped.setCheckpointInterval(0);
+
+                try {
+                    stopped.search();
+                    fail("The search should have been stopped.");
+                } catch (RuntimeException e) {
+                    // Stopped.
+                }
+
+                Fges resumed = new Fges(score);
+                resumed.setFaithfulnessAssumed(faithfulnessAssumed);
+                resumed.setCheckpointFile(checkpoint);
+
+                assertEquals(expected, resumed.search());
+                assertFalse(checkpoint.exists());
+            }
+        }
+    }
+
+    // Delegates to a score, throwing once a given number of score differences has been computed.
+    private static class StoppingScore implements Score {
+        private final Score score;
+        private final long maxCalls;
+        private final AtomicLong numCalls = new AtomicLong();
+
+        StoppingScore(Score score, long maxCalls) {
+            this.score = score;
+            this.maxCalls = maxCalls;
+        }
+
+        long getNumCalls() {
+            return numCalls.get();
+        }
+
+        private void count() {
+            if (numCalls.incrementAndGet() > maxCalls) {
+                throw new IllegalStateException("Stopped.");
+            }
+        }
+
+        public double localScore(int node, int... parents) {
+            return score.localScore(node, parents);
+        }
+
+        public double localScoreDiff(int x, int y, int[] z) {
+            count();
+            return score.localScoreDiff(x, y, z);
+        }
+
+        public double localScoreDiff(int x, int y) {
+            count();
+            return score.localScoreDiff(x, y);
+        }
 
+        public double localScore(int node, int parent) {
+            return score.localScore(node, parent);
+        }
 
+        public double localScore(int node) {
+            return score.localScore(node);
+        }
 
+        public List<Node> getVariables() {
+            return score.getVariables();
+        }
+
+        public boolean isEffectEdge(double bump) {
+            return score.isEffectEdge(bump);
+        }
 
+        public int getSampleSize() {
+            return score.getSampleSize();
+        }
+
+        public Node getVariable(String targetName) {
+            return score.getVariable(targetName);
+        }
+
+        public int getMaxDegree() {
+            return score.getMaxDegree();
+        }
+
+        public boolean determines(List<Node> z, Node y) {
+            return score.determines(z, y);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestForkJoinPoolInstance {
+
+    @Test
+    public void testInvokeAll() {
+        ForkJoinPoolInstance instance = ForkJoinPoolInstance.getInstance();
+        int parallelism = instance.getParallelism();
+        instance.setParallelism(4);
+
+        try {
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            List<Callable<Integer>> tasks = new ArrayList<>();
+
+            for (int i = 0; i < 40; i++) {
+                final int k = i;
+
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int r = running.incrementAndGet();
+                        maxRunning.accumulateAndGet(r, Math::max);
+                        Thread.sleep(2);
+                        running.decrementAndGet();
+                        return k * k;
+                    }
+                });
+            }
+
+            List<Integer> results = instance.invokeAll(tasks, 2);
+
+            for (int i = 0; i < 40; i++) {
+                assertEquals(i * i, (int) results.get(i));
+            }
+
+            assertTrue(maxRunning.get() <= 2);
+            assertEquals(0, instance.getActiveTaskCount());
+        } finally {
+            instance.setParallelism(parallelism);
+        }
+    }
+
+    @Test
+    public void testNested() {
+        final ForkJoinPoolInstance instance = ForkJoinPoolInstance.getInstance();
+        List<Callable<Integer>> outer = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            outer.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    List<Callable<Integer>> inner = new ArrayList<>();
+
+                    for (int j = 0; j < 10; j++) {
+                        final int k = j;
+
+                        inner.add(new Callable<Integer>() {
+                            @Override
+                            public Integer call() {
+                                return k;
+                            }
+                        });
+                    }
+
+                    int sum = 0;
+
+                    for (int k : instance.invokeAll(inner)) {
+                        sum += k;
+                    }
+
+                    return sum;
+                }
+            });
+        }
+
+        for (int sum : instance.invokeAll(outer)) {
+            assertEquals(45, sum);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testException() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalStateException();
+            }
+        });
+
+        ForkJoinPoolInstance.getInstance().invokeAll(tasks);
+    }
+
+    @Test
+    public void testBlocking() throws Exception {
+        assertEquals(7, (int) ForkJoinPoolInstance.getInstance().submitBlocking(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 7;
+            }
+        }).get());
+    }
+}
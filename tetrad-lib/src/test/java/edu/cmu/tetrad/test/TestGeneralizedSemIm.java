@@ -0,0 +1,83 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphConverter;
+import edu.cmu.tetrad.sem.GeneralizedSemIm;
+import edu.cmu.tetrad.sem.GeneralizedSemPm;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.ForkJoinPoolInstance;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the GeneralizedSemIm.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestGeneralizedSemIm {
+
+    @Test
+    public void testParallelSimulationReproducible() {
+        Graph graph = GraphConverter.convert("X1-->X2,X1-->X3,X2-->X4,X3-->X4");
+        SemPm semPm = new SemPm(graph);
+        GeneralizedSemIm im = new GeneralizedSemIm(new GeneralizedSemPm(semPm), new SemIm(semPm));
+        im.setParallel(true);
+
+        ForkJoinPoolInstance pool = ForkJoinPoolInstance.getInstance();
+        int parallelism = pool.getParallelism();
+
+        try {
+            pool.setParallelism(1);
+            RandomUtil.getInstance().setSeed(4829384L);
+            DataSet recursive1 = im.simulateDataRecursive(2500, false);
+            DataSet fisher1 = im.simulateDataFisher(2500);
+
+            pool.setParallelism(4);
+            RandomUtil.getInstance().setSeed(4829384L);
+            DataSet recursive2 = im.simulateDataRecursive(2500, false);
+            DataSet fisher2 = im.simulateDataFisher(2500);
+
+            assertSameData(recursive1, recursive2);
+            assertSameData(fisher1, fisher2);
+        } finally {
+            pool.setParallelism(parallelism);
+        }
+    }
+
+    private static void assertSameData(DataSet data1, DataSet data2) {
+        assertEquals(2500, data1.getNumRows());
+        assertEquals(data1.getNumRows(), data2.getNumRows());
+        assertEquals(data1.getNumColumns(), data2.getNumColumns());
+
+        for (int i = 0; i < data1.getNumRows(); i++) {
+            for (int j = 0; j < data1.getNumColumns(); j++) {
+                assertEquals(data1.getDouble(i, j), data2.getDouble(i, j), 0.0);
+            }
+        }
+    }
+}
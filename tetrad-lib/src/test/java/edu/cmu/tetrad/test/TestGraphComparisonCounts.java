@@ -0,0 +1,118 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.algcomparison.statistic.*;
+import edu.cmu.tetrad.algcomparison.statistic.utils.ArrowConfusion;
+import edu.cmu.tetrad.algcomparison.statistic.utils.GraphComparisonCounts;
+import edu.cmu.tetrad.graph.*;
+import edu.cmu.tetrad.search.SearchGraphUtils;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestGraphComparisonCounts {
+
+    @Test
+    public void testCounts() {
+        Node x = new GraphNode("X");
+        Node y = new GraphNode("Y");
+        Node z = new GraphNode("Z");
+
+        Graph truth = new EdgeListGraph();
+        truth.addNode(x);
+        truth.addNode(y);
+        truth.addNode(z);
+        truth.addDirectedEdge(x, y);
+        truth.addDirectedEdge(y, z);
+
+        Graph est = new EdgeListGraph(truth.getNodes());
+        est.addDirectedEdge(x, y);
+        est.addDirectedEdge(z, y);
+        est.addUndirectedEdge(x, z);
+
+        GraphComparisonCounts counts = new GraphComparisonCounts(truth, est);
+
+        assertEquals(2, counts.getAdjTp());
+        assertEquals(1, counts.getAdjFp());
+        assertEquals(0, counts.getAdjFn());
+        assertEquals(3, counts.getAdjTn());
+
+        assertEquals(1, counts.getArrowsTp());
+        assertEquals(1, counts.getArrowsFp());
+        assertEquals(1, counts.getArrowsFn());
+        assertEquals(1, counts.getArrowsTn());
+
+        assertEquals(1, counts.getTailsTp());
+        assertEquals(3, counts.getTailsFp());
+        assertEquals(1, counts.getTailsFn());
+        assertEquals(1, counts.getTailsTn());
+
+        assertEquals(SearchGraphUtils.structuralHammingDistance3(truth, est), counts.getShd());
+    }
+
+    @Test
+    public void testShd() {
+        RandomUtil.getInstance().setSeed(39482L);
+
+        for (int i = 0; i < 10; i++) {
+            Graph truth = GraphUtils.randomGraph(20, 0, 25, 10, 10, 10, false);
+            Graph est = SearchGraphUtils.patternForDag(
+                    GraphUtils.randomGraph(truth.getNodes(), 0, 25, 10, 10, 10, false));
+
+            assertEquals(SearchGraphUtils.structuralHammingDistance3(truth, est),
+                    new GraphComparisonCounts(truth, est).getShd());
+        }
+    }
+
+    @Test
+    public void testChangedGraph() {
+        RandomUtil.getInstance().setSeed(29384L);
+        Graph truth = GraphUtils.randomGraph(10, 0, 10, 10, 10, 10, false);
+        Graph est = new EdgeListGraph(truth);
+
+        assertEquals(10, new ArrowConfusion(truth, est).getArrowsTp());
+
+        est.reorientAllWith(Endpoint.TAIL);
+        assertEquals(0, new ArrowConfusion(truth, est).getArrowsTp());
+    }
+
+    @Test
+    public void testSharedCounts() {
+        RandomUtil.getInstance().setSeed(3948L);
+        Graph truth = GraphUtils.randomGraph(15, 0, 20, 10, 10, 10, false);
+        Graph est = SearchGraphUtils.patternForDag(GraphUtils.randomGraph(truth.getNodes(), 0, 20, 10, 10, 10, false));
+        GraphComparisonCounts counts = new GraphComparisonCounts(truth, est);
+
+        CountsStatistic[] statistics = {new AdjacencyPrecision(), new ArrowheadRecall(), new F1All(), new SHD(),
+                new TailPrecision(), new TwoCycleFalsePositive()};
+
+        for (CountsStatistic statistic : statistics) {
+            assertEquals(statistic.getValue(truth, est), statistic.getValue(truth, est, counts), 0.0);
+        }
+    }
+}
@@ -24,6 +24,7 @@ package edu.cmu.tetrad.test;
 import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.search.IndTestFisherZ;
+import edu.cmu.tetrad.search.IndependenceResult;
 import edu.cmu.tetrad.search.IndependenceTest;
 import edu.cmu.tetrad.sem.SemIm;
 import edu.cmu.tetrad.sem.SemPm;
@@ -33,7 +34,11 @@ import edu.cmu.tetrad.util.StatUtils;
 import edu.cmu.tetrad.util.TetradMatrix;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import static java.lang.Math.*;
 import static org.junit.Assert.assertEquals;
@@ -181,6 +186,56 @@ public class TestIndTestFisherZ {
             System.out.println(abs(f1) > abs(f2));
         }
     }
-}
 
+    @Test
+    public void testBatch() {
+        RandomUtil.getInstance().setSeed(48285934L);
+
+        Graph graph = GraphUtils.randomGraph(20, 0, 30, 30, 15, 15, false);
+        DataSet data = new SemIm(new SemPm(graph)).simulateData(1000, false);
+        IndTestFisherZ test = new IndTestFisherZ(data, 0.05);
+
+        List<Node> nodes = test.getVariables();
+        Node x = nodes.get(0);
+        List<Node> z = nodes.subList(1, 4);
+        List<Node> ys = nodes.subList(4, nodes.size());
+
+        boolean[] independent = test.isIndependent(x, ys, z);
 
+        for (int i = 0; i < ys.size(); i++) {
+            assertEquals(test.isIndependent(x, ys.get(i), z), independent[i]);
+        }
+
+        double p = test.getPValue();
+        test.isIndependent(x, ys, z);
+        assertEquals(p, test.getPValue(), 1e-10);
+    }
+
+    @Test
+    public void testCheckIndependence() {
+        RandomUtil.getInstance().setSeed(48285934L);
+
+        Graph graph = GraphUtils.randomGraph(20, 0, 30, 30, 15, 15, false);
+        DataSet data = new SemIm(new SemPm(graph)).simulateData(1000, false);
+        IndTestFisherZ test = new IndTestFisherZ(data, 0.05);
+
+        List<Node> nodes = test.getVariables();
+        List<List<Node>> questions = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            List<Node> question = new ArrayList<>(nodes);
+            Collections.shuffle(question, new Random(i));
+            questions.add(question.subList(0, 2 + i % 4));
+        }
+
+        List<IndependenceResult> results = questions.parallelStream()
+                .map(q -> test.checkIndependence(q.get(0), q.get(1), q.subList(2, q.size())))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < questions.size(); i++) {
+            List<Node> q = questions.get(i);
+            assertEquals(test.isIndependent(q.get(0), q.get(1), q.subList(2, q.size())), results.get(i).isIndependent());
+            assertEquals(test.getPValue(), results.get(i).getPValue(), 0.0);
+        }
+    }
+}
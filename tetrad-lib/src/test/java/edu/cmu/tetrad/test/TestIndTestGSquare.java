@@ -24,7 +24,10 @@ package edu.cmu.tetrad.test;
 import edu.cmu.tetrad.data.DataReader;
 import edu.cmu.tetrad.data.DataSet;
 import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.IndTestChiSquare;
 import edu.cmu.tetrad.search.IndTestGSquare;
+import edu.cmu.tetrad.search.IndependenceResult;
+import edu.cmu.tetrad.search.IndependenceTest;
 import org.junit.Test;
 
 import java.io.File;
@@ -32,6 +35,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -86,6 +90,29 @@ public class TestIndTestGSquare {
         }
     }
 
+    @Test
+    public void testCheckIndependence() throws IOException {
+        DataSet dataSet = getDataSet(0);
+        IndependenceTest[] tests = {new IndTestGSquare(dataSet, 0.05), new IndTestChiSquare(dataSet, 0.05)};
+
+        for (IndependenceTest test : tests) {
+            List<Node> v = test.getVariables();
+
+            for (int i = 0; i < v.size(); i++) {
+                for (int j = i + 1; j < v.size(); j++) {
+                    List<Node> z = new ArrayList<>(v);
+                    z.remove(v.get(i));
+                    z.remove(v.get(j));
+                    z = z.subList(0, Math.min(z.size(), (i + j) % 3));
+
+                    IndependenceResult result = test.checkIndependence(v.get(i), v.get(j), z);
+                    assertEquals(test.isIndependent(v.get(i), v.get(j), z), result.isIndependent());
+                    assertEquals(test.getPValue(), result.getPValue(), 0.0);
+                }
+            }
+        }
+    }
+
     private DataSet getDataSet(int i) throws IOException {
         String filename = discreteFiles[i];
         System.out.println("Loading " + filename);
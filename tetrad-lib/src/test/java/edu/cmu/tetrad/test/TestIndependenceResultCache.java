@@ -0,0 +1,127 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.*;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestIndependenceResultCache {
+
+    @Test
+    public void testCanonicalQuestions() {
+        IndependenceResultCache cache = new IndependenceResultCache();
+        IndependenceResult result = new IndependenceResult(true, 0.3, 1.2, 4);
+
+        cache.put(3, 8, new int[]{5, 1, 7}, result);
+
+        assertSame(result, cache.get(3, 8, new int[]{7, 5, 1}));
+        assertSame(result, cache.get(8, 3, new int[]{1, 5, 7}));
+        assertNull(cache.get(3, 8, new int[]{1, 5}));
+        assertNull(cache.get(3, 5, new int[]{8, 1, 7}));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        cache.clear();
+        assertNull(cache.get(3, 8, new int[]{5, 1, 7}));
+    }
+
+    @Test
+    public void testFci() {
+        RandomUtil.getInstance().setSeed(28734928374L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 15; i++) {
+            vars.add(new ContinuousVariable("X" + i));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 3, 20, 30, 15, 15, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+
+        Graph expected = new Fci(new IndTestFisherZ(data, 0.05)).search();
+
+        CachingIndependenceTest test = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05));
+        Graph cached = new Fci(test).search();
+
+        assertEquals(expected, cached);
+        assertTrue(test.getCache().getHits() > 0);
+    }
+
+    @Test
+    public void testScore() {
+        RandomUtil.getInstance().setSeed(28734928374L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            vars.add(new ContinuousVariable("X" + i));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, 5, 30, 15, 15, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+
+        IndTestFisherZ plain = new IndTestFisherZ(data, 0.05);
+        CachingIndependenceTest test = new CachingIndependenceTest(new IndTestFisherZ(data, 0.05));
+        List<Node> z = Collections.singletonList(vars.get(2));
+
+        for (int i = 0; i < vars.size(); i++) {
+            for (int j = i + 1; j < vars.size(); j++) {
+                Node x = vars.get(i);
+                Node y = vars.get(j);
+                if (z.contains(x) || z.contains(y)) continue;
+
+                // Every other question is first put in the cache through checkIndependence, which leaves the
+                // wrapped test's score unknown.
+                if (j % 2 == 0) test.checkIndependence(x, y, z);
+
+                boolean independent = plain.isIndependent(x, y, z);
+
+                // The p value and score are the wrapped test's, the first time and from the cache.
+                for (int k = 0; k < 2; k++) {
+                    assertEquals(independent, k == 0 ? test.isIndependent(x, y, z) : test.isIndependent(y, x, z));
+                    assertEquals(plain.getPValue(), test.getPValue(), 0.0);
+                    assertEquals(plain.getScore(), test.getScore(), 0.0);
+                }
+            }
+        }
+
+        assertTrue(test.getCache().getHits() > 0);
+    }
+}
@@ -0,0 +1,162 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.bayes.*;
+import edu.cmu.tetrad.graph.Dag;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the junction tree updater against the row summing updater.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestJunctionTreeUpdater {
+
+    @Test
+    public void testMarginals() {
+        RandomUtil.getInstance().setSeed(3928348L);
+
+        for (int trial = 0; trial < 5; trial++) {
+            BayesIm bayesIm = randomBayesIm(8, 10);
+
+            Evidence evidence = Evidence.tautology(bayesIm);
+            evidence.getProposition().setCategory(trial, 1);
+            evidence.getProposition().removeCategory(7 - trial, 0);
+
+            checkAgainstRowSumming(bayesIm, evidence);
+        }
+    }
+
+    @Test
+    public void testManipulation() {
+        RandomUtil.getInstance().setSeed(1827364L);
+        BayesIm bayesIm = randomBayesIm(8, 10);
+
+        for (int node = 0; node < 8; node++) {
+            Evidence evidence = Evidence.tautology(bayesIm);
+            evidence.getProposition().setCategory(node, 0);
+            evidence.setManipulated(node, true);
+            evidence.getProposition().setCategory((node + 3) % 8, 1);
+
+            checkAgainstRowSumming(bayesIm, evidence);
+        }
+    }
+
+    @Test
+    public void testReuse() {
+        RandomUtil.getInstance().setSeed(2387434L);
+        BayesIm bayesIm = randomBayesIm(8, 10);
+        ManipulatingBayesUpdater updater = new JunctionTreeUpdater(bayesIm);
+        ManipulatingBayesUpdater rowSumming = new RowSummingExactUpdater(bayesIm);
+
+        for (int node = 0; node < 8; node++) {
+            Evidence evidence = Evidence.tautology(bayesIm);
+            evidence.getProposition().setCategory(node, 0);
+            updater.setEvidence(evidence);
+            rowSumming.setEvidence(evidence);
+
+            for (int i = 0; i < 8; i++) {
+                assertEquals(rowSumming.getMarginal(i, 0), updater.getMarginal(i, 0), 1e-10);
+                assertEquals(rowSumming.calculatePriorMarginals(i)[1],
+                        updater.calculatePriorMarginals(i)[1], 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeNetwork() {
+        RandomUtil.getInstance().setSeed(9283743L);
+        BayesIm bayesIm = randomBayesIm(300, 300);
+        ManipulatingBayesUpdater updater = new JunctionTreeUpdater(bayesIm);
+
+        Evidence evidence = Evidence.tautology(bayesIm);
+
+        for (int node = 0; node < 300; node += 30) {
+            evidence.getProposition().setCategory(node, 0);
+        }
+
+        updater.setEvidence(evidence);
+
+        for (int node = 0; node < 300; node++) {
+            double sum = 0.0;
+
+            for (int category = 0; category < bayesIm.getNumColumns(node); category++) {
+                double p = updater.getMarginal(node, category);
+                assertTrue(p >= 0 && p <= 1 + 1e-10);
+                sum += p;
+            }
+
+            assertEquals(1.0, sum, 1e-8);
+        }
+
+        assertEquals(1.0, updater.getMarginal(30, 0), 1e-10);
+    }
+
+    private void checkAgainstRowSumming(BayesIm bayesIm, Evidence evidence) {
+        ManipulatingBayesUpdater expected = new RowSummingExactUpdater(bayesIm, evidence);
+        ManipulatingBayesUpdater updater = new JunctionTreeUpdater(bayesIm, evidence);
+        int numNodes = bayesIm.getNumNodes();
+
+        for (int node = 0; node < numNodes; node++) {
+            for (int category = 0; category < bayesIm.getNumColumns(node); category++) {
+                assertEquals(expected.getMarginal(node, category),
+                        updater.getMarginal(node, category), 1e-10);
+            }
+        }
+
+        int[] variables = {0, numNodes / 2, numNodes - 1};
+        int[] values = {1, 0, 1};
+        assertEquals(expected.getJointMarginal(variables, values),
+                updater.getJointMarginal(variables, values), 1e-10);
+
+        BayesIm expectedIm = expected.getUpdatedBayesIm();
+        BayesIm updatedIm = updater.getUpdatedBayesIm();
+
+        for (int node = 0; node < numNodes; node++) {
+            for (int row = 0; row < expectedIm.getNumRows(node); row++) {
+                for (int col = 0; col < expectedIm.getNumColumns(node); col++) {
+                    double p1 = expectedIm.getProbability(node, row, col);
+                    double p2 = updatedIm.getProbability(node, row, col);
+
+                    if (Double.isNaN(p1)) {
+                        assertTrue(Double.isNaN(p2));
+                    } else {
+                        assertEquals(p1, p2, 1e-10);
+                    }
+                }
+            }
+        }
+    }
+
+    private BayesIm randomBayesIm(int numNodes, int numEdges) {
+        Dag dag = new Dag(GraphUtils.randomGraph(numNodes, 0, numEdges, 6, 3, 6, false));
+        BayesPm bayesPm = new BayesPm(dag, 2, 3);
+        return new MlBayesIm(bayesPm, MlBayesIm.RANDOM);
+    }
+}
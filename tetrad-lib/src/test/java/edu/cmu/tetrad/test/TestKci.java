@@ -0,0 +1,88 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.BoxDataSet;
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.VerticalDoubleDataBox;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.Kci;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestKci {
+
+    /**
+     * X --> Z --> Y, with nonlinear links, and W independent of all, tested with random Fourier
+     * features.
+     */
+    @Test
+    public void testLowRank() {
+        RandomUtil.getInstance().setSeed(3948293L);
+        RandomUtil random = RandomUtil.getInstance();
+
+        int n = 500;
+        double[][] columns = new double[4][n];
+
+        for (int i = 0; i < n; i++) {
+            columns[0][i] = random.nextNormal(0, 1);
+            columns[1][i] = Math.sin(2 * columns[0][i]) + random.nextNormal(0, 0.3);
+            columns[2][i] = columns[1][i] * columns[1][i] + random.nextNormal(0, 0.3);
+            columns[3][i] = random.nextNormal(0, 1);
+        }
+
+        List<Node> variables = new ArrayList<>();
+        variables.add(new ContinuousVariable("X"));
+        variables.add(new ContinuousVariable("Z"));
+        variables.add(new ContinuousVariable("Y"));
+        variables.add(new ContinuousVariable("W"));
+
+        DataSet data = new BoxDataSet(new VerticalDoubleDataBox(columns), variables);
+
+        Node x = data.getVariable("X");
+        Node z = data.getVariable("Z");
+        Node y = data.getVariable("Y");
+        Node w = data.getVariable("W");
+
+        Kci kci = new Kci(data, 0.01);
+        kci.setApproximate(true);
+        kci.setRank(100);
+
+        assertFalse(kci.isIndependent(x, z));
+        assertFalse(kci.isIndependent(z, y));
+        assertTrue(kci.isIndependent(x, w));
+        assertTrue(kci.isIndependent(x, y, z));
+        assertFalse(kci.isIndependent(z, y, x));
+        assertTrue(kci.isIndependent(y, w, z));
+    }
+}
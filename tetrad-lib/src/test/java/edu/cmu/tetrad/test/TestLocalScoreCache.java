@@ -0,0 +1,96 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.CachingScore;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.LocalScoreCache;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestLocalScoreCache {
+
+    @Test
+    public void testParentOrder() {
+        LocalScoreCache cache = new LocalScoreCache();
+
+        cache.add(3, new int[]{5, 1, 7}, 2.5);
+
+        assertEquals(2.5, cache.get(3, new int[]{7, 5, 1}), 0.0);
+        assertEquals(2.5, cache.get(3, new int[]{1, 5, 7}), 0.0);
+        assertTrue(Double.isNaN(cache.get(3, new int[]{1, 5})));
+        assertTrue(Double.isNaN(cache.get(4, new int[]{1, 5, 7})));
+
+        cache.addDiff(5, 3, new int[]{1, 7}, -1.0);
+
+        assertEquals(-1.0, cache.getDiff(5, 3, new int[]{7, 1}), 0.0);
+        assertTrue(Double.isNaN(cache.getDiff(1, 3, new int[]{5, 7})));
+        assertEquals(2.5, cache.get(3, new int[]{5, 1, 7}), 0.0);
+
+        assertEquals(4, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        cache.clear();
+        assertTrue(Double.isNaN(cache.get(3, new int[]{5, 1, 7})));
+    }
+
+    @Test
+    public void testFges() {
+        RandomUtil.getInstance().setSeed(492834838L);
+
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            vars.add(new ContinuousVariable("X" + i));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, 20, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(1000, false);
+        CovarianceMatrix cov = new CovarianceMatrix(data);
+
+        Graph expected = new Fges(new SemBicScore(cov)).search();
+
+        CachingScore score = new CachingScore(new SemBicScore(cov));
+        Graph cached = new Fges(score).search();
+
+        assertEquals(expected, cached);
+        assertTrue(score.getCache().getHits() + score.getCache().getMisses() > 0);
+    }
+}
@@ -0,0 +1,92 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.data.ICovarianceMatrix;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import edu.pitt.dbmi.algo.resampling.ResamplingCovariances;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the covariance matrices of resamples computed from row weights.
+ *
+ * @author Joseph Ramsey
+ */
+public final class TestResamplingCovariances {
+
+    @Test
+    public void testWithReplacement() {
+        test(true, 1500);
+    }
+
+    @Test
+    public void testWithoutReplacement() {
+        test(false, 700);
+    }
+
+    private void test(boolean withReplacement, int resampleSize) {
+        RandomUtil.getInstance().setSeed(3928492L);
+
+        Graph dag = GraphUtils.randomGraph(8, 0, 10, 5, 5, 5, false);
+        DataSet data = new SemIm(new SemPm(dag)).simulateData(1000, false);
+
+        long[] seeds = {1L, 2L, 3L, 4L, 5L};
+        ResamplingCovariances resampling = new ResamplingCovariances(data, resampleSize, withReplacement, seeds);
+        resampling.setMaxBytes(1000);
+
+        List<ICovarianceMatrix> covariances = resampling.getCovarianceMatrices();
+        assertEquals(seeds.length, covariances.size());
+
+        for (int b = 0; b < seeds.length; b++) {
+            int[] counts = resampling.getRowCounts(b);
+            int[] rows = new int[withReplacement ? resampleSize : Math.min(resampleSize, data.getNumRows())];
+
+            for (int i = 0, r = 0; i < counts.length; i++) {
+                assertTrue(withReplacement || counts[i] <= 1);
+                for (int k = 0; k < counts[i]; k++) rows[r++] = i;
+            }
+
+            assertEquals(rows.length, sum(counts));
+
+            ICovarianceMatrix expected = new CovarianceMatrix(data.subsetRows(rows));
+            assertEquals(expected.getSampleSize(), covariances.get(b).getSampleSize());
+            assertTrue(expected.getMatrix().equals(covariances.get(b).getMatrix(), 1e-10));
+        }
+    }
+
+    private int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) sum += count;
+        return sum;
+    }
+}
@@ -0,0 +1,94 @@
+///////////////////////////////////////////////////////////////////////////////
+// For information as to what this class does, see the Javadoc, below.       //
+// Copyright (C) 1998, 1999, 2000, 2001, 2002, 2003, 2004, 2005, 2006,       //
+// 2007, 2008, 2009, 2010, 2014, 2015 by Peter Spirtes, Richard Scheines, Joseph   //
+// Ramsey, and Clark Glymour.                                                //
+//                                                                           //
+// This program is free software; you can redistribute it and/or modify      //
+// it under the terms of the GNU General Public License as published by      //
+// the Free Software Foundation; either version 2 of the License, or         //
+// (at your option) any later version.                                       //
+//                                                                           //
+// This program is distributed in the hope that it will be useful,           //
+// but WITHOUT ANY WARRANTY; without even the implied warranty of            //
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the             //
+// GNU General Public License for more details.                              //
+//                                                                           //
+// You should have received a copy of the GNU General Public License         //
+// along with this program; if not, write to the Free Software               //
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA //
+///////////////////////////////////////////////////////////////////////////////
+
+package edu.cmu.tetrad.test;
+
+import edu.cmu.tetrad.data.ContinuousVariable;
+import edu.cmu.tetrad.data.CovarianceMatrix;
+import edu.cmu.tetrad.data.DataSet;
+import edu.cmu.tetrad.graph.Graph;
+import edu.cmu.tetrad.graph.GraphUtils;
+import edu.cmu.tetrad.graph.Node;
+import edu.cmu.tetrad.search.Fges;
+import edu.cmu.tetrad.search.SemBicScore;
+import edu.cmu.tetrad.sem.SemIm;
+import edu.cmu.tetrad.sem.SemPm;
+import edu.cmu.tetrad.util.RandomUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Joseph Ramsey
+ */
+public class TestSemBicScore {
+
+    @Test
+    public void testCholeskyUpdates() {
+        RandomUtil.getInstance().setSeed(3829384L);
+
+        CovarianceMatrix cov = simulateCov(15, 15, 1000);
+
+        SemBicScore exact = new SemBicScore(cov);
+        SemBicScore updated = new SemBicScore(cov);
+        updated.setUseCholeskyUpdates(true);
+
+        // Grow and then shrink a parent set one variable at a time, so that the factors are
+        // obtained by insertion and deletion.
+        int[][] sets = {{}, {3}, {3, 7}, {3, 7, 1}, {3, 7, 1, 12}, {7, 1, 12}, {7, 12}, {12, 4}};
+
+        for (int[] z : sets) {
+            assertEquals(exact.localScore(0, z), updated.localScore(0, z), 1e-8);
+            assertEquals(exact.localScoreDiff(5, 0, z), updated.localScoreDiff(5, 0, z), 1e-8);
+        }
+    }
+
+    @Test
+    public void testFges() {
+        RandomUtil.getInstance().setSeed(3829384L);
+
+        CovarianceMatrix cov = simulateCov(30, 30, 1000);
+
+        Graph expected = new Fges(new SemBicScore(cov)).search();
+
+        SemBicScore score = new SemBicScore(cov);
+        score.setUseCholeskyUpdates(true);
+        Graph updated = new Fges(score).search();
+
+        assertEquals(expected, updated);
+    }
+
+    private CovarianceMatrix simulateCov(int numVars, int numEdges, int sampleSize) {
+        List<Node> vars = new ArrayList<>();
+
+        for (int i = 0; i < numVars; i++) {
+            vars.add(new ContinuousVariable("X" + i));
+        }
+
+        Graph dag = GraphUtils.randomGraph(vars, 0, numEdges, 30, 15, 15, false);
+        SemIm im = new SemIm(new SemPm(dag));
+        DataSet data = im.simulateData(sampleSize, false);
+        return new CovarianceMatrix(data);
+    }
+}
@@ -25,12 +25,16 @@ import edu.cmu.tetrad.data.*;
 import edu.cmu.tetrad.graph.*;
 import edu.cmu.tetrad.sem.*;
 import edu.cmu.tetrad.util.MatrixUtils;
+import edu.cmu.tetrad.util.RandomUtil;
 import edu.cmu.tetrad.util.TetradMatrix;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Tests the MeasurementSimulator class using diagnostics devised by Richard
  * Scheines. The diagnostics are described in the Javadocs, below.
@@ -185,6 +189,64 @@ public class TestSemEstimator {
         opt.optimize(im2);
     }
 
+    /**
+     * For a DAG without latents, regression gives the maximum likelihood estimates, so L-BFGS should find the
+     * same minimum of F_ML.
+     */
+    @Test
+    public void testLbfgs() {
+        RandomUtil.getInstance().setSeed(392949L);
+
+        List<Node> nodes = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            nodes.add(new ContinuousVariable("X" + (i + 1)));
+        }
+
+        Graph graph = new Dag(GraphUtils.randomGraph(nodes, 0, 15,
+                30, 15, 15, false));
+        SemPm pm = new SemPm(graph);
+        SemIm im = new SemIm(pm);
+
+        DataSet data = im.simulateData(1000, false);
+
+        SemIm im1 = new SemIm(pm);
+        im1.setDataSet(data);
+        new SemOptimizerRegression().optimize(im1);
+
+        SemIm im2 = new SemIm(pm);
+        im2.setDataSet(data);
+        new SemOptimizerLbfgs().optimize(im2);
+
+        assertEquals(im1.getScore(), im2.getScore(), 1e-8);
+
+        double[] values1 = im1.getFreeParamValues();
+        double[] values2 = im2.getFreeParamValues();
+
+        for (int i = 0; i < values1.length; i++) {
+            assertEquals(values1[i], values2[i], 1e-4);
+        }
+    }
+
+    @Test
+    public void testLbfgsCyclic() {
+        RandomUtil.getInstance().setSeed(392949L);
+
+        Graph graph = GraphConverter.convert("X1-->X2,X2-->X3,X3-->X4,X4-->X1,X1-->X5,X4-->X5");
+
+        SemPm pm = new SemPm(graph);
+        SemIm im = new SemIm(pm);
+
+        DataSet data = im.simulateData(1000, false);
+
+        SemEstimator estimator = new SemEstimator(data, pm, new SemOptimizerLbfgs());
+        estimator.setScoreType(ScoreType.Fml);
+        SemIm estimated = estimator.estimate();
+
+        // The model is correct, so the chi square should be about the degrees of freedom.
+        assertTrue(estimated.getPValue() > 0.001);
+    }
+
     private ICovarianceMatrix constructCovMatrix2() {
         String[] vars = new String[]{"X1", "X2", "X3", "X4", "X5", "X6"};
 